@@ -31,6 +31,8 @@ import fr.treeptik.cloudunit.cli.tables.ApplicationTableColumn;
 import fr.treeptik.cloudunit.cli.tables.EnvironmentVariableTableColumn;
 import fr.treeptik.cloudunit.cli.utils.ApplicationUtils;
 import fr.treeptik.cloudunit.cli.utils.DateUtils;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
 import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.EnvironmentVariable;
 
@@ -48,6 +50,8 @@ public class ApplicationCommands implements CommandMarker {
     
     private static final String ENV_VAR_ADDED = "Environment variable \"{0}\" has been added to application \"{1}\"";
     private static final String ENV_VAR_REMOVED = "Environment variable \"{0}\" has been removed from application \"{1}\"";
+    private static final String ENV_VARS_CHANGED = "Environment of application \"{0}\" updated: added {1}, updated {2}, removed {3}";
+    private static final String ENV_VARS_UNCHANGED = "Environment of application \"{0}\" is already up to date";
     private static final String APPLICATION_INFO = "Name: {0}\nOwner: {1} {2}\nCreated: {3}\nServer: {4}\nStatus: {5}";
     private static final String APPLICATION_CREATED = "Application \"{0}\" has been created";
     private static final String APPLICATION_REMOVED = "Application \"{0}\" has been removed";
@@ -128,7 +132,7 @@ public class ApplicationCommands implements CommandMarker {
 
 	@CliCommand(value = "list-apps", help = "List all applications")
 	public String list() {
-		List<Application> applications = applicationUtils.listAllApps();
+		List<ApplicationSummary> applications = applicationUtils.listAllApps();
         return formatter.table(ApplicationTableColumn.values(), applications);
 	}
 
@@ -181,6 +185,21 @@ public class ApplicationCommands implements CommandMarker {
 		return null;
 	}
 
+    @CliCommand(value = "set-env-vars", help = "Create, update and remove several environment variables with a single restart")
+    public String applyEnvironmentChanges(
+            @CliOption(key = {"name"}, mandatory = false, help = HELP_APPLICATION_NAME) String applicationName,
+            @CliOption(key = {"set"}, mandatory = false, help = "Comma separated KEY=VALUE variables to create or update") String variables,
+            @CliOption(key = {"unset"}, mandatory = false, help = "Comma separated keys of the variables to remove") String keysToRemove) {
+        EnvironmentChangeReport report = applicationUtils.applyEnvironmentChanges(applicationName, variables, keysToRemove);
+
+        Application application = applicationUtils.getSpecificOrCurrentApplication(applicationName);
+        String message = report.hasChanges()
+                ? MessageFormat.format(ENV_VARS_CHANGED, application.getName(),
+                        report.getAdded(), report.getUpdated(), report.getRemoved())
+                : MessageFormat.format(ENV_VARS_UNCHANGED, application.getName());
+        return formatter.unlessQuiet(message);
+    }
+
     @CliCommand(value = "list-env-var", help = "List all environment variables")
     public String listEnvironmentVariables(
             @CliOption(key = "name", mandatory = false, help = HELP_APPLICATION_NAME)
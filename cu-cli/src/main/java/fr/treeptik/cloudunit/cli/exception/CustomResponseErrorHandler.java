@@ -22,6 +22,7 @@ import org.apache.commons.io.LineIterator;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.util.EntityUtils;
 
@@ -66,7 +67,8 @@ public class CustomResponseErrorHandler implements ResponseHandler<String> {
 					jsonStringBuilder.append(lineIterator.nextLine());
 				}
 				error = JsonConverter.getError(jsonStringBuilder.toString());
-				throw new ClientProtocolException(error.getMessage());
+				// the status tells an unknown resource from a failure
+				throw new HttpResponseException(status, error.getMessage() != null ? error.getMessage() : "Status 404 - Not found");
 			default:
 				reader = null;
 				reader = new InputStreamReader(response.getEntity().getContent());
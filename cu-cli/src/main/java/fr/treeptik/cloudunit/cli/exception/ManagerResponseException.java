@@ -1,5 +1,8 @@
 package fr.treeptik.cloudunit.cli.exception;
 
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+
 /**
  * Created by guillaume on 16/10/15.
  */
@@ -10,4 +13,16 @@ public class ManagerResponseException extends Exception {
 	public ManagerResponseException(String message, Throwable e) {
 		super(message, e);
 	}
+
+	/**
+	 * @return true if the manager answered 404
+	 */
+	public boolean isNotFound() {
+		for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof HttpResponseException) {
+				return ((HttpResponseException) cause).getStatusCode() == HttpStatus.SC_NOT_FOUND;
+			}
+		}
+		return false;
+	}
 }
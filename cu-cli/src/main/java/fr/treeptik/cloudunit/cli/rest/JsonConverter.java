@@ -24,11 +24,14 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.treeptik.cloudunit.dto.AboutResource;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
 import fr.treeptik.cloudunit.dto.Command;
 import fr.treeptik.cloudunit.dto.ContainerUnit;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
 import fr.treeptik.cloudunit.dto.FileUnit;
 import fr.treeptik.cloudunit.dto.HttpErrorServer;
 import fr.treeptik.cloudunit.dto.LogUnit;
+import fr.treeptik.cloudunit.dto.UploadSession;
 import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.EnvironmentVariable;
 import fr.treeptik.cloudunit.model.Image;
@@ -110,6 +113,18 @@ public class JsonConverter {
 		return applications;
 	}
 
+	public static List<ApplicationSummary> getApplicationSummaries(String response) {
+		List<ApplicationSummary> summaries = new ArrayList<>();
+		ObjectMapper mapper = new ObjectMapper();
+		try {
+			summaries = mapper.readValue(response, new TypeReference<List<ApplicationSummary>>() {
+			});
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return summaries;
+	}
+
 	public static List<Snapshot> getSnapshot(String response) {
 		List<Snapshot> snapshots = new ArrayList<>();
 		ObjectMapper mapper = new ObjectMapper();
@@ -230,6 +245,28 @@ public class JsonConverter {
 		return environmentVariables;
 	}
 
+	public static EnvironmentChangeReport getEnvironmentChangeReport(String response) {
+		EnvironmentChangeReport report = new EnvironmentChangeReport();
+		ObjectMapper mapper = new ObjectMapper();
+		try {
+			report = mapper.readValue(response, EnvironmentChangeReport.class);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return report;
+	}
+
+	public static UploadSession getUploadSession(String response) {
+		UploadSession session = new UploadSession();
+		ObjectMapper mapper = new ObjectMapper();
+		try {
+			session = mapper.readValue(response, UploadSession.class);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return session;
+	}
+
 	public static List<String> getAliases(String response) {
 		List<String> tags = new ArrayList<>();
 		ObjectMapper mapper = new ObjectMapper();
@@ -15,14 +15,36 @@
 
 package fr.treeptik.cloudunit.cli.rest;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
@@ -30,13 +52,18 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
@@ -58,6 +85,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.treeptik.cloudunit.cli.exception.CustomResponseErrorHandler;
 import fr.treeptik.cloudunit.cli.exception.ManagerResponseException;
 import fr.treeptik.cloudunit.cli.utils.AuthenticationUtils;
+import fr.treeptik.cloudunit.dto.UploadSession;
 
 @Component
 public class RestUtils {
@@ -66,14 +94,65 @@ public class RestUtils {
     public static final String STATUS_CODE = "statusCode";
     public static final String BODY = "body";
 
+    /**
+     * Suffix of the file receiving a download until it is complete. It is kept when the download fails,
+     * the next download of the same file starts where it stopped.
+     */
+    public static final String PART_SUFFIX = ".part";
+
+    private static final int MAX_CONNECTIONS = 10;
+
+    private static final int DOWNLOAD_ATTEMPTS = 3;
+
+    private static final long DOWNLOAD_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Archives from this size are uploaded in parts.
+     */
+    public static final long CHUNKED_UPLOAD_THRESHOLD = 16 * 1024 * 1024;
+
+    private static final int UPLOAD_THREADS = 4;
+
+    private static final int UPLOAD_ATTEMPTS = 3;
+
     public HttpClientContext localContext;
     @Autowired
     private AuthenticationUtils authentificationUtils;
 
+    /**
+     * Shared by all the commands of the session : the connections to the manager are kept alive
+     * and reused instead of being opened for each request.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpclient;
+
+    /**
+     * Notified while a file is transferred. The total is -1 when the size is not known.
+     */
+    public interface TransferListener {
+        void onProgress(long transferred, long total);
+    }
+
+    public RestUtils() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        connectionManager.setValidateAfterInactivity(2000);
+        httpclient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpclient.close();
+    }
+
     public Map<String, String> connect(String url, Map<String, Object> parameters) throws ManagerResponseException {
 
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
         List<NameValuePair> nvps = new ArrayList<>();
         nvps.add(new BasicNameValuePair("j_username", (String) parameters.get("login")));
         nvps.add(new BasicNameValuePair("j_password", (String) parameters.get("password")));
@@ -82,11 +161,11 @@ public class RestUtils {
         HttpPost httpPost = new HttpPost(url);
         try {
             httpPost.setEntity(new UrlEncodedFormEntity(nvps));
-            CloseableHttpResponse httpResponse = httpclient.execute(httpPost, localContext);
-            ResponseHandler<String> handler = new CustomResponseErrorHandler();
-            String body = handler.handleResponse(httpResponse);
-            response.put(BODY, body);
-            httpResponse.close();
+            try (CloseableHttpResponse httpResponse = httpclient.execute(httpPost, localContext)) {
+                ResponseHandler<String> handler = new CustomResponseErrorHandler();
+                String body = handler.handleResponse(httpResponse);
+                response.put(BODY, body);
+            }
         } catch (Exception e) {
             authentificationUtils.getMap().clear();
             throw new ManagerResponseException(e.getMessage(), e);
@@ -105,15 +184,11 @@ public class RestUtils {
     public Map<String, String> sendGetCommand(String url, Map<String, Object> parameters)
             throws ManagerResponseException {
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
         HttpGet httpget = new HttpGet(url);
-        try {
-            CloseableHttpResponse httpResponse = httpclient.execute(httpget, localContext);
+        try (CloseableHttpResponse httpResponse = httpclient.execute(httpget, localContext)) {
             ResponseHandler<String> handler = new CustomResponseErrorHandler();
             String body = handler.handleResponse(httpResponse);
             response.put(BODY, body);
-            httpResponse.close();
-
         } catch (Exception e) {
             throw new ManagerResponseException(e.getMessage(), e);
         }
@@ -123,25 +198,122 @@ public class RestUtils {
 
     public Map<String, String> sendGetFileCommand(String url, String filePath, Map<String, Object> parameters)
             throws ManagerResponseException {
+        return sendGetFileCommand(url, filePath, parameters, null);
+    }
+
+    /**
+     * Downloads the file into filePath + {@link #PART_SUFFIX}, moved to filePath once complete.
+     * The content is written straight from the connection to the file channel. When a part is already
+     * there, or when the connection breaks, only the missing bytes are asked with a Range header.
+     */
+    public Map<String, String> sendGetFileCommand(String url, String filePath, Map<String, Object> parameters,
+            TransferListener listener) throws ManagerResponseException {
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
+        Path target = Paths.get(filePath);
+        Path part = Paths.get(filePath + PART_SUFFIX);
+        IOException lastError = null;
+        for (int attempt = 0; attempt < DOWNLOAD_ATTEMPTS; attempt++) {
+            try {
+                long size = download(url, part, listener);
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+                response.put(BODY, String.valueOf(size));
+                return response;
+            } catch (ClientProtocolException e) {
+                // error answered by the manager, trying again would not help
+                throw new ManagerResponseException(e.getMessage(), e);
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+        throw new ManagerResponseException(lastError.getMessage(), lastError);
+    }
+
+    private long download(String url, Path part, TransferListener listener) throws IOException {
+        long offset = Files.exists(part) ? Files.size(part) : 0;
         HttpGet httpget = new HttpGet(url);
-        try {
-            CloseableHttpResponse httpResponse = httpclient.execute(httpget, localContext);
-            InputStream inputStream = httpResponse.getEntity().getContent();
-            FileOutputStream fos = new FileOutputStream(new File(filePath));
-            int inByte;
-            while ((inByte = inputStream.read()) != -1)
-                fos.write(inByte);
-            inputStream.close();
-            fos.close();
-            httpResponse.close();
+        if (offset > 0) {
+            httpget.setHeader("Range", "bytes=" + offset + "-");
+            // the part carries the date of the version it comes from, another version is sent whole
+            httpget.setHeader("If-Range", DateUtils.formatDate(new Date(Files.getLastModifiedTime(part).toMillis())));
+        }
+        try (CloseableHttpResponse httpResponse = httpclient.execute(httpget, localContext)) {
+            int status = httpResponse.getStatusLine().getStatusCode();
+            if (status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                // the part does not match the file anymore
+                Files.delete(part);
+                throw new IOException("Status " + status + " for " + url);
+            }
+            if (status != HttpStatus.OK.value() && status != HttpStatus.PARTIAL_CONTENT.value()) {
+                new CustomResponseErrorHandler().handleResponse(httpResponse);
+                throw new ClientProtocolException("Status " + status + " for " + url);
+            }
+            if (status == HttpStatus.OK.value()) {
+                // the range is ignored or the file changed, the whole file is sent again
+                offset = 0;
+            } else if (!startsAt(httpResponse, offset)) {
+                Files.delete(part);
+                throw new IOException("Unexpected " + httpResponse.getFirstHeader("Content-Range") + " for " + url);
+            }
+            Header lastModified = httpResponse.getFirstHeader("Last-Modified");
+            Date version = lastModified != null ? DateUtils.parseDate(lastModified.getValue()) : null;
+            org.apache.http.HttpEntity entity = httpResponse.getEntity();
+            long length = entity != null ? entity.getContentLength() : 0;
+            long total = length < 0 ? -1 : offset + length;
+
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    ReadableByteChannel source = Channels.newChannel(
+                            entity != null ? entity.getContent() : new ByteArrayInputStream(new byte[0]))) {
+                channel.truncate(offset);
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, DOWNLOAD_CHUNK_SIZE)) > 0) {
+                    position += transferred;
+                    if (listener != null) {
+                        listener.onProgress(position, total);
+                    }
+                }
+            } finally {
+                // a part without date is never resumed : its own date matches no version of the file
+                if (version != null && Files.exists(part)) {
+                    Files.setLastModifiedTime(part, FileTime.fromMillis(version.getTime()));
+                }
+            }
+            if (total >= 0 && position < total) {
+                throw new IOException("Download of " + url + " stopped at " + position + " of " + total + " bytes");
+            }
+            return position;
+        }
+    }
+
+    /**
+     * A partial answer must start where the part ends, "Content-Range: bytes 1024-2047/2048" for 1024 bytes.
+     */
+    private static boolean startsAt(HttpResponse httpResponse, long offset) {
+        Header contentRange = httpResponse.getFirstHeader("Content-Range");
+        return contentRange != null && contentRange.getValue().startsWith("bytes " + offset + "-");
+    }
 
+    /**
+     * sendHeadCommand
+     *
+     * @param url
+     * @return true if the resource exists, false if not found
+     */
+    public boolean sendHeadCommand(String url, Map<String, Object> credentials) throws ManagerResponseException {
+        HttpHead httpHead = new HttpHead(url);
+        int status;
+        try (CloseableHttpResponse httpResponse = httpclient.execute(httpHead, localContext)) {
+            status = httpResponse.getStatusLine().getStatusCode();
         } catch (Exception e) {
             throw new ManagerResponseException(e.getMessage(), e);
         }
-
-        return response;
+        if (status == HttpStatus.NOT_FOUND.value()) {
+            return false;
+        }
+        if (status < 200 || status >= 300) {
+            throw new ManagerResponseException("Status " + status + " for " + url, null);
+        }
+        return true;
     }
 
     /**
@@ -153,16 +325,11 @@ public class RestUtils {
     public Map<String, String> sendDeleteCommand(String url, Map<String, Object> credentials)
             throws ManagerResponseException {
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
         HttpDelete httpDelete = new HttpDelete(url);
-        CloseableHttpResponse httpResponse;
-        try {
-            httpResponse = httpclient.execute(httpDelete, localContext);
+        try (CloseableHttpResponse httpResponse = httpclient.execute(httpDelete, localContext)) {
             ResponseHandler<String> handler = new CustomResponseErrorHandler();
             String body = handler.handleResponse(httpResponse);
             response.put("body", body);
-            httpResponse.close();
         } catch (Exception e) {
             throw new ManagerResponseException(e.getMessage(), e);
         }
@@ -202,18 +369,17 @@ public class RestUtils {
     public Map<String, Object> sendPostCommand(String url, Map<String, Object> credentials, String entity)
             throws ManagerResponseException {
         Map<String, Object> response = new HashMap<String, Object>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
         HttpPost httpPost = new HttpPost(url);
         httpPost.setHeader("Accept", "application/json");
         httpPost.setHeader("Content-type", "application/json");
         try {
             StringEntity stringEntity = new StringEntity(entity);
             httpPost.setEntity(stringEntity);
-            CloseableHttpResponse httpResponse = httpclient.execute(httpPost, localContext);
-            ResponseHandler<String> handler = new CustomResponseErrorHandler();
-            String body = handler.handleResponse(httpResponse);
-            response.put(BODY, body);
-            httpResponse.close();
+            try (CloseableHttpResponse httpResponse = httpclient.execute(httpPost, localContext)) {
+                ResponseHandler<String> handler = new CustomResponseErrorHandler();
+                String body = handler.handleResponse(httpResponse);
+                response.put(BODY, body);
+            }
         } catch (Exception e) {
             throw new ManagerResponseException(e.getMessage(), e);
         }
@@ -232,8 +398,6 @@ public class RestUtils {
     public Map<String, Object> sendPutCommand(String url, Map<String, Object> credentials,
             Map<String, String> parameters) throws ManagerResponseException {
         Map<String, Object> response = new HashMap<String, Object>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
         HttpPut httpPut = new HttpPut(url);
         httpPut.setHeader("Accept", "application/json");
         httpPut.setHeader("Content-type", "application/json");
@@ -242,12 +406,11 @@ public class RestUtils {
             ObjectMapper mapper = new ObjectMapper();
             StringEntity entity = new StringEntity(mapper.writeValueAsString(parameters));
             httpPut.setEntity(entity);
-            CloseableHttpResponse httpResponse = httpclient.execute(httpPut, localContext);
-            ResponseHandler<String> handler = new CustomResponseErrorHandler();
-            String body = handler.handleResponse(httpResponse);
-            response.put(BODY, body);
-
-            httpResponse.close();
+            try (CloseableHttpResponse httpResponse = httpclient.execute(httpPut, localContext)) {
+                ResponseHandler<String> handler = new CustomResponseErrorHandler();
+                String body = handler.handleResponse(httpResponse);
+                response.put(BODY, body);
+            }
         } catch (Exception e) {
             throw new ManagerResponseException(e.getMessage(), e);
         }
@@ -292,4 +455,96 @@ public class RestUtils {
         return response;
 
     }
+
+    /**
+     * Sends the file in parts to the uploads of url, then commits the upload. The parts are sent in parallel,
+     * each one is sent again on failure. When the upload stops, the manager keeps the received parts and the next
+     * upload of the same file only sends the missing ones.
+     *
+     * @param url the uploads of the application
+     * @return the response of the commit, null if the manager cannot open an upload in parts
+     */
+    public String sendChunkedUpload(String url, File file, String sha256, TransferListener listener)
+            throws ManagerResponseException {
+        UploadSession request = new UploadSession();
+        request.setFileName(file.getName());
+        request.setSize(file.length());
+        request.setSha256(sha256);
+        UploadSession session;
+        try {
+            String body = (String) sendPostCommand(url, null, new ObjectMapper().writeValueAsString(request))
+                    .get(BODY);
+            session = JsonConverter.getUploadSession(body);
+        } catch (Exception e) {
+            // older manager
+            return null;
+        }
+        if (session.getId() == null) {
+            return null;
+        }
+
+        String sessionUrl = url + "/" + session.getId();
+        long missing = 0;
+        for (Integer index : session.getMissingParts()) {
+            missing += Math.min(session.getPartSize(), session.getSize() - index * session.getPartSize());
+        }
+        AtomicLong sent = new AtomicLong(session.getSize() - missing);
+        ExecutorService executor = Executors.newFixedThreadPool(UPLOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Future<?>> parts = new ArrayList<>();
+            for (Integer index : session.getMissingParts()) {
+                parts.add(executor.submit(() -> {
+                    long length = sendPart(sessionUrl, channel, session, index);
+                    if (listener != null) {
+                        synchronized (listener) {
+                            listener.onProgress(sent.addAndGet(length), session.getSize());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> part : parts) {
+                part.get();
+            }
+        } catch (ExecutionException e) {
+            throw new ManagerResponseException("Upload stopped, run the command again to send the missing parts : "
+                    + e.getCause().getMessage(), e.getCause());
+        } catch (IOException | InterruptedException e) {
+            throw new ManagerResponseException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return (String) sendPostCommand(sessionUrl + "/commit", null, "{}").get(BODY);
+    }
+
+    private long sendPart(String sessionUrl, FileChannel channel, UploadSession session, int index)
+            throws IOException, ManagerResponseException {
+        long position = index * session.getPartSize();
+        byte[] content = new byte[(int) Math.min(session.getPartSize(), session.getSize() - position)];
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The file has changed during its upload");
+            }
+        }
+        HttpPut httpPut = new HttpPut(sessionUrl + "/parts/" + index + "?sha256=" + DigestUtils.sha256Hex(content));
+        httpPut.setHeader("Accept", "application/json");
+        httpPut.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_OCTET_STREAM));
+
+        Exception lastError = null;
+        for (int attempt = 0; attempt < UPLOAD_ATTEMPTS; attempt++) {
+            try (CloseableHttpResponse httpResponse = httpclient.execute(httpPut, localContext)) {
+                new CustomResponseErrorHandler().handleResponse(httpResponse);
+                return content.length;
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+        throw new ManagerResponseException("Part " + index + " not sent : " + lastError.getMessage(), lastError);
+    }
 }
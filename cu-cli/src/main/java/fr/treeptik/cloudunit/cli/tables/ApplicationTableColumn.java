@@ -3,38 +3,38 @@ package fr.treeptik.cloudunit.cli.tables;
 import java.text.MessageFormat;
 
 import fr.treeptik.cloudunit.cli.utils.DateUtils;
-import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
 
-public enum ApplicationTableColumn implements TableColumn<Application> {
+public enum ApplicationTableColumn implements TableColumn<ApplicationSummary> {
     NAME(30) {
         @Override
-        public String getValue(Application item) {
+        public String getValue(ApplicationSummary item) {
             return item.getName();
         }
     },
     OWNER(20) {
         @Override
-        public String getValue(Application item) {
+        public String getValue(ApplicationSummary item) {
             return MessageFormat.format("{0} {1}",
-                    item.getUser().getFirstName(),
-                    item.getUser().getLastName());
+                    item.getOwnerFirstName(),
+                    item.getOwnerLastName());
         }
     },
     CREATED(20) {
         @Override
-        public String getValue(Application item) {
+        public String getValue(ApplicationSummary item) {
             return DateUtils.formatDate(item.getDate());
         }
     },
     SERVER(10) {
         @Override
-        public String getValue(Application item) {
-            return item.getServer().getImage().getName();
+        public String getValue(ApplicationSummary item) {
+            return item.getServerImage();
         }
     },
     STATUS(10) {
         @Override
-        public String getValue(Application item) {
+        public String getValue(ApplicationSummary item) {
             return item.getStatus().toString();
         }
     };
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
@@ -45,7 +46,10 @@ import fr.treeptik.cloudunit.cli.exception.ManagerResponseException;
 import fr.treeptik.cloudunit.cli.processor.InjectLogger;
 import fr.treeptik.cloudunit.cli.rest.JsonConverter;
 import fr.treeptik.cloudunit.cli.rest.RestUtils;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
 import fr.treeptik.cloudunit.dto.Command;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
 import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.EnvironmentVariable;
 import fr.treeptik.cloudunit.model.Module;
@@ -55,6 +59,7 @@ public class ApplicationUtils {
     private static final String NO_SUCH_ENV_VAR = "No such environment variable \"{0}\"";
     private static final String NO_APPLICATION = Messages.getString("application.NO_APPLICATION");
     private static final String NO_SUCH_APPLICATION = Messages.getString("application.NO_SUCH_APPLICATION");
+    private static final int LIST_PAGE_SIZE = 100;
 
     @InjectLogger
     private Logger log;
@@ -100,11 +105,12 @@ public class ApplicationUtils {
     }
 
     public boolean applicationExists(String applicationName) {
-        return listAllApps().stream()
-                .map(app -> app.getName())
-                .filter(name -> name.equals(applicationName))
-                .findAny()
-                .isPresent();
+        try {
+            return restUtils.sendHeadCommand(authenticationUtils.finalHost + urlLoader.actionApplication
+                    + applicationName + "/summary", authenticationUtils.getMap());
+        } catch (ManagerResponseException e) {
+            throw new CloudUnitCliException("Couldn't check application", e);
+        }
     }
     
     public void checkApplicationExists(String applicationName) {
@@ -239,17 +245,24 @@ public class ApplicationUtils {
         }
     }
 
-    public List<Application> listAllApps() {
-        String json = null;
-        try {
-            json = (String) restUtils.sendGetCommand(authenticationUtils.finalHost + urlLoader.listAllApplications,
-                    authenticationUtils.getMap()).get("body");
-        } catch (ManagerResponseException e) {
-            throw new CloudUnitCliException("Couldn't list applications", e);
-        }
-
-        List<Application> listApplications = JsonConverter.getApplications(json);
-        return listApplications;
+    public List<ApplicationSummary> listAllApps() {
+        List<ApplicationSummary> applications = new ArrayList<>();
+        List<ApplicationSummary> page;
+        int pageNumber = 0;
+        do {
+            String json;
+            try {
+                String url = authenticationUtils.finalHost + urlLoader.listAllApplications
+                        + "?page=" + pageNumber + "&size=" + LIST_PAGE_SIZE;
+                json = restUtils.sendGetCommand(url, authenticationUtils.getMap()).get("body");
+            } catch (ManagerResponseException e) {
+                throw new CloudUnitCliException("Couldn't list applications", e);
+            }
+            page = JsonConverter.getApplicationSummaries(json);
+            applications.addAll(page);
+            pageNumber++;
+        } while (page.size() == LIST_PAGE_SIZE);
+        return applications;
     }
 
     public void deployFromAWar(File path, boolean openBrowser) throws MalformedURLException, URISyntaxException {
@@ -261,15 +274,22 @@ public class ApplicationUtils {
         
         try {
             File file = path;
-            FileInputStream fileInputStream = new FileInputStream(file);
-            fileInputStream.available();
-            fileInputStream.close();
-            FileSystemResource resource = new FileSystemResource(file);
-            Map<String, Object> params = new HashMap<>();
-            params.put("file", resource);
-            params.putAll(authenticationUtils.getMap());
-            body = (String) restUtils.sendPostForUpload(authenticationUtils.finalHost
-                    + urlLoader.actionApplication + currentApplication.getName() + "/deploy", params).get("body");
+            String sha256;
+            try (FileInputStream fileInputStream = new FileInputStream(file)) {
+                sha256 = DigestUtils.sha256Hex(fileInputStream);
+            }
+            body = deployKnownArtifact(file.getName(), sha256);
+            if (body == null && file.length() >= RestUtils.CHUNKED_UPLOAD_THRESHOLD) {
+                body = deployInParts(file, sha256);
+            }
+            if (body == null) {
+                FileSystemResource resource = new FileSystemResource(file);
+                Map<String, Object> params = new HashMap<>();
+                params.put("file", resource);
+                params.putAll(authenticationUtils.getMap());
+                body = (String) restUtils.sendPostForUpload(authenticationUtils.finalHost
+                        + urlLoader.actionApplication + currentApplication.getName() + "/deploy", params).get("body");
+            }
         } catch (IOException e) {
             throw new CloudUnitCliException("The file could not be opened", e);
         }
@@ -279,6 +299,56 @@ public class ApplicationUtils {
         }
     }
 
+    /**
+     * Uploads the archive in parts then deploys it.
+     *
+     * @return the response, null if the manager cannot receive archives in parts
+     */
+    private String deployInParts(File file, String sha256) {
+        String url = authenticationUtils.finalHost + urlLoader.actionApplication + currentApplication.getName()
+                + "/uploads";
+        TransferProgress progress = new TransferProgress(file.getName(), log);
+        try {
+            String body = restUtils.sendChunkedUpload(url, file, sha256, progress);
+            if (body == null) {
+                log.fine("The manager does not receive archives in parts, the archive is sent in one request");
+                return null;
+            }
+            progress.done();
+            return body;
+        } catch (ManagerResponseException e) {
+            throw new CloudUnitCliException("Couldn't upload the archive", e);
+        }
+    }
+
+    /**
+     * Deploys the archive kept by the manager if it already knows its content.
+     *
+     * @return the response, null if the archive must be uploaded
+     */
+    private String deployKnownArtifact(String fileName, String sha256) {
+        String url = authenticationUtils.finalHost + urlLoader.actionApplication;
+        try {
+            if (!restUtils.sendHeadCommand(url + "artifacts/" + sha256, authenticationUtils.getMap())) {
+                return null;
+            }
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("artifactHash", sha256);
+            parameters.put("fileName", fileName);
+            String body = (String) restUtils.sendPostCommand(url + currentApplication.getName() + "/deploy/artifact",
+                    authenticationUtils.getMap(), parameters).get("body");
+            log.fine("The archive was already known by the manager, it has not been uploaded");
+            return body;
+        } catch (ManagerResponseException e) {
+            if (!e.isNotFound()) {
+                throw new CloudUnitCliException("Couldn't deploy the archive", e);
+            }
+            // older manager or archive removed meanwhile
+            log.fine("Cannot deploy the archive by hash : " + e.getMessage());
+            return null;
+        }
+    }
+
     public void addNewAlias(String applicationName, String alias) {
         Application application = getSpecificOrCurrentApplication(applicationName);
 
@@ -391,6 +461,43 @@ public class ApplicationUtils {
         }
     }
 
+    /**
+     * Sends all the edits at once, so the server container is recreated a single time.
+     *
+     * @param variables comma separated KEY=VALUE pairs to create or overwrite
+     * @param keysToRemove comma separated keys to remove
+     */
+    public EnvironmentChangeReport applyEnvironmentChanges(String applicationName, String variables,
+            String keysToRemove) {
+        Application application = getSpecificOrCurrentApplication(applicationName);
+
+        EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+        if (StringUtils.isNotEmpty(variables)) {
+            for (String variable : variables.split(",")) {
+                String[] keyValue = variable.split("=", 2);
+                Guard.guardTrue(keyValue.length == 2, "Invalid variable \"{0}\", expected KEY=VALUE", variable);
+                String key = keyValue[0].trim();
+                Guard.guardTrue(Pattern.matches("^[a-zA-Z][-a-zA-Z0-9_]*$", key), "Invalid key name \"{0}\"", key);
+                changeSet.set(key, keyValue[1]);
+            }
+        }
+        if (StringUtils.isNotEmpty(keysToRemove)) {
+            Arrays.stream(keysToRemove.split(",")).map(String::trim).forEach(changeSet::unset);
+        }
+        Guard.guardTrue(!changeSet.isEmpty(), "No variable to set or remove was given");
+
+        try {
+            String entity = new ObjectMapper().writeValueAsString(changeSet);
+            String response = (String) restUtils.sendPostCommand(
+                    authenticationUtils.finalHost + urlLoader.actionApplication + application.getName()
+                            + "/container/" + application.getServer().getName() + "/environmentVariables/changes",
+                    authenticationUtils.getMap(), entity).get("body");
+            return JsonConverter.getEnvironmentChangeReport(response);
+        } catch (ManagerResponseException | JsonProcessingException e) {
+            throw new CloudUnitCliException("Couldn't apply environment variables changes", e);
+        }
+    }
+
     public List<EnvironmentVariable> listAllEnvironmentVariables(String applicationName) {
         Application application = getSpecificOrCurrentApplication(applicationName);
         
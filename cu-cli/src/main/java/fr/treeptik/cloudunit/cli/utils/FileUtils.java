@@ -160,7 +160,7 @@ public class FileUtils {
 	public void changeDirectory(String directoryName) throws ManagerResponseException {
         checkConnectedAndInFileExplorer();
 	    
-		String url = authentificationUtils.finalHost + "/file/container/" + currentContainerId + "?path=" + currentPath;
+		String url = authentificationUtils.finalHost + "/file/container/" + currentContainerId + "?path=" + directoryName;
 		String json = restUtils.sendGetCommand(url, authentificationUtils.getMap()).get("body");
 		JsonConverter.getFileUnits(json);
 		currentPath = directoryName;
@@ -241,9 +241,11 @@ public class FileUtils {
 
 		Map<String, Object> params = new HashMap<>();
 		params.putAll(authentificationUtils.getMap());
+		TransferProgress progress = new TransferProgress(fileName, log);
 		restUtils.sendGetFileCommand(authentificationUtils.finalHost + "/file/container/" + currentContainerId
-				+ "/application/" + applicationUtils.getCurrentApplication().getName() + "?path=" + currentPath + "/fileName/"
-				+ fileName, destFileName, params);
+				+ "/application/" + applicationUtils.getCurrentApplication().getName() + "?path=" + currentPath
+				+ "&fileName=" + fileName, destFileName, params, progress);
+		progress.done();
 		
 		return destFileName;
 	}
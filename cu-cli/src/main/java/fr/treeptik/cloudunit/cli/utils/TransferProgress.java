@@ -0,0 +1,68 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ *     but CloudUnit is licensed too under a standard commercial license.
+ *     Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ *     If you are not sure whether the GPL is right for you,
+ *     you can always test our software under the GPL and inspect the source code before you contact us
+ *     about purchasing a commercial license.
+ *
+ *     LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ *     or promote products derived from this project without prior written permission from Treeptik.
+ *     Products or services derived from this software may not be called "CloudUnit"
+ *     nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ *     For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.cli.utils;
+
+import java.text.MessageFormat;
+import java.util.logging.Logger;
+
+import fr.treeptik.cloudunit.cli.rest.RestUtils;
+
+/**
+ * Logs the progress of a transfer every tenth of the file, or every 10 MB when its size is unknown,
+ * and its throughput once done.
+ */
+public class TransferProgress implements RestUtils.TransferListener {
+
+	private static final long UNKNOWN_SIZE_STEP = 10 * 1024 * 1024;
+
+	private final String fileName;
+
+	private final Logger log;
+
+	private final long start = System.currentTimeMillis();
+
+	private long nextStep;
+
+	private long transferred;
+
+	public TransferProgress(String fileName, Logger log) {
+		this.fileName = fileName;
+		this.log = log;
+	}
+
+	@Override
+	public void onProgress(long transferred, long total) {
+		this.transferred = transferred;
+		if (transferred < nextStep) {
+			return;
+		}
+		if (total > 0) {
+			log.info(MessageFormat.format("{0} : {1}% ({2} KB)", fileName, transferred * 100 / total,
+					transferred / 1024));
+			nextStep = transferred + total / 10;
+		} else {
+			log.info(MessageFormat.format("{0} : {1} KB", fileName, transferred / 1024));
+			nextStep = transferred + UNKNOWN_SIZE_STEP;
+		}
+	}
+
+	public void done() {
+		long duration = Math.max(1, System.currentTimeMillis() - start);
+		log.info(String.format("%s : %d KB in %.1f s (%.2f MB/s)", fileName, transferred / 1024, duration / 1000d,
+				(transferred / 1048576d) / (duration / 1000d)));
+	}
+
+}
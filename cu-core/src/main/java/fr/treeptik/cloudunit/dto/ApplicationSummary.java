@@ -0,0 +1,223 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import fr.treeptik.cloudunit.model.Status;
+import fr.treeptik.cloudunit.utils.NamingUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read model of an application used by the list endpoints : only the columns needed to display
+ * an application in a list, without loading its containers, deployments, aliases or ports.
+ * The full graph stays available on /application/{name}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApplicationSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+
+	private String name;
+
+	private String displayName;
+
+	private Status status;
+
+	@JsonFormat(pattern = "YYYY-MM-dd HH:mm")
+	private Date date;
+
+	private String deploymentStatus;
+
+	private String contextPath;
+
+	private String owner;
+
+	private String ownerFirstName;
+
+	private String ownerLastName;
+
+	private String serverImage;
+
+	private String serverImageDisplayName;
+
+	private String serverImagePrefixEnv;
+
+	private List<String> modules = new ArrayList<>();
+
+	private String location;
+
+	public ApplicationSummary() {
+	}
+
+	/**
+	 * Used by the JPQL constructor expressions of ApplicationDAO.
+	 */
+	public ApplicationSummary(Integer id, String name, String displayName, Status status, Date date,
+			String deploymentStatus, String contextPath, String owner, String ownerFirstName, String ownerLastName,
+			String serverImage, String serverImageDisplayName, String serverImagePrefixEnv) {
+		this.id = id;
+		this.name = name;
+		this.displayName = displayName;
+		this.status = status;
+		this.date = date;
+		this.deploymentStatus = deploymentStatus;
+		this.contextPath = contextPath;
+		this.owner = owner;
+		this.ownerFirstName = ownerFirstName;
+		this.ownerLastName = ownerLastName;
+		this.serverImage = serverImage;
+		this.serverImageDisplayName = serverImageDisplayName;
+		this.serverImagePrefixEnv = serverImagePrefixEnv;
+		this.location = NamingUtils.getContainerName(name, null, owner)
+				+ NamingUtils.getCloudUnitDomain(System.getenv("CU_DOMAIN"));
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	public void setDisplayName(String displayName) {
+		this.displayName = displayName;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+
+	public String getDeploymentStatus() {
+		return deploymentStatus;
+	}
+
+	public void setDeploymentStatus(String deploymentStatus) {
+		this.deploymentStatus = deploymentStatus;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	public void setContextPath(String contextPath) {
+		this.contextPath = contextPath;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	public String getOwnerFirstName() {
+		return ownerFirstName;
+	}
+
+	public void setOwnerFirstName(String ownerFirstName) {
+		this.ownerFirstName = ownerFirstName;
+	}
+
+	public String getOwnerLastName() {
+		return ownerLastName;
+	}
+
+	public void setOwnerLastName(String ownerLastName) {
+		this.ownerLastName = ownerLastName;
+	}
+
+	public String getServerImage() {
+		return serverImage;
+	}
+
+	public void setServerImage(String serverImage) {
+		this.serverImage = serverImage;
+	}
+
+	public String getServerImageDisplayName() {
+		return serverImageDisplayName;
+	}
+
+	public void setServerImageDisplayName(String serverImageDisplayName) {
+		this.serverImageDisplayName = serverImageDisplayName;
+	}
+
+	public String getServerImagePrefixEnv() {
+		return serverImagePrefixEnv;
+	}
+
+	public void setServerImagePrefixEnv(String serverImagePrefixEnv) {
+		this.serverImagePrefixEnv = serverImagePrefixEnv;
+	}
+
+	/**
+	 * Display names of the images of the modules, in creation order.
+	 */
+	public List<String> getModules() {
+		return modules;
+	}
+
+	public void setModules(List<String> modules) {
+		this.modules = modules;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	@Override
+	public String toString() {
+		return "ApplicationSummary{" + "name='" + name + '\'' + ", status=" + status + ", serverImage='" + serverImage
+				+ '\'' + ", modules=" + modules + '}';
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a committed environment change set : the keys really added, updated and removed,
+ * the number of change sets merged together and whether the container has been recreated.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EnvironmentChangeReport implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String containerName;
+
+	private List<String> added = new ArrayList<>();
+
+	private List<String> updated = new ArrayList<>();
+
+	private List<String> removed = new ArrayList<>();
+
+	private int mergedChangeSets;
+
+	private boolean recreated;
+
+	public EnvironmentChangeReport() {
+	}
+
+	public EnvironmentChangeReport(String containerName, int mergedChangeSets) {
+		this.containerName = containerName;
+		this.mergedChangeSets = mergedChangeSets;
+	}
+
+	public String getContainerName() {
+		return containerName;
+	}
+
+	public void setContainerName(String containerName) {
+		this.containerName = containerName;
+	}
+
+	public List<String> getAdded() {
+		return added;
+	}
+
+	public void setAdded(List<String> added) {
+		this.added = added;
+	}
+
+	public List<String> getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(List<String> updated) {
+		this.updated = updated;
+	}
+
+	public List<String> getRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(List<String> removed) {
+		this.removed = removed;
+	}
+
+	public int getMergedChangeSets() {
+		return mergedChangeSets;
+	}
+
+	public void setMergedChangeSets(int mergedChangeSets) {
+		this.mergedChangeSets = mergedChangeSets;
+	}
+
+	public boolean isRecreated() {
+		return recreated;
+	}
+
+	public void setRecreated(boolean recreated) {
+		this.recreated = recreated;
+	}
+
+	public boolean hasChanges() {
+		return !added.isEmpty() || !updated.isEmpty() || !removed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "EnvironmentChangeReport{" + "containerName='" + containerName + '\'' + ", added=" + added
+				+ ", updated=" + updated + ", removed=" + removed + ", mergedChangeSets=" + mergedChangeSets
+				+ ", recreated=" + recreated + '}';
+	}
+}
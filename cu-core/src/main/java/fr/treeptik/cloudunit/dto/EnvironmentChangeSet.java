@@ -0,0 +1,75 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Environment variables edits staged for one container : the variables to create or overwrite
+ * and the keys to remove. A change set is applied as a whole, with a single recreate of the container.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EnvironmentChangeSet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Map<String, String> set = new LinkedHashMap<>();
+
+	private List<String> unset = new ArrayList<>();
+
+	public EnvironmentChangeSet set(String key, String value) {
+		set.put(key, value);
+		return this;
+	}
+
+	public EnvironmentChangeSet unset(String key) {
+		unset.add(key);
+		return this;
+	}
+
+	public Map<String, String> getSet() {
+		return set;
+	}
+
+	public void setSet(Map<String, String> set) {
+		this.set = set;
+	}
+
+	public List<String> getUnset() {
+		return unset;
+	}
+
+	public void setUnset(List<String> unset) {
+		this.unset = unset;
+	}
+
+	@JsonIgnore
+	public boolean isEmpty() {
+		return set.isEmpty() && unset.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "EnvironmentChangeSet{" + "set=" + set.keySet() + ", unset=" + unset + '}';
+	}
+}
@@ -17,6 +17,7 @@ package fr.treeptik.cloudunit.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import java.util.Date;
 import java.util.function.Predicate;
 
 /**
@@ -95,6 +96,10 @@ public class FileUnit {
 
 	private String breadcrumb;
 
+	private long size;
+
+	private Date lastModified;
+
 	public FileUnit(String name, String user, String day, String month, String hour, boolean safe, boolean dir,
 			boolean exec, String breadcrumb) {
 		this.name = name;
@@ -164,6 +169,22 @@ public class FileUnit {
 		return breadcrumb;
 	}
 
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	public FileUnit() {
 	}
 
@@ -171,7 +192,7 @@ public class FileUnit {
 	public String toString() {
 		return "FileUnit{" + "name='" + name + '\'' + ", user='" + user + '\'' + ", day='" + day + '\'' + ", month='"
 				+ month + '\'' + ", hour='" + hour + '\'' + ", safe=" + safe + ", dir=" + dir + ", exec=" + exec
-				+ ", isRemovable=" + isRemovable + ", breadcrumb='" + breadcrumb + '\'' + '}';
+				+ ", isRemovable=" + isRemovable + ", breadcrumb='" + breadcrumb + '\'' + ", size=" + size + '}';
 	}
 
 	@Override
@@ -67,6 +67,10 @@ public class JsonInput implements Serializable {
 
 	private String deployUrl;
 
+	private String artifactHash;
+
+	private String fileName;
+
 	public static long getSerialVersionUID() {
 		return serialVersionUID;
 	}
@@ -244,6 +248,22 @@ public class JsonInput implements Serializable {
 		this.deployUrl = deployUrl;
 	}
 
+	public String getArtifactHash() {
+		return artifactHash;
+	}
+
+	public void setArtifactHash(String artifactHash) {
+		this.artifactHash = artifactHash;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
 	public void validateCreateApp() throws CheckException {
 		CheckUtils.validateSyntaxInput(applicationName, "check.app.name");
 		CheckUtils.validateInput(serverName, "check.server.name");
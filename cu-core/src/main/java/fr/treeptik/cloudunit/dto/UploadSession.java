@@ -0,0 +1,113 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archive uploaded in parts before its deployment. The client asks for a session with the size and
+ * the SHA-256 of the whole archive, sends the parts in any order, each with its own SHA-256, then commits.
+ * The parts have the size given by the manager, except the last one.
+ * Asking again for the same archive returns the pending session, so that only its missing parts are sent.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadSession implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String id;
+
+	private String fileName;
+
+	private long size;
+
+	private String sha256;
+
+	private long partSize;
+
+	private int partCount;
+
+	private List<Integer> missingParts = new ArrayList<>();
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+
+	public void setSha256(String sha256) {
+		this.sha256 = sha256;
+	}
+
+	public long getPartSize() {
+		return partSize;
+	}
+
+	public void setPartSize(long partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getPartCount() {
+		return partCount;
+	}
+
+	public void setPartCount(int partCount) {
+		this.partCount = partCount;
+	}
+
+	/**
+	 * Indexes of the parts not received yet, from 0.
+	 */
+	public List<Integer> getMissingParts() {
+		return missingParts;
+	}
+
+	public void setMissingParts(List<Integer> missingParts) {
+		this.missingParts = missingParts;
+	}
+
+	@Override
+	public String toString() {
+		return "UploadSession{" + "id='" + id + '\'' + ", fileName='" + fileName + '\'' + ", size=" + size
+				+ ", partCount=" + partCount + ", missingParts=" + missingParts.size() + '}';
+	}
+}
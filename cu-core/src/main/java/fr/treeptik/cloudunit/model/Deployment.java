@@ -41,6 +41,12 @@ public class Deployment implements Serializable {
 	@Enumerated(EnumType.STRING)
 	private DeploymentType type;
 
+	/**
+	 * SHA-256 of the deployed archive, null when deployed from an url.
+	 */
+	@Column(length = 64)
+	private String artifactHash;
+
 	public Integer getId() {
 		return id;
 	}
@@ -73,4 +79,12 @@ public class Deployment implements Serializable {
 		this.type = type;
 	}
 
+	public String getArtifactHash() {
+		return artifactHash;
+	}
+
+	public void setArtifactHash(String artifactHash) {
+		this.artifactHash = artifactHash;
+	}
+
 }
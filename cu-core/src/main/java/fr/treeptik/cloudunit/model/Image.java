@@ -18,12 +18,17 @@ import fr.treeptik.cloudunit.enums.ImageSubType;
 import fr.treeptik.cloudunit.enums.ModuleEnvironmentRole;
 import fr.treeptik.cloudunit.enums.PortType;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.Image")
 public class Image implements Serializable {
 
     public final static boolean DISABLED = false;
@@ -61,6 +66,7 @@ public class Image implements Serializable {
 
     @ElementCollection
     @MapKeyEnumerated(EnumType.STRING)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.Image.exposedPorts")
     private Map<PortType, String> exposedPorts;
 
     private Integer prefixId;
@@ -70,6 +76,7 @@ public class Image implements Serializable {
 
     @ElementCollection
     @MapKeyEnumerated(EnumType.STRING)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.Image.moduleEnvironmentVariables")
     private Map<ModuleEnvironmentRole, String> moduleEnvironmentVariables;
 
     @JsonIgnore
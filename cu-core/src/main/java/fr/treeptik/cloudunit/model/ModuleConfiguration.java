@@ -14,6 +14,8 @@ package fr.treeptik.cloudunit.model;/*
  */
 
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
 
@@ -21,6 +23,8 @@ import javax.persistence.*;
 import java.util.Map;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.ModuleConfiguration")
 public class ModuleConfiguration {
 
     @Id
@@ -29,6 +33,7 @@ public class ModuleConfiguration {
 
     @ElementCollection(fetch = FetchType.LAZY)
     @LazyCollection(LazyCollectionOption.FALSE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.ModuleConfiguration.properties")
     private Map<String, String> properties;
 
     private String name;
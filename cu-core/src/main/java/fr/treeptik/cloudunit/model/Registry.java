@@ -15,12 +15,17 @@ package fr.treeptik.cloudunit.model;
 */
 
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 /**
  * Created by gborg on 09/02/17.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.Registry")
 public class Registry {
 
     @Id
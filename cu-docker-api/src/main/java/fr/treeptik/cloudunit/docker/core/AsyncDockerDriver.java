@@ -0,0 +1,28 @@
+package fr.treeptik.cloudunit.docker.core;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+import fr.treeptik.cloudunit.docker.model.DockerContainer;
+import fr.treeptik.cloudunit.dto.DockerResponse;
+
+/**
+ * Non blocking variant of {@link DockerDriver} for the container lifecycle calls.
+ * The returned futures complete exceptionally with a {@link fr.treeptik.cloudunit.exception.FatalDockerJSONException}
+ * when the docker daemon cannot be reached.
+ */
+public interface AsyncDockerDriver extends Closeable {
+
+	CompletableFuture<DockerResponse> find(DockerContainer container);
+
+	CompletableFuture<DockerResponse> create(DockerContainer container);
+
+	CompletableFuture<DockerResponse> start(DockerContainer container);
+
+	CompletableFuture<DockerResponse> stop(DockerContainer container);
+
+	CompletableFuture<DockerResponse> kill(DockerContainer container);
+
+	CompletableFuture<DockerResponse> remove(DockerContainer container);
+
+}
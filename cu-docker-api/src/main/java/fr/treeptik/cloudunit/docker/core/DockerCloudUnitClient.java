@@ -1,35 +1,49 @@
 package fr.treeptik.cloudunit.docker.core;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import fr.treeptik.cloudunit.docker.builders.ContainerBuilder;
 import fr.treeptik.cloudunit.docker.model.Network;
 import fr.treeptik.cloudunit.exception.ServiceException;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.treeptik.cloudunit.docker.model.DockerContainer;
 import fr.treeptik.cloudunit.docker.model.Image;
 import fr.treeptik.cloudunit.docker.model.Volume;
 import fr.treeptik.cloudunit.dto.DockerResponse;
+import fr.treeptik.cloudunit.dto.DockerStreamResponse;
 import fr.treeptik.cloudunit.exception.DockerJSONException;
 import fr.treeptik.cloudunit.exception.ErrorDockerJSONException;
 import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+import fr.treeptik.cloudunit.utils.SingleFileTarEntity;
 
 /**
  * Created by guillaume on 21/10/15.
  */
-public class DockerCloudUnitClient {
+public class DockerCloudUnitClient implements Closeable {
 
     private Logger logger = LoggerFactory.getLogger(DockerCloudUnitClient.class);
 
+    private static final int DEFAULT_ASYNC_THREADS = 10;
+
     private DockerDriver driver;
 
+    private AsyncDockerDriver asyncDriver;
+
     private String defaultHost;
 
     private ObjectMapper objectMapper = new ObjectMapper();
@@ -43,9 +57,7 @@ public class DockerCloudUnitClient {
     public DockerContainer findContainer(DockerContainer container, String host) throws DockerJSONException {
         logger.info("The client attempts to find a container...");
         try {
-            DockerResponse dockerResponse = driver.find(container);
-            handleDockerAPIError(dockerResponse);
-            container = objectMapper.readValue(dockerResponse.getBody(), DockerContainer.class);
+            container = readValue(driver.findAsStream(container), DockerContainer.class);
         } catch (FatalDockerJSONException | IOException e) {
             throw new DockerJSONException(e.getMessage(), e);
         }
@@ -60,9 +72,7 @@ public class DockerCloudUnitClient {
     public DockerContainer findContainer(DockerContainer container) throws DockerJSONException {
         logger.info("The client attempts to find a container...");
         try {
-            DockerResponse dockerResponse = driver.find(container);
-            handleDockerAPIError(dockerResponse);
-            container = objectMapper.readValue(dockerResponse.getBody(), DockerContainer.class);
+            container = readValue(driver.findAsStream(container), DockerContainer.class);
         } catch (FatalDockerJSONException | IOException e) {
             throw new DockerJSONException(e.getMessage(), e);
         }
@@ -75,17 +85,7 @@ public class DockerCloudUnitClient {
      * @throws DockerJSONException
      */
     public List<DockerContainer> findAllContainers(String host) throws DockerJSONException {
-        List<DockerContainer> containers = null;
-        try {
-            logger.info("The client attempts to list all containers...");
-            DockerResponse dockerResponse = driver.findAll();
-            handleDockerAPIError(dockerResponse);
-            containers = objectMapper.readValue(dockerResponse.getBody(), new TypeReference<List<DockerContainer>>() {
-            });
-        } catch (FatalDockerJSONException | IOException e) {
-            throw new DockerJSONException(e.getMessage(), e);
-        }
-        return containers;
+        return findAllContainers(c -> true);
     }
 
     /**
@@ -93,17 +93,51 @@ public class DockerCloudUnitClient {
      * @throws DockerJSONException
      */
     public List<DockerContainer> findAllContainers() throws DockerJSONException {
-        List<DockerContainer> containers = null;
+        return findAllContainers(c -> true);
+    }
+
+    /**
+     * Lists the containers without materialising the whole docker response : only the containers
+     * accepted by the filter are kept.
+     *
+     * @param filter
+     * @return
+     * @throws DockerJSONException
+     */
+    public List<DockerContainer> findAllContainers(Predicate<DockerContainer> filter) throws DockerJSONException {
+        List<DockerContainer> containers = new ArrayList<>();
+        forEachContainer(c -> {
+            if (filter.test(c)) {
+                containers.add(c);
+            }
+        });
+        return containers;
+    }
+
+    /**
+     * Decodes the container list incrementally and hands each container to the consumer as soon as it is read.
+     *
+     * @param consumer
+     * @throws DockerJSONException
+     */
+    public void forEachContainer(Consumer<DockerContainer> consumer) throws DockerJSONException {
+        forEachContainer(false, consumer);
+    }
+
+    /**
+     * Same as {@link #forEachContainer(Consumer)}, stopped containers included when all is true.
+     *
+     * @param all
+     * @param consumer
+     * @throws DockerJSONException
+     */
+    public void forEachContainer(boolean all, Consumer<DockerContainer> consumer) throws DockerJSONException {
         try {
             logger.info("The client attempts to list all containers...");
-            DockerResponse dockerResponse = driver.findAll();
-            handleDockerAPIError(dockerResponse);
-            containers = objectMapper.readValue(dockerResponse.getBody(), new TypeReference<List<DockerContainer>>() {
-            });
+            forEachValue(driver.findAllAsStream(all), DockerContainer.class, consumer);
         } catch (FatalDockerJSONException | IOException e) {
             throw new DockerJSONException(e.getMessage(), e);
         }
-        return containers;
     }
 
     /**
@@ -180,6 +214,27 @@ public class DockerCloudUnitClient {
         return dockerResponse;
     }
 
+    /**
+     * Streams a file into a directory of the container : the tar is built while it is sent.
+     *
+     * @param content read until its end, not closed
+     * @return hexadecimal SHA-256 of the sent content
+     * @throws DockerJSONException
+     */
+    public String putFile(String containerName, String directory, String fileName, long size, InputStream content)
+            throws DockerJSONException {
+        try {
+            logger.info("The client attempts to send " + fileName + " to " + containerName + ":" + directory);
+            SingleFileTarEntity archive = new SingleFileTarEntity(fileName, size, content);
+            DockerResponse dockerResponse = driver.putArchive(
+                    ContainerBuilder.aContainer().withName(containerName).build(), directory, archive);
+            handleDockerAPIError(dockerResponse);
+            return archive.getSha256();
+        } catch (FatalDockerJSONException e) {
+            throw new DockerJSONException(e.getMessage(), e);
+        }
+    }
+
     /**
      * @param container
      * @return
@@ -217,12 +272,9 @@ public class DockerCloudUnitClient {
     }
 
     public Image findAnImage(Image image) throws DockerJSONException {
-        DockerResponse dockerResponse = null;
         try {
             logger.info("The client attempts to find an image...");
-            dockerResponse = driver.findAnImage(image);
-            handleDockerAPIError(dockerResponse);
-            image = objectMapper.readValue(dockerResponse.getBody(), Image.class);
+            image = readValue(driver.findAnImageAsStream(image), Image.class);
         } catch (FatalDockerJSONException | IOException e) {
             throw new DockerJSONException(e.getMessage(), e);
         }
@@ -341,14 +393,27 @@ public class DockerCloudUnitClient {
             logger.info("The client attempts to find a network...");
             Network network = new Network();
             network.setId(id);
-            DockerResponse dockerResponse = driver.findNetwork(network);
-            handleDockerAPIError(dockerResponse);
-            return objectMapper.readValue(dockerResponse.getBody(), Network.class);
+            return readValue(driver.findNetworkAsStream(network), Network.class);
         } catch (FatalDockerJSONException e) {
             throw new DockerJSONException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Decodes the network list incrementally and hands each network to the consumer.
+     *
+     * @param consumer
+     * @throws DockerJSONException
+     */
+    public void forEachNetwork(Consumer<Network> consumer) throws DockerJSONException {
+        try {
+            logger.info("The client attempts to list networks...");
+            forEachValue(driver.listNetworksAsStream(), Network.class, consumer);
+        } catch (FatalDockerJSONException | IOException e) {
+            throw new DockerJSONException(e.getMessage(), e);
+        }
+    }
+
     public void connectToNetwork(String id, String containerId) throws DockerJSONException, ServiceException {
         try {
             logger.info("The client attempts to add container to a network...");
@@ -376,6 +441,88 @@ public class DockerCloudUnitClient {
         return dockerResponse;
     }
 
+    /**
+     * Decodes a single object straight from the response stream, then releases the connection.
+     */
+    private <T> T readValue(DockerStreamResponse response, Class<T> type) throws DockerJSONException, IOException {
+        try (DockerStreamResponse streamResponse = response) {
+            handleDockerAPIError(streamResponse);
+            return objectMapper.readValue(streamResponse.getContent(), type);
+        }
+    }
+
+    /**
+     * Decodes a JSON array element by element from the response stream, then releases the connection.
+     */
+    private <T> void forEachValue(DockerStreamResponse response, Class<T> type, Consumer<T> consumer)
+            throws DockerJSONException, IOException {
+        try (DockerStreamResponse streamResponse = response) {
+            handleDockerAPIError(streamResponse);
+            try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(streamResponse.getContent())) {
+                while (iterator.hasNextValue()) {
+                    consumer.accept(iterator.nextValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Only error bodies are buffered, to build the error message.
+     */
+    private void handleDockerAPIError(DockerStreamResponse response) throws DockerJSONException, IOException {
+        if (!response.isSuccessful()) {
+            handleDockerAPIError(response.toDockerResponse());
+        }
+    }
+
+    /**
+     * Non blocking lookup of a container. The future completes exceptionally with a {@link DockerJSONException}.
+     *
+     * @param container
+     * @return
+     */
+    public CompletableFuture<DockerContainer> findContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to find a container asynchronously...");
+        return getAsyncDriver().find(container).thenApply(dockerResponse -> {
+            checkAsyncResponse(dockerResponse);
+            try {
+                return objectMapper.readValue(dockerResponse.getBody(), DockerContainer.class);
+            } catch (IOException e) {
+                throw new DockerJSONException(e.getMessage(), e);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> createContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to create a container asynchronously...");
+        return getAsyncDriver().create(container).thenAccept(this::checkAsyncResponse);
+    }
+
+    public CompletableFuture<Void> startContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to start a container asynchronously...");
+        return getAsyncDriver().start(container).thenAccept(this::checkAsyncResponse);
+    }
+
+    public CompletableFuture<Void> stopContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to stop a container asynchronously...");
+        return getAsyncDriver().stop(container).thenAccept(this::checkAsyncResponse);
+    }
+
+    public CompletableFuture<DockerResponse> killContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to kill a container asynchronously...");
+        return getAsyncDriver().kill(container).thenApply(this::checkAsyncResponse);
+    }
+
+    public CompletableFuture<DockerResponse> removeContainerAsync(DockerContainer container) {
+        logger.info("The client attempts to remove a container asynchronously...");
+        return getAsyncDriver().remove(container).thenApply(this::checkAsyncResponse);
+    }
+
+    private DockerResponse checkAsyncResponse(DockerResponse dockerResponse) {
+        handleDockerAPIError(dockerResponse);
+        return dockerResponse;
+    }
+
     /**
      * @param dockerResponse
      * @throws DockerJSONException
@@ -425,6 +572,32 @@ public class DockerCloudUnitClient {
         }
     }
 
+    /**
+     * @return the statistics of the driver http connection pool, null if the driver is not pooled
+     */
+    public PoolStats getPoolStats() {
+        if (driver instanceof SimpleDockerDriver) {
+            return ((SimpleDockerDriver) driver).getPoolStats();
+        }
+        return null;
+    }
+
+    /**
+     * Releases the resources held by the driver, such as its http connection pool.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (asyncDriver != null) {
+            asyncDriver.close();
+        }
+        if (driver instanceof Closeable) {
+            logger.info("The client releases its docker driver...");
+            ((Closeable) driver).close();
+        }
+    }
+
     public DockerCloudUnitClient() {
     }
 
@@ -449,4 +622,18 @@ public class DockerCloudUnitClient {
         this.driver = driver;
     }
 
+    /**
+     * @return the async driver, by default the synchronous driver run on a small dedicated pool
+     */
+    public synchronized AsyncDockerDriver getAsyncDriver() {
+        if (asyncDriver == null) {
+            asyncDriver = new ExecutorAsyncDockerDriver(driver, DEFAULT_ASYNC_THREADS);
+        }
+        return asyncDriver;
+    }
+
+    public synchronized void setAsyncDriver(AsyncDockerDriver asyncDriver) {
+        this.asyncDriver = asyncDriver;
+    }
+
 }
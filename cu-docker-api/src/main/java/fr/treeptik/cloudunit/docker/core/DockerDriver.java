@@ -5,10 +5,13 @@ import fr.treeptik.cloudunit.docker.model.Image;
 import fr.treeptik.cloudunit.docker.model.Network;
 import fr.treeptik.cloudunit.docker.model.Volume;
 import fr.treeptik.cloudunit.dto.DockerResponse;
+import fr.treeptik.cloudunit.dto.DockerStreamResponse;
 import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
 
 import java.io.IOException;
 
+import org.apache.http.HttpEntity;
+
 /**
  * Created by nicolas on 03/08/2016.
  */
@@ -18,6 +21,18 @@ public interface DockerDriver {
 
 	DockerResponse findAll() throws FatalDockerJSONException;
 
+	DockerStreamResponse findAsStream(DockerContainer container) throws FatalDockerJSONException;
+
+	DockerStreamResponse findAllAsStream() throws FatalDockerJSONException;
+
+	DockerStreamResponse findAllAsStream(boolean all) throws FatalDockerJSONException;
+
+	DockerStreamResponse findAnImageAsStream(Image image) throws FatalDockerJSONException;
+
+	DockerStreamResponse findNetworkAsStream(Network network) throws FatalDockerJSONException;
+
+	DockerStreamResponse listNetworksAsStream() throws FatalDockerJSONException;
+
 	DockerResponse create(DockerContainer container) throws FatalDockerJSONException;
 
 	DockerResponse start(DockerContainer container) throws FatalDockerJSONException;
@@ -28,6 +43,11 @@ public interface DockerDriver {
 
 	DockerResponse remove(DockerContainer container) throws FatalDockerJSONException;
 
+	/**
+	 * Extracts the tar written by the entity into the directory of the container.
+	 */
+	DockerResponse putArchive(DockerContainer container, String path, HttpEntity archive) throws FatalDockerJSONException;
+
 	DockerResponse findAnImage(Image image) throws FatalDockerJSONException;
 
 	DockerResponse commit(DockerContainer container, String tag, String repository) throws FatalDockerJSONException;
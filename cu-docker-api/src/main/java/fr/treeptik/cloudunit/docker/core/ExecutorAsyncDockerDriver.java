@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015
+ *
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : CloudUnit is a registered trademark of Treeptik and cannot be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.docker.core;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.treeptik.cloudunit.docker.model.DockerContainer;
+import fr.treeptik.cloudunit.dto.DockerResponse;
+import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+
+/**
+ * {@link AsyncDockerDriver} running the calls of a {@link DockerDriver} on a bounded pool of dedicated threads.
+ * The docker round-trips share the pooled connections of the underlying driver, and the calling threads
+ * (servlet threads for instance) are released as soon as the call is submitted.
+ */
+public class ExecutorAsyncDockerDriver implements AsyncDockerDriver {
+
+    private static Logger logger = LoggerFactory.getLogger(ExecutorAsyncDockerDriver.class);
+
+    private final DockerDriver driver;
+
+    private final ExecutorService executor;
+
+    public ExecutorAsyncDockerDriver(DockerDriver driver, int threads) {
+        this.driver = driver;
+        this.executor = Executors.newFixedThreadPool(threads, new DockerThreadFactory());
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> find(DockerContainer container) {
+        return submit(() -> driver.find(container));
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> create(DockerContainer container) {
+        return submit(() -> driver.create(container));
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> start(DockerContainer container) {
+        return submit(() -> driver.start(container));
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> stop(DockerContainer container) {
+        return submit(() -> driver.stop(container));
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> kill(DockerContainer container) {
+        return submit(() -> driver.kill(container));
+    }
+
+    @Override
+    public CompletableFuture<DockerResponse> remove(DockerContainer container) {
+        return submit(() -> driver.remove(container));
+    }
+
+    private CompletableFuture<DockerResponse> submit(DockerCall call) {
+        CompletableFuture<DockerResponse> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.execute());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new FatalDockerJSONException("The docker async driver is shut down", e));
+        }
+        return future;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Docker async calls still running after shutdown : " + executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface DockerCall {
+        DockerResponse execute() throws FatalDockerJSONException;
+    }
+
+    private static class DockerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "docker-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
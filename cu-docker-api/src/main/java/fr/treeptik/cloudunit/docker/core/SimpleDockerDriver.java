@@ -17,6 +17,7 @@
 
 package fr.treeptik.cloudunit.docker.core;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -26,8 +27,11 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import fr.treeptik.cloudunit.docker.model.Network;
+import fr.treeptik.cloudunit.utils.ConnectionPoolConfig;
 import fr.treeptik.cloudunit.utils.NamingUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,11 +42,12 @@ import fr.treeptik.cloudunit.docker.model.DockerContainer;
 import fr.treeptik.cloudunit.docker.model.Image;
 import fr.treeptik.cloudunit.docker.model.Volume;
 import fr.treeptik.cloudunit.dto.DockerResponse;
+import fr.treeptik.cloudunit.dto.DockerStreamResponse;
 import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
 import fr.treeptik.cloudunit.exception.JSONClientException;
 import fr.treeptik.cloudunit.utils.JSONClient;
 
-public class SimpleDockerDriver implements DockerDriver {
+public class SimpleDockerDriver implements DockerDriver, Closeable {
 
     private static Logger logger = LoggerFactory.getLogger(SimpleDockerDriver.class);
 
@@ -53,12 +58,17 @@ public class SimpleDockerDriver implements DockerDriver {
     private String mode;
 
     public SimpleDockerDriver(Boolean isUnixSocket, String mode, String host, String certPathDirectory) {
+        this(isUnixSocket, mode, host, certPathDirectory, ConnectionPoolConfig.defaultConfig());
+    }
+
+    public SimpleDockerDriver(Boolean isUnixSocket, String mode, String host, String certPathDirectory,
+                              ConnectionPoolConfig poolConfig) {
         this.isUnixSocket = isUnixSocket;
         this.mode = mode;
         if (isUnixSocket) {
-            client = new JSONClient(isUnixSocket, "/var/run/docker.sock", null);
+            client = new JSONClient(isUnixSocket, "/var/run/docker.sock", null, poolConfig);
         } else {
-            client = new JSONClient(isUnixSocket, host, certPathDirectory);
+            client = new JSONClient(isUnixSocket, host, certPathDirectory, poolConfig);
         }
         this.host = host;
         objectMapper = new ObjectMapper();
@@ -107,6 +117,58 @@ public class SimpleDockerDriver implements DockerDriver {
         return dockerResponse;
     }
 
+    @Override
+    public DockerStreamResponse findAsStream(DockerContainer container) throws FatalDockerJSONException {
+        return sendGetStream("/containers/" + container.getName() + "/json", "find a container");
+    }
+
+    @Override
+    public DockerStreamResponse findAllAsStream() throws FatalDockerJSONException {
+        return findAllAsStream(false);
+    }
+
+    @Override
+    public DockerStreamResponse findAllAsStream(boolean all) throws FatalDockerJSONException {
+        URI uri = null;
+        try {
+            uri = new URIBuilder().setScheme(NamingUtils.getProtocolSocket(isUnixSocket, mode)).setHost(host)
+                    .setPath("/containers/json").setParameter("all", all ? "1" : "0").build();
+            return client.sendGetStream(uri);
+        } catch (URISyntaxException | JSONClientException e) {
+            logger.error("uri : " + uri);
+            throw new FatalDockerJSONException(
+                    "An error has occurred for find all containers request due to " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public DockerStreamResponse findAnImageAsStream(Image image) throws FatalDockerJSONException {
+        return sendGetStream("/images/" + image.getName() + "/json", "find an image");
+    }
+
+    @Override
+    public DockerStreamResponse findNetworkAsStream(Network network) throws FatalDockerJSONException {
+        return sendGetStream("/networks/" + network.getId(), "find a network");
+    }
+
+    @Override
+    public DockerStreamResponse listNetworksAsStream() throws FatalDockerJSONException {
+        return sendGetStream("/networks", "list networks");
+    }
+
+    private DockerStreamResponse sendGetStream(String path, String requestName) throws FatalDockerJSONException {
+        URI uri = null;
+        try {
+            uri = new URIBuilder().setScheme(NamingUtils.getProtocolSocket(isUnixSocket, mode)).setHost(host)
+                    .setPath(path).build();
+            return client.sendGetStream(uri);
+        } catch (URISyntaxException | JSONClientException e) {
+            logger.error("uri : " + uri);
+            throw new FatalDockerJSONException(
+                    "An error has occurred for " + requestName + " request due to " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public DockerResponse create(DockerContainer container) throws FatalDockerJSONException {
         URI uri = null;
@@ -171,6 +233,21 @@ public class SimpleDockerDriver implements DockerDriver {
         return dockerResponse;
     }
 
+    @Override
+    public DockerResponse putArchive(DockerContainer container, String path, HttpEntity archive)
+            throws FatalDockerJSONException {
+        URI uri = null;
+        try {
+            uri = new URIBuilder().setScheme(NamingUtils.getProtocolSocket(isUnixSocket, mode)).setHost(host)
+                    .setPath("/containers/" + container.getName() + "/archive").setParameter("path", path).build();
+            return client.sendPut(uri, archive);
+        } catch (URISyntaxException | JSONClientException e) {
+            logger.error("uri : " + uri);
+            throw new FatalDockerJSONException(
+                    "An error has occurred for put archive request due to " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public DockerResponse kill(DockerContainer container) throws FatalDockerJSONException {
         URI uri = null;
@@ -240,9 +317,11 @@ public class SimpleDockerDriver implements DockerDriver {
         String body = new String();
         DockerResponse dockerResponse = null;
         try {
-            DockerResponse response = findAnImage(
-                    ImageBuilder.anImage().withName(container.getConfig().getImage() + ":" + tag).build());
-            Image image = objectMapper.readValue(response.getBody(), Image.class);
+            Image image;
+            try (DockerStreamResponse response = findAnImageAsStream(
+                    ImageBuilder.anImage().withName(container.getConfig().getImage() + ":" + tag).build())) {
+                image = objectMapper.readValue(response.getContent(), Image.class);
+            }
             uri = new URIBuilder().setScheme(NamingUtils.getProtocolSocket(isUnixSocket, mode)).setHost(host).setPath("/commit")
                     .setParameter("container", container.getName()).setParameter("tag", tag)
                     .setParameter("repo", repository).build();
@@ -371,10 +450,11 @@ public class SimpleDockerDriver implements DockerDriver {
 		/*
         check network name
 		 */
-        DockerResponse response = listNetworks();
-
-        List<Network> networks = objectMapper.readValue(response.getBody(), new TypeReference<List<Network>>() {
-        });
+        List<Network> networks;
+        try (DockerStreamResponse response = listNetworksAsStream()) {
+            networks = objectMapper.readValue(response.getContent(), new TypeReference<List<Network>>() {
+            });
+        }
         if (networks.stream()
                 .filter(n -> n.getName().equalsIgnoreCase(network.getName()))
                 .findAny()
@@ -474,6 +554,15 @@ public class SimpleDockerDriver implements DockerDriver {
         return dockerResponse;
     }
 
+    public PoolStats getPoolStats() {
+        return client.getPoolStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
     public JSONClient getClient() {
         return client;
     }
@@ -1,5 +1,6 @@
 package fr.treeptik.cloudunit.docker.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -46,6 +47,17 @@ public class State implements Serializable {
 	@JsonProperty("Status")
 	private String status;
 
+	/**
+	 * The container list gives the state as a plain string ("running", "exited"...).
+	 */
+	@JsonCreator
+	public static State fromStatus(String status) {
+		State state = new State();
+		state.status = status;
+		state.setRunning("running".equalsIgnoreCase(status));
+		return state;
+	}
+
 	public String getError() {
 		return error;
 	}
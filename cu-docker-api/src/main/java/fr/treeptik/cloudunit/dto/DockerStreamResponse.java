@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015
+ *
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : CloudUnit is a registered trademark of Treeptik and cannot be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Docker response whose body is not buffered : the content is read directly from the connection.
+ * It must be closed to give the connection back to the pool.
+ */
+public class DockerStreamResponse implements Closeable {
+
+	private final CloseableHttpResponse response;
+
+	public DockerStreamResponse(CloseableHttpResponse response) {
+		this.response = response;
+	}
+
+	public int getStatus() {
+		return response.getStatusLine().getStatusCode();
+	}
+
+	public boolean isSuccessful() {
+		return getStatus() >= 200 && getStatus() < 300;
+	}
+
+	public InputStream getContent() throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		return entity.getContent();
+	}
+
+	/**
+	 * Reads the remaining body. Only meant for small bodies such as error messages.
+	 */
+	public DockerResponse toDockerResponse() throws IOException {
+		HttpEntity entity = response.getEntity();
+		String body = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+		return new DockerResponse(getStatus(), body);
+	}
+
+	@Override
+	public void close() throws IOException {
+		response.close();
+	}
+
+}
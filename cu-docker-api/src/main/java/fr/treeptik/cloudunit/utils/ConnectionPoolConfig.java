@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015
+ *
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : CloudUnit is a registered trademark of Treeptik and cannot be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+/**
+ * Settings of the connection pool shared by all the requests of a {@link JSONClient}.
+ * Durations are expressed in milliseconds.
+ * The socket timeout is 0 by default (no read timeout) : commits, exports, archive uploads or
+ * waits for a container to stop can keep a connection silent for minutes.
+ */
+public class ConnectionPoolConfig {
+
+    private int maxTotal = 50;
+
+    private int maxPerRoute = 50;
+
+    private int connectTimeout = 5 * 1000;
+
+    private int socketTimeout = 0;
+
+    private int connectionRequestTimeout = 10 * 1000;
+
+    private long maxIdleTime = 30 * 1000;
+
+    private int validateAfterInactivity = 2 * 1000;
+
+    public static ConnectionPoolConfig defaultConfig() {
+        return new ConnectionPoolConfig();
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolConfig{" +
+                "maxTotal=" + maxTotal +
+                ", maxPerRoute=" + maxPerRoute +
+                ", connectTimeout=" + connectTimeout +
+                ", socketTimeout=" + socketTimeout +
+                ", connectionRequestTimeout=" + connectionRequestTimeout +
+                ", maxIdleTime=" + maxIdleTime +
+                ", validateAfterInactivity=" + validateAfterInactivity +
+                '}';
+    }
+}
@@ -19,44 +19,54 @@ package fr.treeptik.cloudunit.utils;
 
 import com.spotify.docker.client.ApacheUnixSocket;
 import fr.treeptik.cloudunit.dto.DockerResponse;
+import fr.treeptik.cloudunit.dto.DockerStreamResponse;
 import fr.treeptik.cloudunit.exception.JSONClientException;
 import jnr.unixsocket.UnixSocketAddress;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.ConnectTimeoutException;
-import org.apache.http.conn.HttpClientConnectionManager;
-import org.apache.http.conn.scheme.SchemeSocketFactory;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLContexts;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLContext;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.net.*;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
 
-public class JSONClient  {
+/**
+ * HTTP client used by the docker driver.
+ *
+ * A single pooled and keep-alive {@link CloseableHttpClient} is built when the client is created
+ * and shared by every request, whatever the transport (unix socket, http or https).
+ * The keystore is therefore loaded only once. {@link #close()} must be called to release the pool.
+ */
+public class JSONClient implements Closeable {
 
     private Logger logger = LoggerFactory.getLogger(JSONClient.class);
 
@@ -64,9 +74,18 @@ public class JSONClient  {
     private String certPathDirectory;
     private File socketFile;
 
+    private final ConnectionPoolConfig poolConfig;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
     public JSONClient(Boolean isUnixSocket, String location, String certPathDirectory) {
+        this(isUnixSocket, location, certPathDirectory, ConnectionPoolConfig.defaultConfig());
+    }
+
+    public JSONClient(Boolean isUnixSocket, String location, String certPathDirectory, ConnectionPoolConfig poolConfig) {
         this.certPathDirectory = certPathDirectory;
         this.isUnixSocket = isUnixSocket;
+        this.poolConfig = poolConfig;
         if(isUnixSocket && location !=null) {
             try {
                 URI uri = new URI(location);
@@ -87,59 +106,61 @@ public class JSONClient  {
         }
         StringBuilder builder = new StringBuilder();
 
-
         HttpGet httpGet = new HttpGet(uri);
-        HttpResponse response = null;
-        try {
-            CloseableHttpClient httpclient = buildSecureHttpClient();
-            response = httpclient.execute(httpGet);
-            LineIterator iterator = IOUtils.lineIterator(response.getEntity()
-                    .getContent(), "UTF-8");
-            while (iterator.hasNext()) {
-                builder.append(iterator.nextLine());
+        int statusCode;
+        try (CloseableHttpResponse response = getHttpClient().execute(httpGet)) {
+            statusCode = response.getStatusLine().getStatusCode();
+            if (response.getEntity() != null) {
+                LineIterator iterator = IOUtils.lineIterator(response.getEntity()
+                        .getContent(), "UTF-8");
+                while (iterator.hasNext()) {
+                    builder.append(iterator.nextLine());
+                }
             }
         } catch (IOException e) {
             throw new JSONClientException("Error in sendGet method due to : " + e.getMessage(), e);
         }
         if (logger.isDebugEnabled()) {
-            logger.debug("Status code : " + response.getStatusLine().getStatusCode());
+            logger.debug("Status code : " + statusCode);
             logger.debug("Server response : " + builder.toString());
         }
 
-        return new DockerResponse(response.getStatusLine().getStatusCode(), builder.toString());
+        return new DockerResponse(statusCode, builder.toString());
 
     }
 
-    public DockerResponse sendPost(URI uri, String body, String contentType) throws JSONClientException {
+    /**
+     * Sends a get request without buffering the response body.
+     * The caller reads the content as a stream and must close the returned response.
+     */
+    public DockerStreamResponse sendGetStream(URI uri) throws JSONClientException {
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Send a post request to : " + uri);
-            logger.debug("Body content : " + body);
-            logger.debug("Content type : " + contentType);
+            logger.debug("Send a streamed get request to : " + uri);
         }
-
-
-        HttpPost httpPost = new HttpPost(uri);
-        httpPost.addHeader("content-type", contentType);
-        HttpResponse response = null;
-        StringWriter writer = new StringWriter();
+        HttpGet httpGet = new HttpGet(uri);
         try {
-            CloseableHttpClient httpclient = buildSecureHttpClient();
-            httpPost.setEntity(new StringEntity(body));
-            response = httpclient.execute(httpPost);
-            if (response.getEntity() != null) {
-                IOUtils.copy(response.getEntity().getContent(), writer, "UTF-8");
+            DockerStreamResponse response = new DockerStreamResponse(getHttpClient().execute(httpGet));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Status code : " + response.getStatus());
             }
+            return response;
         } catch (IOException e) {
-            throw new JSONClientException("Error in sendPost method due to : " + e.getMessage(), e);
+            throw new JSONClientException("Error in sendGetStream method due to : " + e.getMessage(), e);
         }
+    }
+
+    public DockerResponse sendPost(URI uri, String body, String contentType) throws JSONClientException {
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Status code : " + response.getStatusLine().getStatusCode());
-            logger.debug("Server response : " + writer.toString());
+            logger.debug("Send a post request to : " + uri);
+            logger.debug("Body content : " + body);
+            logger.debug("Content type : " + contentType);
         }
 
-        return new DockerResponse(response.getStatusLine().getStatusCode(), writer.toString());
+        HttpPost httpPost = new HttpPost(uri);
+        httpPost.addHeader("content-type", contentType);
+        return executePost(httpPost, body, "sendPost");
     }
 
     public DockerResponse sendPostToRegistryHost(URI uri, String body, String contentType) throws JSONClientException {
@@ -150,31 +171,43 @@ public class JSONClient  {
             logger.debug("Content type : " + contentType);
         }
 
-
-        RequestConfig config = RequestConfig.custom()
+        RequestConfig config = RequestConfig.copy(defaultRequestConfig())
                 .setSocketTimeout(1000 * 60 * 50)
                 .setConnectTimeout(1000 * 60 * 50).build();
         HttpPost httpPost = new HttpPost(uri);
         httpPost.setConfig(config);
         httpPost.addHeader("content-type", contentType);
         httpPost.addHeader("X-Registry-Auth", "123");
-        HttpResponse response = null;
+        return executePost(httpPost, body, "sendPostToRegistryHost");
+    }
+
+    /**
+     * Sends a put request whose body is written by the entity, without buffering it.
+     */
+    public DockerResponse sendPut(URI uri, HttpEntity entity) throws JSONClientException {
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Send a put request to : " + uri);
+        }
+        int statusCode;
         StringWriter writer = new StringWriter();
-        try {
-            CloseableHttpClient httpclient = buildSecureHttpClient();
-            httpPost.setEntity(new StringEntity(body));
-            response = httpclient.execute(httpPost);
-            IOUtils.copy(response.getEntity().getContent(), writer, "UTF-8");
+        HttpPut httpPut = new HttpPut(uri);
+        httpPut.setEntity(entity);
+        try (CloseableHttpResponse response = getHttpClient().execute(httpPut)) {
+            statusCode = response.getStatusLine().getStatusCode();
+            if (response.getEntity() != null) {
+                IOUtils.copy(response.getEntity().getContent(), writer, "UTF-8");
+            }
         } catch (IOException e) {
-            throw new JSONClientException("Error in sendPostToRegistryHost method due to : " + e.getMessage(), e);
+            throw new JSONClientException("Error in sendPut method due to : " + e.getMessage(), e);
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Status code : " + response.getStatusLine().getStatusCode());
+            logger.debug("Status code : " + statusCode);
             logger.debug("Server response : " + writer.toString());
         }
 
-        return new DockerResponse(response.getStatusLine().getStatusCode(), writer.toString());
+        return new DockerResponse(statusCode, writer.toString());
     }
 
     public DockerResponse sendDelete(URI uri, Boolean httpRequired) throws JSONClientException {
@@ -182,42 +215,108 @@ public class JSONClient  {
         if (logger.isDebugEnabled()) {
             logger.debug("Send a delete request to : " + uri);
         }
-        CloseableHttpResponse response = null;
-        try {
-            CloseableHttpClient httpClient = buildSecureHttpClient();
-            HttpDelete httpDelete = new HttpDelete(uri);
-            response = httpClient.execute(httpDelete);
+        int statusCode;
+        HttpDelete httpDelete = new HttpDelete(uri);
+        try (CloseableHttpResponse response = getHttpClient().execute(httpDelete)) {
+            statusCode = response.getStatusLine().getStatusCode();
+            EntityUtils.consume(response.getEntity());
         } catch (IOException e) {
             throw new JSONClientException("Error in sendDelete method due to : " + e.getMessage(), e);
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Status code : " + response.getStatusLine().getStatusCode());
+            logger.debug("Status code : " + statusCode);
         }
 
-        return new DockerResponse(response.getStatusLine().getStatusCode(), "");
+        return new DockerResponse(statusCode, "");
     }
 
-    public CloseableHttpClient buildSecureHttpClient() throws IOException {
-        if(isUnixSocket){
-            HttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(getUnixSocketFactoryRegistry());
-            HttpClientBuilder builder = HttpClients.custom();
-            builder.setConnectionManager(manager);
-            return builder.build();
-        } else if (certPathDirectory != null && !certPathDirectory.isEmpty()) {
-            org.apache.http.impl.client.HttpClientBuilder builder = HttpClients.custom();
-            HttpClientConnectionManager manager = getConnectionFactory(this.certPathDirectory, 10);
-            builder.setConnectionManager(manager);
-            return builder.build();
-        } else {
-            return HttpClients.createDefault();
+    private DockerResponse executePost(HttpPost httpPost, String body, String methodName) throws JSONClientException {
+        int statusCode;
+        StringWriter writer = new StringWriter();
+        try {
+            httpPost.setEntity(new StringEntity(body));
+            try (CloseableHttpResponse response = getHttpClient().execute(httpPost)) {
+                statusCode = response.getStatusLine().getStatusCode();
+                if (response.getEntity() != null) {
+                    IOUtils.copy(response.getEntity().getContent(), writer, "UTF-8");
+                }
+            }
+        } catch (IOException e) {
+            throw new JSONClientException("Error in " + methodName + " method due to : " + e.getMessage(), e);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Status code : " + statusCode);
+            logger.debug("Server response : " + writer.toString());
         }
+
+        return new DockerResponse(statusCode, writer.toString());
+    }
+
+    /**
+     * Returns the shared http client, building the connection pool on first use.
+     */
+    public synchronized CloseableHttpClient getHttpClient() throws IOException {
+        if (httpClient == null) {
+            connectionManager = new PoolingHttpClientConnectionManager(getSocketFactoryRegistry());
+            connectionManager.setMaxTotal(poolConfig.getMaxTotal());
+            connectionManager.setDefaultMaxPerRoute(poolConfig.getMaxPerRoute());
+            connectionManager.setValidateAfterInactivity(poolConfig.getValidateAfterInactivity());
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(defaultRequestConfig())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(poolConfig.getMaxIdleTime(), TimeUnit.MILLISECONDS)
+                    .build();
+            logger.info("Docker http client pool created : " + poolConfig);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Statistics of the connection pool : leased, pending, available and max connections.
+     */
+    public synchronized PoolStats getPoolStats() {
+        if (connectionManager == null) {
+            return new PoolStats(0, 0, 0, poolConfig.getMaxTotal());
+        }
+        return connectionManager.getTotalStats();
+    }
+
+    public ConnectionPoolConfig getPoolConfig() {
+        return poolConfig;
     }
 
-    private static HttpClientConnectionManager getConnectionFactory(String certPath, int maxConnections) throws IOException {
-        PoolingHttpClientConnectionManager ret = new PoolingHttpClientConnectionManager(getSslFactoryRegistry(certPath));
-        ret.setDefaultMaxPerRoute(maxConnections);
-        return ret;
+    @Override
+    public synchronized void close() throws IOException {
+        if (httpClient != null) {
+            logger.info("Docker http client pool shutdown : " + connectionManager.getTotalStats());
+            httpClient.close();
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+
+    private RequestConfig defaultRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout(poolConfig.getConnectTimeout())
+                .setSocketTimeout(poolConfig.getSocketTimeout())
+                .setConnectionRequestTimeout(poolConfig.getConnectionRequestTimeout())
+                .build();
+    }
+
+    private Registry<ConnectionSocketFactory> getSocketFactoryRegistry() throws IOException {
+        if (isUnixSocket) {
+            return getUnixSocketFactoryRegistry();
+        } else if (certPathDirectory != null && !certPathDirectory.isEmpty()) {
+            return getSslFactoryRegistry(certPathDirectory);
+        } else {
+            return RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                    .build();
+        }
     }
 
     private Registry<ConnectionSocketFactory> getUnixSocketFactoryRegistry() throws IOException {
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015
+ *
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : CloudUnit is a registered trademark of Treeptik and cannot be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Request body holding a tar with a single file, built while the request is sent.
+ * The content is read once through a fixed buffer and its SHA-256 is computed on the way.
+ */
+public class SingleFileTarEntity extends AbstractHttpEntity {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String fileName;
+
+    private final long size;
+
+    private final InputStream content;
+
+    private final MessageDigest digest;
+
+    private boolean consumed;
+
+    private String sha256;
+
+    /**
+     * @param fileName name of the file in the archive
+     * @param size exact number of bytes of the content, written in the tar header
+     * @param content read until its end, not closed
+     */
+    public SingleFileTarEntity(String fileName, long size, InputStream content) {
+        this.fileName = fileName;
+        this.size = size;
+        this.content = content;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        setContentType("application/x-tar");
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException("The archive is only written to the request");
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (consumed) {
+            throw new IllegalStateException("The content of " + fileName + " has already been sent");
+        }
+        consumed = true;
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        TarArchiveEntry entry = new TarArchiveEntry(fileName);
+        entry.setSize(size);
+        entry.setModTime(new Date());
+        tar.putArchiveEntry(entry);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            tar.write(buffer, 0, read);
+        }
+        // fails if less bytes than announced were read
+        tar.closeArchiveEntry();
+        tar.finish();
+        tar.flush();
+        sha256 = Hex.encodeHexString(digest.digest());
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+    /**
+     * @return hexadecimal SHA-256 of the content, null until it is sent
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015
+ *
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : CloudUnit is a registered trademark of Treeptik and cannot be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleFileTarEntityTest {
+
+    @Test
+    public void contentIsWrappedInATarWithItsChecksum() throws IOException {
+        byte[] content = "Hello CloudUnit".getBytes(StandardCharsets.UTF_8);
+        SingleFileTarEntity entity = new SingleFileTarEntity("hello.war", content.length,
+                new ByteArrayInputStream(content));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            TarArchiveEntry entry = tar.getNextTarEntry();
+            Assert.assertEquals("hello.war", entry.getName());
+            Assert.assertEquals(content.length, entry.getSize());
+            Assert.assertArrayEquals(content, IOUtils.toByteArray(tar));
+            Assert.assertNull(tar.getNextTarEntry());
+        }
+        Assert.assertEquals(DigestUtils.sha256Hex(content), entity.getSha256());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedContentFails() throws IOException {
+        byte[] content = "Hello".getBytes(StandardCharsets.UTF_8);
+        new SingleFileTarEntity("hello.war", 10, new ByteArrayInputStream(content))
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+}
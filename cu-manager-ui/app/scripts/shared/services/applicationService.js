@@ -88,11 +88,22 @@ function about () {
     } )
 }
 
-// Liste des applications
+// Liste des applications (résumés paginés)
 function list () {
-    return $http.get ( 'application' ).then ( function ( response ) {
-        return angular.copy ( response.data );
-    } )
+    var size = 100;
+    var applications = [];
+
+    function page ( number ) {
+        return $http.get ( 'application/summaries', { params: { page: number, size: size } } ).then ( function ( response ) {
+            applications = applications.concat ( response.data );
+            if ( response.data.length === size ) {
+                return page ( number + 1 );
+            }
+            return angular.copy ( applications );
+        } )
+    }
+
+    return page ( 0 );
 }
 
 // Creation d'une application
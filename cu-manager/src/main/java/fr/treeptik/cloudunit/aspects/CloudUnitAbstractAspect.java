@@ -18,6 +18,7 @@ package fr.treeptik.cloudunit.aspects;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.User;
 import fr.treeptik.cloudunit.service.UserService;
+import fr.treeptik.cloudunit.utils.ResolutionContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -34,11 +35,14 @@ public class CloudUnitAbstractAspect {
     @Inject
     protected UserService userService;
 
+    @Inject
+    protected ResolutionContext resolutionContext;
+
     protected User getAuthentificatedUser()
         throws ServiceException {
         UserDetails principal = (UserDetails) SecurityContextHolder
             .getContext().getAuthentication().getPrincipal();
-        User user = userService.findByLogin(principal.getUsername());
-        return user;
+        return resolutionContext.getUser(principal.getUsername(),
+            () -> userService.findByLogin(principal.getUsername()));
     }
 }
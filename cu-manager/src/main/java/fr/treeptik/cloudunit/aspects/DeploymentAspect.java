@@ -18,7 +18,7 @@ package fr.treeptik.cloudunit.aspects;
 import fr.treeptik.cloudunit.exception.MonitorException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.*;
-import fr.treeptik.cloudunit.service.MessageService;
+import fr.treeptik.cloudunit.service.AuditService;
 import fr.treeptik.cloudunit.utils.MessageUtils;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.JoinPoint.StaticPart;
@@ -45,7 +45,7 @@ public class DeploymentAspect
     private final Logger logger = LoggerFactory.getLogger(DeploymentAspect.class);
 
     @Inject
-    private MessageService messageService;
+    private AuditService auditService;
 
     // Before methods
     @Before("execution(* fr.treeptik.cloudunit.service.DeploymentService.create(..))")
@@ -63,7 +63,7 @@ public class DeploymentAspect
             }
             if (message != null) {
                 logger.info(message.toString());
-                messageService.create(message);
+                auditService.publish(message);
             }
 
         } catch (ServiceException e) {
@@ -90,7 +90,7 @@ public class DeploymentAspect
 
             if (message != null) {
                 logger.info(message.toString());
-                messageService.create(message);
+                auditService.publish(message);
             }
 
         } catch (ServiceException e) {
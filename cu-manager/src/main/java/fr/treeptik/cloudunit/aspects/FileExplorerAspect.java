@@ -28,7 +28,7 @@ import org.springframework.stereotype.Component;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.User;
-import fr.treeptik.cloudunit.service.MessageService;
+import fr.treeptik.cloudunit.service.AuditService;
 
 @Aspect
 @Component
@@ -37,7 +37,7 @@ public class FileExplorerAspect extends CloudUnitAbstractAspect implements Seria
 	private static final long serialVersionUID = 1L;
 
 	@Inject
-	private MessageService messageService;
+	private AuditService auditService;
 
 	@AfterReturning("execution(* fr.treeptik.cloudunit.service.FileService.deleteFilesFromContainer(..))"
 			+ " || execution(* fr.treeptik.cloudunit.service.FileService.sendFileToContainer(..))")
@@ -54,7 +54,7 @@ public class FileExplorerAspect extends CloudUnitAbstractAspect implements Seria
 			message.setEvent(user.getLogin() + " has removed this file : " + joinPoint.getArgs()[2]);
 			break;
 		}
-		this.messageService.create(message);
+		this.auditService.publish(message);
 	}
 
 }
@@ -21,7 +21,7 @@ import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.Module;
 import fr.treeptik.cloudunit.model.User;
-import fr.treeptik.cloudunit.service.MessageService;
+import fr.treeptik.cloudunit.service.AuditService;
 import fr.treeptik.cloudunit.utils.MessageUtils;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.JoinPoint.StaticPart;
@@ -53,7 +53,7 @@ public class ModuleAspect
     private final Logger logger = LoggerFactory.getLogger(ModuleAspect.class);
 
     @Inject
-    private MessageService messageService;
+    private AuditService auditService;
 
     @Before("execution(* fr.treeptik.cloudunit.service.ModuleService.remove(..)) " +
         "|| execution(* fr.treeptik.cloudunit.service.ModuleService.initModule(..))")
@@ -73,7 +73,7 @@ public class ModuleAspect
                     module.getName(), application.getDisplayName(),
                     createType);
                 logger.info(message.toString());
-                messageService.create(message);
+                auditService.publish(message);
                 break;
 
         }
@@ -106,7 +106,7 @@ public class ModuleAspect
                 }
                 if (message != null) {
                     logger.info(message.toString());
-                    messageService.create(message);
+                    auditService.publish(message);
                 }
             }
         } catch (ServiceException e) {
@@ -135,7 +135,7 @@ public class ModuleAspect
                 break;
         }
         if (message != null) {
-            messageService.create(message);
+            auditService.publish(message);
         }
     }
 
@@ -0,0 +1,59 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.aspects;
+
+import javax.inject.Inject;
+
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+
+import fr.treeptik.cloudunit.utils.ResolutionContext;
+
+/**
+ * The applications shared during a request are only valid until something is written :
+ * any service call which is not a read forgets them, before and after its execution.
+ */
+@Aspect
+@Component
+public class ResolutionContextAspect {
+
+    @Inject
+    private ResolutionContext resolutionContext;
+
+    @Pointcut("execution(* fr.treeptik.cloudunit.service.*.*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.find*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.get*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.list*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.load*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.check*(..)) "
+            + "&& !execution(* fr.treeptik.cloudunit.service.*.is*(..))")
+    public void write() {
+    }
+
+    @Before("write()")
+    public void beforeWrite() {
+        resolutionContext.invalidateApplications();
+    }
+
+    @After("write()")
+    public void afterWrite() {
+        resolutionContext.invalidateApplications();
+    }
+
+}
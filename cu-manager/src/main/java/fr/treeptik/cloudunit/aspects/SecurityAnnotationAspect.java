@@ -22,6 +22,7 @@ import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.User;
 import fr.treeptik.cloudunit.service.ApplicationService;
 import fr.treeptik.cloudunit.service.UserService;
+import fr.treeptik.cloudunit.utils.ResolutionContext;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
@@ -49,6 +50,9 @@ public class SecurityAnnotationAspect {
     @Inject
     private ApplicationService applicationService;
 
+    @Inject
+    private ResolutionContext resolutionContext;
+
     @Before("@annotation(fr.treeptik.cloudunit.aspects.CloudUnitSecurable) && args(applicationName)")
     public void verifyRelationBetweenUserAndApplication(JoinPoint joinPoint, String applicationName) {
 
@@ -56,7 +60,9 @@ public class SecurityAnnotationAspect {
         JsonInput jsonInput = null;
         try {
             principal = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-            User user = userService.findByLogin(principal.getUsername());
+            String login = principal.getUsername();
+            // the user and the application are kept for the rest of the request
+            User user = resolutionContext.getUser(login, () -> userService.findByLogin(login));
 
             if (joinPoint.getArgs() == null) {
                 logger.error("Error on annotation aspect : " + joinPoint.getStaticPart().getSignature());
@@ -32,7 +32,7 @@ import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.Server;
 import fr.treeptik.cloudunit.model.User;
-import fr.treeptik.cloudunit.service.MessageService;
+import fr.treeptik.cloudunit.service.AuditService;
 import fr.treeptik.cloudunit.utils.MessageUtils;
 
 public class ServerAspect extends CloudUnitAbstractAspect implements Serializable {
@@ -46,7 +46,7 @@ public class ServerAspect extends CloudUnitAbstractAspect implements Serializabl
 	private final Logger logger = LoggerFactory.getLogger(ServerAspect.class);
 
 	@Inject
-	private MessageService messageService;
+	private AuditService auditService;
 
 	// Before methods
 	@Before("execution(* fr.treeptik.cloudunit.service.ServerService.updateType(..))")
@@ -64,7 +64,7 @@ public class ServerAspect extends CloudUnitAbstractAspect implements Serializabl
 			break;
 		}
 		logger.info(message.toString());
-		messageService.create(message);
+		auditService.publish(message);
 
 	}
 
@@ -87,7 +87,7 @@ public class ServerAspect extends CloudUnitAbstractAspect implements Serializabl
 
 			}
 			logger.info(message.toString());
-			messageService.create(message);
+			auditService.publish(message);
 
 		} catch (ServiceException e) {
 			throw new MonitorException("Error afterReturningApplication", e);
@@ -105,7 +105,7 @@ public class ServerAspect extends CloudUnitAbstractAspect implements Serializabl
 			break;
 		}
 		if (message != null) {
-			messageService.create(message);
+			auditService.publish(message);
 		}
 	}
 
@@ -75,6 +75,12 @@ public class DatabaseConfiguration {
     @Value("${database.showSQL}")
     private String databaseShowSQL;
 
+    @Value("${database.batch.size:50}")
+    private int databaseBatchSize;
+
+    @Value("${database.cache.enabled:true}")
+    private boolean databaseCacheEnabled;
+
     @Value("classpath:/${database.script}")
     private Resource dataScript;
 
@@ -89,6 +95,8 @@ public class DatabaseConfiguration {
         config.setDataSourceClassName("com.mysql.jdbc.jdbc2.optional.MysqlDataSource");
         config.addDataSourceProperty("url", databaseUrl);
         config.addDataSourceProperty("user", databaseUser);
+        // JDBC batches sent as multi-row inserts
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         config.setInitializationFailFast(false);
         config.setIdleTimeout(60000);
         String forcePassword = System.getenv("MYSQL_ROOT_PASSWORD");
@@ -131,6 +139,14 @@ public class DatabaseConfiguration {
         Properties jpaProperties = new Properties();
         jpaProperties.put("hibernate.generate_statistics", false);
         jpaProperties.put("hibernate.show_sql", Boolean.parseBoolean(databaseShowSQL));
+        jpaProperties.put("hibernate.jdbc.batch_size", databaseBatchSize);
+        jpaProperties.put("hibernate.order_inserts", true);
+        // second level cache of the @Cacheable reference entities, regions in ehcache-hibernate.xml
+        jpaProperties.put("hibernate.cache.use_second_level_cache", databaseCacheEnabled);
+        jpaProperties.put("hibernate.cache.use_query_cache", databaseCacheEnabled);
+        jpaProperties.put("hibernate.cache.region.factory_class",
+            "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        jpaProperties.put("net.sf.ehcache.configurationResourceName", "/ehcache-hibernate.xml");
         lcemfb.setJpaProperties(jpaProperties);
         lcemfb.setPackagesToScan("fr.treeptik.cloudunit.model");
         lcemfb.afterPropertiesSet();
@@ -0,0 +1,41 @@
+package fr.treeptik.cloudunit.config.events;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event received from the docker events stream for a container (start, die, stop, destroy...).
+ * The source is the id of the container.
+ */
+public class ContainerEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final List<String> LIFECYCLE = Arrays.asList("create", "start", "restart", "stop", "die", "kill",
+			"oom", "pause", "unpause", "rename", "update", "destroy", "health_status");
+
+	private final String status;
+
+	public ContainerEvent(String containerId, String status) {
+		super(containerId);
+		this.status = status;
+	}
+
+	public String getContainerId() {
+		return (String) getSource();
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * True when the event may change the state of the container, false for exec, attach, top... events.
+	 */
+	public boolean isLifecycle() {
+		return status != null && LIFECYCLE.stream().anyMatch(status::startsWith);
+	}
+
+}
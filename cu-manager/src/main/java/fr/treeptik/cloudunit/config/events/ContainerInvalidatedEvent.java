@@ -0,0 +1,21 @@
+package fr.treeptik.cloudunit.config.events;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the container registry when a container is destroyed or recreated :
+ * anything known about it (id, env, state) must be dropped. The source is the name of the container.
+ */
+public class ContainerInvalidatedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	public ContainerInvalidatedEvent(String containerName) {
+		super(containerName);
+	}
+
+	public String getContainerName() {
+		return (String) getSource();
+	}
+
+}
@@ -0,0 +1,24 @@
+package fr.treeptik.cloudunit.config.events;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the docker events listener when the stream is lost and when it is subscribed again.
+ * While the stream is down, anything kept up to date from the events may be stale.
+ */
+public class DockerEventsStreamEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean connected;
+
+	public DockerEventsStreamEvent(Object source, boolean connected) {
+		super(source);
+		this.connected = connected;
+	}
+
+	public boolean isConnected() {
+		return connected;
+	}
+
+}
@@ -0,0 +1,38 @@
+package fr.treeptik.cloudunit.config.events;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event received from the docker events stream for an image (pull, tag, untag, delete...).
+ * The source is the name of the image for a pull, its id otherwise.
+ */
+public class ImageEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final List<String> STATUSES = Arrays.asList("pull", "push", "tag", "untag", "delete", "import",
+			"load", "save");
+
+	private final String status;
+
+	public ImageEvent(String image, String status) {
+		super(image);
+		this.status = status;
+	}
+
+	public String getImage() {
+		return (String) getSource();
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public static boolean isImageStatus(String status) {
+		return STATUSES.contains(status);
+	}
+
+}
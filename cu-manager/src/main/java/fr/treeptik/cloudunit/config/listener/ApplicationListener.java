@@ -1,5 +1,11 @@
 package fr.treeptik.cloudunit.config.listener;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
@@ -16,6 +22,7 @@ import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.Status;
 import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.ReadinessService;
 
 /**
  * Created by nicolas on 03/08/2016.
@@ -28,47 +35,58 @@ public class ApplicationListener {
 	@Inject
 	private ApplicationService applicationService;
 
+	@Inject
+	private ReadinessService readinessService;
+
+	@Inject
+	private Executor asyncExecutor;
+
 	@EventListener
 	public void onApplicationStart(ApplicationStartEvent applicationStartEvent) {
 		Application application = (Application) applicationStartEvent.getSource();
-		try {
-			int counter = 0;
-			boolean started = false;
-			do {
-				started = applicationService.isStarted(application.getName());
-				Thread.sleep(1000);
-			} while (counter++ < 30 && !started);
-			if (counter <= 30) {
-				application.setStatus(Status.START);
-			} else {
-				application.setStatus(Status.FAIL);
-			}
-			logger.info("Application status : " + application.getStatus());
-			applicationService.saveInDB(application);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		whenTransitionsDone(application).thenRunAsync(() -> {
+			boolean started = applicationService.isStarted(application.getName());
+			update(application, started ? Status.START : Status.FAIL);
+		}, asyncExecutor);
 	}
 
 	@EventListener
 	public void onApplicationStop(ApplicationStopEvent applicationStopEvent) {
 		Application application = (Application) applicationStopEvent.getSource();
+		whenTransitionsDone(application).thenRunAsync(() -> {
+			boolean stopped = applicationService.isStopped(application.getName());
+			update(application, stopped ? Status.STOP : Status.FAIL);
+		}, asyncExecutor);
+	}
+
+	/**
+	 * Completes once the server and the modules of the application have reached their expected state
+	 * (or failed to), their status being saved by then.
+	 */
+	private CompletableFuture<Void> whenTransitionsDone(Application application) {
+		List<String> containerNames = new ArrayList<>();
 		try {
-			int counter = 0;
-			boolean started = false;
-			do {
-				started = applicationService.isStopped(application.getName());
-				Thread.sleep(1000);
-			} while (counter++ < 30 && !started);
-			if (counter <= 30) {
-				application.setStatus(Status.STOP);
-			} else {
-				application.setStatus(Status.FAIL);
+			if (application.getServer() != null) {
+				containerNames.add(application.getServer().getName());
 			}
-			logger.info("Application status : " + application.getStatus());
+			application.getModules().forEach(m -> containerNames.add(m.getName()));
+		} catch (RuntimeException e) {
+			// application not fetched with its containers, only the saved status is checked
+			logger.warn(application.getName() + " : " + e.getMessage());
+		}
+		return CompletableFuture.allOf(containerNames.stream()
+				.map(readinessService::getTransition)
+				.filter(Objects::nonNull)
+				.toArray(CompletableFuture[]::new));
+	}
+
+	private void update(Application application, Status status) {
+		application.setStatus(status);
+		logger.info("Application status : " + application.getStatus());
+		try {
 			applicationService.saveInDB(application);
-		} catch (Exception e) {
-			e.printStackTrace();
+		} catch (ServiceException e) {
+			logger.error(application.getName(), e);
 		}
 	}
 
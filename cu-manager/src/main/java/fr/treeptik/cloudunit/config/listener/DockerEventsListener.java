@@ -0,0 +1,125 @@
+package fr.treeptik.cloudunit.config.listener;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.EventStream;
+import com.spotify.docker.client.messages.Event;
+
+import fr.treeptik.cloudunit.config.events.ContainerEvent;
+import fr.treeptik.cloudunit.config.events.DockerEventsStreamEvent;
+import fr.treeptik.cloudunit.config.events.ImageEvent;
+
+/**
+ * Single long-lived subscriber to the docker events stream.
+ * Each container event is published as a {@link ContainerEvent} and each image event as an
+ * {@link ImageEvent}, the stream is reopened from the last event received when docker closes it.
+ * A {@link DockerEventsStreamEvent} tells when the stream is lost and when it is subscribed again.
+ */
+@Component
+public class DockerEventsListener implements Runnable {
+
+	private Logger logger = LoggerFactory.getLogger(DockerEventsListener.class);
+
+	@Inject
+	private DockerClient dockerClient;
+
+	@Inject
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Value("${docker.events.enabled:true}")
+	private boolean enabled;
+
+	@Value("${docker.events.retry.delay:5000}")
+	private long retryDelay;
+
+	private volatile boolean running;
+
+	private volatile EventStream eventStream;
+
+	private Thread thread;
+
+	private long since;
+
+	private boolean connected;
+
+	@PostConstruct
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		running = true;
+		since = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+		thread = new Thread(this, "docker-events");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		if (eventStream != null) {
+			eventStream.close();
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try (EventStream stream = dockerClient.events(DockerClient.EventsParam.since(since))) {
+				eventStream = stream;
+				setConnected(true);
+				while (running && stream.hasNext()) {
+					Event event = stream.next();
+					if (event.time() != null) {
+						since = TimeUnit.MILLISECONDS.toSeconds(event.time().getTime());
+					}
+					if (event.id() == null || event.status() == null) {
+						continue;
+					}
+					if (ImageEvent.isImageStatus(event.status())) {
+						applicationEventPublisher.publishEvent(new ImageEvent(event.id(), event.status()));
+					} else {
+						applicationEventPublisher.publishEvent(new ContainerEvent(event.id(), event.status()));
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				if (!running) {
+					return;
+				}
+				setConnected(false);
+				logger.warn("Docker events stream closed : " + e.getMessage());
+				try {
+					Thread.sleep(retryDelay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void setConnected(boolean connected) {
+		if (this.connected != connected) {
+			this.connected = connected;
+			applicationEventPublisher.publishEvent(new DockerEventsStreamEvent(this, connected));
+		}
+	}
+
+}
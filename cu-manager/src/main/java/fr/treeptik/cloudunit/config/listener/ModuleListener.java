@@ -4,17 +4,21 @@ import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import fr.treeptik.cloudunit.config.events.ModuleStartEvent;
 import fr.treeptik.cloudunit.config.events.ModuleStopEvent;
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.model.Module;
 import fr.treeptik.cloudunit.model.Status;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExecService;
 import fr.treeptik.cloudunit.service.ModuleService;
+import fr.treeptik.cloudunit.service.ReadinessService;
 
 /**
  * Created by nicolas on 03/08/2016.
@@ -30,57 +34,48 @@ public class ModuleListener {
 	@Inject
 	ModuleService moduleService;
 
+	@Inject
+	ReadinessService readinessService;
+
+	@Inject
+	ExecService execService;
+
+	/**
+	 * Deadline of one execution of the check script, a probe which times out is retried at the next interval.
+	 */
+	@Value("${readiness.probe.exec.timeout:10000}")
+	private long probeTimeout;
+
 	@EventListener
 	public void onModuleStart(ModuleStartEvent moduleStartEvent) {
 		Module module = (Module) moduleStartEvent.getSource();
-		try {
-			String containerName = module.getName();
-			int counter = 0;
-			boolean started = false;
-			do {
-				String command = RemoteExecAction.CHECK_RUNNING.getCommand();
-				String exec = dockerService.execCommand(containerName, command);
-				exec = exec.replaceAll(System.getProperty("line.separator"), "");
-				if ("0".equalsIgnoreCase(exec.trim())) {
-					started = true;
-					break;
-				}
-				Thread.sleep(1000);
-			} while (counter++ < 30 && !started);
-			if (counter <= 30) {
-				module.setStatus(Status.START);
-			} else {
-				module.setStatus(Status.FAIL);
+		String containerName = module.getName();
+		String command = RemoteExecAction.CHECK_RUNNING.getCommand();
+		readinessService.await(containerName, () -> {
+			ExecResult result = execService.exec(new ExecRequest(containerName, command)
+					.action(RemoteExecAction.CHECK_RUNNING).rootFallback(true).timeout(probeTimeout));
+			if (result.isTimedOut()) {
+				return false;
 			}
-			logger.info("Module status : " + module.getStatus());
-			moduleService.update(module);
-		} catch (Exception e) {
-			logger.error(module.toString(), e);
-			e.printStackTrace();
-		}
+			String exec = result.getOutput().replaceAll(System.getProperty("line.separator"), "");
+			return "0".equalsIgnoreCase(exec.trim());
+		}, started -> update(module, started ? Status.START : Status.FAIL));
 	}
 
 	@EventListener
-	@Async
 	public void onModuleStop(ModuleStopEvent moduleStopEvent) {
 		Module module = (Module) moduleStopEvent.getSource();
+		readinessService.await(module.getName(), () -> dockerService.isStoppedGracefully(module.getName()),
+				stopped -> update(module, stopped ? Status.STOP : Status.FAIL));
+	}
+
+	private void update(Module module, Status status) {
+		module.setStatus(status);
+		logger.info("Module status : " + module.getStatus());
 		try {
-			int counter = 0;
-			boolean isStopped = false;
-			do {
-				isStopped = dockerService.isStoppedGracefully(module.getName());
-				Thread.sleep(1000);
-			} while (counter++ < 30 && !isStopped);
-			if (counter <= 30) {
-				module.setStatus(Status.STOP);
-			} else {
-				module.setStatus(Status.FAIL);
-			}
-			logger.info("Server status : " + module.getStatus());
 			moduleService.update(module);
 		} catch (Exception e) {
-			logger.error(module.getName(), e);
-			e.printStackTrace();
+			logger.error(module.toString(), e);
 		}
 	}
 
@@ -7,15 +7,20 @@ import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import fr.treeptik.cloudunit.config.events.ServerStartEvent;
 import fr.treeptik.cloudunit.config.events.ServerStopEvent;
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.model.Server;
 import fr.treeptik.cloudunit.model.Status;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExecService;
+import fr.treeptik.cloudunit.service.ReadinessService;
 import fr.treeptik.cloudunit.service.ServerService;
 
 /**
@@ -32,69 +37,59 @@ public class ServerListener {
 	@Inject
 	ServerService serverService;
 
+	@Inject
+	ReadinessService readinessService;
+
+	@Inject
+	ExecService execService;
+
+	/**
+	 * Deadline of one execution of the check script, a probe which times out is retried at the next interval.
+	 */
+	@Value("${readiness.probe.exec.timeout:10000}")
+	private long probeTimeout;
+
 	@EventListener
 	public void onServerStart(ServerStartEvent serverStartEvent) {
 		Server server = (Server) serverStartEvent.getSource();
-		try {
-			String containerName = server.getName();
-			int counter = 0;
-			boolean started = false;
-			do {
-				Map<String, String> kvStore = new HashMap<String, String>() {
-					private static final long serialVersionUID = 1L;
-					{
-						put("CU_USER", server.getApplication().getUser().getLogin());
-						put("CU_PASSWORD", server.getApplication().getUser().getPassword());
-					}
-				};
-				String command = RemoteExecAction.CHECK_RUNNING.getCommand(kvStore);
-				try {
-					String exec = dockerService.execCommand(containerName, command);
-					exec = exec.replaceAll(System.getProperty("line.separator"), "");
-					if ("0".equalsIgnoreCase(exec.trim())) {
-						started = true;
-						break;
-					} else {
-						logger.warn(exec);
-					}
-					Thread.sleep(1000);
-				} catch (Exception e) {
-					logger.error(e.getMessage());
-				}
-			} while (counter++ < 30 && !started);
-			if (counter <= 30) {
-				server.setStatus(Status.START);
-			} else {
-				server.setStatus(Status.FAIL);
+		String containerName = server.getName();
+		Map<String, String> kvStore = new HashMap<String, String>() {
+			private static final long serialVersionUID = 1L;
+			{
+				put("CU_USER", server.getApplication().getUser().getLogin());
+				put("CU_PASSWORD", server.getApplication().getUser().getPassword());
 			}
-			logger.info("Server status : " + server.getStatus());
-			serverService.update(server);
-		} catch (Exception e) {
-			logger.error(server.toString(), e);
-			e.printStackTrace();
-		}
+		};
+		String command = RemoteExecAction.CHECK_RUNNING.getCommand(kvStore);
+		readinessService.await(containerName, () -> {
+			ExecResult result = execService.exec(new ExecRequest(containerName, command)
+					.action(RemoteExecAction.CHECK_RUNNING).rootFallback(true).timeout(probeTimeout));
+			if (result.isTimedOut()) {
+				return false;
+			}
+			String exec = result.getOutput().replaceAll(System.getProperty("line.separator"), "");
+			if ("0".equalsIgnoreCase(exec.trim())) {
+				return true;
+			}
+			logger.warn(exec);
+			return false;
+		}, started -> update(server, started ? Status.START : Status.FAIL));
 	}
 
 	@EventListener
 	public void onServerStop(ServerStopEvent serverStopEvent) {
 		Server server = (Server) serverStopEvent.getSource();
+		readinessService.await(server.getName(), () -> dockerService.isStoppedGracefully(server.getName()),
+				stopped -> update(server, stopped ? Status.STOP : Status.FAIL));
+	}
+
+	private void update(Server server, Status status) {
+		server.setStatus(status);
+		logger.info("Server status : " + server.getStatus());
 		try {
-			int counter = 0;
-			boolean isStopped = false;
-			do {
-				isStopped = dockerService.isStoppedGracefully(server.getName());
-				Thread.sleep(1000);
-			} while (counter++ < 30 && !isStopped);
-			if (counter <= 30) {
-				server.setStatus(Status.STOP);
-			} else {
-				server.setStatus(Status.FAIL);
-			}
-			logger.info("Server status : " + server.getStatus());
 			serverService.update(server);
 		} catch (Exception e) {
-			logger.error(server.getName(), e);
-			e.printStackTrace();
+			logger.error(server.toString(), e);
 		}
 	}
 
@@ -17,9 +17,11 @@ package fr.treeptik.cloudunit.controller;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
+import org.apache.http.pool.PoolStats;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -27,6 +29,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import fr.treeptik.cloudunit.docker.core.DockerCloudUnitClient;
 import fr.treeptik.cloudunit.dto.HttpOk;
 import fr.treeptik.cloudunit.dto.JsonInputForAdmin;
 import fr.treeptik.cloudunit.dto.JsonResponse;
@@ -35,10 +38,19 @@ import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Image;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ArtifactService;
+import fr.treeptik.cloudunit.service.AuditService;
+import fr.treeptik.cloudunit.service.ContainerEnvCacheService;
+import fr.treeptik.cloudunit.service.ExecService;
+import fr.treeptik.cloudunit.service.ImageInventoryService;
 import fr.treeptik.cloudunit.service.ImageService;
 import fr.treeptik.cloudunit.service.MessageService;
+import fr.treeptik.cloudunit.service.ReferenceCacheService;
+import fr.treeptik.cloudunit.service.UploadService;
 import fr.treeptik.cloudunit.service.UserService;
 import fr.treeptik.cloudunit.utils.AuthentificationUtils;
+import fr.treeptik.cloudunit.utils.ResolutionContext;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
 
 /**
  * This controller is restricted to the role ADMIN Security access is defined
@@ -62,6 +74,36 @@ public class AdministrationController implements Serializable {
 	@Inject
 	private AuthentificationUtils authentificationUtils;
 
+	@Inject
+	private DockerCloudUnitClient dockerCloudUnitClient;
+
+	@Inject
+	private TransferMetrics transferMetrics;
+
+	@Inject
+	private ArtifactService artifactService;
+
+	@Inject
+	private ContainerEnvCacheService containerEnvCacheService;
+
+	@Inject
+	private ResolutionContext resolutionContext;
+
+	@Inject
+	private AuditService auditService;
+
+	@Inject
+	private ReferenceCacheService referenceCacheService;
+
+	@Inject
+	private ImageInventoryService imageInventoryService;
+
+	@Inject
+	private ExecService execService;
+
+	@Inject
+	private UploadService uploadService;
+
 	/**
 	 * Create a new user
 	 *
@@ -196,4 +238,114 @@ public class AdministrationController implements Serializable {
 		return messageService.listByUser(userService.findByLogin(login), Integer.parseInt(rows));
 	}
 
+	/**
+	 * Statistics of the http connection pool used to reach the docker daemon
+	 *
+	 * @return leased, pending, available and max connections
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/docker/pool", method = RequestMethod.GET)
+	public PoolStats dockerPoolStats() {
+		return dockerCloudUnitClient.getPoolStats();
+	}
+
+	/**
+	 * Throughput of the files transferred from and to the containers
+	 *
+	 * @return totals and last transfers
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/transfers", method = RequestMethod.GET)
+	public Map<String, Object> transferStatistics() {
+		return transferMetrics.getStatistics();
+	}
+
+	/**
+	 * Content of the deployed archives store
+	 *
+	 * @return size, hits, misses and evictions
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/artifacts", method = RequestMethod.GET)
+	public Map<String, Object> artifactStatistics() {
+		return artifactService.getStatistics();
+	}
+
+	/**
+	 * Efficiency of the containers env cache
+	 *
+	 * @return hits by tier, inspections and invalidations
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/env-cache", method = RequestMethod.GET)
+	public Map<String, Object> envCacheStatistics() {
+		return containerEnvCacheService.getStatistics();
+	}
+
+	/**
+	 * Users and applications loaded once per request instead of once per aspect and controller
+	 *
+	 * @return queries and queries saved
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/resolutions", method = RequestMethod.GET)
+	public Map<String, Object> resolutionStatistics() {
+		return resolutionContext.getStatistics();
+	}
+
+	/**
+	 * Queue of the audit messages waiting to be written
+	 *
+	 * @return queue depth, batches, overflows and write latency
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/audit", method = RequestMethod.GET)
+	public Map<String, Object> auditStatistics() {
+		return auditService.getStatistics();
+	}
+
+	/**
+	 * Second level cache of the images, roles, registries and modules configurations
+	 *
+	 * @return size, hits and misses by region, invalidations exchanged with the other managers
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/reference-cache", method = RequestMethod.GET)
+	public Map<String, Object> referenceCacheStatistics() {
+		return referenceCacheService.getStatistics();
+	}
+
+	/**
+	 * Local images known by the inventory, without requesting docker
+	 *
+	 * @return images, synchronizations and events received
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/images", method = RequestMethod.GET)
+	public Map<String, Object> imageInventoryStatistics() {
+		return imageInventoryService.getStatistics();
+	}
+
+	/**
+	 * Commands run in the containers
+	 *
+	 * @return running and waiting commands, latency distribution by action
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/execs", method = RequestMethod.GET)
+	public Map<String, Object> execStatistics() {
+		return execService.getStatistics();
+	}
+
+	/**
+	 * Archives uploaded in parts
+	 *
+	 * @return pending uploads, parts received and rejected, commits and expirations
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/uploads", method = RequestMethod.GET)
+	public Map<String, Object> uploadStatistics() {
+		return uploadService.getStatistics();
+	}
+
 }
@@ -28,22 +28,22 @@ import javax.servlet.http.HttpServletResponse;
 import com.spotify.docker.client.exceptions.DockerException;
 import fr.treeptik.cloudunit.config.events.*;
 import fr.treeptik.cloudunit.dto.*;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
-import fr.treeptik.cloudunit.utils.FilesUtils;
 import fr.treeptik.cloudunit.aspects.CloudUnitSecurable;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.exception.CheckException;
@@ -54,7 +54,10 @@ import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.Status;
 import fr.treeptik.cloudunit.model.User;
 import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.ArtifactService;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExportService;
+import fr.treeptik.cloudunit.service.UploadService;
 import fr.treeptik.cloudunit.utils.AuthentificationUtils;
 import fr.treeptik.cloudunit.utils.CheckUtils;
 
@@ -83,6 +86,15 @@ public class ApplicationController implements Serializable {
 	@Inject
 	private ApplicationEventPublisher applicationEventPublisher;
 
+	@Inject
+	private ExportService exportService;
+
+	@Inject
+	private ArtifactService artifactService;
+
+	@Inject
+	private UploadService uploadService;
+
 	private Locale locale = Locale.ENGLISH;
 
 	/**
@@ -216,10 +228,15 @@ public class ApplicationController implements Serializable {
 		// set the application in pending mode
 		applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
 
-		applicationService.start(application);
-
-		// wait for modules and servers starting
-		applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+		// start modules and server without holding the request thread, the application
+		// leaves the pending mode once modules and servers are started
+		applicationService.startAsync(application)
+				.whenComplete((a, e) -> {
+					if (e != null) {
+						logger.error(applicationName, e);
+					}
+					applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+				});
 
 		return new HttpOk();
 	}
@@ -251,10 +268,14 @@ public class ApplicationController implements Serializable {
 		// set the application in pending mode
 		applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
 
-		// stop the application
-		applicationService.stop(application);
-
-		applicationEventPublisher.publishEvent(new ApplicationStopEvent(application));
+		// stop the application without holding the request thread
+		applicationService.stopAsync(application)
+				.whenComplete((a, e) -> {
+					if (e != null) {
+						logger.error(name, e);
+					}
+					applicationEventPublisher.publishEvent(new ApplicationStopEvent(application));
+				});
 
 		return new HttpOk();
 	}
@@ -333,6 +354,39 @@ public class ApplicationController implements Serializable {
 		return applications;
 	}
 
+	/**
+	 * Return a page of the applications of the user as summaries, ordered by name
+	 *
+	 * @param page
+	 * @param size
+	 * @return
+	 * @throws ServiceException
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/summaries", method = RequestMethod.GET)
+	public List<ApplicationSummary> findSummariesByUser(@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "100") int size) throws ServiceException {
+		User user = this.authentificationUtils.getAuthentificatedUser();
+		return applicationService.findSummariesByUser(user, page, size);
+	}
+
+	/**
+	 * Return the summary of an application, 404 if the user has no such application
+	 *
+	 * @param applicationName
+	 * @return
+	 * @throws ServiceException
+	 */
+	@RequestMapping(value = "/{applicationName}/summary", method = { RequestMethod.GET, RequestMethod.HEAD })
+	public ResponseEntity<ApplicationSummary> summary(@PathVariable String applicationName) throws ServiceException {
+		User user = this.authentificationUtils.getAuthentificatedUser();
+		ApplicationSummary summary = applicationService.findSummaryByNameAndUser(user, applicationName);
+		if (summary == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<>(summary, HttpStatus.OK);
+	}
+
 	/**
 	 * Deploy a web application
 	 *
@@ -353,26 +407,135 @@ public class ApplicationController implements Serializable {
 		 // We must be sure there is no running action before starting new one
 		 authentificationUtils.canStartNewAction(user, application, Locale.ENGLISH);
 		 application = applicationService.deploy(input.getDeployUrl(), application);
-
-		 String needRestart = dockerService.getEnv(application.getServer().getContainerID(),
-				 "CU_SERVER_RESTART_POST_DEPLOYMENT");
-		 if ("true".equalsIgnoreCase(needRestart)){
-			 // set the application in pending mode
-			 applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
-			 applicationService.stop(application);
-			 try {
-				 Thread.sleep(2000);
-			 } catch (InterruptedException e) {
-				 e.printStackTrace();
-			 }
-			 applicationService.start(application);
-			 // wait for modules and servers starting
-			 applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
-		 }
+		 restartIfNeeded(application);
 
 		 logger.info("--DEPLOY APPLICATION WAR ENDED--");
 		 return new HttpOk();
 	}
+
+	/**
+	 * Deploy an archive already uploaded, identified by the SHA-256 of its content.
+	 * Clients check first that the manager knows the archive with GET or HEAD /application/artifacts/{sha256}.
+	 *
+	 * @return 404 if the archive is unknown
+	 * @throws ServiceException
+	 * @throws CheckException
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/deploy/artifact", method = RequestMethod.POST)
+	public ResponseEntity<JsonResponse> deployFromArtifact(@RequestBody JsonInput input,
+			@PathVariable String applicationName) throws ServiceException, CheckException {
+
+		logger.info("applicationName = " + applicationName + " artifact = " + input.getArtifactHash());
+		CheckUtils.validateInputNotEmpty(input.getFileName(), "check.war.ear");
+
+		User user = authentificationUtils.getAuthentificatedUser();
+		Application application = applicationService.findByNameAndUser(user, applicationName);
+
+		// 404 only for an unknown archive : the clients upload it then, any other error is a failed deployment
+		if (artifactService.find(input.getArtifactHash()) == null) {
+			return new ResponseEntity<>(new HttpErrorServer("Unknown artifact : " + input.getArtifactHash()),
+					HttpStatus.NOT_FOUND);
+		}
+
+		// We must be sure there is no running action before starting new one
+		authentificationUtils.canStartNewAction(user, application, Locale.ENGLISH);
+		application = applicationService.deployArtifact(input.getArtifactHash(), input.getFileName(), application);
+		restartIfNeeded(application);
+
+		logger.info("--DEPLOY APPLICATION WAR ENDED--");
+		return ResponseEntity.ok(new HttpOk());
+	}
+
+	/**
+	 * Tells whether an archive is stored on the manager, HEAD is answered as well.
+	 *
+	 * @param sha256
+	 * @return the artifact, 404 if unknown
+	 */
+	@RequestMapping(value = "/artifacts/{sha256}", method = RequestMethod.GET)
+	public ResponseEntity<Artifact> findArtifact(@PathVariable String sha256) {
+		Artifact artifact = artifactService.find(sha256);
+		if (artifact == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(artifact);
+	}
+
+	/**
+	 * Opens an upload in parts of an archive, for archives too large to be sent in one request.
+	 * The pending session of the same archive is returned if there is one : only its missing parts are to be sent.
+	 *
+	 * @param request
+	 *            {fileName:myApp.war, size:123456789, sha256:...}
+	 * @return the session with its part size and missing parts
+	 * @throws ServiceException
+	 * @throws CheckException
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/uploads", method = RequestMethod.POST)
+	public UploadSession openUpload(@PathVariable String applicationName, @RequestBody UploadSession request)
+			throws ServiceException, CheckException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		Application application = applicationService.findByNameAndUser(user, applicationName);
+		if (application == null) {
+			throw new CheckException("Unknown application");
+		}
+		return uploadService.open(user, applicationName, request);
+	}
+
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/uploads/{id}", method = RequestMethod.GET)
+	public UploadSession findUpload(@PathVariable String applicationName, @PathVariable String id)
+			throws ServiceException, CheckException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		return uploadService.find(user, applicationName, id);
+	}
+
+	/**
+	 * Receives one part of an upload as raw body, checked against the SHA-256 given as parameter.
+	 * The parts of an upload can be sent in parallel.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/uploads/{id}/parts/{index}", method = RequestMethod.PUT)
+	public JsonResponse uploadPart(@PathVariable String applicationName, @PathVariable String id,
+			@PathVariable int index, @RequestParam("sha256") String sha256, HttpServletRequest request)
+			throws ServiceException, CheckException, IOException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		uploadService.writePart(user, applicationName, id, index, sha256, request.getInputStream());
+		return new HttpOk();
+	}
+
+	/**
+	 * Deploys an upload once all its parts are received.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/uploads/{id}/commit", method = RequestMethod.POST)
+	public JsonResponse commitUpload(@PathVariable String applicationName, @PathVariable String id)
+			throws ServiceException, CheckException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		Application application = applicationService.findByNameAndUser(user, applicationName);
+
+		// We must be sure there is no running action before starting new one
+		authentificationUtils.canStartNewAction(user, application, Locale.ENGLISH);
+		UploadSession session = uploadService.find(user, applicationName, id);
+		Artifact artifact = uploadService.commit(user, applicationName, id);
+		logger.info("applicationName = " + applicationName + " upload = " + id + " artifact = " + artifact.getSha256());
+		application = applicationService.deployArtifact(artifact.getSha256(), session.getFileName(), application);
+		restartIfNeeded(application);
+
+		logger.info("--DEPLOY APPLICATION WAR ENDED--");
+		return new HttpOk();
+	}
+
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/uploads/{id}", method = RequestMethod.DELETE)
+	public JsonResponse abortUpload(@PathVariable String applicationName, @PathVariable String id)
+			throws ServiceException, CheckException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		uploadService.abort(user, applicationName, id);
+		return new HttpOk();
+	}
 	/**
 	 * Deploy a web application
 	 *
@@ -397,7 +560,13 @@ public class ApplicationController implements Serializable {
 		authentificationUtils.canStartNewAction(user, application, Locale.ENGLISH);
 
         application = applicationService.deploy(fileUpload, application);
+		restartIfNeeded(application);
 
+		logger.info("--DEPLOY APPLICATION WAR ENDED--");
+		return new HttpOk();
+	}
+
+	private void restartIfNeeded(Application application) throws ServiceException {
 		String needRestart = dockerService.getEnv(application.getServer().getContainerID(),
 				"CU_SERVER_RESTART_POST_DEPLOYMENT");
 		if ("true".equalsIgnoreCase(needRestart)){
@@ -413,9 +582,6 @@ public class ApplicationController implements Serializable {
             // wait for modules and servers starting
             applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
 		}
-
-		logger.info("--DEPLOY APPLICATION WAR ENDED--");
-		return new HttpOk();
 	}
 
 	/**
@@ -461,6 +627,10 @@ public class ApplicationController implements Serializable {
 		return envUnits;
 	}
 
+	/**
+	 * The archive is no longer prepared on the manager disk : it is built while downloaded with GET.
+	 * Kept to check that an export can be started.
+	 */
 	@RequestMapping(value = "/{applicationName}/containers/export", method = RequestMethod.POST)
 	@CloudUnitSecurable
 	public void exportApplication(@PathVariable final String applicationName)
@@ -471,37 +641,6 @@ public class ApplicationController implements Serializable {
 
         // We must be sure there is no running action before starting new one
         this.authentificationUtils.canStartNewAction(user, application, locale);
-        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
-
-        String basePath = "./export/";
-        // erase export directory
-		File baseDir = new File (basePath);
-		try {
-			FileUtils.deleteDirectory(baseDir);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		baseDir.mkdir();
-        List<ContainerUnit> listContainer = applicationService.listContainers(applicationName);
-        for (ContainerUnit container : listContainer) { // export each containers create a .tar.gz by container
-            File file = new File(basePath + container.getName() + ".tar.gz");
-            OutputStream out = null;
-            try {
-                out = new FileOutputStream(file);
-                this.dockerService.exportContainer(container.getName(), out);
-                out.flush();
-                out.close();
-            } catch ( InterruptedException | IOException | DockerException e) {
-                e.printStackTrace();
-            }
-            File finalFile = new File(basePath + container.getName());
-            try {
-                FilesUtils.createTarGZ(basePath, "archive.tar.gz"); // package all sub .tar.gz in a main .tar.gz
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
-        }
     }
 
 	@RequestMapping(value = "/{applicationName}/containers/export", method = RequestMethod.GET)
@@ -515,23 +654,30 @@ public class ApplicationController implements Serializable {
 		// We must be sure there is no running action before starting new one
 		this.authentificationUtils.canStartNewAction(user, application, locale);
 		applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
-		String filename = "archive.tar.gz";
-		FileSystemResource resource = new FileSystemResource("./" + filename);
-		String mimeType = URLConnection.guessContentTypeFromName(filename);
+		String filename = applicationName + ".tar.gz";
 		String contentDisposition = String.format("attachment; filename=%s", filename);
-		response.setContentType(mimeType);
+		response.setContentType("application/gzip");
 		response.setHeader("Content-Disposition", contentDisposition);
-		try (OutputStream stream = response.getOutputStream()) {
-			File f = new File(filename);
-			byte[] arBytes = new byte[(int)f.length()];
-			FileInputStream is = new FileInputStream(f);
-			is.read(arBytes);
-			stream.write(arBytes);
-			stream.flush(); // commits response!
-			stream.close();
+		try {
+			exportService.exportApplication(application, response.getOutputStream());
 		} catch (IOException ex) {
-			logger.error(applicationName, ex.getMessage());
-		}applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+			logger.error(applicationName, ex);
+		} catch (ServiceException ex) {
+			// the response is already committed, the client gets a truncated archive
+			logger.error(applicationName, ex);
+		} finally {
+			applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+		}
+	}
+
+	@ResponseBody
+	@RequestMapping(value = "/{applicationName}/containers/export/progress", method = RequestMethod.GET)
+	@CloudUnitSecurable
+	public ExportProgress getExportProgress(@PathVariable final String applicationName)
+			throws ServiceException, CheckException {
+		User user = authentificationUtils.getAuthentificatedUser();
+		applicationService.findByNameAndUser(user, applicationName);
+		return exportService.getProgress(user, applicationName);
 	}
 
 
@@ -1,8 +1,11 @@
 package fr.treeptik.cloudunit.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import fr.treeptik.cloudunit.dto.Command;
+import fr.treeptik.cloudunit.dto.ExecResult;
 import fr.treeptik.cloudunit.dto.HttpOk;
 import fr.treeptik.cloudunit.dto.JsonResponse;
 import fr.treeptik.cloudunit.exception.ServiceException;
@@ -63,4 +67,34 @@ public class CommandController {
         }
         return new HttpOk();
     }
+
+    /**
+     * Same as exec, but the output of the script is sent to the client while it runs
+     * and its exit code is written on the last line.
+     */
+    @RequestMapping(value = "/{applicationName}/container/{containerName}/command/{filename}/exec/stream", method = RequestMethod.POST,
+        consumes = "application/json")
+    public void execCommandStream(@PathVariable String applicationName, @PathVariable String containerName,
+                                  @PathVariable String filename, @RequestBody Command command,
+                                  HttpServletResponse response) throws ServiceException, IOException {
+        logger.info("Execute by filename, streaming the output");
+        User user = authentificationUtils.getAuthentificatedUser();
+        Application application = applicationService.findByNameAndUser(user, applicationName);
+        response.setContentType("text/plain;charset=UTF-8");
+        OutputStream output = response.getOutputStream();
+        try {
+            applicationService.setStatus(application, Status.PENDING);
+            ExecResult result = commandService.execCommand(command, containerName, applicationName, (stderr, content) -> {
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                output.write(bytes);
+                output.flush();
+            });
+            output.write(("\n" + (result.isTimedOut() ? "timed out" : "exit code " + result.getExitCode()) + "\n")
+                    .getBytes("UTF-8"));
+            output.flush();
+        } finally {
+            applicationService.setStatus(application, Status.START);
+        }
+    }
 }
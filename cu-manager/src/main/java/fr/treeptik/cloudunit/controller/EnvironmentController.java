@@ -19,6 +19,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import fr.treeptik.cloudunit.config.events.ApplicationStartEvent;
 import fr.treeptik.cloudunit.config.events.ServerStartEvent;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
 import fr.treeptik.cloudunit.dto.HttpOk;
 import fr.treeptik.cloudunit.dto.JsonResponse;
 import fr.treeptik.cloudunit.exception.CheckException;
@@ -97,4 +99,20 @@ public class EnvironmentController implements Serializable {
         environmentService.delete(user, id, applicationName, containerName);
         return new HttpOk();
     }
+
+    /**
+     * Applies several creations, updates and removals of variables with a single restart of the container.
+     */
+    @RequestMapping(value = "/{applicationName}/container/{containerName}/environmentVariables/changes", method = RequestMethod.POST)
+    public @ResponseBody EnvironmentChangeReport applyEnvironmentChanges(@PathVariable String applicationName,
+            @PathVariable String containerName, @RequestBody EnvironmentChangeSet changeSet)
+            throws ServiceException, CheckException {
+        User user = authentificationUtils.getAuthentificatedUser();
+        Application application = applicationService.findByNameAndUser(user, applicationName);
+        EnvironmentChangeReport report = environmentService.apply(user, applicationName, containerName, changeSet);
+        if (report.isRecreated()) {
+            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+        }
+        return report;
+    }
 }
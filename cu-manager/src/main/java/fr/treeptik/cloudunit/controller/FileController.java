@@ -18,6 +18,7 @@ package fr.treeptik.cloudunit.controller;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URLConnection;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -27,6 +28,9 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -41,6 +45,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.multipart.MultipartFile;
 
 import fr.treeptik.cloudunit.aspects.CloudUnitSecurable;
+import fr.treeptik.cloudunit.dto.ContainerFile;
 import fr.treeptik.cloudunit.dto.FileRequestBody;
 import fr.treeptik.cloudunit.dto.FileUnit;
 import fr.treeptik.cloudunit.dto.HttpOk;
@@ -55,6 +60,7 @@ import fr.treeptik.cloudunit.service.ApplicationService;
 import fr.treeptik.cloudunit.service.DockerService;
 import fr.treeptik.cloudunit.service.FileService;
 import fr.treeptik.cloudunit.utils.AuthentificationUtils;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
 
 /*
  * Controller for resources (files + folders) into Container.
@@ -71,6 +77,9 @@ public class FileController {
 	@Inject
 	private FileService fileService;
 
+	@Inject
+	private TransferMetrics transferMetrics;
+
 	@Inject
 	private ApplicationService applicationService;
 
@@ -297,6 +306,8 @@ public class FileController {
 			}
 		} catch (FatalDockerJSONException e) {
 			logger.error(e.getMessage());
+		} finally {
+			fileService.invalidateListing(containerId, path);
 		}
 	}
 
@@ -383,12 +394,67 @@ public class FileController {
 
 		// We must be sure there is no running action before starting new one
 		this.authentificationUtils.canStartNewAction(user, application, locale);
-		try (OutputStream stream = response.getOutputStream()) {
-			fileService.getFileFromContainer(containerId, "/" + path + "/" + fileName, stream);
+		String filePath = "/" + path + "/" + fileName;
+		try (ContainerFile file = fileService.openFileFromContainer(containerId, filePath)) {
+			long size = file.getSize();
+			long start = 0;
+			long end = size - 1;
+			response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+			if (file.getLastModified() != null) {
+				response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.getLastModified().getTime());
+			}
+			String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+			if (rangeHeader != null && isSameVersion(request, file.getLastModified())) {
+				try {
+					List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+					// multiple ranges are not supported, the whole file is sent
+					if (ranges.size() == 1) {
+						start = ranges.get(0).getRangeStart(size);
+						end = ranges.get(0).getRangeEnd(size);
+						// HttpRange does not check the range against the size of the file
+						if (size == 0 || start >= size) {
+							throw new IllegalArgumentException("Range " + rangeHeader + " outside of " + size + " bytes");
+						}
+						response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+						response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+					}
+				} catch (IllegalArgumentException e) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+					response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+					return;
+				}
+			}
+			long length = end - start + 1;
+			response.setContentLengthLong(length);
+
+			// the file is piped from the docker archive to the client, only the requested bytes are sent
+			long begin = System.currentTimeMillis();
+			OutputStream stream = response.getOutputStream();
+			long sent = IOUtils.copyLarge(file.getContent(), stream, start, length);
 			stream.flush(); // commits response!
-			stream.close();
+			transferMetrics.record(editionMode ? "display" : "download", containerId, filePath, sent,
+					System.currentTimeMillis() - begin);
 		} catch (IOException ex) {
-			ex.printStackTrace();
+			logger.warn(filePath + " : " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * A range asked with If-Range only applies to the version of the file the client already has part of,
+	 * the whole file is sent otherwise. Only dates are sent as validators, never entity tags.
+	 */
+	private boolean isSameVersion(HttpServletRequest request, Date lastModified) {
+		if (request.getHeader(HttpHeaders.IF_RANGE) == null) {
+			return true;
+		}
+		if (lastModified == null) {
+			return false;
+		}
+		try {
+			// HTTP dates are precise to the second
+			return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified.getTime() / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
 		}
 	}
 }
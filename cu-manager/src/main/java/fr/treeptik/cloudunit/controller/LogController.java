@@ -28,7 +28,9 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import fr.treeptik.cloudunit.dto.LogResource;
 import fr.treeptik.cloudunit.dto.SourceUnit;
@@ -37,6 +39,7 @@ import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.factory.LogResourceFactory;
 import fr.treeptik.cloudunit.logs.GatheringStrategy;
 import fr.treeptik.cloudunit.service.FileService;
+import fr.treeptik.cloudunit.service.LogStreamService;
 
 /**
  * Created by nicolas on 25/08/2014.
@@ -53,6 +56,9 @@ public class LogController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private LogStreamService logStreamService;
+
 	/**
 	 * Returns the n-last lines for an application / container
 	 *
@@ -85,6 +91,32 @@ public class LogController {
         return ResponseEntity.status(HttpStatus.OK).body(logResources);
 	}
 
+	/**
+	 * Streams the output of a container as server-sent events : the last lines first,
+	 * then the new lines as they are written, until the container stops or the client leaves.
+	 *
+	 * @param applicationName
+	 * @param container
+	 * @param tail number of past lines sent first
+	 * @param since unix timestamp of the first past line, overrides tail
+	 * @return
+	 * @throws ServiceException
+	 */
+	@RequestMapping(value = "/{applicationName}/container/{container}/stream", method = RequestMethod.GET,
+			produces = "text/event-stream")
+	public @ResponseBody SseEmitter streamByApplication(
+			@PathVariable String applicationName, @PathVariable String container,
+			@RequestParam(defaultValue = "100") Integer tail,
+			@RequestParam(required = false) Integer since)
+			throws ServiceException {
+		if (logger.isDebugEnabled()) {
+			logger.debug("applicationName:" + applicationName);
+			logger.debug("containerId:" + container);
+			logger.debug("tail:" + tail + ", since:" + since);
+		}
+		return logStreamService.subscribe(container, since != null ? null : tail, since);
+	}
+
 	/**
 	 * Return the list of possible list files
 	 */
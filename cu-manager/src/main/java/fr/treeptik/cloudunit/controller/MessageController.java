@@ -15,6 +15,7 @@
 
 package fr.treeptik.cloudunit.controller;
 
+import fr.treeptik.cloudunit.dto.MessageSummary;
 import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Message;
@@ -27,6 +28,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.inject.Inject;
@@ -90,6 +92,37 @@ public class MessageController {
 		return messageService.listByApp(user, applicationNameLocal, nbRows);
 	}
 
+	/**
+	 * Messages of the user, newest first, page by page : the next page is asked with the id of the last
+	 * message received as before.
+	 *
+	 * @param before
+	 * @param limit
+	 * @return
+	 * @throws ServiceException
+	 */
+	@RequestMapping(value = "/feed", method = RequestMethod.GET)
+	public @ResponseBody List<MessageSummary> feed(@RequestParam(required = false) Integer before,
+			@RequestParam(defaultValue = "20") int limit) throws ServiceException {
+		return messageService.feed(authentificationUtils.getAuthentificatedUser(), null, before, limit);
+	}
+
+	/**
+	 * Messages of the user for an application, newest first, page by page
+	 *
+	 * @param applicationName
+	 * @param before
+	 * @param limit
+	 * @return
+	 * @throws ServiceException
+	 */
+	@RequestMapping(value = "/application/{applicationName}/feed", method = RequestMethod.GET)
+	public @ResponseBody List<MessageSummary> feed(@PathVariable final String applicationName,
+			@RequestParam(required = false) Integer before, @RequestParam(defaultValue = "20") int limit)
+			throws ServiceException {
+		return messageService.feed(authentificationUtils.getAuthentificatedUser(), applicationName, before, limit);
+	}
+
 	/**
 	 * Retourne tous les messages pour un utilisateur quelque soit son
 	 * application
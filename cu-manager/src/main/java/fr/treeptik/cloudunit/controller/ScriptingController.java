@@ -64,23 +64,33 @@ public class ScriptingController implements Serializable {
 	@Inject
 	private UserService userService;
 
+	/**
+	 * Runs the script and streams the outcome of each command as plain text.
+	 * Errors found before the first command has written anything are answered as usual,
+	 * later ones end the output with the failing line.
+	 */
 	@RequestMapping(value = "/exec", method = RequestMethod.POST)
 	public void scriptingExecute(@RequestBody ScriptRequest scriptRequest, HttpServletResponse response)
-			throws ServiceException, CheckException, IOException, InterruptedException {
+			throws ServiceException, CheckException, IOException {
 		logger.info("Execute");
 		User user = authentificationUtils.getAuthentificatedUser();
-		try {
-			// We must be sure there is no running action before starting new
-			// one
-			this.authentificationUtils.canStartNewAction(null, null, Locale.ENGLISH);
+		// We must be sure there is no running action before starting new
+		// one
+		this.authentificationUtils.canStartNewAction(user, null, Locale.ENGLISH);
 
-			if (logger.isDebugEnabled()) {
-				logger.debug("scriptRequestBody: " + scriptRequest.getScriptContent());
-			}
+		if (logger.isDebugEnabled()) {
+			logger.debug("scriptRequestBody: " + scriptRequest.getScriptContent());
+		}
 
-			scriptingService.execute(scriptRequest.getScriptContent(), user.getLogin(), user.getPassword());
-		} catch (ServiceException e) {
-			throw e;
+		response.setContentType("text/plain;charset=UTF-8");
+		try {
+			scriptingService.execute(scriptRequest.getScriptContent(), user, response.getWriter());
+		} catch (ServiceException | CheckException e) {
+			if (!response.isCommitted()) {
+				response.resetBuffer();
+				throw e;
+			}
+			logger.warn("Script of " + user.getLogin() + " stopped : " + e.getMessage());
 		}
 	}
 
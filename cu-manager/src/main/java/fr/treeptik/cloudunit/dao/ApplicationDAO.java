@@ -15,13 +15,16 @@
 
 package fr.treeptik.cloudunit.dao;
 
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
 import fr.treeptik.cloudunit.model.Application;
 import fr.treeptik.cloudunit.model.Status;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ApplicationDAO extends JpaRepository<Application, Integer> {
@@ -40,6 +43,36 @@ public interface ApplicationDAO extends JpaRepository<Application, Integer> {
 	public List<Application> findAllByUser(@Param("userId") Integer userId,
 			@Param("cuInstanceName") String cuInstanceName) throws DataAccessException;
 
+	@Query("select new fr.treeptik.cloudunit.dto.ApplicationSummary(a.id, a.name, a.displayName, a.status, a.date, "
+			+ "a.deploymentStatus, a.contextPath, u.login, u.firstName, u.lastName, i.name, i.displayName, i.prefixEnv) "
+			+ "from Application a join a.user u "
+			+ "left join a.server s left join s.image i "
+			+ "where u.id=:userId and a.cuInstanceName=:cuInstanceName order by a.name")
+	List<ApplicationSummary> findSummariesByUser(@Param("userId") Integer userId,
+			@Param("cuInstanceName") String cuInstanceName, Pageable pageable) throws DataAccessException;
+
+	@Query("select new fr.treeptik.cloudunit.dto.ApplicationSummary(a.id, a.name, a.displayName, a.status, a.date, "
+			+ "a.deploymentStatus, a.contextPath, u.login, u.firstName, u.lastName, i.name, i.displayName, i.prefixEnv) "
+			+ "from Application a join a.user u "
+			+ "left join a.server s left join s.image i "
+			+ "where u.id=:userId and a.name=:name and a.cuInstanceName=:cuInstanceName")
+	ApplicationSummary findSummaryByNameAndUser(@Param("userId") Integer userId, @Param("name") String name,
+			@Param("cuInstanceName") String cuInstanceName) throws DataAccessException;
+
+	/**
+	 * Image display names of the modules of the given applications, as (application id, display name) rows.
+	 */
+	@Query("select m.application.id, i.displayName from Module m join m.image i "
+			+ "where m.application.id in :applicationIds order by m.id")
+	List<Object[]> findModuleImagesByApplications(@Param("applicationIds") Collection<Integer> applicationIds)
+			throws DataAccessException;
+
+	@Query("Select distinct a from Application a " + "join fetch a.user "
+			+ "left join fetch a.server " + "left join fetch a.modules "
+			+ "where a.cuInstanceName=:cuInstanceName")
+	List<Application> findAllWithContainers(@Param("cuInstanceName") String cuInstanceName)
+			throws DataAccessException;
+
 	@Query("select al from Application a left join a.aliases al where a.name=:name "
 			+ "and a.cuInstanceName=:cuInstanceName")
 	public List<String> findAllAliases(@Param("name") String applicationName,
@@ -15,6 +15,7 @@
 
 package fr.treeptik.cloudunit.dao;
 
+import fr.treeptik.cloudunit.dto.MessageSummary;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.User;
 import org.springframework.dao.DataAccessException;
@@ -25,6 +26,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+
 public interface MessageDAO
     extends JpaRepository<Message, Integer> {
 
@@ -46,6 +49,33 @@ public interface MessageDAO
                             Pageable pageable)
         throws DataAccessException;
 
+    /**
+     * Keyset page of the messages older than the given id, served by the (author, cuInstanceName, id) index.
+     */
+    @Query("Select new fr.treeptik.cloudunit.dto.MessageSummary(m.id, m.date, m.type, m.applicationName, m.event, " +
+            "m.author.login) from Message m where m.author.id=:userId " +
+            "and m.cuInstanceName=:cuInstanceName " +
+            "and m.id<:before " +
+            "order by m.id DESC")
+    List<MessageSummary> feedByUser(@Param("userId") Integer userId,
+                                    @Param("cuInstanceName") String cuInstanceName,
+                                    @Param("before") Integer before,
+                                    Pageable pageable)
+        throws DataAccessException;
+
+    @Query("Select new fr.treeptik.cloudunit.dto.MessageSummary(m.id, m.date, m.type, m.applicationName, m.event, " +
+            "m.author.login) from Message m where m.author.id=:userId " +
+            "and m.cuInstanceName=:cuInstanceName " +
+            "and m.applicationName=:applicationName " +
+            "and m.id<:before " +
+            "order by m.id DESC")
+    List<MessageSummary> feedByApp(@Param("userId") Integer userId,
+                                   @Param("applicationName") String applicationName,
+                                   @Param("cuInstanceName") String cuInstanceName,
+                                   @Param("before") Integer before,
+                                   Pageable pageable)
+        throws DataAccessException;
+
     @Query("Select m from Message m  order by m.id DESC")
     Page<Message> listAll(Pageable pageable)
         throws DataAccessException;
@@ -4,9 +4,21 @@ import fr.treeptik.cloudunit.model.Registry;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
 public interface RegistryDAO extends JpaRepository<Registry, Integer> {
+
+    @Override
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "reference.queries") })
+    List<Registry> findAll();
+
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "reference.queries") })
     @Query("Select v from Registry v where v.id=:id")
     Registry findById(@Param("id") int id) throws DataAccessException;
 }
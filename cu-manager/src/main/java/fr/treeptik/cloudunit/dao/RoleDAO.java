@@ -19,11 +19,16 @@ import fr.treeptik.cloudunit.model.Role;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
 public interface RoleDAO
     extends JpaRepository<Role, Integer> {
 
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "reference.queries") })
     @Query("select r from Role r where r.description=:desc")
     Role findByRole(@Param("desc") String description)
         throws DataAccessException;
@@ -0,0 +1,70 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+/**
+ * A file read from a container : the content is streamed straight from the docker archive,
+ * it must be closed to release the connection.
+ */
+public class ContainerFile implements Closeable {
+
+    private final String name;
+
+    private final long size;
+
+    private final Date lastModified;
+
+    private final InputStream content;
+
+    public ContainerFile(String name, long size, Date lastModified, InputStream content) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.content = content;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Size given by the tar header.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Only the bytes of the file, the end of the stream is the end of the file.
+     */
+    public InputStream getContent() {
+        return content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
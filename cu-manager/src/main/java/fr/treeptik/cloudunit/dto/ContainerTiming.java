@@ -0,0 +1,69 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+/**
+ * Duration of one operation (start, stop...) on a container during an orchestration.
+ */
+public class ContainerTiming {
+
+    private final String containerName;
+
+    private final String operation;
+
+    private final long startTime;
+
+    private final long duration;
+
+    private final Throwable error;
+
+    public ContainerTiming(String containerName, String operation, long startTime, long duration, Throwable error) {
+        this.containerName = containerName;
+        this.operation = operation;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.error = error;
+    }
+
+    public String getContainerName() {
+        return containerName;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return containerName + " " + operation + " : " + duration + " ms" + (error == null ? "" : " (" + error.getMessage() + ")");
+    }
+}
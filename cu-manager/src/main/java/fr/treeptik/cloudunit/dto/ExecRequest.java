@@ -0,0 +1,111 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import fr.treeptik.cloudunit.enums.RemoteExecAction;
+
+/**
+ * Command to run in a container by the exec engine.
+ * The action only labels the latency statistics : without it the action is guessed from the command.
+ * A timeout of 0 means the default timeout of the engine.
+ */
+public class ExecRequest {
+
+    private final String containerName;
+
+    private final String command;
+
+    private boolean privileged;
+
+    private boolean detached;
+
+    private boolean rootFallback;
+
+    private RemoteExecAction action;
+
+    private long timeout;
+
+    public ExecRequest(String containerName, String command) {
+        this.containerName = containerName;
+        this.command = command;
+    }
+
+    public ExecRequest privileged(boolean privileged) {
+        this.privileged = privileged;
+        return this;
+    }
+
+    public ExecRequest detached(boolean detached) {
+        this.detached = detached;
+        return this;
+    }
+
+    /**
+     * Runs the command again as root when it fails on a permission error. When its output is streamed,
+     * the listener receives the output of both runs.
+     */
+    public ExecRequest rootFallback(boolean rootFallback) {
+        this.rootFallback = rootFallback;
+        return this;
+    }
+
+    public ExecRequest action(RemoteExecAction action) {
+        this.action = action;
+        return this;
+    }
+
+    /**
+     * @param timeout milliseconds
+     */
+    public ExecRequest timeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public String getContainerName() {
+        return containerName;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public boolean isPrivileged() {
+        return privileged;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    public boolean isRootFallback() {
+        return rootFallback;
+    }
+
+    public RemoteExecAction getAction() {
+        return action;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecRequest{" + "containerName='" + containerName + '\'' + ", command='" + command + '\''
+                + ", privileged=" + privileged + ", action=" + action + ", timeout=" + timeout + '}';
+    }
+}
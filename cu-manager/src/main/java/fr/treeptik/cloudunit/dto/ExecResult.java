@@ -0,0 +1,79 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+/**
+ * Outcome of a command run in a container. The exit code comes from the exec inspection,
+ * it is null when the command timed out. The output is null when it has been streamed to a listener.
+ */
+public class ExecResult {
+
+    private final String containerName;
+
+    private final String action;
+
+    private final Integer exitCode;
+
+    private final String output;
+
+    private final long duration;
+
+    private final boolean timedOut;
+
+    public ExecResult(String containerName, String action, Integer exitCode, String output, long duration,
+            boolean timedOut) {
+        this.containerName = containerName;
+        this.action = action;
+        this.exitCode = exitCode;
+        this.output = output;
+        this.duration = duration;
+        this.timedOut = timedOut;
+    }
+
+    public String getContainerName() {
+        return containerName;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public boolean isSuccess() {
+        return !timedOut && exitCode != null && exitCode == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecResult{" + "containerName='" + containerName + '\'' + ", action='" + action + '\''
+                + ", exitCode=" + exitCode + ", duration=" + duration + ", timedOut=" + timedOut + '}';
+    }
+}
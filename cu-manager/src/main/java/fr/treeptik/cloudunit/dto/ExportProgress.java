@@ -0,0 +1,105 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of an application export, updated while the archive is streamed.
+ */
+public class ExportProgress {
+
+    private final String applicationName;
+
+    private final List<String> containers;
+
+    private final Date startDate = new Date();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile String currentContainer;
+
+    private volatile Date endDate;
+
+    private volatile String error;
+
+    public ExportProgress(String applicationName, List<String> containers) {
+        this.applicationName = applicationName;
+        this.containers = containers;
+    }
+
+    public void start(String container) {
+        currentContainer = container;
+    }
+
+    public void add(long transferred) {
+        bytes.addAndGet(transferred);
+    }
+
+    public void complete(String container) {
+        completed.incrementAndGet();
+        currentContainer = null;
+    }
+
+    public void finish(Throwable e) {
+        if (e != null) {
+            error = e.getMessage();
+        }
+        endDate = new Date();
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public List<String> getContainers() {
+        return containers;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public String getCurrentContainer() {
+        return currentContainer;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isFinished() {
+        return endDate != null;
+    }
+
+}
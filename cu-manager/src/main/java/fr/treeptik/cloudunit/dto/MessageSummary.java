@@ -0,0 +1,73 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Message of the feed, read without its author entity.
+ */
+public class MessageSummary {
+
+    private final Integer id;
+
+    @JsonFormat(pattern = "YYYY-MM-dd HH:mm")
+    private final Date date;
+
+    private final String type;
+
+    private final String applicationName;
+
+    private final String event;
+
+    private final String author;
+
+    public MessageSummary(Integer id, Date date, String type, String applicationName, String event, String author) {
+        this.id = id;
+        this.date = date;
+        this.type = type;
+        this.applicationName = applicationName;
+        this.event = event;
+        this.author = author;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last known state of a docker container, as held by the container registry.
+ * The env is null when the container has only been listed and not inspected yet.
+ */
+public class RegisteredContainer {
+
+    private final String id;
+
+    private final String name;
+
+    private final String status;
+
+    private final boolean running;
+
+    private final Integer exitCode;
+
+    private final String ipAddress;
+
+    private final List<String> env;
+
+    private final Map<String, String> labels;
+
+    public RegisteredContainer(String id, String name, String status, boolean running, Integer exitCode,
+            String ipAddress, List<String> env, Map<String, String> labels) {
+        this.id = id;
+        this.name = name;
+        this.status = status;
+        this.running = running;
+        this.exitCode = exitCode;
+        this.ipAddress = ipAddress;
+        this.env = env;
+        this.labels = labels == null ? Collections.emptyMap() : labels;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public List<String> getEnv() {
+        return env;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public String toString() {
+        return "RegisteredContainer{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", status='" + status + '\'' +
+                ", running=" + running +
+                ", exitCode=" + exitCode +
+                ", ipAddress='" + ipAddress + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One line of a script, written with the syntax of the CLI : the command name followed by
+ * its options (--key value) and its positional arguments.
+ * An option given without value, such as --errorIfNotExists, holds "true".
+ */
+public class ScriptCommand {
+
+    private final int line;
+
+    private final String name;
+
+    private final Map<String, String> options = new LinkedHashMap<>();
+
+    private final List<String> arguments = new ArrayList<>();
+
+    public ScriptCommand(int line, String name) {
+        this.line = line;
+        this.name = name;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getOptions() {
+        return options;
+    }
+
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    public String getOption(String key) {
+        return options.get(key);
+    }
+
+    /**
+     * Value of the option, or the positional argument at the given index when the option is not named,
+     * as the CLI does for its options declared with the "" key.
+     */
+    public String getOption(String key, int position) {
+        String value = options.get(key);
+        if (value == null && position < arguments.size()) {
+            value = arguments.get(position);
+        }
+        return value;
+    }
+
+    public boolean isFlag(String key) {
+        return Boolean.parseBoolean(options.get(key));
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptCommand{" + "line=" + line + ", name='" + name + '\'' + ", options=" + options
+                + ", arguments=" + arguments + '}';
+    }
+}
@@ -23,7 +23,9 @@ import com.spotify.docker.client.DockerClient;
 import fr.treeptik.cloudunit.config.EmailActiveCondition;
 import fr.treeptik.cloudunit.config.MattermostClient;
 import fr.treeptik.cloudunit.docker.core.DockerCloudUnitClient;
+import fr.treeptik.cloudunit.docker.core.ExecutorAsyncDockerDriver;
 import fr.treeptik.cloudunit.docker.core.SimpleDockerDriver;
+import fr.treeptik.cloudunit.utils.ConnectionPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -239,17 +241,39 @@ public class CloudUnitApplicationContext
     }
 
     @Bean
+    public ConnectionPoolConfig dockerConnectionPoolConfig(@Value("${docker.pool.max.total:50}") int maxTotal,
+                                                           @Value("${docker.pool.max.per.route:50}") int maxPerRoute,
+                                                           @Value("${docker.pool.connect.timeout:5000}") int connectTimeout,
+                                                           @Value("${docker.pool.socket.timeout:0}") int socketTimeout,
+                                                           @Value("${docker.pool.request.timeout:10000}") int requestTimeout,
+                                                           @Value("${docker.pool.max.idle.time:30000}") long maxIdleTime) {
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxTotal(maxTotal);
+        poolConfig.setMaxPerRoute(maxPerRoute);
+        poolConfig.setConnectTimeout(connectTimeout);
+        poolConfig.setSocketTimeout(socketTimeout);
+        poolConfig.setConnectionRequestTimeout(requestTimeout);
+        poolConfig.setMaxIdleTime(maxIdleTime);
+        return poolConfig;
+    }
+
+    @Bean(destroyMethod = "close")
     public DockerCloudUnitClient dockerCloudUnitClient(@Value("${docker.endpoint.mode}") String endpoint,
                                                        @Value("${docker.socket.location}") String dockerSocketLocation,
-                                                       @Value("${docker.certs.dir.path:}") String certPathDirectory) {
+                                                       @Value("${docker.certs.dir.path:}") String certPathDirectory,
+                                                       @Value("${docker.async.threads:20}") int asyncThreads,
+                                                       ConnectionPoolConfig dockerConnectionPoolConfig) {
         boolean useUnixSocket = endpoint.equalsIgnoreCase("unix");
         logger.info("Socket mode : " + (useUnixSocket ? "unix" : "tcp"));
         DockerCloudUnitClient dockerCloudUnitClient = new DockerCloudUnitClient();
         if (useUnixSocket) {
-            dockerCloudUnitClient.setDriver(new SimpleDockerDriver(true, endpoint, dockerSocketLocation, null));
+            dockerCloudUnitClient.setDriver(new SimpleDockerDriver(true, endpoint, dockerSocketLocation, null,
+                    dockerConnectionPoolConfig));
         } else {
-            dockerCloudUnitClient.setDriver(new SimpleDockerDriver(false,  endpoint, dockerSocketLocation, certPathDirectory));
+            dockerCloudUnitClient.setDriver(new SimpleDockerDriver(false,  endpoint, dockerSocketLocation, certPathDirectory,
+                    dockerConnectionPoolConfig));
         }
+        dockerCloudUnitClient.setAsyncDriver(new ExecutorAsyncDockerDriver(dockerCloudUnitClient.getDriver(), asyncThreads));
         return dockerCloudUnitClient;
     }
 
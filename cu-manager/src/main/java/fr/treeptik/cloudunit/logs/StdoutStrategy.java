@@ -24,7 +24,7 @@ public class StdoutStrategy implements GatheringStrategy {
     public String gather(String container, String source, int maxRows) throws ServiceException {
         String logs = "";
         try {
-            logs = dockerService.logs(container);
+            logs = dockerService.logs(container, maxRows, null);
         } catch (Exception e) {
             logger.error(container + "," + source, e);
         }
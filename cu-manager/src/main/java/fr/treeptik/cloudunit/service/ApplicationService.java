@@ -16,10 +16,12 @@
 package fr.treeptik.cloudunit.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import fr.treeptik.cloudunit.model.PortToOpen;
 import org.springframework.web.multipart.MultipartFile;
 
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
 import fr.treeptik.cloudunit.dto.ContainerUnit;
 import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
@@ -33,8 +35,24 @@ public interface ApplicationService {
 
 	List<Application> findAll() throws ServiceException;
 
+	/**
+	 * All the applications of this instance with their user, server and modules, in a single query.
+	 */
+	List<Application> findAllWithContainers() throws ServiceException;
+
 	List<Application> findAllByUser(User user) throws ServiceException;
 
+	/**
+	 * A page of the applications of the user, ordered by name, as summaries : two queries whatever
+	 * the number of applications and no fetch join on their collections.
+	 */
+	List<ApplicationSummary> findSummariesByUser(User user, int page, int size) throws ServiceException;
+
+	/**
+	 * The summary of an application of the user, or null if it does not exist.
+	 */
+	ApplicationSummary findSummaryByNameAndUser(User user, String applicationName) throws ServiceException;
+
 	public void checkCreate(User user, String application) throws CheckException, ServiceException;
 
 	Application saveInDB(Application application) throws ServiceException;
@@ -47,10 +65,23 @@ public interface ApplicationService {
 
 	Application deploy(String url, Application application) throws ServiceException, CheckException;
 
+	/**
+	 * Deploys an archive already stored on the manager, without uploading it again.
+	 *
+	 * @param sha256 hash of the archive content
+	 * @param filename name of the deployed file, giving the context path
+	 */
+	Application deployArtifact(String sha256, String filename, Application application)
+			throws ServiceException, CheckException;
+
 	Application start(Application application) throws ServiceException;
 
+	CompletableFuture<Application> startAsync(Application application) throws ServiceException;
+
 	Application stop(Application application) throws ServiceException;
 
+	CompletableFuture<Application> stopAsync(Application application) throws ServiceException;
+
 	List<ContainerUnit> listContainers(String applicationName) throws ServiceException;
 
 	Application remove(Application application, User user) throws ServiceException, CheckException;
@@ -0,0 +1,68 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+
+/**
+ * Deployed archives stored on the manager by content, so that a known archive is never uploaded twice.
+ * The least recently used ones are removed beyond the size limit.
+ */
+public interface ArtifactService {
+
+    /**
+     * @return the artifact, null if it is not or no longer stored
+     */
+    Artifact find(String sha256);
+
+    /**
+     * Stores the content, computing its hash while it is written.
+     *
+     * @param expectedSha256 checked against the computed hash if not null
+     */
+    Artifact store(InputStream content, String expectedSha256) throws ServiceException, CheckException;
+
+    /**
+     * Moves the file into the store, or deletes it if its content is already stored.
+     * The file must be on the file system of the store.
+     *
+     * @param expectedSha256 checked against the hash of the file if not null
+     */
+    Artifact store(Path file, String expectedSha256) throws ServiceException, CheckException;
+
+    /**
+     * Moves the file into the store under a hash computed while it was written, or deletes it
+     * if this content is already stored. The file must be on the file system of the store.
+     */
+    Artifact register(Path file, String sha256) throws ServiceException;
+
+    /**
+     * Directory of the store, for the files to be moved into it.
+     */
+    Path getDirectory();
+
+    InputStream open(Artifact artifact) throws IOException;
+
+    Map<String, Object> getStatistics();
+
+}
@@ -0,0 +1,41 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.util.Map;
+
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Message;
+
+/**
+ * Audit messages written by the aspects. They are queued and persisted by batches out of the request.
+ */
+public interface AuditService {
+
+    /**
+     * Queues the message. When the queue is full the overflow policy applies : the message may be written
+     * by the caller, after waiting for room, or dropped.
+     */
+    void publish(Message message) throws ServiceException;
+
+    /**
+     * Writes the queued messages now.
+     */
+    void flush();
+
+    Map<String, Object> getStatistics();
+
+}
@@ -1,6 +1,7 @@
 package fr.treeptik.cloudunit.service;
 
 import fr.treeptik.cloudunit.dto.Command;
+import fr.treeptik.cloudunit.dto.ExecResult;
 import fr.treeptik.cloudunit.exception.ServiceException;
 
 import java.util.List;
@@ -10,4 +11,10 @@ public interface CommandService {
     List<Command> listCommandByContainer(String applicationName, String containerName) throws ServiceException;
 
     String execCommand(Command command, String containerName, String applicationName) throws ServiceException;
+
+    /**
+     * Runs the custom script and gives its output to the listener as it is produced.
+     */
+    ExecResult execCommand(Command command, String containerName, String applicationName,
+            ExecService.OutputListener listener) throws ServiceException;
 }
@@ -0,0 +1,49 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Environment of the containers, as given by their inspection. Kept in memory in front of Redis,
+ * shared by the managers, and invalidated container by container.
+ */
+public interface ContainerEnvCacheService {
+
+    /**
+     * @param containerName the name, or the id when the name is not known
+     * @param loader inspects the container, called once at a time per container when neither tier holds it
+     * @return the NAME=value entries
+     */
+    List<String> getEnv(String containerName, Supplier<List<String>> loader);
+
+    /**
+     * Forgets the environment of the container, on this manager and on the other ones.
+     *
+     * @param containerName or id, the same key as given to getEnv
+     */
+    void invalidate(String containerName);
+
+    /**
+     * Removes the expired entries of the local tier.
+     */
+    void purge();
+
+    Map<String, Object> getStatistics();
+
+}
@@ -0,0 +1,55 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import fr.treeptik.cloudunit.config.events.ContainerEvent;
+import fr.treeptik.cloudunit.config.events.DockerEventsStreamEvent;
+import fr.treeptik.cloudunit.dto.RegisteredContainer;
+
+/**
+ * In-memory view of the docker containers, indexed by name and by id.
+ * Loaded once at startup then kept up to date from the docker events stream.
+ */
+public interface ContainerRegistryService {
+
+    /**
+     * False until the containers have been loaded, when the docker events are not followed, or while
+     * the events stream is down : the registry must not be trusted then.
+     */
+    boolean isActive();
+
+    void onDockerEventsStream(DockerEventsStreamEvent dockerEventsStreamEvent);
+
+    /**
+     * @param containerName with or without the leading slash
+     * @return null if no such container is known
+     */
+    RegisteredContainer findByName(String containerName);
+
+    /**
+     * @param containerId full id or unambiguous prefix
+     * @return null if no such container is known
+     */
+    RegisteredContainer findById(String containerId);
+
+    /**
+     * Inspects the container again, useful when its env is needed.
+     */
+    RegisteredContainer refresh(String containerNameOrId);
+
+    void onContainerEvent(ContainerEvent containerEvent);
+
+}
@@ -31,7 +31,7 @@ public interface DeploymentService {
     List<Deployment> findByApp(Application application)
         throws ServiceException;
 
-    Deployment create(Application application, DeploymentType deploymentType, String contextPath)
+    Deployment create(Application application, DeploymentType deploymentType, String contextPath, String artifactHash)
         throws ServiceException, CheckException;
 
 }
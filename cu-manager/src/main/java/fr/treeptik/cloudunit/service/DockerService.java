@@ -16,10 +16,15 @@
 package fr.treeptik.cloudunit.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.exceptions.DockerException;
+import fr.treeptik.cloudunit.dto.ContainerFile;
 import fr.treeptik.cloudunit.exception.DockerJSONException;
 import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
 import fr.treeptik.cloudunit.exception.ServiceException;
@@ -40,6 +45,8 @@ DockerService {
 
 	Server startServer(String containerName, Server server) throws DockerJSONException;
 
+	CompletableFuture<Server> startServerAsync(String containerName, Server server);
+
 	void killServer(String containerName) throws DockerJSONException;
 
 	void removeContainer(String containerName, boolean removeVolume) throws DockerJSONException;
@@ -64,10 +71,20 @@ DockerService {
 
 	String getEnv(String containerId, String variable) throws FatalDockerJSONException;
 
+	/**
+	 * Opens the file without copying it : the content is read from the docker archive as it is consumed.
+	 */
+	ContainerFile openFileFromContainer(String containerId, String path) throws FatalDockerJSONException;
+
 	int getFileFromContainer(String containerId, String path, OutputStream outputStream)
 			throws FatalDockerJSONException;
 
-	void sendFileToContainer(String containerId, String localPathFile, String originalName, String destination)
+	/**
+	 * Streams the content into the directory of the container, without temporary file.
+	 *
+	 * @return hexadecimal SHA-256 of the sent content
+	 */
+	String putFile(String containerId, String destination, String fileName, long size, InputStream content)
 			throws FatalDockerJSONException;
 
 	void createModule(String containerName, Module module, String imagePath, User user, List<String> envs,
@@ -75,15 +92,37 @@ DockerService {
 
 	Module startModule(String containerName, Module module) throws DockerJSONException;
 
+	CompletableFuture<Module> startModuleAsync(String containerName, Module module);
+
 	void stopContainer(String containerName) throws DockerJSONException;
 
+	CompletableFuture<Void> stopContainerAsync(String containerName);
+
 	String logs(String container) throws FatalDockerJSONException;
 
+	/**
+	 * Only the last lines (tail) or the lines since a unix timestamp, null to ignore the criteria.
+	 */
+	String logs(String container, Integer tail, Integer since) throws FatalDockerJSONException;
+
+	/**
+	 * Stream of the container output, kept open for the new lines until closed.
+	 */
+	LogStream followLogs(String container, Integer tail, Integer since) throws FatalDockerJSONException;
+
 	void pullImage(String imageName) throws FatalDockerJSONException;
 
 	void deleteImage(String imageName) throws ServiceException;
 
-	List<String> listImages() throws ServiceException;
+	/**
+	 * Tags of the local images of the applications, with the id of the image they point to.
+	 */
+	Map<String, String> listImageTags() throws ServiceException;
 
 	void exportContainer(String containerName, final OutputStream outputFileStream) throws FatalDockerJSONException, DockerException, InterruptedException, IOException;
+
+	/**
+	 * Tar of the container filesystem, read from docker as it is consumed. Must be closed.
+	 */
+	InputStream openExport(String containerName) throws FatalDockerJSONException;
 }
@@ -2,6 +2,8 @@ package fr.treeptik.cloudunit.service;
 
 import java.util.List;
 
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
 import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Application;
@@ -30,4 +32,12 @@ public interface EnvironmentService {
     void delete(User user, List<EnvironmentVariable> envs, String applicationName, String containerName)
             throws ServiceException;
 
+    /**
+     * Stages the change set for the container and waits for its commit. The change sets received for the same
+     * container during the debounce window are merged, the last edit of a key winning, and committed together
+     * in one transaction with a single recreate of the container. Every caller gets the report of the merged commit.
+     */
+    EnvironmentChangeReport apply(User user, String applicationName, String containerName,
+            EnvironmentChangeSet changeSet) throws ServiceException;
+
 }
@@ -0,0 +1,59 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
+import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+
+/**
+ * Runs the commands in the containers. The output is read frame by frame as docker sends it,
+ * the exit code comes from the exec inspection and every call has a deadline. The number of commands running
+ * at the same time is bounded by container and for the whole host, and the durations are recorded by action.
+ */
+public interface ExecService {
+
+    /**
+     * Receives the output of a command as it is produced.
+     */
+    @FunctionalInterface
+    interface OutputListener {
+
+        /**
+         * @param stderr true when the frame comes from the error output
+         * @param content bytes of the frame, only valid during the call
+         * @throws IOException to stop reading the command output
+         */
+        void onOutput(boolean stderr, ByteBuffer content) throws IOException;
+    }
+
+    /**
+     * Runs the command and keeps its whole output in the result.
+     */
+    ExecResult exec(ExecRequest request) throws FatalDockerJSONException;
+
+    /**
+     * Runs the command and gives its output to the listener, the output of the result is null.
+     */
+    ExecResult exec(ExecRequest request, OutputListener listener) throws FatalDockerJSONException;
+
+    Map<String, Object> getStatistics();
+
+}
@@ -0,0 +1,39 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.io.OutputStream;
+
+import fr.treeptik.cloudunit.dto.ExportProgress;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.User;
+
+public interface ExportService {
+
+    /**
+     * Writes a single tar.gz holding the filesystem of every container of the application,
+     * each one under a directory named after the container.
+     * The docker exports are piped to the output : nothing is written on disk nor held in memory.
+     */
+    void exportApplication(Application application, OutputStream out) throws ServiceException;
+
+    /**
+     * @return the running export of the application of this user, null if none
+     */
+    ExportProgress getProgress(User user, String applicationName);
+
+}
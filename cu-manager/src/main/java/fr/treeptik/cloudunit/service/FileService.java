@@ -16,11 +16,13 @@
 package fr.treeptik.cloudunit.service;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import fr.treeptik.cloudunit.dto.ContainerFile;
 import fr.treeptik.cloudunit.dto.FileUnit;
 import fr.treeptik.cloudunit.dto.SourceUnit;
 import fr.treeptik.cloudunit.exception.CheckException;
@@ -42,6 +44,14 @@ public interface FileService {
     void sendFileToContainer(String containerId, String tempDirectory, MultipartFile fileUpload, String contentFileName, String contentFileData)
             throws ServiceException, CheckException;
 
+    /**
+     * Streams the content into the destination directory of the container.
+     */
+    void sendFileToContainer(String containerId, String destination, String fileName, long size, InputStream content)
+            throws ServiceException, CheckException;
+
+    ContainerFile openFileFromContainer(String containerId, String pathFile) throws ServiceException;
+
     int getFileFromContainer(String containerId,
                               String pathFile, OutputStream outputStream)
         throws ServiceException;
@@ -52,6 +62,11 @@ public interface FileService {
     void createDirectory(String applicationName, String containerId, String path)
             throws ServiceException;
 
+    /**
+     * Forgets the cached listings affected by a change of the path made outside of this service.
+     */
+    void invalidateListing(String containerId, String path);
+
     String tailFile(String containerId, String filename, Integer maxRows)
             throws ServiceException;
 
@@ -0,0 +1,53 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.util.Map;
+
+import fr.treeptik.cloudunit.config.events.ImageEvent;
+
+/**
+ * Local docker images of the applications, indexed by repository (cloudunit/tomcat-8 for
+ * registry:5000/cloudunit/tomcat-8:latest). Synchronized with docker periodically and after each image event,
+ * so that the pulled state of an image is known without requesting docker.
+ */
+public interface ImageInventoryService {
+
+    /**
+     * @param path repository of the image, as in {@link fr.treeptik.cloudunit.model.Image#getPath()}
+     */
+    boolean isPulled(String path);
+
+    /**
+     * @return id of the local image, null if not pulled or not known yet
+     */
+    String getImageId(String path);
+
+    /**
+     * False until docker has been listed once : an image missing from the inventory may be pulled then.
+     */
+    boolean isSynchronized();
+
+    /**
+     * Lists the images from docker and replaces the inventory, kept as is if docker cannot be reached.
+     */
+    void sync();
+
+    void onImageEvent(ImageEvent imageEvent);
+
+    Map<String, Object> getStatistics();
+
+}
@@ -0,0 +1,34 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import fr.treeptik.cloudunit.exception.ServiceException;
+
+public interface LogStreamService {
+
+    /**
+     * Sends the last lines of the container output then the new ones as they are written.
+     * All the viewers of a container share a single docker logs stream.
+     *
+     * @param container name or id of the container
+     * @param tail number of past lines to send first
+     * @param since unix timestamp of the first past line to send, null to only rely on tail
+     */
+    SseEmitter subscribe(String container, Integer tail, Integer since) throws ServiceException;
+
+}
@@ -15,6 +15,7 @@
 
 package fr.treeptik.cloudunit.service;
 
+import fr.treeptik.cloudunit.dto.MessageSummary;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.User;
@@ -26,25 +27,45 @@ import java.util.List;
 
 public interface MessageService {
 
+    /**
+     * Lists of messages cached by user, and by user and application under login:applicationName.
+     */
+    String CACHE = "messageFindCache";
+
     @Caching(evict = {
-        @CacheEvict(value = "messageFindCache", key = "#message.author.login"),
-        @CacheEvict(value = "messageFindCache", key = "{#message.author.login, #message.applicationName}")
+        @CacheEvict(value = CACHE, key = "#message.author.login"),
+        @CacheEvict(value = CACHE, key = "#message.author.login + ':' + #message.applicationName")
     })
     Message create(Message message)
         throws ServiceException;
 
-    @CacheEvict(value = "messageFindCache", key = "#message.author.login")
+    /**
+     * Inserts the messages in one transaction. The caches must be evicted afterwards.
+     */
+    void create(List<Message> messages)
+        throws ServiceException;
+
+    @CacheEvict(value = CACHE, key = "#message.author.login")
     void delete(Message message)
         throws ServiceException;
 
-    @Cacheable(value = "messageFindCache", key = "#user.login")
+    @Cacheable(value = CACHE, key = "#user.login")
     List<Message> listByUser(User user, int index)
         throws ServiceException;
 
     List<Message> listByUserNoLimitRows(User user)
             throws ServiceException;
 
-    @Cacheable(value = "messageFindCache", key = "{#user.login, #applicationName}")
+    /**
+     * Messages older than the cursor, newest first.
+     *
+     * @param applicationName null for all the applications of the user
+     * @param before id of the last message already read, null for the newest ones
+     */
+    List<MessageSummary> feed(User user, String applicationName, Integer before, int limit)
+        throws ServiceException;
+
+    @Cacheable(value = CACHE, key = "#user.login + ':' + #applicationName")
     List<Message> listByApp(User user, String applicationName, int index)
         throws ServiceException;
 
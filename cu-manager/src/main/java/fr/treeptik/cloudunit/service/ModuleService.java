@@ -16,6 +16,7 @@
 package fr.treeptik.cloudunit.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.web.multipart.MultipartFile;
 
@@ -52,8 +53,12 @@ public interface ModuleService {
 
     Module stopModule(String moduleName) throws ServiceException;
 
+    CompletableFuture<Module> stopModuleAsync(String moduleName) throws ServiceException;
+
     Module startModule(String moduleName) throws ServiceException;
 
+    CompletableFuture<Module> startModuleAsync(String moduleName) throws ServiceException;
+
     Module create(String imageName, Application application, User user) throws ServiceException, CheckException;
 
     Module publishPort(Integer id, Boolean publishPort, String port, User user) throws ServiceException, CheckException;
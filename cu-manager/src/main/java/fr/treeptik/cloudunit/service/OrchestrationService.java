@@ -0,0 +1,45 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import fr.treeptik.cloudunit.dto.ContainerTiming;
+import fr.treeptik.cloudunit.model.Module;
+import fr.treeptik.cloudunit.model.Server;
+import fr.treeptik.cloudunit.utils.OrchestrationPlan;
+
+public interface OrchestrationService {
+
+    /**
+     * Runs the steps of the plan on a bounded executor, each one as soon as its dependencies are done.
+     * The returned future never fails, the outcome of each step is in its timing.
+     */
+    CompletableFuture<List<ContainerTiming>> execute(OrchestrationPlan plan);
+
+    /**
+     * Starts the modules at the same time, then the server (if any) once they are ready.
+     */
+    CompletableFuture<List<ContainerTiming>> start(Collection<Module> modules, Server server);
+
+    /**
+     * Stops the server (if any), then the modules at the same time.
+     */
+    CompletableFuture<List<ContainerTiming>> stop(Server server, Collection<Module> modules);
+
+}
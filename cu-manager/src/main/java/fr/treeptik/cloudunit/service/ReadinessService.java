@@ -0,0 +1,48 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import fr.treeptik.cloudunit.config.events.ContainerEvent;
+import fr.treeptik.cloudunit.config.events.ContainerInvalidatedEvent;
+
+/**
+ * Waits for containers to reach a state without holding a thread per container.
+ * The condition is probed on a small scheduler, right away when docker reports an event
+ * for the container and periodically otherwise, until it holds or the timeout expires.
+ */
+public interface ReadinessService {
+
+    /**
+     * Probes the condition until it holds or the timeout expires.
+     * The callback is run with the outcome before the returned future completes,
+     * any pending transition of the same container is replaced.
+     */
+    CompletableFuture<Boolean> await(String containerName, Supplier<Boolean> condition, Consumer<Boolean> callback);
+
+    /**
+     * The transition in progress for a container, null if none.
+     */
+    CompletableFuture<Boolean> getTransition(String containerName);
+
+    void onContainerEvent(ContainerEvent containerEvent);
+
+    void onContainerInvalidated(ContainerInvalidatedEvent containerInvalidatedEvent);
+
+}
@@ -15,14 +15,21 @@
 
 package fr.treeptik.cloudunit.service;
 
+import java.io.PrintWriter;
 import java.util.List;
 
+import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Script;
+import fr.treeptik.cloudunit.model.User;
 
 public interface ScriptingService {
 
-    public void execute(String scriptContent, String login, String password) throws ServiceException;
+    /**
+     * Checks the whole script then runs its commands one after the other for the user, writing the outcome
+     * of each command on the output. The first failing command stops the script.
+     */
+    public void execute(String scriptContent, User user, PrintWriter output) throws ServiceException, CheckException;
 
     public void save(Script script) throws ServiceException;
 
@@ -16,6 +16,7 @@
 package fr.treeptik.cloudunit.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.spotify.docker.client.exceptions.DockerException;
 
@@ -38,8 +39,12 @@ public interface ServerService {
 
 	Server startServer(Server server) throws ServiceException;
 
+	CompletableFuture<Server> startServerAsync(Server server) throws ServiceException;
+
 	Server stopServer(Server server) throws ServiceException;
 
+	CompletableFuture<Server> stopServerAsync(Server server) throws ServiceException;
+
 	Server restartServer(Server server) throws ServiceException;
 
 	Server findByApp(Application application) throws ServiceException;
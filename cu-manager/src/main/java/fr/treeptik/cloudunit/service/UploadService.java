@@ -0,0 +1,62 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.dto.UploadSession;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.User;
+
+/**
+ * Archives uploaded in parts, which can be sent in parallel and sent again alone when they fail.
+ * A committed upload becomes an artifact of the {@link ArtifactService}.
+ */
+public interface UploadService {
+
+    /**
+     * Opens a session for the archive described by the request, or returns the pending session of the user
+     * for the same archive and application.
+     */
+    UploadSession open(User user, String applicationName, UploadSession request)
+            throws ServiceException, CheckException;
+
+    UploadSession find(User user, String applicationName, String id) throws CheckException;
+
+    /**
+     * Writes the part at its place in the archive. The part is kept only if its size and its SHA-256 are right.
+     */
+    void writePart(User user, String applicationName, String id, int index, String sha256, InputStream content)
+            throws ServiceException, CheckException;
+
+    /**
+     * Checks that all the parts are there and moves the archive to the artifacts store. The session is closed.
+     */
+    Artifact commit(User user, String applicationName, String id) throws ServiceException, CheckException;
+
+    void abort(User user, String applicationName, String id) throws CheckException;
+
+    /**
+     * Drops the sessions without activity for longer than the timeout, run periodically.
+     */
+    void expire();
+
+    Map<String, Object> getStatistics();
+
+}
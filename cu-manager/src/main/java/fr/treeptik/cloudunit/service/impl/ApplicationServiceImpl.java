@@ -17,22 +17,29 @@ package fr.treeptik.cloudunit.service.impl;
 
 import fr.treeptik.cloudunit.config.events.ApplicationStartEvent;
 import fr.treeptik.cloudunit.dao.ApplicationDAO;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.dto.ContainerTiming;
 import fr.treeptik.cloudunit.dto.ContainerUnit;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.*;
 import fr.treeptik.cloudunit.service.*;
+import fr.treeptik.cloudunit.utils.AlphaNumericsCharactersCheckUtils;
 import fr.treeptik.cloudunit.utils.AuthentificationUtils;
 import fr.treeptik.cloudunit.utils.NamingUtils;
+import fr.treeptik.cloudunit.utils.ResolutionContext;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.TeeInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -41,9 +48,17 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.PersistenceException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -73,6 +88,12 @@ public class ApplicationServiceImpl implements ApplicationService {
     private ApplicationEventPublisher applicationEventPublisher;
     @Inject
     private MessageSource messageSource;
+    @Inject
+    private OrchestrationService orchestrationService;
+    @Inject
+    private ArtifactService artifactService;
+    @Inject
+    private ResolutionContext resolutionContext;
     @Value("${docker.socket.location}")
     private String dockerSocketIP;
     @Value("#{systemEnvironment['CU_DOMAIN']}")
@@ -80,15 +101,14 @@ public class ApplicationServiceImpl implements ApplicationService {
     @Value("${cloudunit.instance.name}")
     private String cuInstanceName;
 
-    private List<String> imageNames;
+    @Inject
+    private ImageInventoryService imageInventoryService;
+
+    @Value("${applications.summary.max.size:100}")
+    private int summaryMaxSize;
 
     @PostConstruct
     public void init() throws ServiceException {
-        logger.info("Loading images enabled from database...");
-        List<Image> imagesEnabled = imageService.findEnabledImages();
-        imageNames = imagesEnabled.stream().map(i -> i.getName()).collect(Collectors.toList());
-        logger.info("{} images have been loaded from database", imageNames.size());
-
         domain = NamingUtils.getCloudUnitDomain(domainSuffix);
     }
 
@@ -160,11 +180,14 @@ public class ApplicationServiceImpl implements ApplicationService {
             throws ServiceException, CheckException {
 
         User user = authentificationUtils.getAuthentificatedUser();
-        if (!imageNames.contains(imageName)) {
+        Image image = imageService.findByName(imageName);
+        if (image == null || !image.isEnable() || !Image.SERVER.equals(image.getImageType())) {
             throw new CheckException(messageSource.getMessage("server.not.found", null, locale));
         }
+        if (imageInventoryService.isSynchronized() && !imageInventoryService.isPulled(image.getPath())) {
+            throw new CheckException(messageSource.getMessage("image.not.pulled", null, locale));
+        }
 
-        Image image = imageService.findByName(imageName);
         Application application = Application.of(applicationName, image)
                 .withDisplayName(applicationName)
                 .withUser(user)
@@ -196,7 +219,6 @@ public class ApplicationServiceImpl implements ApplicationService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public Application remove(Application application, User user) throws ServiceException, CheckException {
 
         try {
@@ -257,44 +279,64 @@ public class ApplicationServiceImpl implements ApplicationService {
     }
 
     @Override
-    @Transactional
     public Application start(Application application) throws ServiceException {
-        try {
-            logger.debug("start : Methods parameters : " + application);
-            application.getModules().stream().forEach(m -> {
-                try {
-                    moduleService.startModule(m.getName());
-                } catch (ServiceException e) {
-                    e.printStackTrace();
-                }
-            });
-            Server server = application.getServer();
-            server = serverService.startServer(server);
-            logger.info("ApplicationService : Application successfully started ");
-        } catch (PersistenceException e) {
-            throw new ServiceException(e.getLocalizedMessage(), e);
-        }
-        return application;
+        return join(startAsync(application));
+    }
+
+    /**
+     * Starts all the modules at the same time, then the server once they are ready.
+     * A module which fails to start does not prevent the server from starting.
+     */
+    @Override
+    public CompletableFuture<Application> startAsync(Application application) throws ServiceException {
+        logger.debug("start : Methods parameters : " + application);
+        Server server = application.getServer();
+        return orchestrationService.start(application.getModules(), server)
+                .thenApply(timings -> {
+                    checkSucceeded(server, timings);
+                    logger.info("ApplicationService : Application successfully started ");
+                    return application;
+                });
     }
 
     @Override
-    @Transactional
     public Application stop(Application application) throws ServiceException {
+        return join(stopAsync(application));
+    }
+
+    /**
+     * Stops the server first, then all the modules at the same time.
+     */
+    @Override
+    public CompletableFuture<Application> stopAsync(Application application) throws ServiceException {
+        Server server = application.getServer();
+        return orchestrationService.stop(server, application.getModules())
+                .thenApply(timings -> {
+                    checkSucceeded(server, timings);
+                    logger.info("ApplicationService : Application successfully stopped ");
+                    return application;
+                });
+    }
+
+    private void checkSucceeded(Server server, List<ContainerTiming> timings) {
+        timings.stream()
+                .filter(t -> !t.isSuccess() && t.getContainerName().equals(server.getName()))
+                .findFirst()
+                .ifPresent(t -> {
+                    throw new CompletionException(t.getError());
+                });
+    }
+
+    private Application join(CompletableFuture<Application> future) throws ServiceException {
         try {
-            Server server = application.getServer();
-            serverService.stopServer(server);
-            application.getModules().stream().forEach(m -> {
-                try {
-                    moduleService.stopModule(m.getName());
-                } catch (ServiceException e) {
-                    logger.error(application.toString(), e);
-                }
-            });
-            logger.info("ApplicationService : Application successfully stopped ");
-        } catch (PersistenceException e) {
-            throw new ServiceException(e.getLocalizedMessage(), e);
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            throw new ServiceException(cause.getLocalizedMessage(), cause);
         }
-        return application;
     }
 
     /**
@@ -320,6 +362,16 @@ public class ApplicationServiceImpl implements ApplicationService {
         }
     }
 
+    @Override
+    public List<Application> findAllWithContainers() throws ServiceException {
+        try {
+            return applicationDAO.findAllWithContainers(cuInstanceName);
+        } catch (PersistenceException e) {
+            logger.error("Error ApplicationService : error findAllWithContainers Method : " + e);
+            throw new ServiceException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     public List<Application> findAllByUser(User user) throws ServiceException {
         try {
@@ -332,11 +384,50 @@ public class ApplicationServiceImpl implements ApplicationService {
         }
     }
 
+    @Override
+    public List<ApplicationSummary> findSummariesByUser(User user, int page, int size) throws ServiceException {
+        try {
+            PageRequest pageRequest = new PageRequest(Math.max(page, 0), Math.max(1, Math.min(size, summaryMaxSize)));
+            List<ApplicationSummary> summaries = applicationDAO.findSummariesByUser(user.getId(), cuInstanceName,
+                    pageRequest);
+            fillModules(summaries);
+            return summaries;
+        } catch (PersistenceException e) {
+            logger.error("Error ApplicationService : error findSummariesByUser Method : " + user);
+            throw new ServiceException(user.toString(), e);
+        }
+    }
+
+    @Override
+    public ApplicationSummary findSummaryByNameAndUser(User user, String name) throws ServiceException {
+        try {
+            ApplicationSummary summary = applicationDAO.findSummaryByNameAndUser(user.getId(), name, cuInstanceName);
+            if (summary != null) {
+                fillModules(Collections.singletonList(summary));
+            }
+            return summary;
+        } catch (PersistenceException e) {
+            logger.error(user.toString(), e);
+            throw new ServiceException(user.toString(), e);
+        }
+    }
+
+    private void fillModules(List<ApplicationSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        Map<Integer, ApplicationSummary> byId = summaries.stream()
+                .collect(Collectors.toMap(ApplicationSummary::getId, s -> s));
+        for (Object[] row : applicationDAO.findModuleImagesByApplications(byId.keySet())) {
+            byId.get(row[0]).getModules().add((String) row[1]);
+        }
+    }
+
     @Override
     public Application findByNameAndUser(User user, String name) throws ServiceException {
         try {
-            Application application = applicationDAO.findByNameAndUser(user.getId(), name, cuInstanceName);
-            return application;
+            return resolutionContext.getApplication(user, name,
+                    () -> applicationDAO.findByNameAndUser(user.getId(), name, cuInstanceName));
         } catch (PersistenceException e) {
             logger.error(user.toString(), e);
             throw new ServiceException(user.toString(), e);
@@ -352,7 +443,7 @@ public class ApplicationServiceImpl implements ApplicationService {
             String fileContextPath = NamingUtils.getContext.apply(filename);
             String tempDirectory = dockerService.getEnv(containerId, "CU_TMP");
             fileService.sendFileToContainer(containerId, tempDirectory, filename, url);
-            this.createApplication(fileContextPath, fileContextPath, filename, application);
+            this.createApplication(fileContextPath, fileContextPath, filename, null, application);
         } catch (Exception e) {
             throw new ServiceException(e.getLocalizedMessage(), e);
         }
@@ -360,18 +451,64 @@ public class ApplicationServiceImpl implements ApplicationService {
         return application;
     }
 
+    /**
+     * The upload is piped to the container and copied meanwhile into the artifact store :
+     * the deployment does not wait for the archive to be written on the manager disk.
+     */
     @Override
     @Transactional
     public Application deploy(MultipartFile file, Application application) throws ServiceException, CheckException {
+        Path part = null;
         try {
-            // get app with all its components
-            String filename = file.getOriginalFilename();
-            String containerId = application.getServer().getContainerID();
-            String tempDirectory = dockerService.getEnv(containerId, "CU_TMP");
-            fileService.sendFileToContainer(containerId, tempDirectory, file, null, null);
+            part = Files.createTempFile(artifactService.getDirectory(), "upload", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String filename;
+            try (InputStream in = new DigestInputStream(
+                    new TeeInputStream(file.getInputStream(), Files.newOutputStream(part), true), digest)) {
+                filename = sendArchive(file.getOriginalFilename(), file.getSize(), in, application);
+            }
+            String sha256 = Hex.encodeHexString(digest.digest());
+            try {
+                artifactService.register(part, sha256);
+            } catch (ServiceException | RuntimeException e) {
+                logger.warn("Deployed archive " + filename + " not kept as artifact : " + e.getMessage());
+            }
             String contextPath = NamingUtils.getContext.apply(filename);
+            this.createApplication(contextPath, contextPath, filename, sha256, application);
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServiceException(e.getLocalizedMessage(), e);
+        } finally {
+            if (part != null) {
+                part.toFile().delete();
+            }
+        }
+        return application;
+    }
 
-            this.createApplication(contextPath, contextPath, filename, application);
+    @Override
+    @Transactional
+    public Application deployArtifact(String sha256, String filename, Application application)
+            throws ServiceException, CheckException {
+        Artifact artifact = artifactService.find(sha256);
+        if (artifact == null) {
+            throw new CheckException("Unknown artifact : " + sha256);
+        }
+        return deploy(artifact, filename, application);
+    }
+
+    /**
+     * Copies the stored archive into the server container and deploys it.
+     */
+    private Application deploy(Artifact artifact, String filename, Application application) throws ServiceException {
+        try {
+            try (InputStream in = artifactService.open(artifact)) {
+                filename = sendArchive(filename, artifact.getSize(), in, application);
+            }
+            String contextPath = NamingUtils.getContext.apply(filename);
+
+            this.createApplication(contextPath, contextPath, filename, artifact.getSha256(), application);
 
         } catch (Exception e) {
             throw new ServiceException(e.getLocalizedMessage(), e);
@@ -380,7 +517,20 @@ public class ApplicationServiceImpl implements ApplicationService {
         return application;
     }
 
-    private void createApplication(String fileContextPath, String contextPath, String filename, Application application) throws ServiceException {
+    /**
+     * @return the name of the archive in the container
+     */
+    private String sendArchive(String filename, long size, InputStream in, Application application)
+            throws ServiceException, CheckException {
+        filename = AlphaNumericsCharactersCheckUtils.deAccent(filename).replace(" ", "_");
+        String containerId = application.getServer().getContainerID();
+        String tempDirectory = dockerService.getEnv(containerId, "CU_TMP");
+        fileService.sendFileToContainer(containerId, tempDirectory, filename, size, in);
+        return filename;
+    }
+
+    private void createApplication(String fileContextPath, String contextPath, String filename, String artifactHash,
+                                   Application application) throws ServiceException {
         String containerId = application.getServer().getContainerID();
         String tempDirectory = dockerService.getEnv(containerId, "CU_TMP");
         @SuppressWarnings("serial")
@@ -394,7 +544,8 @@ public class ApplicationServiceImpl implements ApplicationService {
         };
         String result = dockerService.execCommand(containerId, RemoteExecAction.DEPLOY.getCommand(kvStore));
         logger.info("Deploy command {}", result);
-        Deployment deployment = deploymentService.create(application, DeploymentType.from(filename), fileContextPath);
+        Deployment deployment = deploymentService.create(application, DeploymentType.from(filename), fileContextPath,
+                artifactHash);
         application.addDeployment(deployment);
         application.setDeploymentStatus(Application.ALREADY_DEPLOYED);
 
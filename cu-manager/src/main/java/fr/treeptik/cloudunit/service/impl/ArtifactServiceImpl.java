@@ -0,0 +1,277 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.service.ArtifactService;
+
+@Service
+public class ArtifactServiceImpl implements ArtifactService {
+
+    private final Logger logger = LoggerFactory.getLogger(ArtifactServiceImpl.class);
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Value("${artifacts.path:${user.home}/.cloudunit/artifacts}")
+    private String path;
+
+    @Value("${artifacts.max.size:10737418240}")
+    private long maxSize;
+
+    private Path directory;
+
+    /**
+     * In access order : the first entry is the least recently used.
+     */
+    private final LinkedHashMap<String, Artifact> artifacts = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalSize;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(path);
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                    // interrupted upload
+                    Files.deleteIfExists(file);
+                } else if (SHA256.matcher(file.getFileName().toString()).matches()) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(this::lastModified));
+        synchronized (this) {
+            for (Path file : files) {
+                Artifact artifact = new Artifact(file.getFileName().toString(), Files.size(file),
+                        new Date(lastModified(file)));
+                artifacts.put(artifact.getSha256(), artifact);
+                totalSize += artifact.getSize();
+            }
+            evict();
+        }
+        logger.info(artifacts.size() + " artifacts in " + directory + " (" + totalSize + " bytes)");
+    }
+
+    @Override
+    public synchronized Artifact find(String sha256) {
+        Artifact artifact = sha256 == null ? null : artifacts.get(sha256.toLowerCase());
+        if (artifact != null && !Files.exists(file(artifact.getSha256()))) {
+            remove(artifact);
+            artifact = null;
+        }
+        if (artifact == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        touch(artifact);
+        return artifact;
+    }
+
+    @Override
+    public Artifact store(InputStream content, String expectedSha256) throws ServiceException, CheckException {
+        Path part = null;
+        try {
+            part = Files.createTempFile(directory, "upload", PART_SUFFIX);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            Files.copy(new DigestInputStream(content, digest), part, StandardCopyOption.REPLACE_EXISTING);
+            return move(part, Hex.encodeHexString(digest.digest()), expectedSha256);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ServiceException("Cannot store the artifact", e);
+        } finally {
+            if (part != null) {
+                part.toFile().delete();
+            }
+        }
+    }
+
+    @Override
+    public Artifact store(Path file, String expectedSha256) throws ServiceException, CheckException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream content = new DigestInputStream(Files.newInputStream(file), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (content.read(buffer) != -1) {
+                    // the digest is updated while reading
+                }
+            }
+            return move(file, Hex.encodeHexString(digest.digest()), expectedSha256);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ServiceException("Cannot store the artifact", e);
+        } finally {
+            file.toFile().delete();
+        }
+    }
+
+    @Override
+    public Artifact register(Path file, String sha256) throws ServiceException {
+        try {
+            return move(file, sha256.toLowerCase(), null);
+        } catch (IOException e) {
+            throw new ServiceException("Cannot store the artifact", e);
+        } finally {
+            file.toFile().delete();
+        }
+    }
+
+    @Override
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Moves the file under its hash, unless the same content is already stored.
+     */
+    private Artifact move(Path file, String sha256, String expectedSha256) throws IOException, CheckException {
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            throw new CheckException("Checksum mismatch : expected " + expectedSha256 + ", received " + sha256);
+        }
+        long size = Files.size(file);
+        synchronized (this) {
+            Artifact artifact = artifacts.get(sha256);
+            if (artifact != null && Files.exists(file(sha256))) {
+                touch(artifact);
+                return artifact;
+            }
+            Files.move(file, file(sha256), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            artifact = new Artifact(sha256, size, new Date());
+            artifacts.put(sha256, artifact);
+            totalSize += size;
+            evict();
+            logger.info("Artifact " + sha256 + " stored (" + size + " bytes)");
+            return artifact;
+        }
+    }
+
+    @Override
+    public InputStream open(Artifact artifact) throws IOException {
+        return Files.newInputStream(file(artifact.getSha256()));
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("directory", directory.toString());
+        statistics.put("artifacts", artifacts.size());
+        statistics.put("size", totalSize);
+        statistics.put("maxSize", maxSize);
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    /**
+     * Removes the least recently used artifacts beyond the size limit, the last stored one is always kept.
+     * An artifact being copied is still readable once deleted.
+     */
+    private void evict() {
+        Iterator<Artifact> iterator = artifacts.values().iterator();
+        while (totalSize > maxSize && artifacts.size() > 1 && iterator.hasNext()) {
+            Artifact artifact = iterator.next();
+            iterator.remove();
+            totalSize -= artifact.getSize();
+            evictions.incrementAndGet();
+            delete(artifact);
+        }
+    }
+
+    private void remove(Artifact artifact) {
+        if (artifacts.remove(artifact.getSha256()) != null) {
+            totalSize -= artifact.getSize();
+        }
+    }
+
+    private void delete(Artifact artifact) {
+        try {
+            Files.deleteIfExists(file(artifact.getSha256()));
+            logger.info("Artifact " + artifact.getSha256() + " evicted");
+        } catch (IOException e) {
+            logger.warn("Cannot delete the artifact " + artifact.getSha256(), e);
+        }
+    }
+
+    /**
+     * The last access is kept as modification date to restore the order on restart.
+     */
+    private void touch(Artifact artifact) {
+        Date now = new Date();
+        artifact.setLastAccess(now);
+        try {
+            Files.setLastModifiedTime(file(artifact.getSha256()), FileTime.fromMillis(now.getTime()));
+        } catch (IOException e) {
+            logger.debug("Cannot touch the artifact " + artifact.getSha256(), e);
+        }
+    }
+
+    private Path file(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Invalid artifact hash : " + sha256);
+        }
+        return directory.resolve(sha256);
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Message;
+import fr.treeptik.cloudunit.service.AuditService;
+import fr.treeptik.cloudunit.service.MessageService;
+
+/**
+ * Bounded queue of messages drained by a single writer thread. Each batch is inserted in one transaction
+ * with JDBC batching, the remaining messages are written at shutdown.
+ */
+@Service
+public class AuditServiceImpl implements AuditService {
+
+    /**
+     * What to do when the queue is full.
+     */
+    public enum OverflowPolicy {
+        // the caller writes its message
+        SYNC,
+        // the caller waits for room, then drops its message
+        BLOCK,
+        // the message is dropped
+        DROP
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(AuditServiceImpl.class);
+
+    @Inject
+    private MessageService messageService;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Value("${audit.queue.capacity:10000}")
+    private int capacity;
+
+    @Value("${audit.batch.size:100}")
+    private int batchSize;
+
+    @Value("${audit.flush.interval:500}")
+    private long flushInterval;
+
+    @Value("${audit.overflow.policy:SYNC}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${audit.overflow.timeout:1000}")
+    private long overflowTimeout;
+
+    private BlockingQueue<Message> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private final Object writeLock = new Object();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong callerWrites = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong writeMillis = new AtomicLong();
+
+    private final AtomicLong maxWriteMillis = new AtomicLong();
+
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(flushInterval * 10);
+        flush();
+    }
+
+    @Override
+    public void publish(Message message) throws ServiceException {
+        published.incrementAndGet();
+        if (queue.offer(message)) {
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+            return;
+        }
+        switch (overflowPolicy) {
+        case SYNC:
+            callerWrites.incrementAndGet();
+            messageService.create(message);
+            break;
+        case BLOCK:
+            try {
+                if (queue.offer(message, overflowTimeout, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drop(message);
+            break;
+        default:
+            drop(message);
+        }
+    }
+
+    @Override
+    public void flush() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("queueDepth", queue.size());
+        statistics.put("maxQueueDepth", maxDepth.get());
+        statistics.put("capacity", capacity);
+        statistics.put("overflowPolicy", overflowPolicy);
+        statistics.put("published", published.get());
+        statistics.put("written", written.get());
+        statistics.put("batches", batches.get());
+        statistics.put("callerWrites", callerWrites.get());
+        statistics.put("dropped", dropped.get());
+        statistics.put("failed", failed.get());
+        statistics.put("averageWriteMillis", batches.get() == 0 ? 0 : writeMillis.get() / batches.get());
+        statistics.put("maxWriteMillis", maxWriteMillis.get());
+        return statistics;
+    }
+
+    private void drain() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Message first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Audit writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Message> batch) {
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            try {
+                messageService.create(batch);
+                written.addAndGet(batch.size());
+            } catch (ServiceException | RuntimeException e) {
+                logger.warn("Cannot write " + batch.size() + " audit messages at once, writing them one by one", e);
+                writeOneByOne(batch);
+                return;
+            } finally {
+                long duration = System.currentTimeMillis() - start;
+                batches.incrementAndGet();
+                writeMillis.addAndGet(duration);
+                maxWriteMillis.accumulateAndGet(duration, Math::max);
+            }
+            evictCaches(batch);
+        }
+    }
+
+    private void writeOneByOne(List<Message> batch) {
+        for (Message message : batch) {
+            try {
+                message.setId(null);
+                messageService.create(message);
+                written.incrementAndGet();
+            } catch (ServiceException | RuntimeException e) {
+                failed.incrementAndGet();
+                logger.error("Audit message lost : " + message, e);
+            }
+        }
+    }
+
+    /**
+     * The lists of messages cached by user and by application, with the keys of {@link MessageService}.
+     */
+    private void evictCaches(List<Message> batch) {
+        Cache cache = cacheManager.getCache(MessageService.CACHE);
+        if (cache == null) {
+            return;
+        }
+        Set<String> evicted = new HashSet<>();
+        try {
+            for (Message message : batch) {
+                if (message.getAuthor() == null) {
+                    continue;
+                }
+                String login = message.getAuthor().getLogin();
+                if (evicted.add(login)) {
+                    cache.evict(login);
+                }
+                String key = login + ":" + message.getApplicationName();
+                if (evicted.add(key)) {
+                    cache.evict(key);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Messages cache not evicted : " + e.getMessage());
+        }
+    }
+
+    private void drop(Message message) {
+        dropped.incrementAndGet();
+        logger.warn("Audit queue full, message dropped : " + message);
+    }
+}
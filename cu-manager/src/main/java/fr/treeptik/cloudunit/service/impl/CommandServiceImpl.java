@@ -15,12 +15,15 @@ import org.springframework.stereotype.Service;
 
 import fr.treeptik.cloudunit.dto.Command;
 import fr.treeptik.cloudunit.dto.ContainerUnit;
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
 import fr.treeptik.cloudunit.dto.FileUnit;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.service.ApplicationService;
 import fr.treeptik.cloudunit.service.CommandService;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExecService;
 import fr.treeptik.cloudunit.service.FileService;
 
 @Service
@@ -35,6 +38,9 @@ public class CommandServiceImpl implements CommandService {
 	@Inject
 	private DockerService dockerService;
 
+	@Inject
+	private ExecService execService;
+
 	private Logger logger = LoggerFactory.getLogger(CommandServiceImpl.class);
 
 	@Override
@@ -83,24 +89,11 @@ public class CommandServiceImpl implements CommandService {
 
 	@Override
 	public String execCommand(Command command, String containerName, String applicationName) throws ServiceException {
-		if (command.getName() == null)
-			throw new ServiceException("The filename is empty");
-
-		if (containerName == null)
-			throw new ServiceException("The container name is empty");
+		checkCommand(command, containerName);
 
 		String output =  null;
 		try {
-			List<ContainerUnit> containerUnits = applicationService.listContainers(applicationName);
-			String containerId = containerUnits.stream().filter(v -> v.getName().equals(containerName)).findFirst().get().getId();
-
-			String customScriptPathFiles = dockerService.getEnv(containerName, "CU_SCRIPTS") + "/custom_scripts/";
-			List<FileUnit> fileUnits = fileService.listByContainerIdAndPath(containerId,customScriptPathFiles);
-			String commandLine = fileUnits.stream().filter(v -> v.getName().equals(command.getName())).findFirst().get().getBreadcrump();
-			commandLine = commandLine + " " + command.getArguments().stream().map(v -> v + " ").collect(Collectors.joining());
-
-			// Warning : do not forget * at the end of the command
-			dockerService.execCommand(containerName, RemoteExecAction.CHMOD_PLUSX.getCommand() + " " + customScriptPathFiles + "*", true);
+			String commandLine = prepareCommandLine(command, containerName, applicationName);
 
 			// Execute the raw commad through the chosen file with its arguments
 			output = dockerService.execCommand(containerName, commandLine);
@@ -115,6 +108,49 @@ public class CommandServiceImpl implements CommandService {
 		return output;
 	}
 
+	@Override
+	public ExecResult execCommand(Command command, String containerName, String applicationName,
+			ExecService.OutputListener listener) throws ServiceException {
+		checkCommand(command, containerName);
+
+		try {
+			String commandLine = prepareCommandLine(command, containerName, applicationName);
+			return execService.exec(new ExecRequest(containerName, commandLine).rootFallback(true), listener);
+		} catch (Exception e) {
+			StringBuilder msgError = new StringBuilder(128);
+			msgError.append(command);
+			msgError.append(",").append(containerName);
+			msgError.append(",").append(applicationName);
+			throw new ServiceException(msgError.toString(), e);
+		}
+	}
+
+	private void checkCommand(Command command, String containerName) throws ServiceException {
+		if (command.getName() == null)
+			throw new ServiceException("The filename is empty");
+
+		if (containerName == null)
+			throw new ServiceException("The container name is empty");
+	}
+
+	/**
+	 * Makes the custom scripts executable and returns the command line running the chosen one with its arguments.
+	 */
+	private String prepareCommandLine(Command command, String containerName, String applicationName)
+			throws ServiceException {
+		List<ContainerUnit> containerUnits = applicationService.listContainers(applicationName);
+		String containerId = containerUnits.stream().filter(v -> v.getName().equals(containerName)).findFirst().get().getId();
+
+		String customScriptPathFiles = dockerService.getEnv(containerName, "CU_SCRIPTS") + "/custom_scripts/";
+		List<FileUnit> fileUnits = fileService.listByContainerIdAndPath(containerId,customScriptPathFiles);
+		String commandLine = fileUnits.stream().filter(v -> v.getName().equals(command.getName())).findFirst().get().getBreadcrump();
+		commandLine = commandLine + " " + command.getArguments().stream().map(v -> v + " ").collect(Collectors.joining());
+
+		// Warning : do not forget * at the end of the command
+		dockerService.execCommand(containerName, RemoteExecAction.CHMOD_PLUSX.getCommand() + " " + customScriptPathFiles + "*", true);
+		return commandLine;
+	}
+
 	public Command fileUnitToCommand(FileUnit fileUnit, Integer number, List<String> names) {
 		Command command = new Command(fileUnit.getName(), number, names);
 		return command;
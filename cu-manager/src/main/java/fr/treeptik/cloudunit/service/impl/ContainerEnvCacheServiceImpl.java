@@ -0,0 +1,250 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.service.ContainerEnvCacheService;
+
+/**
+ * Two tiers cache of the containers environment : a local map with a short lifetime, then Redis.
+ * Invalidations remove the Redis entry and are published so that every manager drops its local copy.
+ * Redis being unavailable only costs an inspection.
+ */
+@Service
+public class ContainerEnvCacheServiceImpl implements ContainerEnvCacheService, MessageListener {
+
+    private static final String KEY_PREFIX = "cu:env:";
+
+    private static final String INVALIDATION_CHANNEL = "cu:env:invalidations";
+
+    // env entries cannot contain this character
+    private static final String SEPARATOR = "\0";
+
+    private final Logger logger = LoggerFactory.getLogger(ContainerEnvCacheServiceImpl.class);
+
+    @Inject
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Inject
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${env.cache.local.ttl:60000}")
+    private long localTtl;
+
+    @Value("${env.cache.ttl:1800}")
+    private long redisTtl;
+
+    @Value("${env.cache.local.max:1000}")
+    private int localMax;
+
+    private StringRedisTemplate redisTemplate;
+
+    private final Map<String, Entry> local = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<List<String>>> loading = new ConcurrentHashMap<>();
+
+    // incremented by every invalidation : a load which overlaps one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong localHits = new AtomicLong();
+
+    private final AtomicLong redisHits = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        redisTemplate = new StringRedisTemplate(redisConnectionFactory);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        redisMessageListenerContainer.removeMessageListener(this);
+    }
+
+    @Override
+    public List<String> getEnv(String containerName, Supplier<List<String>> loader) {
+        Entry entry = local.get(containerName);
+        if (entry != null && entry.expiration > System.currentTimeMillis()) {
+            localHits.incrementAndGet();
+            return entry.env;
+        }
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        CompletableFuture<List<String>> running = loading.putIfAbsent(containerName, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return join(running);
+        }
+        try {
+            future.complete(load(containerName, loader));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            loading.remove(containerName, future);
+        }
+        return join(future);
+    }
+
+    @Override
+    public void invalidate(String containerName) {
+        invalidations.incrementAndGet();
+        generation.incrementAndGet();
+        local.remove(containerName);
+        try {
+            redisTemplate.delete(KEY_PREFIX + containerName);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, containerName);
+        } catch (RuntimeException e) {
+            redisErrors.incrementAndGet();
+            logger.warn("Cannot invalidate the env of " + containerName + " in redis : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Invalidation published by a manager, this one included.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String containerName = new String(message.getBody(), StandardCharsets.UTF_8);
+        generation.incrementAndGet();
+        local.remove(containerName);
+    }
+
+    /**
+     * Drops the expired local entries, those of removed containers are never read again.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${env.cache.local.ttl:60000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        local.values().removeIf(e -> e.expiration <= now);
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("localEntries", local.size());
+        statistics.put("localHits", localHits.get());
+        statistics.put("redisHits", redisHits.get());
+        statistics.put("loads", loads.get());
+        statistics.put("coalesced", coalesced.get());
+        statistics.put("invalidations", invalidations.get());
+        statistics.put("redisErrors", redisErrors.get());
+        return statistics;
+    }
+
+    private List<String> load(String containerName, Supplier<List<String>> loader) {
+        long start = generation.get();
+        List<String> env = null;
+        String key = KEY_PREFIX + containerName;
+        try {
+            String value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                redisHits.incrementAndGet();
+                env = value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split(SEPARATOR, -1));
+            }
+        } catch (RuntimeException e) {
+            redisErrors.incrementAndGet();
+            logger.warn("Cannot read the env of " + containerName + " from redis : " + e.getMessage());
+        }
+        boolean loaded = false;
+        if (env == null) {
+            loads.incrementAndGet();
+            env = loader.get();
+            loaded = true;
+        }
+        env = Collections.unmodifiableList(new ArrayList<>(env));
+        if (generation.get() != start) {
+            return env;
+        }
+        if (loaded) {
+            try {
+                redisTemplate.opsForValue().set(key, String.join(SEPARATOR, env), redisTtl, TimeUnit.SECONDS);
+            } catch (RuntimeException e) {
+                redisErrors.incrementAndGet();
+                logger.warn("Cannot write the env of " + containerName + " into redis : " + e.getMessage());
+            }
+        }
+        if (local.size() >= localMax) {
+            purge();
+        }
+        if (local.size() < localMax) {
+            local.put(containerName, new Entry(env, System.currentTimeMillis() + localTtl));
+        }
+        return env;
+    }
+
+    private List<String> join(CompletableFuture<List<String>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class Entry {
+
+        private final List<String> env;
+
+        private final long expiration;
+
+        private Entry(List<String> env, long expiration) {
+            this.env = env;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.ContainerNotFoundException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.ContainerInfo;
+
+import fr.treeptik.cloudunit.config.events.ContainerEvent;
+import fr.treeptik.cloudunit.config.events.ContainerInvalidatedEvent;
+import fr.treeptik.cloudunit.config.events.DockerEventsStreamEvent;
+import fr.treeptik.cloudunit.dto.RegisteredContainer;
+import fr.treeptik.cloudunit.service.ContainerRegistryService;
+
+@Service
+public class ContainerRegistryServiceImpl implements ContainerRegistryService {
+
+    private final Logger logger = LoggerFactory.getLogger(ContainerRegistryServiceImpl.class);
+
+    @Inject
+    private DockerClient dockerClient;
+
+    @Inject
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${docker.events.enabled:true}")
+    private boolean eventsEnabled;
+
+    private final ConcurrentMap<String, RegisteredContainer> byName = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RegisteredContainer> byId = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    // the events stream is down : the registry is not trusted until it has been listed again
+    private volatile boolean stale;
+
+    private volatile boolean streamConnected = true;
+
+    /**
+     * A single listing of all the containers, the events received meanwhile take precedence.
+     */
+    @PostConstruct
+    public void load() {
+        if (!eventsEnabled) {
+            return;
+        }
+        try {
+            List<Container> containers = dockerClient.listContainers(DockerClient.ListContainersParam.allContainers());
+            for (Container container : containers) {
+                RegisteredContainer registeredContainer = toRegisteredContainer(container);
+                if (registeredContainer.getName() != null
+                        && byName.putIfAbsent(registeredContainer.getName(), registeredContainer) == null) {
+                    byId.put(registeredContainer.getId(), registeredContainer);
+                }
+            }
+            loaded = true;
+            logger.info(byName.size() + " containers registered");
+        } catch (Exception e) {
+            logger.warn("Containers not registered, docker will be requested directly : " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${docker.registry.retry.delay:60000}")
+    public void loadIfNeeded() {
+        if (!loaded) {
+            load();
+        } else if (stale && streamConnected) {
+            resync();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return loaded && !stale;
+    }
+
+    /**
+     * While the stream is down docker is requested directly. Once subscribed again the containers
+     * are listed to apply what happened meanwhile, the events replayed by the stream come after.
+     */
+    @Override
+    @EventListener
+    public void onDockerEventsStream(DockerEventsStreamEvent dockerEventsStreamEvent) {
+        streamConnected = dockerEventsStreamEvent.isConnected();
+        if (!streamConnected) {
+            if (!stale) {
+                logger.warn("Docker events stream lost, containers registry suspended");
+            }
+            stale = true;
+        } else if (stale && loaded) {
+            resync();
+        }
+    }
+
+    @Override
+    public RegisteredContainer findByName(String containerName) {
+        if (containerName == null) {
+            return null;
+        }
+        return byName.get(normalize(containerName));
+    }
+
+    @Override
+    public RegisteredContainer findById(String containerId) {
+        if (containerId == null || containerId.isEmpty()) {
+            return null;
+        }
+        RegisteredContainer registeredContainer = byId.get(containerId);
+        if (registeredContainer == null) {
+            registeredContainer = byId.values().stream()
+                    .filter(c -> c.getId().startsWith(containerId))
+                    .findFirst().orElse(null);
+        }
+        return registeredContainer;
+    }
+
+    @Override
+    public RegisteredContainer refresh(String containerNameOrId) {
+        try {
+            ContainerInfo info = dockerClient.inspectContainer(containerNameOrId);
+            RegisteredContainer registeredContainer = toRegisteredContainer(info);
+            register(registeredContainer);
+            return registeredContainer;
+        } catch (ContainerNotFoundException e) {
+            RegisteredContainer registeredContainer = findById(containerNameOrId);
+            if (registeredContainer == null) {
+                registeredContainer = findByName(containerNameOrId);
+            }
+            if (registeredContainer != null) {
+                unregister(registeredContainer);
+            }
+            return null;
+        } catch (Exception e) {
+            logger.warn(containerNameOrId + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Runs before the other container event listeners so they read an up to date registry.
+     */
+    @Override
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onContainerEvent(ContainerEvent containerEvent) {
+        if (!containerEvent.isLifecycle()) {
+            return;
+        }
+        if ("destroy".equals(containerEvent.getStatus())) {
+            RegisteredContainer registeredContainer = byId.get(containerEvent.getContainerId());
+            if (registeredContainer != null) {
+                unregister(registeredContainer);
+            }
+        } else {
+            refresh(containerEvent.getContainerId());
+        }
+    }
+
+    private void resync() {
+        try {
+            List<Container> containers = dockerClient.listContainers(DockerClient.ListContainersParam.allContainers());
+            Set<String> listed = new HashSet<>();
+            for (Container container : containers) {
+                RegisteredContainer registeredContainer = toRegisteredContainer(container);
+                if (registeredContainer.getName() != null) {
+                    listed.add(registeredContainer.getId());
+                    register(registeredContainer);
+                }
+            }
+            byId.values().stream()
+                    .filter(c -> !listed.contains(c.getId()))
+                    .forEach(this::unregister);
+            stale = false;
+            logger.info("Containers registry resumed, " + byName.size() + " containers registered");
+        } catch (Exception e) {
+            logger.warn("Containers registry still suspended : " + e.getMessage());
+        }
+    }
+
+    private void register(RegisteredContainer registeredContainer) {
+        byId.put(registeredContainer.getId(), registeredContainer);
+        RegisteredContainer previous = byName.put(registeredContainer.getName(), registeredContainer);
+        if (previous != null && !previous.getId().equals(registeredContainer.getId())) {
+            byId.remove(previous.getId(), previous);
+            logger.debug(registeredContainer.getName() + " recreated");
+            applicationEventPublisher.publishEvent(new ContainerInvalidatedEvent(registeredContainer.getName()));
+        }
+    }
+
+    private void unregister(RegisteredContainer registeredContainer) {
+        byId.remove(registeredContainer.getId());
+        byName.remove(registeredContainer.getName(), registeredContainer);
+        logger.debug(registeredContainer.getName() + " destroyed");
+        applicationEventPublisher.publishEvent(new ContainerInvalidatedEvent(registeredContainer.getName()));
+    }
+
+    private RegisteredContainer toRegisteredContainer(ContainerInfo info) {
+        String ipAddress = info.networkSettings() == null ? null : info.networkSettings().ipAddress();
+        return new RegisteredContainer(info.id(), normalize(info.name()), info.state().status(),
+                Boolean.TRUE.equals(info.state().running()), info.state().exitCode(), ipAddress,
+                info.config() == null ? null : info.config().env(),
+                info.config() == null ? null : info.config().labels());
+    }
+
+    private RegisteredContainer toRegisteredContainer(Container container) {
+        // names of linked containers are listed too, as /other/alias
+        String name = container.names() == null ? null : container.names().stream()
+                .map(this::normalize)
+                .filter(n -> !n.contains("/"))
+                .findFirst().orElse(null);
+        boolean running = "running".equalsIgnoreCase(container.state())
+                || (container.state() == null && container.status() != null && container.status().startsWith("Up"));
+        String status = container.state() != null ? container.state() : (running ? "running" : "exited");
+        return new RegisteredContainer(container.id(), name, status, running, null, null, null, container.labels());
+    }
+
+    private String normalize(String containerName) {
+        return containerName.startsWith("/") ? containerName.substring(1) : containerName;
+    }
+
+}
@@ -44,13 +44,15 @@ public class DeploymentServiceImpl
 
     @Override
     @Transactional
-    public Deployment create(Application application, DeploymentType deploymentType, String contextPath)
+    public Deployment create(Application application, DeploymentType deploymentType, String contextPath,
+                             String artifactHash)
             throws ServiceException, CheckException {
         try {
             Deployment deployment = new Deployment();
             deployment.setApplication(application);
             deployment.setType(deploymentType);
             deployment.setDate(new Date());
+            deployment.setArtifactHash(artifactHash);
             application = applicationService.findByNameAndUser(application
                     .getUser(), application.getName());
             application.setDeploymentStatus(Application.ALREADY_DEPLOYED);
@@ -1,29 +1,29 @@
 package fr.treeptik.cloudunit.service.impl;
 
 import java.io.*;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.docker.client.messages.Image;
 import fr.treeptik.cloudunit.config.DockerConfiguration;
 import fr.treeptik.cloudunit.utils.NamingUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import com.spotify.docker.client.DockerClient;
@@ -35,6 +35,10 @@ import com.spotify.docker.client.messages.ContainerInfo;
 
 import fr.treeptik.cloudunit.docker.core.DockerCloudUnitClient;
 import fr.treeptik.cloudunit.docker.model.DockerContainer;
+import fr.treeptik.cloudunit.dto.ContainerFile;
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
+import fr.treeptik.cloudunit.dto.RegisteredContainer;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
 import fr.treeptik.cloudunit.exception.DockerJSONException;
 import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
@@ -42,7 +46,10 @@ import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Module;
 import fr.treeptik.cloudunit.model.Server;
 import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ContainerEnvCacheService;
+import fr.treeptik.cloudunit.service.ContainerRegistryService;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExecService;
 import fr.treeptik.cloudunit.utils.ContainerMapper;
 import fr.treeptik.cloudunit.utils.ContainerUtils;
 import fr.treeptik.cloudunit.utils.FilesUtils;
@@ -53,6 +60,9 @@ import fr.treeptik.cloudunit.utils.FilesUtils;
 @Service
 public class DockerServiceImpl implements DockerService {
 
+    // full or short docker id, the names of the containers always hold a dash
+    private static final Pattern CONTAINER_ID = Pattern.compile("[0-9a-f]{12,64}");
+
     private Logger logger = LoggerFactory.getLogger(DockerService.class);
 
     @Inject
@@ -72,6 +82,15 @@ public class DockerServiceImpl implements DockerService {
     @Inject
     private DockerConfiguration dockerConfiguration;
 
+    @Inject
+    private ContainerRegistryService containerRegistryService;
+
+    @Inject
+    private ContainerEnvCacheService containerEnvCacheService;
+
+    @Inject
+    private ExecService execService;
+
     @PostConstruct
     public void init() {
         domain = NamingUtils.getCloudUnitDomain(domainSuffix);
@@ -99,6 +118,7 @@ public class DockerServiceImpl implements DockerService {
         //ports.put("8000/tcp", "");
         DockerContainer container = ContainerUtils.newCreateInstance(containerName, imagePath, imageSubType, volumesFrom, args,
                 volumes, envs, null, "skynet", domain);
+        containerEnvCacheService.invalidate(containerName);
         dockerCloudUnitClient.createContainer(container);
     }
 
@@ -111,12 +131,26 @@ public class DockerServiceImpl implements DockerService {
         return server;
     }
 
+    @Override
+    public CompletableFuture<Server> startServerAsync(String containerName, Server server) {
+        DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, false);
+        return dockerCloudUnitClient.startContainerAsync(container)
+                .thenCompose(v -> dockerCloudUnitClient.findContainerAsync(container))
+                .thenApply(c -> containerMapper.mapDockerContainerToServer(c, server));
+    }
+
     @Override
     public void stopContainer(String containerName) throws DockerJSONException {
         DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, false);
         dockerCloudUnitClient.stopContainer(container);
     }
 
+    @Override
+    public CompletableFuture<Void> stopContainerAsync(String containerName) {
+        DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, false);
+        return dockerCloudUnitClient.stopContainerAsync(container);
+    }
+
     @Override
     public void killServer(String containerName) throws DockerJSONException {
         DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, false);
@@ -126,6 +160,7 @@ public class DockerServiceImpl implements DockerService {
     @Override
     public void removeContainer(String containerName, boolean removeVolume) throws DockerJSONException {
         DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, false);
+        containerEnvCacheService.invalidate(containerName);
         dockerCloudUnitClient.removeContainer(container);
         if (removeVolume) {
             dockerCloudUnitClient.removeVolume(containerName);
@@ -143,38 +178,24 @@ public class DockerServiceImpl implements DockerService {
     }
 
     @Override
-    public String execCommand(String containerName, String command, boolean privileged, boolean detached)
-            throws FatalDockerJSONException {
-        final String[] commands = { "bash", "-c", command };
-        String execId = null;
+    public InputStream openExport(String containerName) throws FatalDockerJSONException {
         try {
-            if (privileged) {
-                execId = dockerClient.execCreate(containerName, commands,
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.detach(detached),
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.attachStdout(),
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.attachStderr(),
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.user("root")).id();
-            } else {
-                execId = dockerClient.execCreate(containerName, commands,
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.detach(detached),
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.attachStdout(),
-                        com.spotify.docker.client.DockerClient.ExecCreateParam.attachStderr()).id();
-            }
-            try (final LogStream stream = dockerClient.execStart(execId)) {
-                final String output = stream.readFully();
-                logger.debug(output);
-                return output;
-            }
+            return dockerClient.exportContainer(containerName);
         } catch (DockerException | InterruptedException e) {
-            StringBuilder msgError = new StringBuilder();
-            msgError.append("containerName:[").append(containerName).append("]");
-            msgError.append(", command:[").append(command).append("]");
-            throw new FatalDockerJSONException(msgError.toString(), e);
+            throw new FatalDockerJSONException("Cannot export " + containerName, e);
         }
     }
 
+    @Override
+    public String execCommand(String containerName, String command, boolean privileged, boolean detached)
+            throws FatalDockerJSONException {
+        return output(execService.exec(new ExecRequest(containerName, command).privileged(privileged).detached(detached)),
+                command);
+    }
+
     /**
-     * Execute a shell conmmad into a container. Return the output as String
+     * Execute a shell conmmad into a container. Return the output as String.
+     * The command is run again as root only when it failed on a permission error.
      *
      * @param containerName
      * @param command
@@ -182,18 +203,29 @@ public class DockerServiceImpl implements DockerService {
      */
     @Override
     public String execCommand(String containerName, String command) throws FatalDockerJSONException {
-        String output = execCommand(containerName, command, false);
-        if (output.contains("Permission denied")) {
-            logger.warn("[" + containerName + "] exec command in privileged mode : " + command);
-            output = execCommand(containerName, command, true);
+        return output(execService.exec(new ExecRequest(containerName, command).rootFallback(true)), command);
+    }
+
+    private String output(ExecResult result, String command) {
+        if (result.isTimedOut()) {
+            StringBuilder msgError = new StringBuilder();
+            msgError.append("containerName:[").append(result.getContainerName()).append("]");
+            msgError.append(", command:[").append(command).append("]");
+            msgError.append(" timed out after ").append(result.getDuration()).append(" ms");
+            throw new FatalDockerJSONException(msgError.toString(), null);
         }
-        return output;
+        logger.debug(result.getOutput());
+        return result.getOutput();
     }
 
     @Override
     public Boolean isRunning(String containerName) throws FatalDockerJSONException {
+        RegisteredContainer registeredContainer = findRegistered(containerName);
+        if (registeredContainer != null) {
+            return registeredContainer.isRunning();
+        }
         try {
-            final ContainerInfo info = dockerClient.inspectContainer("containerID");
+            final ContainerInfo info = dockerClient.inspectContainer(containerName);
             return info.state().running();
         } catch (Exception e) {
             StringBuilder msgError = new StringBuilder();
@@ -206,6 +238,9 @@ public class DockerServiceImpl implements DockerService {
     public Boolean exists(String containerName) throws FatalDockerJSONException {
         try {
             if (containerName == null || containerName.isEmpty()) return false;
+            if (containerRegistryService.isActive()) {
+                return findRegistered(containerName) != null;
+            }
             if (!containerName.startsWith("/")) containerName = "/" + containerName;
             final String realName = containerName;
             List<List<String>> containers = listContainers();
@@ -219,6 +254,13 @@ public class DockerServiceImpl implements DockerService {
 
     @Override
     public Boolean isStoppedGracefully(String containerName) throws FatalDockerJSONException {
+        RegisteredContainer registeredContainer = findRegistered(containerName);
+        if (registeredContainer != null) {
+            if (registeredContainer.getExitCode() != null && registeredContainer.getExitCode() != 0) {
+                logger.warn("The container may be brutally stopped. Its exit code is : " + registeredContainer.getExitCode());
+            }
+            return "Exited".equalsIgnoreCase(registeredContainer.getStatus());
+        }
         try {
             final ContainerInfo info = dockerClient.inspectContainer(containerName);
             boolean exited = info.state().status().equalsIgnoreCase("Exited");
@@ -246,8 +288,11 @@ public class DockerServiceImpl implements DockerService {
     }
 
     @Override
-    @Cacheable(value = "monitoring", key = "#containerName")
     public String getContainerId(String containerName) throws FatalDockerJSONException {
+        RegisteredContainer registeredContainer = findRegistered(containerName);
+        if (registeredContainer != null) {
+            return registeredContainer.getId();
+        }
         try {
             final ContainerInfo info = dockerClient.inspectContainer(containerName);
             return info.id();
@@ -260,6 +305,16 @@ public class DockerServiceImpl implements DockerService {
 
     @Override
     public String getContainerNameFromId(String id) throws FatalDockerJSONException {
+        if (containerRegistryService.isActive()) {
+            RegisteredContainer registeredContainer = containerRegistryService.findById(id);
+            if (registeredContainer == null) {
+                registeredContainer = containerRegistryService.refresh(id);
+            }
+            if (registeredContainer != null) {
+                // same format as docker inspect
+                return "/" + registeredContainer.getName();
+            }
+        }
         try {
             final ContainerInfo info = dockerClient.inspectContainer(id);
             return info.name();
@@ -270,16 +325,33 @@ public class DockerServiceImpl implements DockerService {
         }
     }
 
+    /**
+     * Reads the container from the registry, inspecting it when not registered yet (just created).
+     * Null when the registry is not active or the container does not exist.
+     */
+    private RegisteredContainer findRegistered(String containerName) {
+        if (!containerRegistryService.isActive()) {
+            return null;
+        }
+        RegisteredContainer registeredContainer = containerRegistryService.findByName(containerName);
+        if (registeredContainer == null) {
+            registeredContainer = containerRegistryService.refresh(containerName);
+        }
+        return registeredContainer;
+    }
+
     @Override
-    @Cacheable(value = "env", key = "{#containerName,#variable}")
     public String getEnv(String containerName, String variable) throws FatalDockerJSONException {
         try {
-            Optional<String> value = dockerClient.inspectContainer(containerName).config().env().stream()
+            String key = envKey(containerName);
+            List<String> env = key != null ? containerEnvCacheService.getEnv(key, () -> inspectEnv(containerName))
+                    : inspectEnv(containerName);
+            Optional<String> value = env.stream()
                     .filter(e -> e.startsWith(variable)).map(s -> s.substring(s.indexOf("=") + 1)).findFirst();
             logger.info("VARIABLE=" + value);
             return (value.orElseThrow(() -> new ServiceException(variable + " is missing into DOCKERFILE.")));
-        } catch (ContainerNotFoundException e) {
-            throw new FatalDockerJSONException(e.getLocalizedMessage(), e);
+        } catch (FatalDockerJSONException e) {
+            throw e;
         } catch (Exception e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("containerId=").append(containerName);
@@ -288,6 +360,35 @@ public class DockerServiceImpl implements DockerService {
         }
     }
 
+    /**
+     * Callers give either the name or the id, the env is only cached under the name : the invalidations
+     * are made by name.
+     *
+     * @return null for an id the registry cannot resolve
+     */
+    private String envKey(String containerNameOrId) {
+        if (containerRegistryService.isActive()) {
+            RegisteredContainer registeredContainer = containerRegistryService.findByName(containerNameOrId);
+            if (registeredContainer == null) {
+                registeredContainer = containerRegistryService.findById(containerNameOrId);
+            }
+            if (registeredContainer != null) {
+                return registeredContainer.getName();
+            }
+        }
+        return CONTAINER_ID.matcher(containerNameOrId).matches() ? null : containerNameOrId;
+    }
+
+    private List<String> inspectEnv(String containerName) {
+        try {
+            return dockerClient.inspectContainer(containerName).config().env();
+        } catch (ContainerNotFoundException e) {
+            throw new FatalDockerJSONException(e.getLocalizedMessage(), e);
+        } catch (DockerException | InterruptedException e) {
+            throw new FatalDockerJSONException("containerId=" + containerName, e);
+        }
+    }
+
     @Override
     public void addEnv(String containerId, String key, String value) throws FatalDockerJSONException {
         try {
@@ -311,12 +412,10 @@ public class DockerServiceImpl implements DockerService {
     @Override
     public int getFileFromContainer(String containerId, String path, OutputStream outputStream)
             throws FatalDockerJSONException {
-        try {
-            InputStream inputStream = dockerClient.archiveContainer(containerId, path);
-            FilesUtils.unTar(inputStream, outputStream);
-            int size = inputStream.available();
-            return size;
-        } catch (Exception e) {
+        try (ContainerFile file = openFileFromContainer(containerId, path)) {
+            IOUtils.copyLarge(file.getContent(), outputStream);
+            return (int) file.getSize();
+        } catch (IOException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("containerId=").append(containerId);
             msgError.append("path=").append(path);
@@ -325,19 +424,36 @@ public class DockerServiceImpl implements DockerService {
     }
 
     @Override
-    public void sendFileToContainer(String containerId, String localPathFile, String originalName, String filePath)
-            throws FatalDockerJSONException {
+    public ContainerFile openFileFromContainer(String containerId, String path) throws FatalDockerJSONException {
+        InputStream inputStream = null;
         try {
-            Path path = Paths.get(localPathFile);
-            dockerClient.copyToContainer(path, containerId, filePath);
-        } catch (Exception e) {
+            inputStream = dockerClient.archiveContainer(containerId, path);
+            TarArchiveInputStream tarInputStream = new TarArchiveInputStream(inputStream);
+            TarArchiveEntry entry = tarInputStream.getNextTarEntry();
+            if (entry == null || entry.isDirectory()) {
+                tarInputStream.close();
+                throw new FatalDockerJSONException("Not a file : " + path, null);
+            }
+            return new ContainerFile(entry.getName(), entry.getSize(), entry.getModTime(), tarInputStream);
+        } catch (DockerException | InterruptedException | IOException e) {
+            IOUtils.closeQuietly(inputStream);
             StringBuilder msgError = new StringBuilder();
             msgError.append("containerId=").append(containerId);
-            msgError.append("localPathFile=").append(localPathFile);
+            msgError.append("path=").append(path);
             throw new FatalDockerJSONException(msgError.toString(), e);
         }
     }
 
+    @Override
+    public String putFile(String containerId, String destination, String fileName, long size, InputStream content)
+            throws FatalDockerJSONException {
+        try {
+            return dockerCloudUnitClient.putFile(containerId, destination, fileName, size, content);
+        } catch (DockerJSONException e) {
+            throw new FatalDockerJSONException("Cannot send " + fileName + " to " + containerId + ":" + destination, e);
+        }
+    }
+
     @Override
     public void createModule(String containerName, Module module, String imagePath, User user, List<String> envs,
             boolean createMainVolume, List<String> volumes) throws DockerJSONException {
@@ -358,6 +474,7 @@ public class DockerServiceImpl implements DockerService {
                         p -> p.getHostValue()));
         DockerContainer container = ContainerUtils.newCreateInstance(containerName, imagePath, null, volumesFrom, null, volumes,
                 envs, ports, "skynet", domain);
+        containerEnvCacheService.invalidate(containerName);
         dockerCloudUnitClient.createContainer(container);
     }
 
@@ -372,6 +489,15 @@ public class DockerServiceImpl implements DockerService {
         return module;
     }
 
+    @Override
+    public CompletableFuture<Module> startModuleAsync(String containerName, Module module) {
+        DockerContainer container = ContainerUtils.newStartInstance(containerName, null, null, null);
+        return dockerCloudUnitClient.startContainerAsync(container)
+                .thenCompose(v -> dockerCloudUnitClient.findContainerAsync(container))
+                .thenApply(c -> containerMapper.mapDockerContainerToModule(c, module,
+                        getEnv(c.getName(), "CU_MODULE_PORT")));
+    }
+
     @Override
     public String logs(String container) throws DockerJSONException {
         try {
@@ -385,6 +511,41 @@ public class DockerServiceImpl implements DockerService {
         }
     }
 
+    @Override
+    public String logs(String container, Integer tail, Integer since) throws DockerJSONException {
+        try (LogStream stream = dockerClient.logs(container, logsParams(false, tail, since))) {
+            return stream.readFully();
+        } catch (Exception e) {
+            logger.error(container, e);
+            return null;
+        }
+    }
+
+    @Override
+    public LogStream followLogs(String container, Integer tail, Integer since) throws FatalDockerJSONException {
+        try {
+            return dockerClient.logs(container, logsParams(true, tail, since));
+        } catch (DockerException | InterruptedException e) {
+            StringBuilder msgError = new StringBuilder();
+            msgError.append("container=").append(container);
+            throw new FatalDockerJSONException(msgError.toString(), e);
+        }
+    }
+
+    private DockerClient.LogsParam[] logsParams(boolean follow, Integer tail, Integer since) {
+        List<DockerClient.LogsParam> params = new ArrayList<>();
+        params.add(DockerClient.LogsParam.stdout());
+        params.add(DockerClient.LogsParam.stderr());
+        params.add(DockerClient.LogsParam.follow(follow));
+        if (tail != null) {
+            params.add(DockerClient.LogsParam.tail(tail));
+        }
+        if (since != null) {
+            params.add(DockerClient.LogsParam.since(since));
+        }
+        return params.toArray(new DockerClient.LogsParam[params.size()]);
+    }
+
     @Override
     public void pullImage(String imageName) throws FatalDockerJSONException {
         try {
@@ -406,23 +567,22 @@ public class DockerServiceImpl implements DockerService {
     }
 
     @Override
-    public List<String> listImages() throws ServiceException {
-        List<String> imagesId = new ArrayList<>();
-
+    public Map<String, String> listImageTags() throws ServiceException {
+        Map<String, String> tags = new HashMap<>();
         try {
             List<Image> images = dockerClient.listImages(DockerClient.ListImagesFilterParam.withLabel("origin", "application"));
-            ImmutableList<String> currentTags = null;
-            for (Image image: images) {
-                currentTags = image.repoTags().asList();
-                for (String tag: currentTags) {
-                    imagesId.add(tag);
+            for (Image image : images) {
+                if (image.repoTags() == null) {
+                    continue;
+                }
+                for (String tag : image.repoTags()) {
+                    tags.put(tag, image.id());
                 }
             }
         } catch (DockerException | InterruptedException e) {
-            logger.error(e.getMessage());
+            throw new ServiceException("Cannot list the images", e);
         }
-
-        return imagesId;
+        return tags;
     }
 
 }
@@ -1,23 +1,38 @@
 package fr.treeptik.cloudunit.service.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import fr.treeptik.cloudunit.config.events.ApplicationPendingEvent;
 import fr.treeptik.cloudunit.config.events.ApplicationStartEvent;
 import fr.treeptik.cloudunit.config.events.ModuleStartEvent;
 import fr.treeptik.cloudunit.config.events.ServerStartEvent;
 import fr.treeptik.cloudunit.dao.EnvironmentDAO;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
 import fr.treeptik.cloudunit.exception.CheckException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Application;
@@ -58,20 +73,32 @@ public class EnvironmentServiceImpl implements EnvironmentService {
     @Inject
     private ModuleService moduleService;
 
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Time the first change set of a container waits for other edits before being committed.
+     */
+    @Value("${env.changes.debounce:500}")
+    private long debounce;
+
+    /**
+     * Change sets waiting for their commit, by container name. Guarded by itself.
+     */
+    private final Map<String, PendingChanges> pending = new HashMap<>();
+
+    /**
+     * Serializes the commits of a container, so a change set never recreates a container being recreated.
+     */
+    private final ConcurrentMap<String, ReentrantLock> commitLocks = new ConcurrentHashMap<>();
+
     @Override
-    @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public EnvironmentVariable save(User user, EnvironmentVariable environment, String applicationName,
             String containerName) throws ServiceException {
         checkEnvironmentVariableConsistence(environment, containerName);
-        Application application = null;
         try {
-            application = applicationService.findByNameAndUser(user, applicationName);
-            stopAndRemoveContainer(containerName, application);
-            environment.setApplication(application);
-            environment.setContainerName(containerName);
-            environment = environmentDAO.save(environment);
-            recreateAndMountVolumes(containerName, application);
+            apply(user, applicationName, containerName,
+                    new EnvironmentChangeSet().set(environment.getKeyEnv(), environment.getValueEnv()));
         } catch (CheckException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("environment:[").append(environment).append("]");
@@ -87,20 +114,17 @@ public class EnvironmentServiceImpl implements EnvironmentService {
             logger.error(msgError.toString());
             throw new ServiceException(e.getMessage(), e);
         }
-        return environment;
+        return findByKey(containerName, environment.getKeyEnv()).orElse(environment);
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public void save(User user, List<EnvironmentVariable> environments, String applicationName, String containerName)
             throws ServiceException {
         environments.stream().forEach(e -> checkEnvironmentVariableConsistence(e, containerName));
-        final Application application = applicationService.findByNameAndUser(user, applicationName);
+        EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+        environments.stream().forEach(e -> changeSet.set(e.getKeyEnv(), e.getValueEnv()));
         try {
-            stopAndRemoveContainer(containerName, application);
-            createInDatabase(environments, containerName, application);
-            recreateAndMountVolumes(containerName, application);
+            apply(user, applicationName, containerName, changeSet);
         } catch (CheckException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("environments:[").append(environments).append("]");
@@ -144,18 +168,14 @@ public class EnvironmentServiceImpl implements EnvironmentService {
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public void delete(User user, int id, String applicationName, String containerName) throws ServiceException {
         Server server = null;
         Application application = null;
         try {
             server = serverService.findByName(containerName);
             application = applicationService.findByNameAndUser(user, applicationName);
-            stopAndRemoveContainer(containerName, application);
             EnvironmentVariable environmentVariable = loadEnvironnment(id);
-            environmentDAO.delete(environmentVariable);
-            recreateAndMountVolumes(containerName, application);
+            apply(user, applicationName, containerName, new EnvironmentChangeSet().unset(environmentVariable.getKeyEnv()));
         } catch (CheckException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("id:[").append(id).append("]");
@@ -177,8 +197,6 @@ public class EnvironmentServiceImpl implements EnvironmentService {
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public void delete(User user, List<EnvironmentVariable> envs, String applicationName, String containerName)
             throws ServiceException {
         Server server = null;
@@ -186,9 +204,9 @@ public class EnvironmentServiceImpl implements EnvironmentService {
         try {
             server = serverService.findByName(containerName);
             application = applicationService.findByNameAndUser(user, applicationName);
-            stopAndRemoveContainer(containerName, application);
-            envs.stream().forEach(e -> environmentDAO.delete(e));
-            recreateAndMountVolumes(containerName, application);
+            EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+            envs.stream().forEach(e -> changeSet.unset(e.getKeyEnv()));
+            apply(user, applicationName, containerName, changeSet);
         } catch (CheckException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append(", applicationName:[").append(applicationName).append("]");
@@ -209,21 +227,20 @@ public class EnvironmentServiceImpl implements EnvironmentService {
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "env", allEntries = true)
     public EnvironmentVariable update(User user, EnvironmentVariable environmentVariable, String applicationName,
             String containerName, Integer id) throws ServiceException {
         checkEnvironmentVariableConsistence(environmentVariable, containerName);
         Application application = null;
         try {
-            loadEnvironnment(id);
+            EnvironmentVariable previous = loadEnvironnment(id);
             application = applicationService.findByNameAndUser(user, applicationName);
-            stopAndRemoveContainer(containerName, application);
-            environmentVariable.setId(id);
-            environmentVariable.setContainerName(containerName);
-            environmentVariable.setApplication(application);
-            environmentVariable = environmentDAO.save(environmentVariable);
-            recreateAndMountVolumes(containerName, application);
+            EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+            if (!previous.getKeyEnv().equals(environmentVariable.getKeyEnv())) {
+                changeSet.unset(previous.getKeyEnv());
+            }
+            changeSet.set(environmentVariable.getKeyEnv(), environmentVariable.getValueEnv());
+            apply(user, applicationName, containerName, changeSet);
+            environmentVariable = findByKey(containerName, environmentVariable.getKeyEnv()).orElse(environmentVariable);
         } catch (CheckException e) {
             StringBuilder msgError = new StringBuilder();
             msgError.append("environmentVariable:[").append(environmentVariable).append("]");
@@ -244,11 +261,156 @@ public class EnvironmentServiceImpl implements EnvironmentService {
         return environmentVariable;
     }
 
-    private void checkEnvironmentVariableConsistence(EnvironmentVariable environmentVariable, String containerName) {
-        if (environmentVariable.getKeyEnv() == null || environmentVariable.getKeyEnv().isEmpty())
+    @Override
+    public EnvironmentChangeReport apply(User user, String applicationName, String containerName,
+            EnvironmentChangeSet changeSet) throws ServiceException {
+        changeSet.getSet().keySet().forEach(this::checkKey);
+        changeSet.getUnset().forEach(this::checkKey);
+        Application application = applicationService.findByNameAndUser(user, applicationName);
+        if (application == null) {
+            throw new CheckException("This application does not exist : " + applicationName);
+        }
+        if (changeSet.isEmpty()) {
+            return new EnvironmentChangeReport(containerName, 0);
+        }
+        PendingChanges batch;
+        boolean leader = false;
+        synchronized (pending) {
+            batch = pending.get(containerName);
+            if (batch == null) {
+                batch = new PendingChanges(application);
+                pending.put(containerName, batch);
+                leader = true;
+            }
+            batch.merge(changeSet);
+        }
+        if (leader) {
+            commitAfterDebounce(containerName, batch);
+        }
+        try {
+            return batch.report.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ServiceException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run by the caller which opened the batch : leaves the debounce window open to the other callers,
+     * then closes the batch and commits it.
+     */
+    private void commitAfterDebounce(String containerName, PendingChanges batch) {
+        if (debounce > 0) {
+            try {
+                Thread.sleep(debounce);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ReentrantLock lock = commitLocks.computeIfAbsent(containerName, name -> new ReentrantLock());
+        lock.lock();
+        try {
+            synchronized (pending) {
+                pending.remove(containerName, batch);
+            }
+            batch.report.complete(commit(containerName, batch));
+        } catch (Throwable e) {
+            batch.report.completeExceptionally(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the difference between the merged changes and the database, then recreates the container once.
+     * Nothing is recreated when the changes do not modify any variable. On failure the database is rolled back
+     * and the container is recreated with its previous environment.
+     */
+    private EnvironmentChangeReport commit(String containerName, PendingChanges batch) throws ServiceException {
+        EnvironmentChangeReport report = new EnvironmentChangeReport(containerName, batch.changeSets);
+        TransactionStatus transaction = transactionManager
+                .getTransaction(new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        boolean removed = false;
+        try {
+            Map<String, EnvironmentVariable> current = environmentDAO.findByContainer(containerName).stream()
+                    .collect(Collectors.toMap(EnvironmentVariable::getKeyEnv, e -> e, (first, second) -> first));
+            List<EnvironmentVariable> saved = new ArrayList<>();
+            List<EnvironmentVariable> deleted = new ArrayList<>();
+            for (Map.Entry<String, String> change : batch.changes.entrySet()) {
+                EnvironmentVariable existing = current.get(change.getKey());
+                if (change.getValue() == null) {
+                    if (existing != null) {
+                        deleted.add(existing);
+                        report.getRemoved().add(change.getKey());
+                    }
+                } else if (existing == null) {
+                    EnvironmentVariable variable = new EnvironmentVariable();
+                    variable.setKeyEnv(change.getKey());
+                    variable.setValueEnv(change.getValue());
+                    variable.setContainerName(containerName);
+                    variable.setApplication(batch.application);
+                    saved.add(variable);
+                    report.getAdded().add(change.getKey());
+                } else if (!change.getValue().equals(existing.getValueEnv())) {
+                    existing.setValueEnv(change.getValue());
+                    saved.add(existing);
+                    report.getUpdated().add(change.getKey());
+                }
+            }
+            if (report.hasChanges()) {
+                stopAndRemoveContainer(containerName, batch.application);
+                removed = true;
+                environmentDAO.delete(deleted);
+                environmentDAO.save(saved);
+                recreateAndMountVolumes(containerName, batch.application);
+                report.setRecreated(true);
+            }
+            transactionManager.commit(transaction);
+        } catch (ServiceException | RuntimeException e) {
+            if (!transaction.isCompleted()) {
+                transactionManager.rollback(transaction);
+            }
+            if (removed) {
+                restoreContainer(containerName, batch.application);
+            }
+            throw e;
+        }
+        logger.info("Environment of {} committed : {}", containerName, report);
+        return report;
+    }
+
+    private void restoreContainer(String containerName, Application application) {
+        try {
+            dockerService.removeContainer(containerName, false);
+        } catch (RuntimeException e) {
+            logger.debug("No container to remove before restoring {}", containerName);
+        }
+        try {
+            recreateAndMountVolumes(containerName, application);
+        } catch (ServiceException | RuntimeException e) {
+            logger.error("Cannot restore the container " + containerName + " with its previous environment", e);
+        }
+    }
+
+    private Optional<EnvironmentVariable> findByKey(String containerName, String key) {
+        return environmentDAO.findByContainer(containerName).stream()
+                .filter(e -> key.equals(e.getKeyEnv())).findFirst();
+    }
+
+    private void checkKey(String key) {
+        if (key == null || key.isEmpty())
             throw new CheckException("This key is not consistent !");
-        if (!environmentVariable.getKeyEnv().matches("^[-a-zA-Z0-9_]*$"))
-            throw new CheckException("This key is not consistent : " + environmentVariable.getKeyEnv());
+        if (!key.matches("^[-a-zA-Z0-9_]*$"))
+            throw new CheckException("This key is not consistent : " + key);
+    }
+
+    private void checkEnvironmentVariableConsistence(EnvironmentVariable environmentVariable, String containerName) {
+        checkKey(environmentVariable.getKeyEnv());
         List<EnvironmentVariable> environmentList = environmentDAO.findByContainer(containerName);
         Optional<EnvironmentVariable> value = environmentList.stream()
                 .filter(v -> v.getKeyEnv().equals(environmentVariable.getKeyEnv())).findFirst();
@@ -269,6 +431,7 @@ public class EnvironmentServiceImpl implements EnvironmentService {
         List<String> envs = loadEnvironnmentsByContainer(containerName).stream()
                 .map(e -> e.getKeyEnv() + "=" + e.getValueEnv()).collect(Collectors.toList());
         Server server = serverService.findByName(containerName);
+        // on the caller's thread : startServer joins the transaction of the caller
         if (server != null) {
             dockerService.createServer(server.getName(), server, server.getImage().getPath(), server.getImage().getImageSubType().toString(),
                     server.getApplication().getUser(), envs, false, volumes);
@@ -281,4 +444,35 @@ public class EnvironmentServiceImpl implements EnvironmentService {
             applicationEventPublisher.publishEvent(new ModuleStartEvent(module));
         }
     }
+
+    /**
+     * Change sets of a container merged while its debounce window is open, the last edit of a key winning.
+     * A null value removes the key.
+     */
+    private static class PendingChanges {
+
+        private final Application application;
+
+        private final Map<String, String> changes = new LinkedHashMap<>();
+
+        private final CompletableFuture<EnvironmentChangeReport> report = new CompletableFuture<>();
+
+        private int changeSets;
+
+        private PendingChanges(Application application) {
+            this.application = application;
+        }
+
+        private void merge(EnvironmentChangeSet changeSet) {
+            changeSet.getUnset().forEach(key -> {
+                changes.remove(key);
+                changes.put(key, null);
+            });
+            changeSet.getSet().forEach((key, value) -> {
+                changes.remove(key);
+                changes.put(key, value == null ? "" : value);
+            });
+            changeSets++;
+        }
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerClient.ExecCreateParam;
+import com.spotify.docker.client.LogMessage;
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.exceptions.DockerException;
+
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.dto.ExecResult;
+import fr.treeptik.cloudunit.enums.RemoteExecAction;
+import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+import fr.treeptik.cloudunit.service.ExecService;
+import fr.treeptik.cloudunit.utils.LatencyHistogram;
+
+@Service
+public class ExecServiceImpl implements ExecService {
+
+    static final String OTHER_ACTION = "OTHER";
+
+    // bytes of the error output of a streamed command looked at for a permission error
+    private static final int MAX_ERRORS_KEPT = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(ExecServiceImpl.class);
+
+    @Inject
+    private DockerClient dockerClient;
+
+    /**
+     * Deadline of the commands without their own timeout, waiting for a slot included.
+     */
+    @Value("${exec.timeout:600000}")
+    private long defaultTimeout;
+
+    @Value("${exec.max.per.container:4}")
+    private int maxPerContainer;
+
+    @Value("${exec.max.total:32}")
+    private int maxTotal;
+
+    private Semaphore hostPermits;
+
+    private final ConcurrentMap<String, Semaphore> containerPermits = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ActionStatistics> actions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ScheduledThreadPoolExecutor deadlines;
+
+    @PostConstruct
+    public void init() {
+        hostPermits = new Semaphore(maxTotal, true);
+        deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "exec-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        deadlines.shutdownNow();
+    }
+
+    @Override
+    public ExecResult exec(ExecRequest request) throws FatalDockerJSONException {
+        return exec(request, null);
+    }
+
+    @Override
+    public ExecResult exec(ExecRequest request, OutputListener listener) throws FatalDockerJSONException {
+        long start = System.currentTimeMillis();
+        long deadline = start + (request.getTimeout() > 0 ? request.getTimeout() : defaultTimeout);
+        String action = request.getAction() != null ? request.getAction().name() : actionOf(request.getCommand());
+        ActionStatistics statistics = actions.computeIfAbsent(action, name -> new ActionStatistics());
+
+        Semaphore permits = containerPermits.computeIfAbsent(request.getContainerName(),
+                name -> new Semaphore(maxPerContainer, true));
+        acquire(permits, deadline, request);
+        try {
+            acquire(hostPermits, deadline, request);
+            try {
+                // a streamed output is not kept, its error output is looked at for the permission errors
+                ByteArrayOutputStream errors = listener != null && canFallBack(request) ? new ByteArrayOutputStream()
+                        : null;
+                ExecResult result = run(request, request.isPrivileged(), listener, errors, action, start, deadline);
+                if (needsRoot(request, result, errors)) {
+                    logger.warn("[" + request.getContainerName() + "] exec command in privileged mode : "
+                            + request.getCommand());
+                    result = run(request, true, listener, null, action, start, deadline);
+                }
+                statistics.record(result);
+                return result;
+            } catch (RuntimeException e) {
+                statistics.errors.incrementAndGet();
+                throw e;
+            } finally {
+                hostPermits.release();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("maxPerContainer", maxPerContainer);
+        statistics.put("maxTotal", maxTotal);
+        statistics.put("defaultTimeout", defaultTimeout);
+        statistics.put("running", maxTotal - hostPermits.availablePermits());
+        statistics.put("waiting", waiting.get());
+        statistics.put("rejected", rejected.get());
+        Map<String, Object> byAction = new TreeMap<>();
+        actions.forEach((name, action) -> byAction.put(name, action.toMap()));
+        statistics.put("actions", byAction);
+        return statistics;
+    }
+
+    /**
+     * Label of the latency statistics of a command : the remote action whose script or command line it runs.
+     */
+    static String actionOf(String command) {
+        for (RemoteExecAction action : RemoteExecAction.values()) {
+            String template = action.getCommand();
+            if (!template.contains(" CU_")) {
+                if (command.startsWith(template)) {
+                    return action.name();
+                }
+            } else {
+                String script = template.substring(0, template.indexOf(' '));
+                if (script.startsWith("/") && command.startsWith(script + " ")) {
+                    return action.name();
+                }
+            }
+        }
+        return OTHER_ACTION;
+    }
+
+    private boolean canFallBack(ExecRequest request) {
+        return request.isRootFallback() && !request.isPrivileged();
+    }
+
+    /**
+     * Only a failed command whose output mentions a permission error is run again, a successful one never is.
+     * When the output is streamed, the error output of the first run was already sent and stays so.
+     */
+    private boolean needsRoot(ExecRequest request, ExecResult result, ByteArrayOutputStream errors) {
+        if (!canFallBack(request) || result.isTimedOut() || result.isSuccess()) {
+            return false;
+        }
+        String output = errors != null ? new String(errors.toByteArray(), StandardCharsets.UTF_8) : result.getOutput();
+        return output != null && output.contains("Permission denied");
+    }
+
+    private void acquire(Semaphore permits, long deadline, ExecRequest request) {
+        waiting.incrementAndGet();
+        try {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!permits.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new FatalDockerJSONException("Too many commands running, cannot start " + request, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FatalDockerJSONException("Interrupted while waiting to start " + request, e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reads the output until the end of the command or its deadline : at the deadline the stream is closed
+     * from the deadlines thread, which unblocks the reading. The command itself is not killed by docker.
+     */
+    private ExecResult run(ExecRequest request, boolean privileged, OutputListener listener,
+            ByteArrayOutputStream errors, String action, long start, long deadline) {
+        final String[] commands = { "bash", "-c", request.getCommand() };
+        List<ExecCreateParam> params = new ArrayList<>();
+        params.add(ExecCreateParam.detach(request.isDetached()));
+        params.add(ExecCreateParam.attachStdout());
+        params.add(ExecCreateParam.attachStderr());
+        if (privileged) {
+            params.add(ExecCreateParam.user("root"));
+        }
+        ByteArrayOutputStream output = listener == null ? new ByteArrayOutputStream() : null;
+        AtomicBoolean expired = new AtomicBoolean();
+        try {
+            String execId = dockerClient.execCreate(request.getContainerName(), commands,
+                    params.toArray(new ExecCreateParam[params.size()])).id();
+            try (final LogStream stream = dockerClient.execStart(execId)) {
+                ScheduledFuture<?> watchdog = deadlines.schedule(() -> {
+                    expired.set(true);
+                    stream.close();
+                }, Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                try {
+                    read(stream, listener, output, errors);
+                } catch (RuntimeException e) {
+                    if (!expired.get()) {
+                        throw e;
+                    }
+                } finally {
+                    watchdog.cancel(false);
+                }
+            }
+            long duration = System.currentTimeMillis() - start;
+            String text = output == null ? null : new String(output.toByteArray(), StandardCharsets.UTF_8);
+            if (expired.get()) {
+                logger.warn("[" + request.getContainerName() + "] " + action + " timed out after " + duration
+                        + " ms : " + request.getCommand());
+                return new ExecResult(request.getContainerName(), action, null, text, duration, true);
+            }
+            Integer exitCode = dockerClient.execInspect(execId).exitCode();
+            return new ExecResult(request.getContainerName(), action, exitCode, text, duration, false);
+        } catch (DockerException | InterruptedException e) {
+            StringBuilder msgError = new StringBuilder();
+            msgError.append("containerName:[").append(request.getContainerName()).append("]");
+            msgError.append(", command:[").append(request.getCommand()).append("]");
+            throw new FatalDockerJSONException(msgError.toString(), e);
+        }
+    }
+
+    private void read(LogStream stream, OutputListener listener, ByteArrayOutputStream output,
+            ByteArrayOutputStream errors) {
+        while (stream.hasNext()) {
+            LogMessage message = stream.next();
+            ByteBuffer content = message.content();
+            if (listener == null) {
+                copy(content, output);
+                continue;
+            }
+            boolean stderr = message.stream() == LogMessage.Stream.STDERR;
+            if (stderr && errors != null && errors.size() < MAX_ERRORS_KEPT) {
+                copy(content.duplicate(), errors);
+            }
+            try {
+                listener.onOutput(stderr, content);
+            } catch (IOException e) {
+                throw new FatalDockerJSONException("The output of the command cannot be consumed", e);
+            }
+        }
+    }
+
+    private static void copy(ByteBuffer content, ByteArrayOutputStream output) {
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static class ActionStatistics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicLong timeouts = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private void record(ExecResult result) {
+            latency.record(result.getDuration());
+            if (result.isTimedOut()) {
+                timeouts.incrementAndGet();
+            } else if (result.getExitCode() != null && result.getExitCode() != 0) {
+                failures.incrementAndGet();
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> statistics = latency.toMap();
+            statistics.put("failures", failures.get());
+            statistics.put("timeouts", timeouts.get());
+            statistics.put("errors", errors.get());
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.dto.ContainerUnit;
+import fr.treeptik.cloudunit.dto.ExportProgress;
+import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ExportService;
+import fr.treeptik.cloudunit.utils.ParallelGzipOutputStream;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    @Inject
+    private ApplicationService applicationService;
+
+    @Inject
+    private DockerService dockerService;
+
+    @Inject
+    private TransferMetrics transferMetrics;
+
+    @Value("${export.buffer.size:65536}")
+    private int bufferSize;
+
+    @Value("${export.compression.level:6}")
+    private int compressionLevel;
+
+    /**
+     * 0 to compress on the request thread.
+     */
+    @Value("${export.compression.threads:0}")
+    private int compressionThreads;
+
+    @Value("${export.compression.block:1048576}")
+    private int compressionBlock;
+
+    private final ConcurrentMap<String, ExportProgress> exports = new ConcurrentHashMap<>();
+
+    private ExecutorService compressors;
+
+    @PostConstruct
+    public void init() {
+        if (compressionThreads > 0) {
+            AtomicInteger count = new AtomicInteger();
+            compressors = Executors.newFixedThreadPool(compressionThreads, r -> {
+                Thread thread = new Thread(r, "export-gzip-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (compressors != null) {
+            compressors.shutdownNow();
+        }
+    }
+
+    @Override
+    public void exportApplication(Application application, OutputStream out) throws ServiceException {
+        List<String> containers = applicationService.listContainers(application.getName()).stream()
+                .map(ContainerUnit::getName)
+                .collect(Collectors.toList());
+        ExportProgress progress = new ExportProgress(application.getName(), containers);
+        String key = key(application.getUser(), application.getName());
+        exports.put(key, progress);
+
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(compress(out))) {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            tar.setAddPaxHeadersForNonAsciiNames(true);
+            for (String container : containers) {
+                progress.start(container);
+                long start = System.currentTimeMillis();
+                long bytes = copyContainer(container, tar, progress);
+                transferMetrics.record("export", container, "/", bytes, System.currentTimeMillis() - start);
+                progress.complete(container);
+            }
+            tar.finish();
+            progress.finish(null);
+        } catch (IOException | FatalDockerJSONException e) {
+            progress.finish(e);
+            throw new ServiceException("Export of " + application.getName() + " failed", e);
+        } finally {
+            exports.remove(key, progress);
+        }
+    }
+
+    @Override
+    public ExportProgress getProgress(User user, String applicationName) {
+        return exports.get(key(user, applicationName));
+    }
+
+    private String key(User user, String applicationName) {
+        return user.getLogin() + "/" + applicationName;
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, bufferSize);
+        if (compressors == null) {
+            return ParallelGzipOutputStream.gzip(buffered, bufferSize, compressionLevel);
+        }
+        return new ParallelGzipOutputStream(buffered, compressors, compressionBlock, compressionLevel,
+                compressionThreads * 2);
+    }
+
+    /**
+     * Renames the entries of the docker export under the container directory, the content is copied as read.
+     *
+     * @return bytes of file content copied
+     */
+    private long copyContainer(String container, TarArchiveOutputStream tar, ExportProgress progress)
+            throws IOException {
+        String prefix = container + "/";
+        tar.putArchiveEntry(new TarArchiveEntry(prefix));
+        tar.closeArchiveEntry();
+
+        long bytes = 0;
+        byte[] buffer = new byte[bufferSize];
+        try (InputStream in = dockerService.openExport(container);
+             TarArchiveInputStream export = new TarArchiveInputStream(new BufferedInputStream(in, bufferSize))) {
+            TarArchiveEntry entry;
+            while ((entry = export.getNextTarEntry()) != null) {
+                entry.setName(prefix + entry.getName());
+                if (entry.isLink()) {
+                    // hard links point to a path of the archive
+                    entry.setLinkName(prefix + entry.getLinkName());
+                }
+                tar.putArchiveEntry(entry);
+                int read;
+                while ((read = export.read(buffer)) != -1) {
+                    tar.write(buffer, 0, read);
+                    bytes += read;
+                    progress.add(read);
+                }
+                tar.closeArchiveEntry();
+            }
+        }
+        logger.debug("Exported " + container + " : " + bytes + " bytes");
+        return bytes;
+    }
+
+}
@@ -15,23 +15,35 @@
 
 package fr.treeptik.cloudunit.service.impl;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.StringTokenizer;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import fr.treeptik.cloudunit.dto.ContainerFile;
 import fr.treeptik.cloudunit.dto.FileUnit;
 import fr.treeptik.cloudunit.dto.SourceUnit;
 import fr.treeptik.cloudunit.enums.RemoteExecAction;
@@ -43,7 +55,9 @@ import fr.treeptik.cloudunit.filters.explorer.ExplorerFilter;
 import fr.treeptik.cloudunit.service.DockerService;
 import fr.treeptik.cloudunit.service.FileService;
 import fr.treeptik.cloudunit.utils.AlphaNumericsCharactersCheckUtils;
+import fr.treeptik.cloudunit.utils.DirectoryListingCache;
 import fr.treeptik.cloudunit.utils.FilesUtils;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
 
 /**
  * Service for file management into container Created by nicolas on 20/05/15.
@@ -62,6 +76,31 @@ public class FileServiceImpl implements FileService {
 	@Value("${docker.endpoint.mode}")
 	private String dockerEndpointMode;
 
+	@Value("${upload.checksum.verify:true}")
+	private boolean verifyChecksum;
+
+	@Value("${explorer.cache.ttl:10000}")
+	private long listingCacheTtl;
+
+	@Value("${explorer.cache.max:1000}")
+	private int listingCacheMax;
+
+	@Value("${explorer.prefetch:true}")
+	private boolean prefetch;
+
+	@Inject
+	private TransferMetrics transferMetrics;
+
+	private DirectoryListingCache<List<FileUnit>> listingCache;
+
+	// type (following the links), size, modification time, owner, rights and path relative to the listed directory
+	private static final String LISTING_FORMAT = "%Y\\t%s\\t%T@\\t%u\\t%m\\t%P\\0";
+
+	@PostConstruct
+	public void init() {
+		listingCache = new DirectoryListingCache<>(listingCacheTtl, listingCacheMax);
+	}
+
 	/**
 	 * File Explorer Feature
 	 * <p>
@@ -80,6 +119,8 @@ public class FileServiceImpl implements FileService {
 			dockerService.execCommand(containerId, command);
 		} catch (FatalDockerJSONException e) {
 			throw new ServiceException("Cannot delete files " + path + " for " + containerId, e);
+		} finally {
+			listingCache.invalidate(containerId, path);
 		}
 	}
 
@@ -90,6 +131,8 @@ public class FileServiceImpl implements FileService {
 			dockerService.execCommand(containerId, command);
 		} catch (FatalDockerJSONException e) {
 			throw new ServiceException("Cannot create directory " + path + " for " + containerId, e);
+		} finally {
+			listingCache.invalidate(containerId, path);
 		}
 	}
 
@@ -175,74 +218,86 @@ public class FileServiceImpl implements FileService {
 	 * @throws ServiceException
 	 */
 	public List<FileUnit> listByContainerIdAndPath(String containerId, String path) throws ServiceException {
-		List<FileUnit> files = new ArrayList<>();
+		String directory = DirectoryListingCache.directory(path);
+		List<FileUnit> files = listingCache.get(containerId, directory);
+		if (files != null) {
+			return new ArrayList<>(files);
+		}
 		try {
-			final String command = "ls -laF " + path;
+			// a single exec gives the entries of the directory and, when prefetching, of its sub directories
+			final String command = "find '" + directory.replace("'", "'\\''") + "' -mindepth 1 -maxdepth "
+					+ (prefetch ? 2 : 1) + " -printf '" + LISTING_FORMAT + "'";
 			String execOutput = dockerService.execCommand(containerId, command);
+			if (logger.isDebugEnabled()) {
+				logger.debug(execOutput);
+			}
 			String containerName = dockerService.getContainerNameFromId(containerId);
 			ExplorerFilter filter = ExplorerFactory.getInstance().getCustomFilter(containerName);
-			if (execOutput != null && execOutput.contains("cannot access") == false) {
-
-				if (logger.isDebugEnabled()) {
-					logger.debug(execOutput);
-				}
-
-				StringTokenizer lignes = new StringTokenizer(execOutput, "\n");
-				while (lignes.hasMoreTokens()) {
-					String ligne = lignes.nextToken();
-					if (logger.isDebugEnabled()) {
-						logger.debug(ligne);
-					}
-					if (ligne.startsWith("total"))
-						continue;
-					StringTokenizer fields = new StringTokenizer(ligne, " ");
-					String rights = fields.nextToken();
-					String id = fields.nextToken();
-					String user = fields.nextToken();
-					String group = fields.nextToken();
-					String size = fields.nextToken();
-					String month = fields.nextToken();
-					String day = fields.nextToken();
-					String hour = fields.nextToken();
-					String name = fields.nextToken();
-					boolean dir = false;
-					boolean exec = false;
-					if (name.endsWith("/")) {
-						dir = true;
-						name = name.substring(0, name.length() - 1);
-					} else {
-						boolean isNotAuth = FilesUtils.isNotAuthorizedExtension(name);
-						if (isNotAuth) {
-							continue;
-						}
-					}
-					if (name.endsWith("*")) {
-						exec = true;
-						name = name.substring(0, name.length() - 1);
-					}
-					StringBuilder absolutePath = new StringBuilder(128);
-					absolutePath.append(path).append(name);
-
-					if (name.equalsIgnoreCase("."))
-						continue;
-					if (name.equalsIgnoreCase(".."))
-						continue;
-
-					FileUnit fileUnit = new FileUnit(name, user, day, month, hour, false, dir, exec,
-							absolutePath.toString());
-
-					if (filter.isValid(fileUnit)) {
-						filter.isRemovable(fileUnit);
-						filter.isSafe(fileUnit);
-						files.add(fileUnit);
-					}
-				}
+			Map<String, List<FileUnit>> listings = parseListing(directory, execOutput, filter);
+			for (Map.Entry<String, List<FileUnit>> listing : listings.entrySet()) {
+				listingCache.put(containerId, listing.getKey(), listing.getValue());
 			}
+			return new ArrayList<>(listings.get(directory));
 		} catch (FatalDockerJSONException e) {
 			throw new ServiceException(containerId, e);
 		}
+	}
 
-		return files;
+	/**
+	 * Groups the records written by find by parent directory. Every directory found gets a listing,
+	 * empty or not, so the prefetched level can be served from the cache.
+	 */
+	static Map<String, List<FileUnit>> parseListing(String directory, String output, ExplorerFilter filter) {
+		Map<String, List<FileUnit>> listings = new LinkedHashMap<>();
+		listings.put(directory, new ArrayList<>());
+		if (output == null) {
+			return listings;
+		}
+		for (String record : output.split("\0")) {
+			String[] fields = record.split("\t", 6);
+			if (fields.length < 6) {
+				continue;
+			}
+			// the error messages of find are mixed with the records, they end with a new line
+			String type = fields[0].substring(fields[0].lastIndexOf('\n') + 1);
+			String relativePath = fields[5];
+			if (type.length() != 1 || relativePath.isEmpty()) {
+				continue;
+			}
+			int separator = relativePath.lastIndexOf('/');
+			String parent = directory + relativePath.substring(0, separator + 1);
+			String name = relativePath.substring(separator + 1);
+			boolean dir = "d".equals(type);
+			if (dir) {
+				listings.computeIfAbsent(directory + relativePath + "/", key -> new ArrayList<>());
+			} else if (FilesUtils.isNotAuthorizedExtension(name)) {
+				continue;
+			}
+			FileUnit fileUnit;
+			try {
+				int mode = Integer.parseInt(fields[4], 8);
+				Date lastModified = new Date((long) (Double.parseDouble(fields[2]) * 1000));
+				fileUnit = new FileUnit(name, fields[3], new SimpleDateFormat("d", Locale.ENGLISH).format(lastModified),
+						new SimpleDateFormat("MMM", Locale.ENGLISH).format(lastModified),
+						new SimpleDateFormat("HH:mm", Locale.ENGLISH).format(lastModified), false, dir,
+						!dir && (mode & 0111) != 0, parent + name);
+				fileUnit.setSize(Long.parseLong(fields[1]));
+				fileUnit.setLastModified(lastModified);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			if (filter.isValid(fileUnit)) {
+				filter.isRemovable(fileUnit);
+				filter.isSafe(fileUnit);
+				listings.computeIfAbsent(parent, key -> new ArrayList<>()).add(fileUnit);
+			}
+		}
+		return listings;
+	}
+
+	@Override
+	public void invalidateListing(String containerId, String path) {
+		listingCache.invalidate(containerId, path);
 	}
 
 	/**
@@ -256,31 +311,37 @@ public class FileServiceImpl implements FileService {
 	 */
 	@Override
 	public void sendFileToContainer(String containerId, String destination, String filename, String url) throws ServiceException, CheckException {
-		File file = null;
-		File createTempHomeDirPerUsage = null;
+		filename = AlphaNumericsCharactersCheckUtils.deAccent(filename);
+		filename = filename.replace(" ", "_");
+		Path spooled = null;
 		try {
-			File homeDirectory = org.apache.commons.io.FileUtils.getUserDirectory();
-			createTempHomeDirPerUsage = new File(
-					homeDirectory.getAbsolutePath() + "/tmp" + System.currentTimeMillis());
-			if (createTempHomeDirPerUsage.mkdirs()) {
-				filename = AlphaNumericsCharactersCheckUtils.deAccent(filename);
-				filename = filename.replace(" ", "_");
-				file = new File(createTempHomeDirPerUsage.getAbsolutePath() + "/" + filename);
-				FileUtils.copyURLToFile(new URL(url), file);
-				dockerService.sendFileToContainer(containerId, file.getParent(), filename, destination);
-				if (destination.contains("/opt/cloudunit")) {
-					dockerService.execCommand(containerId, RemoteExecAction.CHANGE_CU_RIGHTS.getCommand(), true);
+			URLConnection connection = new URL(url).openConnection();
+			long size = connection.getContentLengthLong();
+			try (InputStream in = connection.getInputStream()) {
+				if (size >= 0) {
+					sendStream(containerId, destination, filename, size, in);
+				} else {
+					// the tar header needs the size : without content length the file is spooled first
+					spooled = Files.createTempFile("cu-upload", null);
+					Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+					try (InputStream spooledIn = Files.newInputStream(spooled)) {
+						sendStream(containerId, destination, filename, Files.size(spooled), spooledIn);
+					}
 				}
 			}
-		} catch (Exception e) {
+			if (destination.contains("/opt/cloudunit")) {
+				dockerService.execCommand(containerId, RemoteExecAction.CHANGE_CU_RIGHTS.getCommand(), true);
+			}
+		} catch (FatalDockerJSONException | IOException e) {
 			StringBuilder msgError = new StringBuilder(512);
 			msgError.append(",").append("containerId=").append(containerId);
-			msgError.append(",").append("file=").append(file);
+			msgError.append(",").append("url=").append(url);
 			msgError.append(",").append("destFile=").append(destination);
 			throw new ServiceException("error in send file into the container : " + msgError, e);
 		} finally {
-			if (file != null) { file.delete(); }
-			if (createTempHomeDirPerUsage != null) { createTempHomeDirPerUsage.delete(); }
+			if (spooled != null) {
+				spooled.toFile().delete();
+			}
 		}
 
 	}
@@ -298,45 +359,26 @@ public class FileServiceImpl implements FileService {
 	public void sendFileToContainer(String containerId, String destination, MultipartFile fileUpload,
 			String contentFileName, String contentFileData) throws ServiceException, CheckException {
 		try {
-			File file = null;
-			File createTempHomeDirPerUsage = null;
-			File homeDirectory = null;
-			try {
-				homeDirectory = org.apache.commons.io.FileUtils.getUserDirectory();
-				createTempHomeDirPerUsage = new File(
-						homeDirectory.getAbsolutePath() + "/tmp" + System.currentTimeMillis());
-				if (createTempHomeDirPerUsage.mkdirs()) {
-					String fileName = null;
-					// usecase : upload a file
-					if (fileUpload != null) {
-						if (contentFileName == null) {
-							fileName = fileUpload.getOriginalFilename();
-							fileName = AlphaNumericsCharactersCheckUtils.deAccent(fileName);
-							fileName = fileName.replace(" ", "_");
-						} else {
-							fileName = contentFileName;
-						}
-						file = new File(createTempHomeDirPerUsage.getAbsolutePath() + "/" + fileName);
-						fileUpload.transferTo(file);
-					}
-					// usecase : save the content file
-					else {
-						fileName = contentFileName;
-						file = new File(createTempHomeDirPerUsage.getAbsolutePath() + "/" + contentFileName);
-						FileUtils.write(file, contentFileData);
-					}
-					dockerService.sendFileToContainer(containerId, file.getParent(), fileName, destination);
+			// usecase : upload a file
+			if (fileUpload != null) {
+				String fileName;
+				if (contentFileName == null) {
+					fileName = fileUpload.getOriginalFilename();
+					fileName = AlphaNumericsCharactersCheckUtils.deAccent(fileName);
+					fileName = fileName.replace(" ", "_");
 				} else {
-					throw new ServiceException("Cannot create : " + createTempHomeDirPerUsage.getAbsolutePath());
+					fileName = contentFileName;
 				}
-			} finally {
-				if (createTempHomeDirPerUsage != null) {
-					boolean deleted = file.delete();
-					logger.debug(file.getAbsolutePath() + " is deleted ? " + deleted);
-					deleted = createTempHomeDirPerUsage.delete();
-					logger.debug(createTempHomeDirPerUsage.getAbsolutePath() + " is deleted ? " + deleted);
+				try (InputStream in = fileUpload.getInputStream()) {
+					sendStream(containerId, destination, fileName, fileUpload.getSize(), in);
 				}
 			}
+			// usecase : save the content file
+			else {
+				byte[] content = contentFileData.getBytes(StandardCharsets.UTF_8);
+				sendStream(containerId, destination, contentFileName, content.length,
+						new ByteArrayInputStream(content));
+			}
 			if (destination.contains("/opt/cloudunit")) {
 				dockerService.execCommand(containerId, RemoteExecAction.CHANGE_CU_RIGHTS.getCommand(), true);
 			}
@@ -350,6 +392,49 @@ public class FileServiceImpl implements FileService {
 
 	}
 
+	@Override
+	public void sendFileToContainer(String containerId, String destination, String fileName, long size,
+			InputStream content) throws ServiceException, CheckException {
+		try {
+			sendStream(containerId, destination, fileName, size, content);
+			if (destination.contains("/opt/cloudunit")) {
+				dockerService.execCommand(containerId, RemoteExecAction.CHANGE_CU_RIGHTS.getCommand(), true);
+			}
+		} catch (FatalDockerJSONException e) {
+			StringBuilder msgError = new StringBuilder(512);
+			msgError.append(",").append("containerId=").append(containerId);
+			msgError.append(",").append("fileName=").append(fileName);
+			msgError.append(",").append("destFile=").append(destination);
+			throw new ServiceException("error in send file into the container : " + msgError, e);
+		}
+	}
+
+	/**
+	 * Pipes the content into the container as a single file tar, then compares its checksum
+	 * with the one of the file written in the container.
+	 */
+	private void sendStream(String containerId, String destination, String fileName, long size, InputStream in)
+			throws ServiceException {
+		long start = System.currentTimeMillis();
+		String sha256;
+		try {
+			sha256 = dockerService.putFile(containerId, destination, fileName, size, in);
+		} finally {
+			// after the write : a listing made meanwhile would cache the previous content
+			listingCache.invalidate(containerId, destination);
+		}
+		transferMetrics.record("upload", containerId, destination + "/" + fileName, size,
+				System.currentTimeMillis() - start);
+		if (verifyChecksum) {
+			String path = destination.endsWith("/") ? destination + fileName : destination + "/" + fileName;
+			String result = dockerService.execCommand(containerId,
+					"sha256sum '" + path.replace("'", "'\\''") + "'", true);
+			if (result == null || !result.trim().startsWith(sha256)) {
+				throw new ServiceException("Checksum mismatch for " + path + " : sent " + sha256 + ", found " + result);
+			}
+		}
+	}
+
 	/**
 	 * File Explorer feature
 	 * <p>
@@ -359,6 +444,18 @@ public class FileServiceImpl implements FileService {
 	 * @return
 	 * @throws ServiceException
 	 */
+	@Override
+	public ContainerFile openFileFromContainer(String containerId, String pathFile) throws ServiceException {
+		try {
+			return dockerService.openFileFromContainer(containerId, pathFile);
+		} catch (FatalDockerJSONException e) {
+			StringBuilder msgError = new StringBuilder();
+			msgError.append(", containerId=").append("=").append(containerId);
+			msgError.append(", pathFile=").append(pathFile);
+			throw new ServiceException(msgError.toString(), e);
+		}
+	}
+
 	@Override
 	public int getFileFromContainer(String containerId, String pathFile, OutputStream outputStream)
 			throws ServiceException {
@@ -3,23 +3,28 @@ package fr.treeptik.cloudunit.service.impl;
 import fr.treeptik.cloudunit.config.events.DatabaseConnectionFailEvent;
 import fr.treeptik.cloudunit.config.events.UnexpectedContainerStatusEvent;
 import fr.treeptik.cloudunit.docker.core.DockerCloudUnitClient;
-import fr.treeptik.cloudunit.docker.model.State;
+import fr.treeptik.cloudunit.dto.ContainerTiming;
+import fr.treeptik.cloudunit.exception.DockerJSONException;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.Module;
 import fr.treeptik.cloudunit.model.Server;
 import fr.treeptik.cloudunit.model.Status;
 import fr.treeptik.cloudunit.service.ApplicationService;
 import fr.treeptik.cloudunit.service.HealthCheckService;
-import fr.treeptik.cloudunit.service.ModuleService;
-import fr.treeptik.cloudunit.service.ServerService;
-import fr.treeptik.cloudunit.utils.ContainerUtils;
+import fr.treeptik.cloudunit.service.OrchestrationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Created by guillaume on 05/10/16.
@@ -32,32 +37,53 @@ public class HealthCheckServiceImpl implements HealthCheckService {
     @Inject
     private ApplicationService applicationService;
 
-    @Inject
-    private ServerService serverService;
-
     @Inject
     private DockerCloudUnitClient dockerCloudUnitClient;
 
     @Inject
-    private ModuleService moduleService;
+    private ApplicationEventPublisher publisher;
 
     @Inject
-    private ApplicationEventPublisher publisher;
+    private OrchestrationService orchestrationService;
 
+    /**
+     * Lists the containers and loads the applications once, then only acts on the containers
+     * whose running state does not match the status of their application.
+     */
     @Override
     public void checkAndRebootApplications(){
         try {
-            List<Application> applications = applicationService.findAll();
+            Map<String, Boolean> runningByName = new HashMap<>();
+            dockerCloudUnitClient.forEachContainer(true, c -> {
+                boolean running = c.getState() != null && Boolean.TRUE.equals(c.getState().getRunning());
+                if (c.getNames() != null) {
+                    c.getNames().forEach(n -> runningByName.put(n.startsWith("/") ? n.substring(1) : n, running));
+                }
+            });
+            List<Application> applications = applicationService.findAllWithContainers();
+            List<CompletableFuture<List<ContainerTiming>>> restarts = new ArrayList<>();
             applications.stream().filter(a-> a.getStatus().equals(Status.START)).forEach(a->{
-                checkNotStartedModules(a);
-                checkNotStartedServer(a);
+                List<Module> modules = a.getModules().stream()
+                        .filter(m -> isUnexpected(runningByName, m.getName(), false))
+                        .collect(Collectors.toList());
+                Server server = a.getServer() != null && isUnexpected(runningByName, a.getServer().getName(), false)
+                        ? a.getServer() : null;
+                if (!modules.isEmpty() || server != null) {
+                    restarts.add(orchestrationService.start(modules, server));
+                }
             });
             applications.stream().filter(a-> a.getStatus().equals(Status.STOP)).forEach(a->{
-                checkNotStoppedModules(a);
-                checkNotStoppedServer(a);
+                List<Module> modules = a.getModules().stream()
+                        .filter(m -> isUnexpected(runningByName, m.getName(), true))
+                        .collect(Collectors.toList());
+                Server server = a.getServer() != null && isUnexpected(runningByName, a.getServer().getName(), true)
+                        ? a.getServer() : null;
+                if (!modules.isEmpty() || server != null) {
+                    restarts.add(orchestrationService.stop(server, modules));
+                }
             });
-
-        } catch (ServiceException e) {
+            CompletableFuture.allOf(restarts.toArray(new CompletableFuture[restarts.size()])).join();
+        } catch (ServiceException | DockerJSONException e) {
             logger.error("An error occures when check and reboot started apps : "
                     + e.getLocalizedMessage());
             e.printStackTrace();
@@ -66,79 +92,28 @@ public class HealthCheckServiceImpl implements HealthCheckService {
 
     }
 
-    private void checkNotStartedModules(Application a) {
-        a.getModules().stream().forEach(m-> {
-            final State moduleState = dockerCloudUnitClient.findContainer(
-                    ContainerUtils.newStartInstance(m.getName(), null, null, false))
-                    .getState();
-            if(!moduleState.getRunning()){
-                logger.warn("Module container is not started... Trying to restart it." );
-                publisher.publishEvent(
-                        new UnexpectedContainerStatusEvent(String.format("This module is stopped but should be started : %s", m.getName())));
-                try {
-                    moduleService.startModule(m.getName());
-                } catch (ServiceException e) {
-                    logger.error("An error occures when check and reboot started apps : "
-                            + e.getLocalizedMessage());
-                }
-            }
-        });
-    }
-    private void checkNotStoppedModules(Application a) {
-        a.getModules().stream().forEach(m-> {
-            final State moduleState = dockerCloudUnitClient.findContainer(
-                    ContainerUtils.newStartInstance(m.getName(), null, null, false))
-                    .getState();
-            if(moduleState.getRunning()){
-                logger.warn("Module container is not stopped... Trying to stop it." );
-                publisher.publishEvent(
-                        new UnexpectedContainerStatusEvent(String.format("This module is started but should be stopped : %s", m.getName())));
-                try {
-                    moduleService.stopModule(m.getName());
-                } catch (ServiceException e) {
-                    logger.error("An error occures when check and reboot shutdown apps : "
-                            + e.getLocalizedMessage());
-                }
-            }
-        });
-    }
-
-    private void checkNotStartedServer(Application a) {
-        final State serverState = dockerCloudUnitClient.findContainer(
-                ContainerUtils.newStartInstance(a.getServer().getName(), null, null, false))
-                .getState();
-        if(!serverState.getRunning()){
-           logger.warn("Server container is not started... Trying to restart it." );
-            publisher.publishEvent(
-                    new UnexpectedContainerStatusEvent(String.format("This server is stopped but should be started : %s", a.getServer().getName())));
-           try {
-               Server server = a.getServer();
-               server.setApplication(a);
-               serverService.startServer(server);
-           } catch (ServiceException e) {
-               logger.error("An error occures when check and reboot started apps : "
-                       + e.getLocalizedMessage());
-           }
-       }
-    }
-
-    private void checkNotStoppedServer(Application a) {
-        final State serverState = dockerCloudUnitClient.findContainer(
-                ContainerUtils.newStartInstance(a.getServer().getName(), null, null, false))
-                .getState();
-
-        if(serverState.getRunning()){
-            logger.warn("Server container is not stopped... Trying to stop it." );
-            publisher.publishEvent(
-                    new UnexpectedContainerStatusEvent(String.format("This server is started but should be stopped : %s", a.getServer().getName())));
-            try {
-                serverService.stopServer(a.getServer());
-            } catch (ServiceException e) {
-                logger.error("An error occures when check and shutdown apps : "
-                        + e.getLocalizedMessage());
-            }
+    /**
+     * True when the container is in the unexpected running state, which has to be fixed.
+     */
+    private boolean isUnexpected(Map<String, Boolean> runningByName, String containerName, boolean running) {
+        Boolean actual = runningByName.get(containerName);
+        if (actual == null) {
+            logger.warn("Container not found : " + containerName);
+            return false;
+        }
+        if (actual != running) {
+            return false;
         }
+        if (running) {
+            logger.warn("Container is not stopped... Trying to stop it." );
+            publisher.publishEvent(new UnexpectedContainerStatusEvent(
+                    String.format("This container is started but should be stopped : %s", containerName)));
+        } else {
+            logger.warn("Container is not started... Trying to restart it." );
+            publisher.publishEvent(new UnexpectedContainerStatusEvent(
+                    String.format("This container is stopped but should be started : %s", containerName)));
+        }
+        return true;
     }
 
-
 }
@@ -0,0 +1,206 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.config.events.ImageEvent;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ImageInventoryService;
+
+@Service
+public class ImageInventoryServiceImpl implements ImageInventoryService {
+
+    // stands for an image known to be pulled whose id is not listed yet
+    private static final String UNKNOWN_ID = "";
+
+    private final Logger logger = LoggerFactory.getLogger(ImageInventoryServiceImpl.class);
+
+    @Inject
+    private DockerService dockerService;
+
+    private final Map<String, String> imageIds = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+
+    private volatile boolean synchronizedOnce;
+
+    private volatile long lastSync;
+
+    private final AtomicLong syncs = new AtomicLong();
+
+    private final AtomicLong syncErrors = new AtomicLong();
+
+    private final AtomicLong events = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    // runs the listings requested in the background, a thread of its own unless set before init
+    private Executor executor;
+
+    private ExecutorService ownExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (executor == null) {
+            ownExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "image-inventory");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = ownExecutor;
+        }
+        requestSync();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isPulled(String path) {
+        if (path == null) {
+            return false;
+        }
+        lookups.incrementAndGet();
+        return imageIds.containsKey(repository(path));
+    }
+
+    @Override
+    public String getImageId(String path) {
+        if (path == null) {
+            return null;
+        }
+        lookups.incrementAndGet();
+        String id = imageIds.get(repository(path));
+        return UNKNOWN_ID.equals(id) ? null : id;
+    }
+
+    @Override
+    public boolean isSynchronized() {
+        return synchronizedOnce;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${images.inventory.sync.delay:300000}")
+    public synchronized void sync() {
+        Map<String, String> listed = new HashMap<>();
+        try {
+            dockerService.listImageTags().forEach((tag, id) -> listed.put(repository(tag), id));
+        } catch (ServiceException e) {
+            syncErrors.incrementAndGet();
+            logger.warn("Images inventory not synchronized : " + e.getMessage());
+            return;
+        }
+        imageIds.keySet().retainAll(listed.keySet());
+        imageIds.putAll(listed);
+        syncs.incrementAndGet();
+        lastSync = System.currentTimeMillis();
+        synchronizedOnce = true;
+        logger.debug(listed.size() + " images in the inventory");
+    }
+
+    /**
+     * Applies what the event tells directly, then lists the images again in the background
+     * to learn the ids and the tags left : a burst of events costs a single listing.
+     */
+    @Override
+    @EventListener
+    public void onImageEvent(ImageEvent imageEvent) {
+        events.incrementAndGet();
+        String image = imageEvent.getImage();
+        switch (imageEvent.getStatus()) {
+        case "pull":
+            imageIds.putIfAbsent(repository(image), UNKNOWN_ID);
+            break;
+        case "delete":
+        case "untag":
+            imageIds.values().removeIf(id -> id.equals(image));
+            break;
+        default:
+            break;
+        }
+        requestSync();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("synchronized", synchronizedOnce);
+        statistics.put("images", imageIds.size());
+        statistics.put("lastSync", lastSync);
+        statistics.put("syncs", syncs.get());
+        statistics.put("syncErrors", syncErrors.get());
+        statistics.put("events", events.get());
+        statistics.put("lookups", lookups.get());
+        return statistics;
+    }
+
+    private void requestSync() {
+        if (syncRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                syncRequested.set(false);
+                sync();
+            });
+        }
+    }
+
+    /**
+     * registry:5000/cloudunit/tomcat-8:latest, cloudunit/tomcat-8:latest and cloudunit/tomcat-8
+     * all give cloudunit/tomcat-8.
+     */
+    static String repository(String name) {
+        String repository = name;
+        int digest = repository.indexOf('@');
+        if (digest >= 0) {
+            repository = repository.substring(0, digest);
+        }
+        int tag = repository.lastIndexOf(':');
+        if (tag > repository.lastIndexOf('/')) {
+            repository = repository.substring(0, tag);
+        }
+        int slash = repository.indexOf('/');
+        if (slash > 0) {
+            String host = repository.substring(0, slash);
+            if (host.contains(".") || host.contains(":") || host.equals("localhost")) {
+                repository = repository.substring(slash + 1);
+            }
+        }
+        return repository;
+    }
+}
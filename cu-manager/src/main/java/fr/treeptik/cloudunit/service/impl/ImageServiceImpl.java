@@ -19,6 +19,7 @@ import fr.treeptik.cloudunit.dao.ImageDAO;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Image;
 import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ImageInventoryService;
 import fr.treeptik.cloudunit.service.ImageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +29,6 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.inject.Inject;
 import javax.persistence.PersistenceException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class ImageServiceImpl
@@ -41,6 +41,9 @@ public class ImageServiceImpl
     @Inject
     private DockerService dockerService;
 
+    @Inject
+    private ImageInventoryService imageInventoryService;
+
     public ImageDAO getImageDAO() {
         return this.imageDAO;
     }
@@ -211,6 +214,7 @@ public class ImageServiceImpl
                 logger.debug("start find enabled '" + type + "' images");
             }
             List<Image> images = imageDAO.findAllEnabledImagesByType(type);
+            images = this.checkImagesPulled(images);
             logger.info("ImageService : enabled found ");
             return images;
         } catch (PersistenceException e) {
@@ -239,22 +243,18 @@ public class ImageServiceImpl
     public void delete(Integer imageId) throws ServiceException {
         Image image = imageDAO.findOne(imageId);
         dockerService.deleteImage(image.getPath());
+        imageInventoryService.sync();
         this.disableImage(image.getName());
     }
 
     @Override
     public void pull(String imageName) {
         dockerService.pullImage(imageName);
+        imageInventoryService.sync();
     }
 
-    private List<Image> checkImagesPulled(List<Image> images) throws ServiceException {
-        List<String> listImages = this.dockerService.listImages();
-        for (String tag: listImages) {
-            images = images.stream().map( image -> {
-                if(tag.contains(image.getPath())) image.setPull(true);
-             return image;
-            }).collect(Collectors.toList());
-        }
+    private List<Image> checkImagesPulled(List<Image> images) {
+        images.forEach(image -> image.setPull(imageInventoryService.isPulled(image.getPath())));
         return images;
     }
 }
@@ -0,0 +1,316 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.spotify.docker.client.LogMessage;
+import com.spotify.docker.client.LogStream;
+
+import fr.treeptik.cloudunit.dto.LogResource;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.LogStreamService;
+
+@Service
+public class LogStreamServiceImpl implements LogStreamService {
+
+    private final Logger logger = LoggerFactory.getLogger(LogStreamServiceImpl.class);
+
+    private static final int MAX_RECONNECTIONS = 3;
+
+    @Inject
+    private DockerService dockerService;
+
+    @Value("${logs.stream.timeout:1800000}")
+    private long timeout;
+
+    @Value("${logs.stream.buffer:1000}")
+    private int bufferSize;
+
+    @Value("${logs.stream.max:50}")
+    private int maxStreams;
+
+    @Value("${logs.stream.threads:10}")
+    private int threads;
+
+    private final ConcurrentMap<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    /**
+     * One thread per followed container, blocked on the docker stream.
+     */
+    private ExecutorService readers;
+
+    /**
+     * Write the buffered lines to the viewers, a slow viewer does not hold the docker stream.
+     */
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void init() {
+        readers = new ThreadPoolExecutor(0, maxStreams, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                threadFactory("logs-reader-"));
+        writers = Executors.newFixedThreadPool(threads, threadFactory("logs-writer-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        upstreams.values().forEach(Upstream::close);
+        readers.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    @Override
+    public SseEmitter subscribe(String container, Integer tail, Integer since) throws ServiceException {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(container, emitter);
+        if ((tail != null && tail > 0) || since != null) {
+            String history = dockerService.logs(container, tail, since);
+            if (history != null) {
+                for (String line : history.split("\\r?\\n")) {
+                    if (!line.isEmpty()) {
+                        subscriber.offer(new LogResource("stdout", line));
+                    }
+                }
+            }
+        }
+        try {
+            upstreams.compute(container, (k, upstream) -> {
+                if (upstream == null || upstream.closed) {
+                    upstream = new Upstream(container);
+                    readers.execute(upstream);
+                }
+                upstream.subscribers.add(subscriber);
+                return upstream;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceException("Too many log streams, max : " + maxStreams, e);
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    /**
+     * The docker stream is closed with its last viewer.
+     */
+    private void unsubscribe(Subscriber subscriber) {
+        upstreams.computeIfPresent(subscriber.container, (k, upstream) -> {
+            upstream.subscribers.remove(subscriber);
+            if (upstream.subscribers.isEmpty()) {
+                upstream.close();
+                return null;
+            }
+            return upstream;
+        });
+    }
+
+    private class Upstream implements Runnable {
+
+        private final String container;
+
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+        private volatile boolean closed;
+
+        private volatile LogStream stream;
+
+        private Upstream(String container) {
+            this.container = container;
+        }
+
+        @Override
+        public void run() {
+            Integer since = null;
+            int failures = 0;
+            StringBuilder partial = new StringBuilder();
+            while (!closed && failures < MAX_RECONNECTIONS) {
+                LogStream logStream;
+                try {
+                    logStream = dockerService.followLogs(container, 0, since);
+                    failures = 0;
+                } catch (Exception e) {
+                    failures++;
+                    logger.warn(container + " : " + e.getMessage());
+                    sleep();
+                    continue;
+                }
+                try (LogStream opened = logStream) {
+                    stream = opened;
+                    while (!closed && opened.hasNext()) {
+                        LogMessage message = opened.next();
+                        String source = message.stream() == LogMessage.Stream.STDERR ? "stderr" : "stdout";
+                        partial.append(StandardCharsets.UTF_8.decode(message.content()));
+                        int end;
+                        while ((end = partial.indexOf("\n")) >= 0) {
+                            String line = partial.substring(0, end);
+                            partial.delete(0, end + 1);
+                            if (line.endsWith("\r")) {
+                                line = line.substring(0, line.length() - 1);
+                            }
+                            LogResource logResource = new LogResource(source, line);
+                            subscribers.forEach(s -> s.offer(logResource));
+                        }
+                    }
+                    // the container has stopped
+                    break;
+                } catch (Exception e) {
+                    // docker client read timeout when nothing is written for a while : follow again from now
+                    logger.debug(container + " : " + e.getMessage());
+                }
+                since = (int) TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+            }
+            // under the lock of the entry : a viewer subscribing now either joined in time
+            // to be completed here, or starts a new upstream
+            upstreams.computeIfPresent(container, (k, upstream) -> {
+                if (upstream != this) {
+                    return upstream;
+                }
+                closed = true;
+                subscribers.forEach(Subscriber::complete);
+                return null;
+            });
+            // when already removed with its last viewer, the viewers left are completed too
+            closed = true;
+            subscribers.forEach(Subscriber::complete);
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+
+        private void close() {
+            closed = true;
+            LogStream logStream = stream;
+            if (logStream != null) {
+                logStream.close();
+            }
+        }
+    }
+
+    private class Subscriber {
+
+        private final String container;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<LogResource> queue = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private volatile boolean done;
+
+        // the upstream has ended, the viewer is completed once the queue is drained
+        private volatile boolean ending;
+
+        private Subscriber(String container, SseEmitter emitter) {
+            this.container = container;
+            this.emitter = emitter;
+        }
+
+        /**
+         * The oldest lines are dropped when the viewer does not keep up.
+         */
+        private void offer(LogResource logResource) {
+            if (done) {
+                return;
+            }
+            while (!queue.offer(logResource)) {
+                queue.poll();
+            }
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::write);
+            }
+        }
+
+        private void write() {
+            try {
+                LogResource logResource;
+                while (!done && (logResource = queue.poll()) != null) {
+                    emitter.send(SseEmitter.event().name("log").data(logResource, MediaType.APPLICATION_JSON));
+                }
+                if (ending && !done && queue.isEmpty()) {
+                    done = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug(container + " : viewer gone " + e.getMessage());
+                done = true;
+                unsubscribe(this);
+            } finally {
+                writing.set(false);
+            }
+            if (!done && (ending || !queue.isEmpty()) && writing.compareAndSet(false, true)) {
+                writers.execute(this::write);
+            }
+        }
+
+        private void complete() {
+            ending = true;
+            if (writing.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::write);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    done = true;
+                    writing.set(false);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -16,6 +16,7 @@
 package fr.treeptik.cloudunit.service.impl;
 
 import fr.treeptik.cloudunit.dao.MessageDAO;
+import fr.treeptik.cloudunit.dto.MessageSummary;
 import fr.treeptik.cloudunit.exception.ServiceException;
 import fr.treeptik.cloudunit.model.Message;
 import fr.treeptik.cloudunit.model.User;
@@ -43,6 +44,9 @@ public class MessageServiceImpl
     @Value("${cloudunit.instance.name}")
     private String cuInstanceName;
 
+    @Value("${messages.feed.max.limit:100}")
+    private int maxLimit;
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Message create(Message message)
@@ -55,6 +59,18 @@ public class MessageServiceImpl
         }
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void create(List<Message> messages)
+            throws ServiceException {
+        try {
+            messages.forEach(message -> message.setCuInstanceName(cuInstanceName));
+            messageDAO.save(messages);
+        } catch (PersistenceException e) {
+            throw new ServiceException(e.getLocalizedMessage(), e);
+        }
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void delete(Message message)
@@ -105,6 +121,22 @@ public class MessageServiceImpl
         }
     }
 
+    @Override
+    public List<MessageSummary> feed(User user, String applicationName, Integer before, int limit)
+            throws ServiceException {
+        try {
+            // the keyset replaces the offset : the sort is in the query, the page only limits the rows
+            Pageable pageable = new PageRequest(0, Math.max(1, Math.min(limit, maxLimit)));
+            Integer cursor = before == null ? Integer.MAX_VALUE : before;
+            if (applicationName == null) {
+                return messageDAO.feedByUser(user.getId(), cuInstanceName, cursor, pageable);
+            }
+            return messageDAO.feedByApp(user.getId(), applicationName, cuInstanceName, cursor, pageable);
+        } catch (PersistenceException e) {
+            throw new ServiceException(e.getLocalizedMessage(), e);
+        }
+    }
+
     /**
      * Returns a Sort object which sorts persons in ascending order by using the
      * last name.
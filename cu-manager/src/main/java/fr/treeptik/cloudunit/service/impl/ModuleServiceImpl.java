@@ -20,6 +20,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -29,7 +31,6 @@ import fr.treeptik.cloudunit.utils.NamingUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
@@ -90,9 +91,11 @@ public class ModuleServiceImpl implements ModuleService {
     @Inject
     private FileService fileService;
 
+    @Inject
+    private Executor asyncExecutor;
+
     @Override
     @Transactional
-    @CacheEvict("env")
     public Module create(String imageName, Application application, User user) throws ServiceException, CheckException {
 
         // General informations
@@ -178,7 +181,6 @@ public class ModuleServiceImpl implements ModuleService {
 
     @Override
     @Transactional(rollbackFor = ServiceException.class)
-    @CacheEvict("env")
     public Module publishPort(Integer id, Boolean publishPort, String port, User user) throws ServiceException, CheckException {
         Module module = findById(id);
         Optional<Port> optionalPort = module.getPorts().stream()
@@ -275,15 +277,7 @@ public class ModuleServiceImpl implements ModuleService {
         try {
             module = findByName(moduleName);
             module = dockerService.startModule(moduleName, module);
-            applicationEventPublisher.publishEvent(new ModuleStartEvent(module));
-            if (!module.isInitialized()) {
-                module.setInitialized(true);
-                module = moduleDAO.save(module);
-                applicationEventPublisher
-                        .publishEvent(new HookEvent(new Hook(moduleName, RemoteExecAction.MODULE_POST_START_ONCE)));
-            }
-            applicationEventPublisher
-                    .publishEvent(new HookEvent(new Hook(moduleName, RemoteExecAction.MODULE_POST_START)));
+            module = onModuleStarted(moduleName, module);
         } catch (PersistenceException e) {
             logger.error("ModuleService Error : fail to start Module" + moduleName);
             throw new ServiceException(e.getLocalizedMessage(), e);
@@ -291,6 +285,27 @@ public class ModuleServiceImpl implements ModuleService {
         return module;
     }
 
+    @Override
+    public CompletableFuture<Module> startModuleAsync(String moduleName) throws ServiceException {
+        logger.info("Module : Starting module asynchronously " + moduleName);
+        Module module = findByName(moduleName);
+        return dockerService.startModuleAsync(moduleName, module)
+                .thenApplyAsync(m -> onModuleStarted(moduleName, m), asyncExecutor);
+    }
+
+    private Module onModuleStarted(String moduleName, Module module) {
+        applicationEventPublisher.publishEvent(new ModuleStartEvent(module));
+        if (!module.isInitialized()) {
+            module.setInitialized(true);
+            module = moduleDAO.save(module);
+            applicationEventPublisher
+                    .publishEvent(new HookEvent(new Hook(moduleName, RemoteExecAction.MODULE_POST_START_ONCE)));
+        }
+        applicationEventPublisher
+                .publishEvent(new HookEvent(new Hook(moduleName, RemoteExecAction.MODULE_POST_START)));
+        return module;
+    }
+
     @Override
     @Transactional
     public Module stopModule(String moduleName) throws ServiceException {
@@ -306,6 +321,16 @@ public class ModuleServiceImpl implements ModuleService {
         return module;
     }
 
+    @Override
+    public CompletableFuture<Module> stopModuleAsync(String moduleName) throws ServiceException {
+        Module module = findByName(moduleName);
+        return dockerService.stopContainerAsync(moduleName)
+                .thenApplyAsync(v -> {
+                    applicationEventPublisher.publishEvent(new ModuleStopEvent(module));
+                    return module;
+                }, asyncExecutor);
+    }
+
     @Override
     public Module findById(Integer id) throws ServiceException {
         try {
@@ -0,0 +1,167 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.dto.ContainerTiming;
+import fr.treeptik.cloudunit.model.Module;
+import fr.treeptik.cloudunit.model.Server;
+import fr.treeptik.cloudunit.service.ModuleService;
+import fr.treeptik.cloudunit.service.OrchestrationService;
+import fr.treeptik.cloudunit.service.ReadinessService;
+import fr.treeptik.cloudunit.service.ServerService;
+import fr.treeptik.cloudunit.utils.OrchestrationPlan;
+
+@Service
+public class OrchestrationServiceImpl implements OrchestrationService {
+
+    private final Logger logger = LoggerFactory.getLogger(OrchestrationServiceImpl.class);
+
+    @Inject
+    private ModuleService moduleService;
+
+    @Inject
+    private ServerService serverService;
+
+    @Inject
+    private ReadinessService readinessService;
+
+    @Value("${orchestration.threads:10}")
+    private int threads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "orchestration-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<List<ContainerTiming>> execute(OrchestrationPlan plan) {
+        Map<String, CompletableFuture<ContainerTiming>> futures = new HashMap<>();
+        for (OrchestrationPlan.Step step : plan.getSteps()) {
+            CompletableFuture<?>[] dependencies = step.getDependencies().stream()
+                    .map(futures::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(step.getContainerName(), CompletableFuture.allOf(dependencies)
+                    .thenComposeAsync(v -> run(step), executor));
+        }
+        List<CompletableFuture<ContainerTiming>> all = plan.getSteps().stream()
+                .map(s -> futures.get(s.getContainerName()))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture[all.size()]))
+                .thenApply(v -> all.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    @Override
+    public CompletableFuture<List<ContainerTiming>> start(Collection<Module> modules, Server server) {
+        OrchestrationPlan plan = new OrchestrationPlan();
+        List<String> moduleNames = new ArrayList<>();
+        for (Module module : modules) {
+            String name = module.getName();
+            plan.step(name, "start", () -> moduleService.startModuleAsync(name)
+                    .thenCompose(m -> whenTransitionDone(name)));
+            moduleNames.add(name);
+        }
+        if (server != null) {
+            plan.step(server.getName(), "start", () -> serverService.startServerAsync(server), moduleNames);
+        }
+        return execute(plan);
+    }
+
+    @Override
+    public CompletableFuture<List<ContainerTiming>> stop(Server server, Collection<Module> modules) {
+        OrchestrationPlan plan = new OrchestrationPlan();
+        List<String> serverName = new ArrayList<>();
+        if (server != null) {
+            plan.step(server.getName(), "stop", () -> serverService.stopServerAsync(server));
+            serverName.add(server.getName());
+        }
+        for (Module module : modules) {
+            String name = module.getName();
+            plan.step(name, "stop", () -> moduleService.stopModuleAsync(name), serverName);
+        }
+        return execute(plan);
+    }
+
+    /**
+     * Completes when the readiness probe registered for the container is done.
+     */
+    private CompletableFuture<?> whenTransitionDone(String containerName) {
+        CompletableFuture<Boolean> transition = readinessService.getTransition(containerName);
+        return transition == null ? CompletableFuture.completedFuture(null) : transition;
+    }
+
+    private CompletableFuture<ContainerTiming> run(OrchestrationPlan.Step step) {
+        long start = System.currentTimeMillis();
+        CompletableFuture<?> action;
+        try {
+            action = step.getAction().run();
+            if (action == null) {
+                action = CompletableFuture.completedFuture(null);
+            }
+        } catch (Exception e) {
+            action = new CompletableFuture<>();
+            action.completeExceptionally(e);
+        }
+        return action.handle((result, e) -> {
+            Throwable error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            ContainerTiming timing = new ContainerTiming(step.getContainerName(), step.getOperation(), start,
+                    System.currentTimeMillis() - start, error);
+            if (timing.isSuccess()) {
+                logger.info(timing.toString());
+            } else {
+                logger.error(timing.toString(), error);
+            }
+            return timing;
+        });
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.config.events.ContainerEvent;
+import fr.treeptik.cloudunit.config.events.ContainerInvalidatedEvent;
+import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ReadinessService;
+
+@Service
+public class ReadinessServiceImpl implements ReadinessService {
+
+    private final Logger logger = LoggerFactory.getLogger(ReadinessServiceImpl.class);
+
+    @Inject
+    private DockerService dockerService;
+
+    @Value("${readiness.probe.threads:4}")
+    private int threads;
+
+    @Value("${readiness.probe.interval:5000}")
+    private long interval;
+
+    @Value("${readiness.probe.timeout:30000}")
+    private long timeout;
+
+    private final ConcurrentMap<String, Probe> probes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> transitions = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "readiness-probe-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        scheduler = Executors.newScheduledThreadPool(threads, threadFactory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> await(String containerName, Supplier<Boolean> condition,
+            Consumer<Boolean> callback) {
+        Probe probe = new Probe(containerName, condition, callback);
+        Probe previous = probes.put(containerName, probe);
+        if (previous != null) {
+            previous.cancel();
+        }
+        transitions.put(containerName, probe.future);
+        // nothing is kept for a container once its transition is done, deleted containers included
+        probe.future.whenComplete((ready, e) -> {
+            transitions.remove(containerName, probe.future);
+            probes.remove(containerName, probe);
+        });
+        probe.schedule(0);
+        return probe.future;
+    }
+
+    @Override
+    @EventListener
+    public void onContainerInvalidated(ContainerInvalidatedEvent containerInvalidatedEvent) {
+        Probe probe = probes.get(containerInvalidatedEvent.getContainerName());
+        if (probe != null) {
+            // recreated container : its id is resolved again by the next run
+            probe.containerId = null;
+            probe.schedule(0);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> getTransition(String containerName) {
+        return transitions.get(containerName);
+    }
+
+    @Override
+    @EventListener
+    public void onContainerEvent(ContainerEvent containerEvent) {
+        if (!containerEvent.isLifecycle()) {
+            // the probes themselves trigger exec events
+            return;
+        }
+        String containerId = containerEvent.getContainerId();
+        probes.values().stream()
+                .filter(p -> containerId != null && containerId.equals(p.containerId))
+                .forEach(p -> {
+                    logger.debug(p.containerName + " : " + containerEvent.getStatus());
+                    p.schedule(0);
+                });
+    }
+
+    /**
+     * The scheduling and the runs do not share a lock : the docker events thread only replaces
+     * the next run and never waits for a running probe. An event received during a run asks
+     * for another run as soon as the current one ends.
+     */
+    private class Probe implements Runnable {
+
+        private final String containerName;
+
+        private final Supplier<Boolean> condition;
+
+        private final Consumer<Boolean> callback;
+
+        private final long deadline = System.currentTimeMillis() + timeout;
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private volatile boolean pending;
+
+        private volatile String containerId;
+
+        private ScheduledFuture<?> next;
+
+        private Probe(String containerName, Supplier<Boolean> condition, Consumer<Boolean> callback) {
+            this.containerName = containerName;
+            this.condition = condition;
+            this.callback = callback;
+        }
+
+        private void schedule(long delay) {
+            if (finished.get()) {
+                return;
+            }
+            if (running.get()) {
+                pending = true;
+                if (running.get()) {
+                    // the run ending will schedule the next one
+                    return;
+                }
+            }
+            synchronized (this) {
+                if (next != null) {
+                    next.cancel(false);
+                }
+                next = scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (finished.get()) {
+                return;
+            }
+            if (!running.compareAndSet(false, true)) {
+                pending = true;
+                return;
+            }
+            try {
+                pending = false;
+                probe();
+            } finally {
+                running.set(false);
+            }
+            if (pending) {
+                schedule(0);
+            }
+        }
+
+        private void probe() {
+            if (containerId == null) {
+                try {
+                    containerId = dockerService.getContainerId(containerName);
+                } catch (Exception e) {
+                    logger.debug(containerName, e);
+                }
+            }
+            boolean ready = false;
+            try {
+                ready = Boolean.TRUE.equals(condition.get());
+            } catch (Exception e) {
+                logger.warn(containerName + " : " + e.getMessage());
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (ready || remaining <= 0) {
+                finish(ready);
+            } else {
+                synchronized (this) {
+                    next = scheduler.schedule(this, Math.min(interval, remaining), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void cancel() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                if (next != null) {
+                    next.cancel(false);
+                }
+            }
+            future.complete(false);
+        }
+
+        private void finish(boolean ready) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                if (next != null) {
+                    next.cancel(false);
+                }
+            }
+            probes.remove(containerName, this);
+            try {
+                callback.accept(ready);
+            } catch (Exception e) {
+                logger.error(containerName, e);
+            }
+            future.complete(ready);
+        }
+    }
+
+}
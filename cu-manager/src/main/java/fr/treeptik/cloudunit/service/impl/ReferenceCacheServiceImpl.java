@@ -0,0 +1,218 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.statistics.StatisticsGateway;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.service.ReferenceCacheService;
+
+@Service
+public class ReferenceCacheServiceImpl implements ReferenceCacheService, MessageListener {
+
+    private static final String INVALIDATION_CHANNEL = "cu:reference:invalidations";
+
+    private static final String REGION_PREFIX = "reference.";
+
+    private static final String QUERY_REGION = "reference.queries";
+
+    private final Logger logger = LoggerFactory.getLogger(ReferenceCacheServiceImpl.class);
+
+    // the invalidations published by this manager are ignored when they come back
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Inject
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private SessionFactoryImplementor sessionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        redisTemplate = new StringRedisTemplate(redisConnectionFactory);
+        if (!sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            logger.info("Second level cache disabled");
+            return;
+        }
+        ChangeListener listener = new ChangeListener();
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        redisMessageListenerContainer.removeMessageListener(this);
+    }
+
+    @Override
+    public void evict(String entityName) {
+        sessionFactory.getCache().evictEntityRegion(entityName);
+        for (Object role : sessionFactory.getAllCollectionMetadata().keySet()) {
+            if (((String) role).startsWith(entityName + ".")) {
+                sessionFactory.getCache().evictCollectionRegion((String) role);
+            }
+        }
+        sessionFactory.getCache().evictQueryRegion(QUERY_REGION);
+    }
+
+    /**
+     * Change committed by a manager, this one included.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        received.incrementAndGet();
+        evict(body.substring(separator + 1));
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled());
+        statistics.put("published", published.get());
+        statistics.put("received", received.get());
+        statistics.put("redisErrors", redisErrors.get());
+        if (!sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            return statistics;
+        }
+        Map<String, Object> regions = new LinkedHashMap<>();
+        CacheManager cacheManager = CacheManager.getInstance();
+        for (String name : cacheManager.getCacheNames()) {
+            Ehcache cache = cacheManager.getEhcache(name);
+            if (cache == null || !name.startsWith(REGION_PREFIX)) {
+                continue;
+            }
+            StatisticsGateway gateway = cache.getStatistics();
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("size", gateway.getLocalHeapSize());
+            region.put("hits", gateway.cacheHitCount());
+            region.put("misses", gateway.cacheMissCount());
+            region.put("puts", gateway.cachePutCount());
+            region.put("expired", gateway.cacheExpiredCount());
+            region.put("evicted", gateway.cacheEvictedCount());
+            regions.put(name, region);
+        }
+        statistics.put("regions", regions);
+        return statistics;
+    }
+
+    private void publish(EntityPersister persister) {
+        if (!persister.hasCache()) {
+            return;
+        }
+        published.incrementAndGet();
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + persister.getEntityName());
+        } catch (RuntimeException e) {
+            redisErrors.incrementAndGet();
+            logger.warn("Cannot publish the change of " + persister.getEntityName() + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the changes of the cached entities once committed.
+     */
+    private class ChangeListener
+            implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return persister.hasCache();
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            publish(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            publish(event.getPersister());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            publish(event.getPersister());
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+    }
+}
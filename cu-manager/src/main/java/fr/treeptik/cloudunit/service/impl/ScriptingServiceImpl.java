@@ -14,107 +14,671 @@
  */
 
 package fr.treeptik.cloudunit.service.impl;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
 
-import fr.treeptik.cloudunit.dao.ScriptingDAO;
-import fr.treeptik.cloudunit.exception.ServiceException;
-import fr.treeptik.cloudunit.model.Script;
-import fr.treeptik.cloudunit.service.ScriptingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
-import javax.inject.Inject;
-import java.io.*;
-import java.util.List;
+import fr.treeptik.cloudunit.config.events.ApplicationFailEvent;
+import fr.treeptik.cloudunit.config.events.ApplicationPendingEvent;
+import fr.treeptik.cloudunit.config.events.ApplicationStartEvent;
+import fr.treeptik.cloudunit.config.events.ApplicationStopEvent;
+import fr.treeptik.cloudunit.config.events.ServerStartEvent;
+import fr.treeptik.cloudunit.dao.ScriptingDAO;
+import fr.treeptik.cloudunit.dto.ApplicationSummary;
+import fr.treeptik.cloudunit.dto.Command;
+import fr.treeptik.cloudunit.dto.ContainerUnit;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
+import fr.treeptik.cloudunit.dto.ScriptCommand;
+import fr.treeptik.cloudunit.dto.VolumeAssociationDTO;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.EnvironmentVariable;
+import fr.treeptik.cloudunit.model.Module;
+import fr.treeptik.cloudunit.model.Script;
+import fr.treeptik.cloudunit.model.Status;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.model.Volume;
+import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.CommandService;
+import fr.treeptik.cloudunit.service.EnvironmentService;
+import fr.treeptik.cloudunit.service.ModuleService;
+import fr.treeptik.cloudunit.service.ScriptingService;
+import fr.treeptik.cloudunit.service.ServerService;
+import fr.treeptik.cloudunit.service.VolumeService;
+import fr.treeptik.cloudunit.utils.AuthentificationUtils;
+import fr.treeptik.cloudunit.utils.CheckUtils;
+import fr.treeptik.cloudunit.utils.NamingUtils;
+import fr.treeptik.cloudunit.utils.ScriptParser;
 
+/**
+ * Runs the scripts in the manager, against the services, in the thread of the request : the script
+ * acts with the identity of the authenticated user and each command reports on the output as soon as it is done.
+ */
 @Service
 public class ScriptingServiceImpl implements ScriptingService {
 
-    private static String CONNECT_CMD = "connect --login #USER --password #PASSWORD --host #HOST";
-    private static String DISCONNECT_CMD = "disconnect";
+    /**
+     * Commands of the CLI which read or write files on the computer of the user.
+     */
+    private static final Set<String> LOCAL_COMMANDS = new HashSet<>(
+            Arrays.asList("deploy", "upload-file", "download-file", "run-script"));
+
+    /**
+     * Commands of the CLI browsing the files of a container from a current directory kept by the shell.
+     */
+    private static final Set<String> EXPLORER_COMMANDS = new HashSet<>(Arrays.asList("open-explorer",
+            "close-explorer", "list-files", "change-directory", "cd", "create-directory", "mkdir", "unzip"));
+
+    /**
+     * Commands of the CLI calling an endpoint the manager does not provide.
+     */
+    private static final Set<String> UNSUPPORTED_COMMANDS = new HashSet<>(Arrays.asList("open-port", "remove-port"));
+
+    private static final List<String> JAVA_VERSIONS = Arrays.asList("java7", "java8", "java9");
+
+    private final Logger logger = LoggerFactory.getLogger(ScriptingServiceImpl.class);
 
     @Inject
     private ScriptingDAO scriptingDAO;
 
-    private final Logger logger = LoggerFactory.getLogger(ScriptingServiceImpl.class);
+    @Inject
+    private ApplicationService applicationService;
 
-    @Value("${cloudunit.cli.path}")
-    private String pathCLI;
+    @Inject
+    private ModuleService moduleService;
+
+    @Inject
+    private EnvironmentService environmentService;
+
+    @Inject
+    private AuthentificationUtils authentificationUtils;
+
+    @Inject
+    private ServerService serverService;
+
+    @Inject
+    private VolumeService volumeService;
 
-    @Value("${cloudunit.instance.name}")
-    private String instanceEnv;
+    @Inject
+    private CommandService commandService;
+
+    @Inject
+    private ApplicationEventPublisher applicationEventPublisher;
 
-    private String host;
+    @Value("${api.version}")
+    private String apiVersion;
+
+    @Value("${api.timestamp}")
+    private String apiTimestamp;
+
+    @Value("${scripting.max.concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${scripting.max.per.user:1}")
+    private int maxPerUser;
+
+    private final Map<String, ScriptCommandHandler> handlers = new LinkedHashMap<>();
+
+    private final ConcurrentMap<String, Semaphore> runsByUser = new ConcurrentHashMap<>();
+
+    private Semaphore runs;
+
+    private ScriptParser parser;
 
     @PostConstruct
     public void init() {
-        if ("DEV".equalsIgnoreCase(instanceEnv)) {
-            host = "http://localhost:8080";
-        } else {
-            host = "http://cuplatform_mysql_1.mysql.cloud.unit:8080";
+        runs = new Semaphore(maxConcurrent);
+
+        // connection is handled by the session of the request
+        handlers.put("connect", (session, command) -> null);
+        handlers.put("disconnect", (session, command) -> null);
+        handlers.put("use", this::use);
+        handlers.put("informations", this::informations);
+        handlers.put("list-apps", this::listApplications);
+        handlers.put("create-app", this::createApplication);
+        handlers.put("rm-app", this::removeApplication);
+        handlers.put("start", this::startApplication);
+        handlers.put("stop", this::stopApplication);
+        handlers.put("add-module", this::addModule);
+        handlers.put("rm-module", this::removeModule);
+        handlers.put("list-env-var", this::listEnvironmentVariables);
+        handlers.put("create-env-var", this::createEnvironmentVariable);
+        handlers.put("rm-env-var", this::removeEnvironmentVariable);
+        handlers.put("set-env-var", this::updateEnvironmentVariable);
+        handlers.put("set-env-vars", this::applyEnvironmentChanges);
+        handlers.put("change-jvm-memory", this::changeJvmMemory);
+        handlers.put("add-jvm-option", this::addJvmOption);
+        handlers.put("change-java-version", this::changeJavaVersion);
+        handlers.put("list-modules", this::listModules);
+        handlers.put("expose-port", (session, command) -> publishPort(session, command, true));
+        handlers.put("close-port", (session, command) -> publishPort(session, command, false));
+        handlers.put("list-containers", this::listContainers);
+        handlers.put("list-volumes", this::listVolumes);
+        handlers.put("create-volume", this::createVolume);
+        handlers.put("rm-volume", this::removeVolume);
+        handlers.put("mount-volume", this::mountVolume);
+        handlers.put("unmount-volume", this::unmountVolume);
+        handlers.put("list-commands", this::listCommands);
+        handlers.put("exec-command", this::execCommand);
+        handlers.put("about", (session, command) -> "CloudUnit Manager API version " + apiVersion
+                + " (build timestamp " + apiTimestamp + ")");
+
+        Set<String> knownCommands = new HashSet<>(handlers.keySet());
+        knownCommands.addAll(LOCAL_COMMANDS);
+        knownCommands.addAll(EXPLORER_COMMANDS);
+        knownCommands.addAll(UNSUPPORTED_COMMANDS);
+        parser = new ScriptParser(knownCommands);
+    }
+
+    @Override
+    public void execute(String scriptContent, User user, PrintWriter output) throws ServiceException, CheckException {
+        List<ScriptCommand> commands = parser.parse(scriptContent);
+        for (ScriptCommand command : commands) {
+            if (LOCAL_COMMANDS.contains(command.getName())) {
+                throw new CheckException("Line " + command.getLine() + " : " + command.getName()
+                        + " needs files of your computer, please run it from the CLI");
+            }
+            if (EXPLORER_COMMANDS.contains(command.getName())) {
+                throw new CheckException("Line " + command.getLine() + " : " + command.getName()
+                        + " belongs to the file explorer of the CLI, please run it from there");
+            }
+            if (UNSUPPORTED_COMMANDS.contains(command.getName())) {
+                throw new CheckException("Line " + command.getLine() + " : " + command.getName()
+                        + " is not provided by this manager");
+            }
+        }
+
+        Semaphore userRuns = runsByUser.computeIfAbsent(user.getLogin(), login -> new Semaphore(maxPerUser));
+        if (!userRuns.tryAcquire()) {
+            throw new CheckException("A script is already running for your account, please wait for its end");
+        }
+        try {
+            if (!runs.tryAcquire()) {
+                throw new CheckException("Too many scripts are running, please retry in a moment");
+            }
+            try {
+                run(commands, new ScriptSession(user), output);
+            } finally {
+                runs.release();
+            }
+        } finally {
+            userRuns.release();
+        }
+    }
+
+    private void run(List<ScriptCommand> commands, ScriptSession session, PrintWriter output)
+            throws ServiceException, CheckException {
+        for (ScriptCommand command : commands) {
+            logger.info(session.user.getLogin() + " runs " + command);
+            try {
+                String message = handlers.get(command.getName()).run(session, command);
+                if (message != null) {
+                    output.println(message);
+                }
+            } catch (ServiceException | CheckException e) {
+                output.println("Line " + command.getLine() + " : " + command.getName() + " failed : " + e.getMessage());
+                output.flush();
+                throw e;
+            }
+            output.flush();
+        }
+        output.println("Script done (" + commands.size() + " commands)");
+        output.flush();
+    }
+
+    private String use(ScriptSession session, ScriptCommand command) throws ServiceException, CheckException {
+        String applicationName = command.getOption("name", 0);
+        CheckUtils.validateSyntaxInput(applicationName, "check.app.name");
+        Application application = findApplication(session, applicationName);
+        session.applicationName = application.getName();
+        return "Current application : " + application.getName();
+    }
+
+    private String informations(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("name"));
+        StringBuilder message = new StringBuilder();
+        message.append("Application ").append(application.getName()).append(" : ").append(application.getStatus());
+        message.append(", server ").append(application.getServer().getImage().getName());
+        application.getModules().forEach(m -> message.append(", module ").append(m.getImage().getName()));
+        return message.toString();
+    }
+
+    private String listApplications(ScriptSession session, ScriptCommand command) throws ServiceException {
+        // the pages are capped by the service, their size is the one of the first page
+        List<ApplicationSummary> summaries = new ArrayList<>();
+        List<ApplicationSummary> page = applicationService.findSummariesByUser(session.user, 0, Integer.MAX_VALUE);
+        int pageSize = page.size();
+        summaries.addAll(page);
+        for (int index = 1; pageSize > 0 && page.size() == pageSize; index++) {
+            page = applicationService.findSummariesByUser(session.user, index, Integer.MAX_VALUE);
+            summaries.addAll(page);
+        }
+        StringBuilder message = new StringBuilder();
+        message.append(summaries.size()).append(" applications");
+        summaries.forEach(s -> message.append(System.lineSeparator()).append(s.getName()).append(" : ")
+                .append(s.getStatus()).append(" ").append(s.getServerImageDisplayName()));
+        return message.toString();
+    }
+
+    private String createApplication(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String applicationName = command.getOption("name");
+        String serverName = command.getOption("type");
+        CheckUtils.validateSyntaxInput(applicationName, "check.app.name");
+        CheckUtils.validateInput(serverName, "check.server.name");
+
+        authentificationUtils.canStartNewAction(session.user, null, Locale.ENGLISH);
+        Application application = applicationService.create(applicationName, serverName);
+        session.applicationName = application.getName();
+        return "Application " + application.getName() + " created";
+    }
+
+    private String removeApplication(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String applicationName = command.getOption("name") != null ? command.getOption("name")
+                : session.applicationName;
+        CheckUtils.validateSyntaxInput(applicationName, "check.app.name");
+        Application application = applicationService.findByNameAndUser(session.user, applicationName);
+        if (application == null) {
+            if (command.isFlag("errorIfNotExists")) {
+                throw new CheckException("Application " + applicationName + " does not exist");
+            }
+            return "Application " + applicationName + " does not exist, nothing to remove";
+        }
+
+        authentificationUtils.canStartDeleteApplicationAction(session.user, application, Locale.ENGLISH);
+        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
+        try {
+            applicationService.remove(application, session.user);
+        } catch (ServiceException e) {
+            applicationEventPublisher.publishEvent(new ApplicationFailEvent(application));
+            throw e;
+        }
+        if (application.getName().equals(session.applicationName)) {
+            session.applicationName = null;
+        }
+        return "Application " + application.getName() + " removed";
+    }
+
+    private String startApplication(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("name"));
+        if (application.getStatus() == Status.START) {
+            return "Application " + application.getName() + " is already started";
+        }
+
+        authentificationUtils.canStartNewAction(session.user, application, Locale.ENGLISH);
+        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
+        try {
+            applicationService.start(application);
+        } finally {
+            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+        }
+        return "Application " + application.getName() + " started";
+    }
+
+    private String stopApplication(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("name"));
+
+        authentificationUtils.canStartNewAction(session.user, application, Locale.ENGLISH);
+        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
+        try {
+            applicationService.stop(application);
+        } finally {
+            applicationEventPublisher.publishEvent(new ApplicationStopEvent(application));
+        }
+        return "Application " + application.getName() + " stopped";
+    }
+
+    private String addModule(ScriptSession session, ScriptCommand command) throws ServiceException, CheckException {
+        String imageName = command.getOption("name");
+        CheckUtils.validateInput(imageName, "check.image.name");
+        Application application = findApplication(session, null);
+
+        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
+        try {
+            moduleService.create(imageName, application, session.user);
+        } finally {
+            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
         }
+        return "Module " + imageName + " added to " + application.getName();
     }
 
-    public void execute(String scriptContent, String login, String password) throws ServiceException {
-        logger.info(scriptContent);
+    private String removeModule(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String moduleName = command.getOption("name");
+        CheckUtils.validateInputNotEmpty(moduleName, "check.module.name");
+        Application application = findApplication(session, null);
 
-        File tmpFile = null;
-        FileWriter fileWriter = null;
-        BufferedWriter writer = null;
-        ProcessBuilder processBuilder = null;
+        authentificationUtils.canStartNewAction(session.user, application, Locale.ENGLISH);
+        Status previousApplicationStatus = application.getStatus();
         try {
-            tmpFile = File.createTempFile(login, ".cmdFile");
-            fileWriter = new FileWriter(tmpFile);
-            writer = new BufferedWriter(fileWriter);
-            String commandConnect = CONNECT_CMD.replace("#USER", login).replace("#PASSWORD", password).replace("#HOST", host);
-            logger.debug(commandConnect);
-            writer.append(commandConnect);
-            writer.newLine();
-            writer.append(scriptContent);
-            writer.newLine();
-            writer.append(DISCONNECT_CMD);
-            writer.flush();
-            logger.debug(writer.toString());
-
-            File fileCLI = new File(pathCLI);
-            if (!fileCLI.exists()) {
-                System.out.println("Error ! ");
-                StringBuilder msgError = new StringBuilder(512);
-                msgError.append("\nPlease run manually (1) : mkdir -p " + pathCLI.substring(0, pathCLI.lastIndexOf("/")));
-                msgError.append("\nPlease run manually (2) : wget https://github.com/Treeptik/cloudunit/releases/download/1.0/CloudUnitCLI.jar -O " + pathCLI);
-                throw new ServiceException(msgError.toString());
+            applicationService.setStatus(application, Status.PENDING);
+            String containerName = moduleName;
+            if (!moduleName.contains("-")) {
+                containerName = NamingUtils.getContainerName(application.getName(), moduleName,
+                        session.user.getLogin());
             }
+            moduleService.remove(session.user, containerName, true, previousApplicationStatus);
+        } finally {
+            applicationService.setStatus(application, previousApplicationStatus);
+        }
+        return "Module " + moduleName + " removed from " + application.getName();
+    }
+
+    private String listEnvironmentVariables(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("name"));
+        List<EnvironmentVariable> variables = environmentService
+                .loadEnvironnmentsByContainer(application.getServer().getName());
+        StringBuilder message = new StringBuilder();
+        message.append(variables.size()).append(" variables on ").append(application.getName());
+        variables.forEach(v -> message.append(System.lineSeparator()).append(v.getKeyEnv()).append("=")
+                .append(v.getValueEnv()));
+        return message.toString();
+    }
 
-            processBuilder = new ProcessBuilder("java","-jar", pathCLI, "--cmdfile", tmpFile.getAbsolutePath());
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+    private String createEnvironmentVariable(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String key = command.getOption("key", 0);
+        String value = command.getOption("value", 1);
+        CheckUtils.validateInputNotEmpty(key, "check.env.key");
+        return applyEnvironmentChanges(session, command.getOption("name"),
+                new EnvironmentChangeSet().set(key, value == null ? "" : value));
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line = "";
-            try {
-                while((line = reader.readLine()) != null) {
-                    logger.info(line);
-                    if (line.contains("not found"))
-                        throw new ServiceException("Syntax error : " + line);
-                    if(line.contains("Invalid or corrupt jarfile"))
-                        throw new ServiceException("Invalid or corrupt jarfile");
+    private String removeEnvironmentVariable(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String key = command.getOption("key", 0);
+        CheckUtils.validateInputNotEmpty(key, "check.env.key");
+        return applyEnvironmentChanges(session, command.getOption("name"), new EnvironmentChangeSet().unset(key));
+    }
+
+    private String updateEnvironmentVariable(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String oldKey = command.getOption("old-key", 0);
+        String newKey = command.getOption("new-key", 1);
+        String value = command.getOption("value", 2);
+        CheckUtils.validateInputNotEmpty(oldKey, "check.env.key");
+        CheckUtils.validateInputNotEmpty(newKey, "check.env.key");
+        EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+        if (!oldKey.equals(newKey)) {
+            changeSet.unset(oldKey);
+        }
+        changeSet.set(newKey, value == null ? "" : value);
+        return applyEnvironmentChanges(session, command.getOption("name"), changeSet);
+    }
+
+    private String applyEnvironmentChanges(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        EnvironmentChangeSet changeSet = new EnvironmentChangeSet();
+        String variables = command.getOption("set");
+        if (variables != null) {
+            for (String variable : variables.split(",")) {
+                int separator = variable.indexOf('=');
+                if (separator <= 0) {
+                    throw new CheckException("Variable " + variable + " must be written KEY=VALUE");
                 }
-            } finally {
-                reader.close();
+                changeSet.set(variable.substring(0, separator).trim(), variable.substring(separator + 1));
+            }
+        }
+        String keysToRemove = command.getOption("unset");
+        if (keysToRemove != null) {
+            for (String key : keysToRemove.split(",")) {
+                changeSet.unset(key.trim());
             }
+        }
+        return applyEnvironmentChanges(session, command.getOption("name"), changeSet);
+    }
+
+    private String applyEnvironmentChanges(ScriptSession session, String applicationName,
+            EnvironmentChangeSet changeSet) throws ServiceException, CheckException {
+        Application application = findApplication(session, applicationName);
+        EnvironmentChangeReport report = environmentService.apply(session.user, application.getName(),
+                application.getServer().getName(), changeSet);
+        if (report.isRecreated()) {
+            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+        }
+        if (!report.hasChanges()) {
+            return "Environment variables of " + application.getName() + " unchanged";
+        }
+        return "Environment variables of " + application.getName() + " changed : " + report.getAdded().size()
+                + " added, " + report.getUpdated().size() + " updated, " + report.getRemoved().size() + " removed";
+    }
 
-        } catch(IOException e) {
-            StringBuilder msgError = new StringBuilder(512);
-            msgError.append("login=").append(login);
-            msgError.append(", password=").append(password);
-            msgError.append(", scriptContent=").append(scriptContent);
-            logger.error(msgError.toString(), e);
+    private String changeJvmMemory(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, null);
+        return updateJvm(session, application, command.getOption("size"), application.getServer().getJvmOptions());
+    }
+
+    private String addJvmOption(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String options = command.getOption("", 0);
+        CheckUtils.validateInputNotEmpty(options, "check.jvm.options");
+        Application application = findApplication(session, null);
+        return updateJvm(session, application, String.valueOf(application.getServer().getJvmMemory()), options);
+    }
+
+    private String updateJvm(ScriptSession session, Application application, String memory, String options)
+            throws ServiceException, CheckException {
+        authentificationUtils.canStartNewAction(session.user, application, Locale.ENGLISH);
+        CheckUtils.checkJavaOpts(options, memory, null);
+
+        applicationService.setStatus(application, Status.PENDING);
+        try {
+            serverService.update(application.getServer(), memory, options, false);
+        } catch (ServiceException | RuntimeException e) {
+            applicationService.setStatus(application, Status.FAIL);
+            throw e;
+        }
+        applicationService.setStatus(application, Status.START);
+        return "JVM of " + application.getName() + " : " + memory + " MB, options " + options;
+    }
+
+    private String changeJavaVersion(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String javaVersion = command.getOption("javaVersion");
+        if (!JAVA_VERSIONS.contains(javaVersion)) {
+            throw new CheckException("Java version " + javaVersion + " is not available, choose one of "
+                    + JAVA_VERSIONS);
+        }
+        Application application = findApplication(session, command.getOption("", 0));
+
+        authentificationUtils.canStartNewAction(session.user, application, Locale.ENGLISH);
+        serverService.changeJavaVersion(application, javaVersion);
+        return "Java version of " + application.getName() + " : " + javaVersion;
+    }
+
+    private String listModules(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, null);
+        StringBuilder message = new StringBuilder();
+        message.append(application.getModules().size()).append(" modules on ").append(application.getName());
+        application.getModules().forEach(m -> message.append(System.lineSeparator()).append(m.getName())
+                .append(" : ").append(m.getStatus()).append(" ").append(m.getImage().getName()));
+        return message.toString();
+    }
+
+    private String publishPort(ScriptSession session, ScriptCommand command, boolean publish)
+            throws ServiceException, CheckException {
+        String moduleName = command.getOption("name");
+        String port = command.getOption("port");
+        CheckUtils.validateInputNotEmpty(moduleName, "check.module.name");
+        CheckUtils.validateInputNotEmpty(port, "check.port");
+        Application application = findApplication(session, null);
+        Module module = application.getModules().stream()
+                .filter(m -> m.getName().endsWith(moduleName))
+                .findAny()
+                .orElseThrow(() -> new CheckException("No module " + moduleName + " on " + application.getName()));
+
+        applicationEventPublisher.publishEvent(new ApplicationPendingEvent(application));
+        try {
+            moduleService.publishPort(module.getId(), publish, port, session.user);
         } finally {
-            try { fileWriter.close(); } catch (Exception ignore) {}
-            try { writer.close(); } catch (Exception ignore) {}
+            applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+        }
+        return "Port " + port + " of " + module.getName() + (publish ? " exposed" : " closed");
+    }
+
+    private String listContainers(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("name"));
+        List<ContainerUnit> containers = applicationService.listContainers(application.getName());
+        StringBuilder message = new StringBuilder();
+        message.append(containers.size()).append(" containers on ").append(application.getName());
+        containers.forEach(c -> message.append(System.lineSeparator()).append(c.getName()).append(" : ")
+                .append(c.getType()));
+        return message.toString();
+    }
+
+    private String listVolumes(ScriptSession session, ScriptCommand command) throws ServiceException {
+        List<Volume> volumes = volumeService.loadAllVolumes();
+        StringBuilder message = new StringBuilder();
+        message.append(volumes.size()).append(" volumes");
+        volumes.forEach(v -> message.append(System.lineSeparator()).append(v.getName()));
+        return message.toString();
+    }
+
+    private String createVolume(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String name = command.getOption("name");
+        CheckUtils.validateInputNotEmpty(name, "check.volume.name");
+        if (volumeService.findByName(name) != null) {
+            throw new CheckException("Volume " + name + " already exists");
         }
+        volumeService.createNewVolume(name);
+        return "Volume " + name + " created";
+    }
+
+    private String removeVolume(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String name = command.getOption("name");
+        CheckUtils.validateInputNotEmpty(name, "check.volume.name");
+        Volume volume = volumeService.findByName(name);
+        if (volume == null) {
+            throw new CheckException("Volume " + name + " does not exist");
+        }
+        volumeService.delete(volume.getId());
+        return "Volume " + name + " removed";
+    }
+
+    private String mountVolume(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, command.getOption("application-name"));
+        String containerName = command.getOption("container-name") != null ? command.getOption("container-name")
+                : application.getServer().getName();
+        checkContainer(application, containerName);
+
+        VolumeAssociationDTO volumeAssociation = new VolumeAssociationDTO();
+        volumeAssociation.setApplicationName(application.getName());
+        volumeAssociation.setContainerName(containerName);
+        volumeAssociation.setVolumeName(command.getOption("volume-name"));
+        volumeAssociation.setPath(command.getOption("path"));
+        volumeAssociation.setMode(command.isFlag("read-only") ? "ro" : "rw");
+        volumeAssociation.setDeferedRestart(command.isFlag("deferRestart"));
+        serverService.addVolume(application, volumeAssociation);
+
+        applicationEventPublisher.publishEvent(new ServerStartEvent(application.getServer()));
+        applicationEventPublisher.publishEvent(new ApplicationStartEvent(application));
+        return "Volume " + volumeAssociation.getVolumeName() + " mounted on " + containerName + " at "
+                + volumeAssociation.getPath();
+    }
+
+    private String unmountVolume(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        String volumeName = command.getOption("volume-name");
+        String containerName = command.getOption("container-name");
+        CheckUtils.validateInputNotEmpty(volumeName, "check.volume.name");
+        checkContainer(findApplication(session, null), containerName);
+
+        serverService.removeVolume(containerName, volumeName);
+        return "Volume " + volumeName + " unmounted from " + containerName;
+    }
+
+    private String listCommands(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, null);
+        String containerName = command.getOption("container-name");
+        checkContainer(application, containerName);
+
+        List<Command> commands = commandService.listCommandByContainer(application.getName(), containerName);
+        StringBuilder message = new StringBuilder();
+        message.append(commands.size()).append(" commands on ").append(containerName);
+        commands.forEach(c -> message.append(System.lineSeparator()).append(c.getName()).append(" : ")
+                .append(c.getArgumentNumber()).append(" arguments"));
+        return message.toString();
+    }
+
+    private String execCommand(ScriptSession session, ScriptCommand command)
+            throws ServiceException, CheckException {
+        Application application = findApplication(session, null);
+        String containerName = command.getOption("container-name");
+        String name = command.getOption("name");
+        CheckUtils.validateInputNotEmpty(name, "check.command.name");
+        checkContainer(application, containerName);
+
+        String arguments = command.getOption("arguments");
+        Command execution = new Command();
+        execution.setName(name);
+        execution.setArguments(arguments == null ? new ArrayList<>() : Arrays.asList(arguments.split(",")));
+        try {
+            applicationService.setStatus(application, Status.PENDING);
+            String output = commandService.execCommand(execution, containerName, application.getName());
+            return output == null ? "Command " + name + " run on " + containerName : output.trim();
+        } finally {
+            applicationService.setStatus(application, Status.START);
+        }
+    }
+
+    /**
+     * Only the containers of the application of the user are acted upon.
+     */
+    private void checkContainer(Application application, String containerName)
+            throws ServiceException, CheckException {
+        CheckUtils.validateInputNotEmpty(containerName, "check.container.name");
+        if (applicationService.listContainers(application.getName()).stream()
+                .noneMatch(c -> c.getName().equals(containerName))) {
+            throw new CheckException("No container " + containerName + " in " + application.getName());
+        }
+    }
+
+    /**
+     * The application given to the command, or the current one of the script.
+     */
+    private Application findApplication(ScriptSession session, String applicationName)
+            throws ServiceException, CheckException {
+        String name = applicationName != null ? applicationName : session.applicationName;
+        if (name == null) {
+            throw new CheckException("No application selected, please give its name or run use first");
+        }
+        Application application = applicationService.findByNameAndUser(session.user, name);
+        if (application == null) {
+            throw new CheckException("Application " + name + " does not exist");
+        }
+        return application;
     }
 
     @Override
@@ -135,4 +699,27 @@ public class ScriptingServiceImpl implements ScriptingService {
         scriptingDAO.delete(script);
     }
 
+    /**
+     * State kept between the commands of one script.
+     */
+    private static class ScriptSession {
+
+        private final User user;
+
+        private String applicationName;
+
+        private ScriptSession(User user) {
+            this.user = user;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ScriptCommandHandler {
+
+        /**
+         * @return the message written on the output, null for none
+         */
+        String run(ScriptSession session, ScriptCommand command) throws ServiceException, CheckException;
+    }
+
 }
@@ -16,6 +16,8 @@
 package fr.treeptik.cloudunit.service.impl;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -26,7 +28,6 @@ import fr.treeptik.cloudunit.utils.NamingUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -96,6 +97,9 @@ public class ServerServiceImpl implements ServerService {
 	
     @Inject
     private DockerClient dockerClient;
+
+	@Inject
+	private Executor asyncExecutor;
     
 	public ServerDAO getServerDAO() {
 		return this.serverDAO;
@@ -300,6 +304,27 @@ public class ServerServiceImpl implements ServerService {
 		return server;
 	}
 
+	@Override
+	@Transactional
+	public CompletableFuture<Server> startServerAsync(Server server) throws ServiceException {
+
+		logger.info("ServerService : Starting Server asynchronously " + server.getName());
+		try {
+			Application application = server.getApplication();
+			server.setStartDate(new Date());
+			applicationDAO.saveAndFlush(application);
+			server = this.update(server);
+		} catch (PersistenceException e) {
+			throw new ServiceException(server.toString(), e);
+		}
+		// the listeners are run on the async executor to free the docker threads
+		return dockerService.startServerAsync(server.getName(), server)
+				.thenApplyAsync(s -> {
+					applicationEventPublisher.publishEvent(new ServerStartEvent(s));
+					return s;
+				}, asyncExecutor);
+	}
+
 	@Override
 	@Transactional
 	public Server stopServer(Server server) throws ServiceException {
@@ -315,6 +340,20 @@ public class ServerServiceImpl implements ServerService {
 		return server;
 	}
 
+	@Override
+	public CompletableFuture<Server> stopServerAsync(Server server) throws ServiceException {
+		try {
+			dockerService.execCommand(server.getName(), RemoteExecAction.CLEAN_LOGS.getCommand());
+		} catch (DockerJSONException e) {
+			throw new ServiceException(server.toString(), e);
+		}
+		return dockerService.stopContainerAsync(server.getName())
+				.thenApplyAsync(v -> {
+					applicationEventPublisher.publishEvent(new ServerStopEvent(server));
+					return server;
+				}, asyncExecutor);
+	}
+
 	@Override
 	@Transactional
 	public Server restartServer(Server server) throws ServiceException {
@@ -350,7 +389,6 @@ public class ServerServiceImpl implements ServerService {
 		}
 	}
 
-	@CacheEvict(value = "env", allEntries = true)
 	@Transactional
 	public Server update(Server server, String jvmMemory, String options, boolean restorePreviousEnv)
 			throws ServiceException {
@@ -419,7 +457,6 @@ public class ServerServiceImpl implements ServerService {
 
 	@Override
 	@Transactional
-	@CacheEvict(value = "env", allEntries = true)
 	public void addVolume(Application application, VolumeAssociationDTO volumeAssociationDTO)
 			throws ServiceException, CheckException {
 		checkVolumeFormat(volumeAssociationDTO);
@@ -461,7 +498,6 @@ public class ServerServiceImpl implements ServerService {
 
 	@Override
 	@Transactional
-	@CacheEvict(value = "env", allEntries = true)
 	public void removeVolume(String containerName, String volumeName) throws ServiceException {
 		Server server = null;
 		try {
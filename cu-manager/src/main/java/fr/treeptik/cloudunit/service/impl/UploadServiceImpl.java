@@ -0,0 +1,367 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.dto.UploadSession;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ArtifactService;
+import fr.treeptik.cloudunit.service.UploadService;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
+
+@Service
+public class UploadServiceImpl implements UploadService {
+
+    private final Logger logger = LoggerFactory.getLogger(UploadServiceImpl.class);
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Inject
+    private ArtifactService artifactService;
+
+    @Inject
+    private TransferMetrics transferMetrics;
+
+    @Value("${uploads.part.size:8388608}")
+    private long partSize;
+
+    @Value("${uploads.max.size:1073741824}")
+    private long maxSize;
+
+    @Value("${uploads.session.timeout:3600000}")
+    private long sessionTimeout;
+
+    /**
+     * Under the artifacts store, so that a committed archive is moved without copy.
+     */
+    private Path directory;
+
+    private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong opened = new AtomicLong();
+
+    private final AtomicLong resumed = new AtomicLong();
+
+    private final AtomicLong partsReceived = new AtomicLong();
+
+    private final AtomicLong partsRejected = new AtomicLong();
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private final AtomicLong committed = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = artifactService.getDirectory().resolve("uploads");
+        Files.createDirectories(directory);
+        // the sessions are not kept across restarts
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PART_SUFFIX)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public UploadSession open(User user, String applicationName, UploadSession request)
+            throws ServiceException, CheckException {
+        if (request.getFileName() == null || request.getFileName().trim().isEmpty()) {
+            throw new CheckException("The file name of the archive is required");
+        }
+        if (request.getSha256() == null || !SHA256.matcher(request.getSha256()).matches()) {
+            throw new CheckException("Invalid SHA-256 : " + request.getSha256());
+        }
+        if (request.getSize() <= 0 || request.getSize() > maxSize) {
+            throw new CheckException("The archive size must be between 1 and " + maxSize + " bytes");
+        }
+        String sha256 = request.getSha256().toLowerCase();
+
+        synchronized (uploads) {
+            for (Upload upload : uploads.values()) {
+                if (upload.owner.equals(user.getLogin()) && upload.applicationName.equals(applicationName)
+                        && upload.sha256.equals(sha256) && upload.size == request.getSize()) {
+                    upload.lastAccess = System.currentTimeMillis();
+                    resumed.incrementAndGet();
+                    logger.info("Upload " + upload.id + " resumed : " + upload.missingParts().size() + " parts missing");
+                    return upload.toSession();
+                }
+            }
+            Upload upload = new Upload(user.getLogin(), applicationName, request.getFileName(), request.getSize(),
+                    sha256, partSize);
+            try (RandomAccessFile file = new RandomAccessFile(upload.file.toFile(), "rw")) {
+                file.setLength(upload.size);
+            } catch (IOException e) {
+                throw new ServiceException("Cannot open the upload of " + request.getFileName(), e);
+            }
+            uploads.put(upload.id, upload);
+            opened.incrementAndGet();
+            logger.info("Upload " + upload.id + " opened for " + upload.fileName + " (" + upload.size + " bytes in "
+                    + upload.partCount + " parts)");
+            return upload.toSession();
+        }
+    }
+
+    @Override
+    public UploadSession find(User user, String applicationName, String id) throws CheckException {
+        return get(user, applicationName, id).toSession();
+    }
+
+    @Override
+    public void writePart(User user, String applicationName, String id, int index, String sha256,
+            InputStream content) throws ServiceException, CheckException {
+        Upload upload = get(user, applicationName, id);
+        if (index < 0 || index >= upload.partCount) {
+            throw new CheckException("Part " + index + " out of range, the upload has " + upload.partCount + " parts");
+        }
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) {
+            throw new CheckException("Invalid SHA-256 for part " + index + " : " + sha256);
+        }
+        long position = index * upload.partSize;
+        long expected = Math.min(upload.partSize, upload.size - position);
+
+        // the part is checked in a scratch file first, a rejected resend leaves the received bytes untouched
+        long written = 0;
+        Path scratch = null;
+        try {
+            scratch = Files.createTempFile(directory, upload.id + "-" + index + "-", PART_SUFFIX);
+            try (FileChannel channel = FileChannel.open(scratch, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                InputStream part = new DigestInputStream(content, digest);
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = part.read(buffer)) != -1) {
+                    if (written + read > expected) {
+                        partsRejected.incrementAndGet();
+                        throw new CheckException("Part " + index + " is longer than " + expected + " bytes");
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    written += read;
+                }
+                if (written != expected) {
+                    partsRejected.incrementAndGet();
+                    throw new CheckException("Part " + index + " has " + written + " bytes, " + expected
+                            + " expected");
+                }
+                if (!sha256.equalsIgnoreCase(Hex.encodeHexString(digest.digest()))) {
+                    partsRejected.incrementAndGet();
+                    throw new CheckException("Checksum mismatch on part " + index);
+                }
+
+                try (FileChannel target = FileChannel.open(upload.file, StandardOpenOption.WRITE)) {
+                    long copied = 0;
+                    while (copied < written) {
+                        copied += channel.transferTo(copied, written - copied, target.position(position + copied));
+                    }
+                }
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ServiceException("Cannot write the part " + index + " of the upload " + id, e);
+        } finally {
+            if (scratch != null) {
+                try {
+                    Files.deleteIfExists(scratch);
+                } catch (IOException e) {
+                    logger.warn("Cannot delete " + scratch, e);
+                }
+            }
+        }
+
+        synchronized (upload) {
+            upload.received.set(index);
+        }
+        upload.lastAccess = System.currentTimeMillis();
+        partsReceived.incrementAndGet();
+        bytesReceived.addAndGet(written);
+    }
+
+    @Override
+    public Artifact commit(User user, String applicationName, String id) throws ServiceException, CheckException {
+        Upload upload = get(user, applicationName, id);
+        List<Integer> missingParts = upload.missingParts();
+        if (!missingParts.isEmpty()) {
+            throw new CheckException("The upload " + id + " misses the parts " + missingParts);
+        }
+        if (!uploads.remove(id, upload)) {
+            throw new CheckException("The upload " + id + " is already committed");
+        }
+        Artifact artifact = artifactService.store(upload.file, upload.sha256);
+        committed.incrementAndGet();
+        transferMetrics.record("upload", applicationName, upload.fileName, upload.size,
+                System.currentTimeMillis() - upload.created);
+        return artifact;
+    }
+
+    @Override
+    public void abort(User user, String applicationName, String id) throws CheckException {
+        Upload upload = get(user, applicationName, id);
+        if (uploads.remove(id, upload)) {
+            delete(upload);
+            logger.info("Upload " + id + " aborted");
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${uploads.expiry.delay:60000}")
+    public void expire() {
+        long limit = System.currentTimeMillis() - sessionTimeout;
+        Iterator<Upload> iterator = uploads.values().iterator();
+        while (iterator.hasNext()) {
+            Upload upload = iterator.next();
+            if (upload.lastAccess < limit) {
+                iterator.remove();
+                delete(upload);
+                expired.incrementAndGet();
+                logger.info("Upload " + upload.id + " of " + upload.fileName + " expired");
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pending", uploads.size());
+        statistics.put("partSize", partSize);
+        statistics.put("opened", opened.get());
+        statistics.put("resumed", resumed.get());
+        statistics.put("partsReceived", partsReceived.get());
+        statistics.put("partsRejected", partsRejected.get());
+        statistics.put("bytesReceived", bytesReceived.get());
+        statistics.put("committed", committed.get());
+        statistics.put("expired", expired.get());
+        return statistics;
+    }
+
+    private Upload get(User user, String applicationName, String id) throws CheckException {
+        Upload upload = id == null ? null : uploads.get(id);
+        if (upload == null || !upload.owner.equals(user.getLogin()) || !upload.applicationName.equals(applicationName)) {
+            throw new CheckException("Unknown upload " + id);
+        }
+        return upload;
+    }
+
+    private void delete(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete the upload " + upload.id, e);
+        }
+    }
+
+    private class Upload {
+
+        private final String id = UUID.randomUUID().toString();
+
+        private final String owner;
+
+        private final String applicationName;
+
+        private final String fileName;
+
+        private final long size;
+
+        private final String sha256;
+
+        private final long partSize;
+
+        private final int partCount;
+
+        private final BitSet received;
+
+        private final Path file;
+
+        private final long created = System.currentTimeMillis();
+
+        private volatile long lastAccess = created;
+
+        private Upload(String owner, String applicationName, String fileName, long size, String sha256,
+                long partSize) {
+            this.owner = owner;
+            this.applicationName = applicationName;
+            this.fileName = fileName;
+            this.size = size;
+            this.sha256 = sha256;
+            this.partSize = partSize;
+            this.partCount = (int) ((size + partSize - 1) / partSize);
+            this.received = new BitSet(partCount);
+            this.file = directory.resolve(id + PART_SUFFIX);
+        }
+
+        private synchronized List<Integer> missingParts() {
+            List<Integer> missingParts = new ArrayList<>();
+            for (int i = received.nextClearBit(0); i < partCount; i = received.nextClearBit(i + 1)) {
+                missingParts.add(i);
+            }
+            return missingParts;
+        }
+
+        private UploadSession toSession() {
+            UploadSession session = new UploadSession();
+            session.setId(id);
+            session.setFileName(fileName);
+            session.setSize(size);
+            session.setSha256(sha256);
+            session.setPartSize(partSize);
+            session.setPartCount(partCount);
+            session.setMissingParts(missingParts());
+            return session;
+        }
+    }
+
+}
@@ -43,6 +43,7 @@ import fr.treeptik.cloudunit.model.User;
 import fr.treeptik.cloudunit.service.ApplicationService;
 import fr.treeptik.cloudunit.service.UserService;
 import fr.treeptik.cloudunit.utils.CustomPasswordEncoder;
+import fr.treeptik.cloudunit.utils.ResolutionContext;
 import fr.treeptik.cloudunit.utils.ShellUtils;
 
 @Service
@@ -67,6 +68,9 @@ public class UserServiceImpl
     @Inject
     private ApplicationService applicationService;
 
+    @Inject
+    private ResolutionContext resolutionContext;
+
     public UserDAO getUserDAO() {
         return this.userDAO;
     }
@@ -155,6 +159,7 @@ public class UserServiceImpl
             user = userDAO.findOne(user.getId());
             user.setStatus(User.STATUS_ACTIF);
             user = userDAO.saveAndFlush(user);
+            resolutionContext.invalidateUser(user.getLogin());
 
         } catch (PersistenceException e) {
             logger.error("UserService Error : Activate User Account" + e);
@@ -176,6 +181,7 @@ public class UserServiceImpl
                 + user.getLastName());
         try {
             userDAO.saveAndFlush(user);
+            resolutionContext.invalidateUser(user.getLogin());
         } catch (PersistenceException e) {
             logger.error("UserService Error : update User" + e);
             throw new ServiceException(e.getLocalizedMessage(), e);
@@ -205,6 +211,7 @@ public class UserServiceImpl
             this.deleteAllUsersMessages(user);
 
             userDAO.delete(user);
+            resolutionContext.invalidateUser(user.getLogin());
 
             logger.info("UserService : User successfully removed ");
 
@@ -285,6 +292,7 @@ public class UserServiceImpl
                     + newPassword);
 
             userDAO.saveAndFlush(user);
+            resolutionContext.invalidateUser(userLogin);
         } catch (PersistenceException e) {
             logger.error("Error UserService : error changePassword : " + e);
             throw new ServiceException(e.getLocalizedMessage(), e);
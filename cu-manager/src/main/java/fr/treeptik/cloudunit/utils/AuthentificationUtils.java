@@ -40,9 +40,12 @@ public class AuthentificationUtils {
 	@Inject
 	private MessageSource messageSource;
 
+	@Inject
+	private ResolutionContext resolutionContext;
+
 	public User getAuthentificatedUser() throws ServiceException {
 		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-		return userService.findByLogin(auth.getName());
+		return resolutionContext.getUser(auth.getName(), () -> userService.findByLogin(auth.getName()));
 	}
 
 	public void allowUser(User user) throws ServiceException {
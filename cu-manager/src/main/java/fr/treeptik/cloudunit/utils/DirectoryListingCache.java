@@ -0,0 +1,138 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived cache of the directory listings of the containers, keyed by container and directory.
+ * The writes made through the manager invalidate the directory, its parent and its subtree ;
+ * changes made inside the container are only seen once the entry has expired.
+ */
+public class DirectoryListingCache<T> {
+
+    private final long ttl;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param ttl milliseconds, 0 disables the cache
+     * @param maxEntries
+     */
+    public DirectoryListingCache(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    public T get(String container, String directory) {
+        Entry<T> entry = entries.get(key(container, directory));
+        if (entry == null || entry.expiration < System.currentTimeMillis()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.listing;
+    }
+
+    public void put(String container, String directory, T listing) {
+        if (ttl <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            purge();
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key(container, directory), new Entry<>(listing, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Forgets the listings which may have changed after a write on the path.
+     */
+    public void invalidate(String container, String path) {
+        String directory = directory(path);
+        String prefix = key(container, directory);
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+        if (directory.length() > 1) {
+            String trimmed = directory.substring(0, directory.length() - 1);
+            entries.remove(key(container, trimmed.substring(0, trimmed.lastIndexOf('/') + 1)));
+        }
+    }
+
+    public void invalidateAll(String container) {
+        String prefix = container + ":";
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the path ending with a single slash
+     */
+    public static String directory(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        String directory = path.replaceAll("/+", "/");
+        return directory.endsWith("/") ? directory : directory + "/";
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiration < now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String key(String container, String directory) {
+        return container + ":" + directory(directory);
+    }
+
+    private static class Entry<T> {
+
+        private final T listing;
+
+        private final long expiration;
+
+        private Entry(T listing, long expiration) {
+            this.listing = listing;
+            this.expiration = expiration;
+        }
+    }
+}
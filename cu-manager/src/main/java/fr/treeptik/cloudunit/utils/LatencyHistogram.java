@@ -0,0 +1,94 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of durations in fixed buckets, cheap enough to be recorded on every call.
+ * Percentiles are given as the upper bound of the bucket containing them.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000 };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalMillis = new AtomicLong();
+
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        maxMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return upper bound in milliseconds of the bucket holding the quantile, the max for the last bucket
+     */
+    public long percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], maxMillis.get());
+            }
+        }
+        return maxMillis.get();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        long calls = count.get();
+        statistics.put("count", calls);
+        statistics.put("averageMillis", calls == 0 ? 0 : totalMillis.get() / calls);
+        statistics.put("maxMillis", maxMillis.get());
+        statistics.put("p50", percentile(0.50));
+        statistics.put("p95", percentile(0.95));
+        statistics.put("p99", percentile(0.99));
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS.length; i++) {
+            distribution.put("<=" + BOUNDS[i], buckets.get(i));
+        }
+        distribution.put(">" + BOUNDS[BOUNDS.length - 1], buckets.get(BOUNDS.length));
+        statistics.put("buckets", distribution);
+        return statistics;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Operations to run on the containers of an application.
+ * A step only runs once the steps it depends on are done, whatever their outcome,
+ * steps without dependencies between them run at the same time.
+ * Dependencies must be declared before the steps using them, so a plan cannot have cycles.
+ */
+public class OrchestrationPlan {
+
+    @FunctionalInterface
+    public interface Action {
+        CompletableFuture<?> run() throws Exception;
+    }
+
+    public static class Step {
+
+        private final String containerName;
+
+        private final String operation;
+
+        private final Action action;
+
+        private final List<String> dependencies;
+
+        private Step(String containerName, String operation, Action action, List<String> dependencies) {
+            this.containerName = containerName;
+            this.operation = operation;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+
+        public String getContainerName() {
+            return containerName;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    public OrchestrationPlan step(String containerName, String operation, Action action, String... dependencies) {
+        return step(containerName, operation, action, Arrays.asList(dependencies));
+    }
+
+    public OrchestrationPlan step(String containerName, String operation, Action action,
+            Collection<String> dependencies) {
+        if (steps.containsKey(containerName)) {
+            throw new IllegalArgumentException("Step already declared for " + containerName);
+        }
+        for (String dependency : dependencies) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Unknown dependency " + dependency + " for " + containerName);
+            }
+        }
+        steps.put(containerName, new Step(containerName, operation, action, new ArrayList<>(dependencies)));
+        return this;
+    }
+
+    public Collection<Step> getSteps() {
+        return Collections.unmodifiableCollection(steps.values());
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+}
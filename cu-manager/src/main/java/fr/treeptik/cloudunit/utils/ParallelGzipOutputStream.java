@@ -0,0 +1,163 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compressing fixed size blocks on several threads.
+ * Each block is written as a gzip member of its own, concatenated members are a valid gzip file.
+ * At most maxPending blocks are held in memory, the writer waits for the oldest one beyond.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    private final ExecutorService executor;
+
+    private final int blockSize;
+
+    private final int level;
+
+    private final int maxPending;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+
+    private int count;
+
+    private boolean written;
+
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize, int level,
+                                    int maxPending) {
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxPending = Math.max(1, maxPending);
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Single threaded gzip with the given compression level.
+     */
+    public static OutputStream gzip(OutputStream out, int bufferSize, int level) throws IOException {
+        return new GZIPOutputStream(out, bufferSize) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submit();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, length);
+            count += length;
+            off += length;
+            len -= length;
+            if (count == blockSize) {
+                submit();
+            }
+        }
+    }
+
+    /**
+     * Ends the current member : flushing often degrades the compression.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submit();
+        }
+        while (!pending.isEmpty()) {
+            writeOldest();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0 || !written) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            out.close();
+        }
+    }
+
+    private void submit() throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        pending.addLast(executor.submit(() -> compress(data, length)));
+        written = true;
+        block = new byte[blockSize];
+        count = 0;
+        while (pending.size() >= maxPending) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compression interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (OutputStream gzip = gzip(compressed, 8192, level)) {
+            gzip.write(data, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+}
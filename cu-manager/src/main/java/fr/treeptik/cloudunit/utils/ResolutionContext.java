@@ -0,0 +1,152 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.User;
+
+/**
+ * Shares the user and the applications loaded while serving a request between the aspects, the controllers
+ * and the services. The user is read again by every request : a change of its rights or password made on
+ * any manager applies to the next request. Outside of a request, nothing is cached.
+ */
+@Component
+public class ResolutionContext {
+
+    private static final String USER_ATTRIBUTE = ResolutionContext.class.getName() + ".user";
+
+    private static final String APPLICATIONS_ATTRIBUTE = ResolutionContext.class.getName() + ".applications";
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws ServiceException;
+    }
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong userQueries = new AtomicLong();
+
+    private final AtomicLong userRequestHits = new AtomicLong();
+
+    private final AtomicLong applicationQueries = new AtomicLong();
+
+    private final AtomicLong applicationHits = new AtomicLong();
+
+    public User getUser(String login, Loader<User> loader) throws ServiceException {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return loader.load();
+        }
+        User cached = (User) attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null && cached.getLogin().equals(login)) {
+            userRequestHits.incrementAndGet();
+            return cached;
+        }
+        if (cached == null) {
+            requests.incrementAndGet();
+        }
+        userQueries.incrementAndGet();
+        User user = loader.load();
+        if (user != null) {
+            attributes.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    /**
+     * An application which does not exist is not remembered, so that it can be created in the request.
+     */
+    public Application getApplication(User user, String name, Loader<Application> loader) throws ServiceException {
+        Map<String, Application> applications = applications();
+        if (applications == null) {
+            return loader.load();
+        }
+        String key = user.getId() + ":" + name;
+        Application application = applications.get(key);
+        if (application != null) {
+            applicationHits.incrementAndGet();
+            return application;
+        }
+        applicationQueries.incrementAndGet();
+        application = loader.load();
+        if (application != null) {
+            applications.put(key, application);
+        }
+        return application;
+    }
+
+    /**
+     * The user updated by the request is read again by the rest of it.
+     */
+    public void invalidateUser(String login) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        User cached = (User) attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null && cached.getLogin().equals(login)) {
+            attributes.removeAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Called once something may have been written : the applications are read again.
+     */
+    public void invalidateApplications() {
+        Map<String, Application> applications = applications();
+        if (applications != null) {
+            applications.clear();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("userQueries", userQueries.get());
+        statistics.put("userRequestHits", userRequestHits.get());
+        statistics.put("applicationQueries", applicationQueries.get());
+        statistics.put("applicationHits", applicationHits.get());
+        long saved = userRequestHits.get() + applicationHits.get();
+        statistics.put("requests", requests.get());
+        statistics.put("queriesSaved", saved);
+        statistics.put("queriesSavedPerRequest", requests.get() == 0 ? 0 : (double) saved / requests.get());
+        return statistics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Application> applications() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, Application> applications = (Map<String, Application>) attributes
+                .getAttribute(APPLICATIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (applications == null) {
+            applications = new HashMap<>();
+            attributes.setAttribute(APPLICATIONS_ATTRIBUTE, applications, RequestAttributes.SCOPE_REQUEST);
+        }
+        return applications;
+    }
+}
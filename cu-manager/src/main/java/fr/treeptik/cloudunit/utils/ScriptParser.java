@@ -0,0 +1,115 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import fr.treeptik.cloudunit.dto.ScriptCommand;
+import fr.treeptik.cloudunit.exception.CheckException;
+
+/**
+ * Parses the scripts written with the syntax of the CLI. The whole script is checked before
+ * anything runs, so a typo on the last line does not leave the first commands applied alone.
+ * Empty lines and lines starting with # or // are ignored. Values may be quoted with ' or ".
+ */
+public class ScriptParser {
+
+    private final Set<String> knownCommands;
+
+    public ScriptParser(Set<String> knownCommands) {
+        this.knownCommands = knownCommands;
+    }
+
+    public List<ScriptCommand> parse(String scriptContent) throws CheckException {
+        List<ScriptCommand> commands = new ArrayList<>();
+        if (scriptContent == null) {
+            return commands;
+        }
+        String[] lines = scriptContent.split("\\r?\\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("//")) {
+                continue;
+            }
+            commands.add(parseLine(i + 1, line));
+        }
+        return commands;
+    }
+
+    private ScriptCommand parseLine(int lineNumber, String line) throws CheckException {
+        List<String> tokens = tokenize(lineNumber, line);
+        String name = tokens.get(0);
+        if (!knownCommands.contains(name)) {
+            throw new CheckException("Syntax error line " + lineNumber + " : command " + name + " not found");
+        }
+        ScriptCommand command = new ScriptCommand(lineNumber, name);
+        for (int i = 1; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.startsWith("--") && token.length() > 2) {
+                String key = token.substring(2);
+                String value = "true";
+                if (i + 1 < tokens.size() && !tokens.get(i + 1).startsWith("--")) {
+                    value = tokens.get(++i);
+                }
+                if (command.getOptions().put(key, value) != null) {
+                    throw new CheckException("Syntax error line " + lineNumber + " : option --" + key
+                            + " is given twice");
+                }
+            } else {
+                command.getArguments().add(token);
+            }
+        }
+        return command;
+    }
+
+    private List<String> tokenize(int lineNumber, String line) throws CheckException {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        char quote = 0;
+        boolean inToken = false;
+        for (char c : line.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quote != 0) {
+            throw new CheckException("Syntax error line " + lineNumber + " : unclosed quote");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+}
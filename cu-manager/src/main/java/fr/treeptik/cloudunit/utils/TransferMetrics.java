@@ -0,0 +1,100 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throughput of the files transferred between the manager and the containers.
+ * Keeps the totals and the last transfers.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final int HISTORY_SIZE = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(TransferMetrics.class);
+
+    private final AtomicLong transfers = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong millis = new AtomicLong();
+
+    private final Deque<Map<String, Object>> history = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger historySize = new AtomicInteger();
+
+    /**
+     * @param operation download, upload, export...
+     * @param container
+     * @param path
+     * @param transferred bytes
+     * @param duration milliseconds
+     */
+    public void record(String operation, String container, String path, long transferred, long duration) {
+        transfers.incrementAndGet();
+        bytes.addAndGet(transferred);
+        millis.addAndGet(duration);
+        double throughput = throughput(transferred, duration);
+        logger.info(String.format("%s %s:%s %d bytes in %d ms (%.2f MB/s)", operation, container, path,
+                transferred, duration, throughput));
+
+        Map<String, Object> transfer = new LinkedHashMap<>();
+        transfer.put("date", new Date());
+        transfer.put("operation", operation);
+        transfer.put("container", container);
+        transfer.put("path", path);
+        transfer.put("bytes", transferred);
+        transfer.put("duration", duration);
+        transfer.put("throughput", throughput);
+        history.addFirst(transfer);
+        if (historySize.incrementAndGet() > HISTORY_SIZE) {
+            history.pollLast();
+            historySize.decrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("transfers", transfers.get());
+        statistics.put("bytes", bytes.get());
+        statistics.put("duration", millis.get());
+        statistics.put("throughput", throughput(bytes.get(), millis.get()));
+        List<Map<String, Object>> last = new ArrayList<>(history);
+        statistics.put("last", last);
+        return statistics;
+    }
+
+    /**
+     * @return MB/s
+     */
+    private double throughput(long transferred, long duration) {
+        return duration == 0 ? 0 : (transferred / 1048576d) / (duration / 1000d);
+    }
+}
@@ -137,6 +137,11 @@ public class DatabaseConfigurationTest {
         Properties jpaProperties = new Properties();
         jpaProperties.put("hibernate.generate_statistics", true);
         jpaProperties.put("hibernate.show_sql", Boolean.parseBoolean(databaseShowSQL));
+        jpaProperties.put("hibernate.cache.use_second_level_cache", true);
+        jpaProperties.put("hibernate.cache.use_query_cache", true);
+        jpaProperties.put("hibernate.cache.region.factory_class",
+            "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        jpaProperties.put("net.sf.ehcache.configurationResourceName", "/ehcache-hibernate.xml");
         lcemfb.setJpaProperties(jpaProperties);
         lcemfb.setPackagesToScan("fr.treeptik.cloudunit.model");
         lcemfb.afterPropertiesSet();
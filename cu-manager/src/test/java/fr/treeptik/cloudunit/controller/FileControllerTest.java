@@ -0,0 +1,104 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.controller;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.dto.ContainerFile;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.FileService;
+import fr.treeptik.cloudunit.utils.AuthentificationUtils;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
+
+public class FileControllerTest {
+
+    private FileController newFileController(String content) {
+        FileService fileService = (FileService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { FileService.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("openFileFromContainer")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                    return new ContainerFile("app.log", bytes.length, new Date(), new ByteArrayInputStream(bytes));
+                });
+        ApplicationService applicationService = (ApplicationService) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] { ApplicationService.class }, (proxy, method, args) -> null);
+        AuthentificationUtils authentificationUtils = new AuthentificationUtils() {
+            @Override
+            public User getAuthentificatedUser() {
+                return new User();
+            }
+
+            @Override
+            public void canStartNewAction(User user, Application application, Locale locale) {
+            }
+        };
+
+        FileController fileController = new FileController();
+        ReflectionTestUtils.setField(fileController, "fileService", fileService);
+        ReflectionTestUtils.setField(fileController, "applicationService", applicationService);
+        ReflectionTestUtils.setField(fileController, "authentificationUtils", authentificationUtils);
+        ReflectionTestUtils.setField(fileController, "transferMetrics", new TransferMetrics());
+        return fileController;
+    }
+
+    private MockHttpServletResponse download(String content, String range) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, range);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        newFileController(content).downloadFile("app", "c1", "opt/logs", "app.log", request, response);
+        return response;
+    }
+
+    @Test
+    public void rangeIsSent() throws Exception {
+        MockHttpServletResponse response = download("0123456789", "bytes=4-");
+
+        Assert.assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        Assert.assertEquals("bytes 4-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assert.assertEquals("456789", response.getContentAsString());
+    }
+
+    @Test
+    public void rangePastTheEndIsNotSatisfiable() throws Exception {
+        MockHttpServletResponse response = download("0123456789", "bytes=5000-");
+
+        Assert.assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        Assert.assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void rangeOfAnEmptyFileIsNotSatisfiable() throws Exception {
+        MockHttpServletResponse response = download("", "bytes=0-");
+
+        Assert.assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        Assert.assertEquals("bytes */0", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+}
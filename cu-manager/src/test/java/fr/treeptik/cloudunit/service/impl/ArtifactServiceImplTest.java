@@ -0,0 +1,111 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.exception.CheckException;
+
+public class ArtifactServiceImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArtifactServiceImpl artifactService;
+
+    @Before
+    public void setUp() throws IOException {
+        artifactService = new ArtifactServiceImpl();
+        ReflectionTestUtils.setField(artifactService, "path", folder.getRoot().getAbsolutePath());
+        ReflectionTestUtils.setField(artifactService, "maxSize", 10L);
+        artifactService.init();
+    }
+
+    @Test
+    public void storedArtifactIsFoundByHash() throws Exception {
+        Artifact artifact = artifactService.store(stream("hello"), null);
+
+        Assert.assertEquals(DigestUtils.sha256Hex("hello"), artifact.getSha256());
+        Assert.assertSame(artifact, artifactService.find(artifact.getSha256()));
+        Assert.assertSame(artifact, artifactService.store(stream("hello"), artifact.getSha256()));
+        try (InputStream in = artifactService.open(artifact)) {
+            Assert.assertEquals("hello", IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        Assert.assertNull(artifactService.find(DigestUtils.sha256Hex("unknown")));
+    }
+
+    @Test(expected = CheckException.class)
+    public void checksumMismatchIsRejected() throws Exception {
+        artifactService.store(stream("hello"), DigestUtils.sha256Hex("other"));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        Artifact first = artifactService.store(stream("first"), null);
+        Artifact second = artifactService.store(stream("12345"), null);
+        artifactService.find(first.getSha256());
+
+        artifactService.store(stream("third"), null);
+
+        Assert.assertNotNull(artifactService.find(first.getSha256()));
+        Assert.assertNull(artifactService.find(second.getSha256()));
+        Assert.assertEquals(1L, artifactService.getStatistics().get("evictions"));
+    }
+
+    @Test
+    public void fileHashedWhileWrittenIsMovedIntoTheStore() throws Exception {
+        Path file = Files.createTempFile(artifactService.getDirectory(), "upload", ".part");
+        Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+
+        Artifact artifact = artifactService.register(file, DigestUtils.sha256Hex("hello"));
+
+        Assert.assertFalse(Files.exists(file));
+        Assert.assertSame(artifact, artifactService.find(DigestUtils.sha256Hex("hello")));
+        Assert.assertEquals(5, artifact.getSize());
+    }
+
+    @Test
+    public void artifactsAreReloaded() throws Exception {
+        Artifact artifact = artifactService.store(stream("hello"), null);
+
+        ArtifactServiceImpl reloaded = new ArtifactServiceImpl();
+        ReflectionTestUtils.setField(reloaded, "path", folder.getRoot().getAbsolutePath());
+        ReflectionTestUtils.setField(reloaded, "maxSize", 10L);
+        reloaded.init();
+
+        Assert.assertEquals(5, reloaded.find(artifact.getSha256()).getSize());
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
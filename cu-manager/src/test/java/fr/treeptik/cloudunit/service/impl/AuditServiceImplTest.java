@@ -0,0 +1,165 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.dto.MessageSummary;
+import fr.treeptik.cloudunit.model.Message;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.MessageService;
+
+public class AuditServiceImplTest {
+
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Message> single = Collections.synchronizedList(new ArrayList<>());
+
+    private CountDownLatch writing = new CountDownLatch(0);
+
+    private CountDownLatch taken = new CountDownLatch(0);
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(MessageService.CACHE);
+
+    private final MessageService messageService = new MessageService() {
+        @Override
+        public Message create(Message message) {
+            single.add(message);
+            return message;
+        }
+
+        @Override
+        public void create(List<Message> messages) {
+            taken.countDown();
+            try {
+                writing.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(messages.size());
+        }
+
+        @Override
+        public void delete(Message message) {
+        }
+
+        @Override
+        public List<Message> listByUser(User user, int index) {
+            return null;
+        }
+
+        @Override
+        public List<Message> listByUserNoLimitRows(User user) {
+            return null;
+        }
+
+        @Override
+        public List<Message> listByApp(User user, String applicationName, int index) {
+            return null;
+        }
+
+        @Override
+        public List<MessageSummary> feed(User user, String applicationName, Integer before, int limit) {
+            return null;
+        }
+    };
+
+    private AuditServiceImpl newAuditService(int capacity, AuditServiceImpl.OverflowPolicy policy) {
+        AuditServiceImpl auditService = new AuditServiceImpl();
+        ReflectionTestUtils.setField(auditService, "messageService", messageService);
+        ReflectionTestUtils.setField(auditService, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(auditService, "capacity", capacity);
+        ReflectionTestUtils.setField(auditService, "batchSize", 10);
+        ReflectionTestUtils.setField(auditService, "flushInterval", 50L);
+        ReflectionTestUtils.setField(auditService, "overflowPolicy", policy);
+        ReflectionTestUtils.setField(auditService, "overflowTimeout", 10L);
+        auditService.init();
+        return auditService;
+    }
+
+    @Test
+    public void messagesAreWrittenByBatchesAndFlushedAtShutdown() throws Exception {
+        writing = new CountDownLatch(1);
+        AuditServiceImpl auditService = newAuditService(100, AuditServiceImpl.OverflowPolicy.SYNC);
+        for (int i = 0; i < 25; i++) {
+            auditService.publish(new Message());
+        }
+        writing.countDown();
+        auditService.destroy();
+
+        Assert.assertEquals(25, batches.stream().mapToInt(Integer::intValue).sum());
+        Assert.assertTrue(batches.stream().allMatch(size -> size <= 10));
+        Assert.assertEquals(25L, auditService.getStatistics().get("written"));
+        Assert.assertTrue(single.isEmpty());
+    }
+
+    @Test
+    public void overflowPolicies() throws Exception {
+        writing = new CountDownLatch(1);
+        AuditServiceImpl sync = newAuditService(1, AuditServiceImpl.OverflowPolicy.SYNC);
+        // the writer is blocked on the first message, the second one fills the queue
+        taken = new CountDownLatch(1);
+        sync.publish(new Message());
+        Assert.assertTrue(taken.await(5, TimeUnit.SECONDS));
+        sync.publish(new Message());
+        sync.publish(new Message());
+        Assert.assertEquals(1, single.size());
+
+        AuditServiceImpl drop = newAuditService(1, AuditServiceImpl.OverflowPolicy.DROP);
+        taken = new CountDownLatch(1);
+        drop.publish(new Message());
+        Assert.assertTrue(taken.await(5, TimeUnit.SECONDS));
+        drop.publish(new Message());
+        drop.publish(new Message());
+        Assert.assertEquals(1L, drop.getStatistics().get("dropped"));
+
+        writing.countDown();
+        sync.destroy();
+        drop.destroy();
+    }
+
+    @Test
+    public void listsOfTheAuthorAreEvictedOnceWritten() throws Exception {
+        User author = new User();
+        author.setLogin("johndoe");
+        Message message = new Message();
+        message.setAuthor(author);
+        message.setApplicationName("myapp");
+        Cache cache = cacheManager.getCache(MessageService.CACHE);
+        cache.put("johndoe", Collections.emptyList());
+        cache.put("johndoe:myapp", Collections.emptyList());
+        cache.put("janedoe", Collections.emptyList());
+
+        AuditServiceImpl auditService = newAuditService(100, AuditServiceImpl.OverflowPolicy.SYNC);
+        auditService.publish(message);
+        auditService.destroy();
+
+        Assert.assertNull(cache.get("johndoe"));
+        Assert.assertNull(cache.get("johndoe:myapp"));
+        Assert.assertNotNull(cache.get("janedoe"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ContainerEnvCacheServiceImplTest {
+
+    private ContainerEnvCacheServiceImpl containerEnvCacheService;
+
+    private ExecutorService executor;
+
+    private final AtomicInteger inspections = new AtomicInteger();
+
+    private final Supplier<List<String>> loader = () -> {
+        inspections.incrementAndGet();
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Arrays.asList("CU_LOGS=/opt/cloudunit/logs", "CU_USER=admin");
+    };
+
+    @Before
+    public void setUp() {
+        // no redis listens there : the cache must keep working with the local tier only
+        JedisConnectionFactory connectionFactory = new JedisConnectionFactory();
+        connectionFactory.setHostName("localhost");
+        connectionFactory.setPort(1);
+        connectionFactory.afterPropertiesSet();
+        containerEnvCacheService = new ContainerEnvCacheServiceImpl();
+        ReflectionTestUtils.setField(containerEnvCacheService, "redisConnectionFactory", connectionFactory);
+        ReflectionTestUtils.setField(containerEnvCacheService, "redisMessageListenerContainer",
+                new RedisMessageListenerContainer());
+        ReflectionTestUtils.setField(containerEnvCacheService, "localTtl", 60000L);
+        ReflectionTestUtils.setField(containerEnvCacheService, "redisTtl", 1800L);
+        ReflectionTestUtils.setField(containerEnvCacheService, "localMax", 1000);
+        containerEnvCacheService.init();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentMissesInspectTheContainerOnce() throws Exception {
+        Future<?>[] futures = new Future<?>[8];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> containerEnvCacheService.getEnv("dev-johndoe-app-tomcat-8", loader));
+        }
+        for (Future<?> future : futures) {
+            Assert.assertEquals(2, ((List<?>) future.get()).size());
+        }
+        Assert.assertEquals(1, inspections.get());
+
+        containerEnvCacheService.getEnv("dev-johndoe-app-tomcat-8", loader);
+        Assert.assertEquals(1, inspections.get());
+        Assert.assertEquals(1L, containerEnvCacheService.getStatistics().get("localHits"));
+    }
+
+    @Test
+    public void invalidationOnlyConcernsTheContainer() {
+        containerEnvCacheService.getEnv("dev-johndoe-app-tomcat-8", loader);
+        containerEnvCacheService.getEnv("dev-johndoe-app-mysql-5-5", loader);
+
+        containerEnvCacheService.invalidate("dev-johndoe-app-tomcat-8");
+
+        containerEnvCacheService.getEnv("dev-johndoe-app-mysql-5-5", loader);
+        Assert.assertEquals(2, inspections.get());
+        containerEnvCacheService.getEnv("dev-johndoe-app-tomcat-8", loader);
+        Assert.assertEquals(3, inspections.get());
+    }
+
+    @Test
+    public void localEntriesAreBoundedAndPurged() {
+        ReflectionTestUtils.setField(containerEnvCacheService, "localMax", 1);
+        ReflectionTestUtils.setField(containerEnvCacheService, "localTtl", 0L);
+        containerEnvCacheService.getEnv("dev-johndoe-app-tomcat-8", loader);
+        Assert.assertEquals(1, containerEnvCacheService.getStatistics().get("localEntries"));
+
+        // the expired entry leaves room for the next container
+        containerEnvCacheService.getEnv("dev-johndoe-app-mysql-5-5", loader);
+        Assert.assertEquals(1, containerEnvCacheService.getStatistics().get("localEntries"));
+
+        containerEnvCacheService.purge();
+        Assert.assertEquals(0, containerEnvCacheService.getStatistics().get("localEntries"));
+    }
+}
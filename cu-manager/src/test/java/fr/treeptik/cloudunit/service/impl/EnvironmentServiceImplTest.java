@@ -0,0 +1,224 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import fr.treeptik.cloudunit.dao.EnvironmentDAO;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeReport;
+import fr.treeptik.cloudunit.dto.EnvironmentChangeSet;
+import fr.treeptik.cloudunit.enums.ImageSubType;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.model.Application;
+import fr.treeptik.cloudunit.model.EnvironmentVariable;
+import fr.treeptik.cloudunit.model.Image;
+import fr.treeptik.cloudunit.model.Server;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.service.ApplicationService;
+import fr.treeptik.cloudunit.service.DockerService;
+import fr.treeptik.cloudunit.service.ServerService;
+import fr.treeptik.cloudunit.service.VolumeService;
+
+public class EnvironmentServiceImplTest {
+
+    private static final String CONTAINER = "johndoe-myapp-tomcat-8";
+
+    private EnvironmentServiceImpl environmentService;
+
+    private final List<EnvironmentVariable> variables = Collections.synchronizedList(new ArrayList<>());
+
+    private final User user = new User();
+
+    private int removals;
+
+    private int recreates;
+
+    private int rollbacks;
+
+    private boolean recreateFails;
+
+    private ExecutorService executor;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        variables.add(variable(1, "CU_DATABASE_USER", "admin"));
+
+        environmentService = new EnvironmentServiceImpl();
+        ReflectionTestUtils.setField(environmentService, "environmentDAO", stub(EnvironmentDAO.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "findByContainer":
+                synchronized (variables) {
+                    return variables.stream().filter(v -> v.getContainerName().equals(args[0]))
+                            .collect(Collectors.toList());
+                }
+            case "save":
+                for (EnvironmentVariable variable : (Iterable<EnvironmentVariable>) args[0]) {
+                    if (variable.getId() == null) {
+                        variable.setId(variables.size() + 100);
+                        variables.add(variable);
+                    }
+                }
+                return null;
+            case "delete":
+                ((Iterable<EnvironmentVariable>) args[0]).forEach(variables::remove);
+                return null;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+        ReflectionTestUtils.setField(environmentService, "applicationService",
+                stub(ApplicationService.class, (proxy, method, args) -> new Application()));
+        ReflectionTestUtils.setField(environmentService, "applicationEventPublisher",
+                stub(ApplicationEventPublisher.class, (proxy, method, args) -> null));
+        ReflectionTestUtils.setField(environmentService, "volumeService",
+                stub(VolumeService.class, (proxy, method, args) -> new ArrayList<>()));
+        ReflectionTestUtils.setField(environmentService, "serverService",
+                stub(ServerService.class, (proxy, method, args) -> server()));
+        ReflectionTestUtils.setField(environmentService, "dockerService", stub(DockerService.class, (proxy, method, args) -> {
+            synchronized (this) {
+                if (method.getName().equals("createServer")) {
+                    recreates++;
+                    if (recreateFails) {
+                        throw new ServiceException("Cannot create the container");
+                    }
+                } else {
+                    removals++;
+                }
+            }
+            return null;
+        }));
+        ReflectionTestUtils.setField(environmentService, "transactionManager", new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                ((SimpleTransactionStatus) status).setCompleted();
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                rollbacks++;
+                ((SimpleTransactionStatus) status).setCompleted();
+            }
+        });
+        ReflectionTestUtils.setField(environmentService, "debounce", 300L);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentChangeSetsAreMergedIntoOneRecreate() throws Exception {
+        Future<EnvironmentChangeReport> first = executor.submit(() -> environmentService.apply(user, "myapp", CONTAINER,
+                new EnvironmentChangeSet().set("JAVA_OPTS", "-Xmx512m").set("CU_DATABASE_USER", "root")));
+        Future<EnvironmentChangeReport> second = executor.submit(() -> environmentService.apply(user, "myapp",
+                CONTAINER, new EnvironmentChangeSet().set("CATALINA_OPTS", "-server").unset("JAVA_OPTS")));
+
+        EnvironmentChangeReport report = first.get();
+        Assert.assertSame(report, second.get());
+        Assert.assertEquals(2, report.getMergedChangeSets());
+        Assert.assertTrue(report.isRecreated());
+        Assert.assertEquals(1, recreates);
+        Assert.assertEquals(1, removals);
+        Assert.assertEquals(Arrays.asList("CU_DATABASE_USER"), report.getUpdated());
+        Assert.assertTrue(report.getAdded().contains("CATALINA_OPTS"));
+        Assert.assertTrue(report.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void unchangedVariablesDoNotRecreateTheContainer() throws Exception {
+        EnvironmentChangeReport report = environmentService.apply(user, "myapp", CONTAINER,
+                new EnvironmentChangeSet().set("CU_DATABASE_USER", "admin").unset("UNKNOWN"));
+
+        Assert.assertFalse(report.hasChanges());
+        Assert.assertFalse(report.isRecreated());
+        Assert.assertEquals(0, recreates);
+        Assert.assertEquals(0, removals);
+    }
+
+    @Test
+    public void failedRecreateRollsBackAndRestoresTheContainer() throws Exception {
+        recreateFails = true;
+        try {
+            environmentService.apply(user, "myapp", CONTAINER, new EnvironmentChangeSet().unset("CU_DATABASE_USER"));
+            Assert.fail("The change set should have failed");
+        } catch (ServiceException e) {
+            Assert.assertEquals("Cannot create the container", e.getMessage());
+        }
+        Assert.assertEquals(1, rollbacks);
+        Assert.assertEquals(2, recreates);
+    }
+
+    @Test(expected = CheckException.class)
+    public void invalidKeysAreRejectedBeforeStaging() throws Exception {
+        environmentService.apply(user, "myapp", CONTAINER, new EnvironmentChangeSet().set("NOT VALID", "value"));
+    }
+
+    private Server server() {
+        Image image = new Image();
+        image.setPath("cloudunit/tomcat-8");
+        image.setImageSubType(ImageSubType.APPSERVER);
+        Application application = new Application();
+        application.setUser(user);
+        Server server = new Server();
+        server.setName(CONTAINER);
+        server.setImage(image);
+        server.setApplication(application);
+        return server;
+    }
+
+    private EnvironmentVariable variable(int id, String key, String value) {
+        EnvironmentVariable variable = new EnvironmentVariable();
+        variable.setId(id);
+        variable.setKeyEnv(key);
+        variable.setValueEnv(value);
+        variable.setContainerName(CONTAINER);
+        return variable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ExecCreation;
+import com.spotify.docker.client.messages.ExecState;
+
+import fr.treeptik.cloudunit.dto.ExecRequest;
+import fr.treeptik.cloudunit.enums.RemoteExecAction;
+import fr.treeptik.cloudunit.dto.ExecResult;
+import fr.treeptik.cloudunit.exception.FatalDockerJSONException;
+
+public class ExecServiceImplTest {
+
+    private ExecServiceImpl execService;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        DockerClient dockerClient = (DockerClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DockerClient.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("execCreate")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    throw new DockerException("Container " + args[0] + " is not running");
+                });
+        execService = new ExecServiceImpl();
+        ReflectionTestUtils.setField(execService, "dockerClient", dockerClient);
+        ReflectionTestUtils.setField(execService, "defaultTimeout", 60000L);
+        ReflectionTestUtils.setField(execService, "maxPerContainer", 1);
+        ReflectionTestUtils.setField(execService, "maxTotal", 8);
+        execService.init();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        execService.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void commandsOfABusyContainerWaitUntilTheirDeadline() throws Exception {
+        Future<?> first = executor.submit(() -> execService.exec(new ExecRequest("c1", "sleep 60")));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            execService.exec(new ExecRequest("c1", "ls").timeout(100));
+            Assert.fail("The container has no free slot");
+        } catch (FatalDockerJSONException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Too many commands running"));
+        }
+
+        release.countDown();
+        try {
+            first.get(5, TimeUnit.SECONDS);
+            Assert.fail("The docker error should be reported");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof FatalDockerJSONException);
+        }
+
+        Map<String, Object> statistics = execService.getStatistics();
+        Assert.assertEquals(1L, statistics.get("rejected"));
+        Assert.assertEquals(0, statistics.get("running"));
+        Map<String, Object> other = (Map<String, Object>) ((Map<String, Object>) statistics.get("actions"))
+                .get(ExecServiceImpl.OTHER_ACTION);
+        Assert.assertEquals(1L, other.get("errors"));
+    }
+
+    @Test
+    public void actionsAreRecognizedFromTheirCommand() {
+        Assert.assertEquals("CHECK_RUNNING",
+                ExecServiceImpl.actionOf("/opt/cloudunit/scripts/check-running.sh johndoe secret"));
+        Assert.assertEquals("MODULE_POST_START_ONCE",
+                ExecServiceImpl.actionOf(RemoteExecAction.MODULE_POST_START_ONCE.getCommand()));
+        Assert.assertEquals("MODULE_POST_START", ExecServiceImpl.actionOf(RemoteExecAction.MODULE_POST_START.getCommand()));
+        Assert.assertEquals("CHMOD_PLUSX", ExecServiceImpl.actionOf("chmod +x /opt/cloudunit/scripts/custom_scripts/*"));
+        Assert.assertEquals(ExecServiceImpl.OTHER_ACTION, ExecServiceImpl.actionOf("rm /opt/cloudunit/tmp/app.war"));
+        Assert.assertEquals(ExecServiceImpl.OTHER_ACTION, ExecServiceImpl.actionOf("cat /etc/hosts"));
+    }
+
+    @Test
+    public void streamedCommandDeniedIsRunAgainAsRoot() throws Exception {
+        List<Boolean> privileged = Collections.synchronizedList(new ArrayList<>());
+        DockerClient dockerClient = (DockerClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DockerClient.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "execCreate":
+                        privileged.add(args.length > 2 && ((Object[]) args[2]).length > 3);
+                        return new ExecCreation("exec" + privileged.size());
+                    case "execStart":
+                        return "exec1".equals(args[0]) ? logStream(2, "cannot open file : Permission denied\n")
+                                : logStream(1, "done\n");
+                    case "execInspect":
+                        ExecState state = new ExecState();
+                        ReflectionTestUtils.setField(state, "exitCode", "exec1".equals(args[0]) ? 1 : 0);
+                        return state;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ExecServiceImpl streaming = new ExecServiceImpl();
+        ReflectionTestUtils.setField(streaming, "dockerClient", dockerClient);
+        ReflectionTestUtils.setField(streaming, "defaultTimeout", 60000L);
+        ReflectionTestUtils.setField(streaming, "maxPerContainer", 1);
+        ReflectionTestUtils.setField(streaming, "maxTotal", 8);
+        streaming.init();
+        try {
+            StringBuilder received = new StringBuilder();
+            ExecResult result = streaming.exec(new ExecRequest("c1", "/opt/cloudunit/custom_scripts/run.sh")
+                    .rootFallback(true), (stderr, content) -> {
+                        byte[] bytes = new byte[content.remaining()];
+                        content.get(bytes);
+                        received.append(new String(bytes, StandardCharsets.UTF_8));
+                    });
+
+            Assert.assertTrue(result.isSuccess());
+            Assert.assertEquals(2, privileged.size());
+            Assert.assertFalse(privileged.get(0));
+            Assert.assertTrue(privileged.get(1));
+            Assert.assertEquals("cannot open file : Permission denied\ndone\n", received.toString());
+        } finally {
+            streaming.destroy();
+        }
+    }
+
+    /**
+     * The frames docker multiplexes the outputs of a command with : stream, padding, size and content.
+     */
+    private static LogStream logStream(int stream, String text) throws Exception {
+        byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(8 + content.length);
+        frame.put((byte) stream).put(new byte[3]).putInt(content.length).put(content);
+        Constructor<LogStream> constructor = LogStream.class.getDeclaredConstructor(InputStream.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(new ByteArrayInputStream(frame.array()));
+    }
+}
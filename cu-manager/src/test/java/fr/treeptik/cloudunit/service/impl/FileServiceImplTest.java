@@ -0,0 +1,53 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.treeptik.cloudunit.dto.FileUnit;
+import fr.treeptik.cloudunit.filters.explorer.GenericFilter;
+
+public class FileServiceImplTest {
+
+    @Test
+    public void parsesTheListingOfTheDirectoryAndOfItsSubDirectories() {
+        String output = "d\t4096\t1466000000.0000000000\troot\t755\twebapps\0"
+                + "f\t120\t1466000000.5000000000\ttomcat\t755\tstartup.sh\0"
+                + "find: '/opt/cloudunit/secret': Permission denied\n"
+                + "f\t2048\t1466000000.0000000000\ttomcat\t644\twebapps/my app.war\0";
+
+        Map<String, List<FileUnit>> listings = FileServiceImpl.parseListing("/opt/cloudunit/", output,
+                new GenericFilter());
+
+        List<FileUnit> files = listings.get("/opt/cloudunit/");
+        Assert.assertEquals(2, files.size());
+        Assert.assertTrue(files.get(0).isDir());
+        Assert.assertEquals("/opt/cloudunit/webapps", files.get(0).getBreadcrump());
+        Assert.assertEquals("startup.sh", files.get(1).getName());
+        Assert.assertEquals(120, files.get(1).getSize());
+        Assert.assertEquals(1466000000500L, files.get(1).getLastModified().getTime());
+
+        List<FileUnit> webapps = listings.get("/opt/cloudunit/webapps/");
+        Assert.assertEquals(1, webapps.size());
+        Assert.assertEquals("my app.war", webapps.get(0).getName());
+        Assert.assertEquals("tomcat", webapps.get(0).getUser());
+        Assert.assertEquals("/opt/cloudunit/webapps/my app.war", webapps.get(0).getBreadcrump());
+    }
+}
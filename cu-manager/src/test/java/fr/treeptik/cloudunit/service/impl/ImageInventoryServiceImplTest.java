@@ -0,0 +1,139 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.config.events.ImageEvent;
+import fr.treeptik.cloudunit.exception.ServiceException;
+import fr.treeptik.cloudunit.service.DockerService;
+
+public class ImageInventoryServiceImplTest {
+
+    private ImageInventoryServiceImpl imageInventoryService;
+
+    private final Map<String, String> tags = new HashMap<>();
+
+    private int listings;
+
+    // the background listings, run by the test when it wants them
+    private final List<Runnable> requested = new ArrayList<>();
+
+    private boolean dockerDown;
+
+    @Before
+    public void setUp() {
+        tags.put("cloudunit/tomcat-8:latest", "sha256:aaa");
+        tags.put("registry.treeptik.fr:5000/cloudunit/mysql-5-7:latest", "sha256:bbb");
+        DockerService dockerService = (DockerService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DockerService.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("listImageTags")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    listings++;
+                    if (dockerDown) {
+                        throw new ServiceException("Cannot list the images", null);
+                    }
+                    return new HashMap<>(tags);
+                });
+        imageInventoryService = new ImageInventoryServiceImpl();
+        ReflectionTestUtils.setField(imageInventoryService, "dockerService", dockerService);
+        ReflectionTestUtils.setField(imageInventoryService, "executor", (Executor) requested::add);
+        imageInventoryService.init();
+        runRequested();
+    }
+
+    @After
+    public void tearDown() {
+        imageInventoryService.destroy();
+    }
+
+    @Test
+    public void imagesAreIndexedByRepository() {
+        Assert.assertTrue(imageInventoryService.isSynchronized());
+        Assert.assertTrue(imageInventoryService.isPulled("cloudunit/tomcat-8"));
+        Assert.assertTrue(imageInventoryService.isPulled("cloudunit/mysql-5-7"));
+        Assert.assertFalse(imageInventoryService.isPulled("cloudunit/tomcat-7"));
+        Assert.assertEquals("sha256:aaa", imageInventoryService.getImageId("cloudunit/tomcat-8"));
+    }
+
+    @Test
+    public void lookupsDoNotRequestDocker() {
+        int before = listings;
+        for (int i = 0; i < 100; i++) {
+            imageInventoryService.isPulled("cloudunit/tomcat-8");
+        }
+        Assert.assertEquals(before, listings);
+    }
+
+    @Test
+    public void eventsAreAppliedBeforeTheNextListing() {
+        dockerDown = true;
+        imageInventoryService.onImageEvent(new ImageEvent("cloudunit/wildfly-10:latest", "pull"));
+        imageInventoryService.onImageEvent(new ImageEvent("sha256:aaa", "delete"));
+
+        Assert.assertTrue(imageInventoryService.isPulled("cloudunit/wildfly-10"));
+        Assert.assertNull(imageInventoryService.getImageId("cloudunit/wildfly-10"));
+        Assert.assertFalse(imageInventoryService.isPulled("cloudunit/tomcat-8"));
+        // both events requested a single listing
+        Assert.assertEquals(1, requested.size());
+    }
+
+    @Test
+    public void requestedListingLearnsTheIds() {
+        tags.put("cloudunit/wildfly-10:latest", "sha256:ccc");
+        imageInventoryService.onImageEvent(new ImageEvent("cloudunit/wildfly-10:latest", "pull"));
+        Assert.assertNull(imageInventoryService.getImageId("cloudunit/wildfly-10"));
+
+        runRequested();
+        Assert.assertEquals("sha256:ccc", imageInventoryService.getImageId("cloudunit/wildfly-10"));
+    }
+
+    @Test
+    public void failedListingKeepsTheInventory() {
+        dockerDown = true;
+        imageInventoryService.sync();
+        Assert.assertTrue(imageInventoryService.isPulled("cloudunit/tomcat-8"));
+        Assert.assertEquals(1L, imageInventoryService.getStatistics().get("syncErrors"));
+    }
+
+    @Test
+    public void repositoryIgnoresRegistryTagAndDigest() {
+        Assert.assertEquals("cloudunit/tomcat-8", ImageInventoryServiceImpl.repository("cloudunit/tomcat-8"));
+        Assert.assertEquals("cloudunit/tomcat-8", ImageInventoryServiceImpl.repository("cloudunit/tomcat-8:8.0"));
+        Assert.assertEquals("cloudunit/tomcat-8",
+                ImageInventoryServiceImpl.repository("localhost:5000/cloudunit/tomcat-8:latest"));
+        Assert.assertEquals("cloudunit/tomcat-8",
+                ImageInventoryServiceImpl.repository("cloudunit/tomcat-8@sha256:0123456789"));
+    }
+
+    private void runRequested() {
+        List<Runnable> tasks = new ArrayList<>(requested);
+        requested.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.dto.ContainerTiming;
+import fr.treeptik.cloudunit.utils.OrchestrationPlan;
+
+public class OrchestrationServiceImplTest {
+
+    private OrchestrationServiceImpl orchestrationService;
+
+    @Before
+    public void setUp() {
+        orchestrationService = new OrchestrationServiceImpl();
+        ReflectionTestUtils.setField(orchestrationService, "threads", 4);
+        orchestrationService.init();
+    }
+
+    @After
+    public void tearDown() {
+        orchestrationService.destroy();
+    }
+
+    @Test
+    public void test_independentStepsRunInParallel() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        OrchestrationPlan plan = new OrchestrationPlan()
+                .step("mysql", "start", () -> await(latch))
+                .step("redis", "start", () -> await(latch));
+
+        List<ContainerTiming> timings = orchestrationService.execute(plan).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, timings.size());
+        Assert.assertTrue(timings.stream().allMatch(ContainerTiming::isSuccess));
+    }
+
+    @Test
+    public void test_stepRunsAfterItsDependenciesEvenWhenTheyFail() throws Exception {
+        CompletableFuture<Void> module = new CompletableFuture<>();
+        OrchestrationPlan plan = new OrchestrationPlan()
+                .step("mysql", "start", () -> module)
+                .step("tomcat", "start", () -> {
+                    Assert.assertTrue(module.isDone());
+                    return CompletableFuture.completedFuture(null);
+                }, "mysql");
+
+        CompletableFuture<List<ContainerTiming>> result = orchestrationService.execute(plan);
+        Assert.assertFalse(result.isDone());
+        module.completeExceptionally(new IllegalStateException("mysql"));
+        List<ContainerTiming> timings = result.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals("mysql", timings.get(0).getContainerName());
+        Assert.assertFalse(timings.get(0).isSuccess());
+        Assert.assertEquals("mysql", timings.get(0).getError().getMessage());
+        Assert.assertTrue(timings.get(1).isSuccess());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_dependencyMustBeDeclaredFirst() {
+        new OrchestrationPlan().step("tomcat", "start", () -> null, "mysql");
+    }
+
+    private CompletableFuture<Void> await(CountDownLatch latch) throws InterruptedException {
+        latch.countDown();
+        if (!latch.await(2, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("steps did not run at the same time");
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
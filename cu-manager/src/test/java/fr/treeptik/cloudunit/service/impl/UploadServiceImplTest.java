@@ -0,0 +1,191 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.treeptik.cloudunit.dto.Artifact;
+import fr.treeptik.cloudunit.dto.UploadSession;
+import fr.treeptik.cloudunit.exception.CheckException;
+import fr.treeptik.cloudunit.model.User;
+import fr.treeptik.cloudunit.utils.TransferMetrics;
+
+public class UploadServiceImplTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArtifactServiceImpl artifactService;
+
+    private UploadServiceImpl uploadService;
+
+    private User user;
+
+    @Before
+    public void setUp() throws IOException {
+        artifactService = new ArtifactServiceImpl();
+        ReflectionTestUtils.setField(artifactService, "path", folder.getRoot().getAbsolutePath());
+        ReflectionTestUtils.setField(artifactService, "maxSize", 1024L);
+        artifactService.init();
+
+        uploadService = new UploadServiceImpl();
+        ReflectionTestUtils.setField(uploadService, "artifactService", artifactService);
+        ReflectionTestUtils.setField(uploadService, "transferMetrics", new TransferMetrics());
+        ReflectionTestUtils.setField(uploadService, "partSize", 10L);
+        ReflectionTestUtils.setField(uploadService, "maxSize", 1024L);
+        ReflectionTestUtils.setField(uploadService, "sessionTimeout", 60000L);
+        uploadService.init();
+
+        user = new User();
+        user.setLogin("johndoe");
+    }
+
+    @Test
+    public void partsSentInAnyOrderMakeTheArtifact() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        Assert.assertEquals(4, session.getPartCount());
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), session.getMissingParts());
+
+        for (int index : new int[] { 3, 1, 0, 2 }) {
+            sendPart(session.getId(), index);
+        }
+        Artifact artifact = uploadService.commit(user, "app", session.getId());
+
+        Assert.assertEquals(DigestUtils.sha256Hex(CONTENT), artifact.getSha256());
+        try (InputStream in = artifactService.open(artifact)) {
+            Assert.assertEquals(CONTENT, IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(1L, uploadService.getStatistics().get("committed"));
+        Assert.assertEquals(0, uploadService.getStatistics().get("pending"));
+    }
+
+    @Test
+    public void pendingSessionIsResumed() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        sendPart(session.getId(), 0);
+        sendPart(session.getId(), 2);
+
+        UploadSession resumed = uploadService.open(user, "app", request());
+
+        Assert.assertEquals(session.getId(), resumed.getId());
+        Assert.assertEquals(Arrays.asList(1, 3), resumed.getMissingParts());
+    }
+
+    @Test
+    public void corruptedPartIsNotKept() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        try {
+            uploadService.writePart(user, "app", session.getId(), 1, DigestUtils.sha256Hex(part(1)),
+                    stream("klmnopqrsX"));
+            Assert.fail();
+        } catch (CheckException e) {
+            Assert.assertEquals("Checksum mismatch on part 1", e.getMessage());
+        }
+
+        Assert.assertTrue(uploadService.find(user, "app", session.getId()).getMissingParts().contains(1));
+        Assert.assertEquals(1L, uploadService.getStatistics().get("partsRejected"));
+    }
+
+    @Test
+    public void rejectedResendKeepsTheReceivedPart() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        for (int index = 0; index < 4; index++) {
+            sendPart(session.getId(), index);
+        }
+        try {
+            uploadService.writePart(user, "app", session.getId(), 1, DigestUtils.sha256Hex(part(1)),
+                    stream("klmnopqrsX"));
+            Assert.fail();
+        } catch (CheckException e) {
+            Assert.assertEquals("Checksum mismatch on part 1", e.getMessage());
+        }
+
+        Artifact artifact = uploadService.commit(user, "app", session.getId());
+        Assert.assertEquals(DigestUtils.sha256Hex(CONTENT), artifact.getSha256());
+        Assert.assertEquals(0, folder.getRoot().toPath().resolve("uploads").toFile().list().length);
+    }
+
+    @Test(expected = CheckException.class)
+    public void incompleteUploadCannotBeCommitted() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        sendPart(session.getId(), 0);
+
+        uploadService.commit(user, "app", session.getId());
+    }
+
+    @Test(expected = CheckException.class)
+    public void sessionsAreKeptToTheirOwner() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        User other = new User();
+        other.setLogin("janedoe");
+
+        uploadService.find(other, "app", session.getId());
+    }
+
+    @Test
+    public void inactiveSessionsExpire() throws Exception {
+        UploadSession session = uploadService.open(user, "app", request());
+        ReflectionTestUtils.setField(uploadService, "sessionTimeout", -1L);
+
+        uploadService.expire();
+
+        Assert.assertEquals(1L, uploadService.getStatistics().get("expired"));
+        Assert.assertEquals(0, folder.getRoot().toPath().resolve("uploads").toFile().list().length);
+        try {
+            uploadService.find(user, "app", session.getId());
+            Assert.fail();
+        } catch (CheckException e) {
+            Assert.assertEquals("Unknown upload " + session.getId(), e.getMessage());
+        }
+    }
+
+    private UploadSession request() {
+        UploadSession request = new UploadSession();
+        request.setFileName("app.war");
+        request.setSize(CONTENT.length());
+        request.setSha256(DigestUtils.sha256Hex(CONTENT));
+        return request;
+    }
+
+    private void sendPart(String id, int index) throws Exception {
+        String part = part(index);
+        uploadService.writePart(user, "app", id, index, DigestUtils.sha256Hex(part), stream(part));
+    }
+
+    private String part(int index) {
+        return CONTENT.substring(index * 10, Math.min(CONTENT.length(), index * 10 + 10));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
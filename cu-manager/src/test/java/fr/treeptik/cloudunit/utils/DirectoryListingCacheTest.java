@@ -0,0 +1,52 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirectoryListingCacheTest {
+
+    @Test
+    public void invalidatesTheDirectoryItsParentAndItsSubtree() {
+        DirectoryListingCache<String> cache = new DirectoryListingCache<>(60000, 100);
+        cache.put("c1", "/opt/", "opt");
+        cache.put("c1", "/opt/cloudunit/", "cloudunit");
+        cache.put("c1", "/opt/cloudunit/tomcat/", "tomcat");
+        cache.put("c1", "/opt/other/", "other");
+        cache.put("c2", "/opt/cloudunit/", "c2");
+
+        cache.invalidate("c1", "/opt/cloudunit");
+
+        Assert.assertNull(cache.get("c1", "/opt/"));
+        Assert.assertNull(cache.get("c1", "/opt/cloudunit/"));
+        Assert.assertNull(cache.get("c1", "/opt/cloudunit/tomcat"));
+        Assert.assertEquals("other", cache.get("c1", "/opt/other"));
+        Assert.assertEquals("c2", cache.get("c2", "/opt//cloudunit"));
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() throws InterruptedException {
+        DirectoryListingCache<String> cache = new DirectoryListingCache<>(1, 100);
+        cache.put("c1", "/opt", "opt");
+        Thread.sleep(10);
+        Assert.assertNull(cache.get("c1", "/opt"));
+
+        DirectoryListingCache<String> disabled = new DirectoryListingCache<>(0, 100);
+        disabled.put("c1", "/opt", "opt");
+        Assert.assertEquals(0, disabled.size());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreTheUpperBoundOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(8);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(700);
+        }
+        histogram.record(45000);
+
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(10, histogram.percentile(0.50));
+        Assert.assertEquals(1000, histogram.percentile(0.95));
+        Assert.assertEquals(1000, histogram.percentile(0.99));
+        Assert.assertEquals(45000, histogram.percentile(1));
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(120);
+        Assert.assertEquals(120, histogram.percentile(0.99));
+        histogram.record(400000);
+        Assert.assertEquals(400000, histogram.percentile(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mapGivesTheDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0L, histogram.toMap().get("averageMillis"));
+        histogram.record(30);
+        histogram.record(90);
+
+        Map<String, Object> statistics = histogram.toMap();
+        Assert.assertEquals(2L, statistics.get("count"));
+        Assert.assertEquals(60L, statistics.get("averageMillis"));
+        Map<String, Long> buckets = (Map<String, Long>) statistics.get("buckets");
+        Assert.assertEquals(Long.valueOf(1), buckets.get("<=50"));
+        Assert.assertEquals(Long.valueOf(1), buckets.get("<=100"));
+        Assert.assertEquals(Long.valueOf(0), buckets.get(">300000"));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelGzipOutputStreamTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void blocksAreWrittenInOrder() throws IOException {
+        byte[] data = new byte[10 * 1000 + 7];
+        new Random(42).nextBytes(data);
+        for (int i = 0; i < data.length; i += 3) {
+            data[i] = 'a';
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, executor, 1000, 6, 2)) {
+            out.write(data, 0, 4321);
+            out.write(data[4321]);
+            out.write(data, 4322, data.length - 4322);
+        }
+
+        Assert.assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void emptyStreamIsValidGzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, executor, 1000, 6, 2).close();
+
+        Assert.assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+}
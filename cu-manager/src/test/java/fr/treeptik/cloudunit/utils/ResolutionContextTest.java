@@ -0,0 +1,81 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import fr.treeptik.cloudunit.model.User;
+
+public class ResolutionContextTest {
+
+    private ResolutionContext resolutionContext;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private final ResolutionContext.Loader<User> loader = () -> {
+        queries.incrementAndGet();
+        User user = new User();
+        user.setLogin("johndoe");
+        return user;
+    };
+
+    @Before
+    public void setUp() {
+        resolutionContext = new ResolutionContext();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void userIsLoadedOncePerRequestUntilUpdated() throws Exception {
+        newRequest();
+        resolutionContext.getUser("johndoe", loader);
+        resolutionContext.getUser("johndoe", loader);
+        Assert.assertEquals(1, queries.get());
+
+        resolutionContext.invalidateUser("johndoe");
+        resolutionContext.getUser("johndoe", loader);
+        Assert.assertEquals(2, queries.get());
+
+        // nothing is kept from one request to the next
+        newRequest();
+        resolutionContext.getUser("johndoe", loader);
+        Assert.assertEquals(3, queries.get());
+        Assert.assertEquals(1L, resolutionContext.getStatistics().get("queriesSaved"));
+    }
+
+    @Test
+    public void nothingIsCachedOutsideOfARequest() throws Exception {
+        resolutionContext.getUser("johndoe", loader);
+        resolutionContext.getUser("johndoe", loader);
+        Assert.assertEquals(2, queries.get());
+    }
+
+    private void newRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * LICENCE : CloudUnit is available under the GNU Affero General Public License : https://gnu.org/licenses/agpl.html
+ * but CloudUnit is licensed too under a standard commercial license.
+ * Please contact our sales team if you would like to discuss the specifics of our Enterprise license.
+ * If you are not sure whether the AGPL is right for you,
+ * you can always test our software under the AGPL and inspect the source code before you contact us
+ * about purchasing a commercial license.
+ *
+ * LEGAL TERMS : "CloudUnit" is a registered trademark of Treeptik and can't be used to endorse
+ * or promote products derived from this project without prior written permission from Treeptik.
+ * Products or services derived from this software may not be called "CloudUnit"
+ * nor may "Treeptik" or similar confusing terms appear in their names without prior written permission.
+ * For any questions, contact us : contact@treeptik.fr
+ */
+
+package fr.treeptik.cloudunit.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.treeptik.cloudunit.dto.ScriptCommand;
+import fr.treeptik.cloudunit.exception.CheckException;
+
+public class ScriptParserTest {
+
+    private final ScriptParser parser = new ScriptParser(
+            new HashSet<>(Arrays.asList("use", "create-app", "rm-app", "create-env-var")));
+
+    @Test
+    public void parsesOptionsArgumentsAndFlags() {
+        List<ScriptCommand> commands = parser.parse("# demo\n"
+                + "create-app --name demo --type tomcat-8\n"
+                + "\n"
+                + "  // comment\n"
+                + "use demo\n"
+                + "create-env-var JAVA_OPTS \"-Xms64m -Xmx512m\"\n"
+                + "rm-app --name demo --errorIfNotExists --scriptUsage\n");
+
+        Assert.assertEquals(4, commands.size());
+        ScriptCommand create = commands.get(0);
+        Assert.assertEquals(2, create.getLine());
+        Assert.assertEquals("create-app", create.getName());
+        Assert.assertEquals("demo", create.getOption("name"));
+        Assert.assertEquals("tomcat-8", create.getOption("type"));
+
+        Assert.assertEquals(5, commands.get(1).getLine());
+        Assert.assertEquals("demo", commands.get(1).getOption("name", 0));
+
+        ScriptCommand variable = commands.get(2);
+        Assert.assertEquals("JAVA_OPTS", variable.getOption("key", 0));
+        Assert.assertEquals("-Xms64m -Xmx512m", variable.getOption("value", 1));
+
+        ScriptCommand remove = commands.get(3);
+        Assert.assertTrue(remove.isFlag("errorIfNotExists"));
+        Assert.assertTrue(remove.isFlag("scriptUsage"));
+        Assert.assertEquals("demo", remove.getOption("name"));
+    }
+
+    @Test
+    public void unknownCommandIsReportedWithItsLine() {
+        try {
+            parser.parse("use demo\nstrat --name demo\n");
+            Assert.fail();
+        } catch (CheckException e) {
+            Assert.assertEquals("Syntax error line 2 : command strat not found", e.getMessage());
+        }
+    }
+
+    @Test(expected = CheckException.class)
+    public void unclosedQuoteIsRejected() {
+        parser.parse("create-env-var KEY 'value\n");
+    }
+
+    @Test(expected = CheckException.class)
+    public void repeatedOptionIsRejected() {
+        parser.parse("create-app --name demo --name other --type tomcat-8\n");
+    }
+}
@@ -15,6 +15,9 @@
 
 package fr.treeptik.cloudunit.maven.plugin.exception;
 
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+
 public class CheckException
     extends Exception
 {
@@ -29,4 +32,19 @@ public class CheckException
         super( message, e );
     }
 
+    /**
+     * @return true if the manager answered 404
+     */
+    public boolean isNotFound()
+    {
+        for ( Throwable cause = getCause(); cause != null; cause = cause.getCause() )
+        {
+            if ( cause instanceof HttpResponseException )
+            {
+                return ( (HttpResponseException) cause ).getStatusCode() == HttpStatus.SC_NOT_FOUND;
+            }
+        }
+        return false;
+    }
+
 }
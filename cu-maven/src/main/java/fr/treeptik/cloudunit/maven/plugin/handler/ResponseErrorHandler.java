@@ -22,6 +22,7 @@ import org.apache.commons.io.LineIterator;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.util.EntityUtils;
 
@@ -61,8 +62,9 @@ public class ResponseErrorHandler
                 case 403:
                     throw new ClientProtocolException( "Status 403 - You must be an admin to execute this command!" );
                 case 404:
-                    throw new ClientProtocolException(
-                                                       "Status 404 - The server can treat the request, please contact an admin" );
+                    // the status tells an unknown resource from a failure
+                    throw new HttpResponseException( status,
+                                                     "Status 404 - The server can treat the request, please contact an admin" );
                 default:
                     throw new ClientProtocolException( "Cloudunit server does not response. Please contact an admin" );
             }
@@ -16,15 +16,16 @@
 package fr.treeptik.cloudunit.maven.plugin.mojo;
 
 import fr.treeptik.cloudunit.maven.plugin.exception.CheckException;
-import fr.treeptik.cloudunit.maven.plugin.utils.JsonConverter;
 import fr.treeptik.cloudunit.maven.plugin.utils.RestUtils;
 import fr.treeptik.cloudunit.maven.plugin.utils.UtilFactory;
-import fr.treeptik.cloudunit.model.Application;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -102,10 +103,55 @@ public abstract class CloudunitMojo
     protected void deploy(String path)
             throws MojoExecutionException, IOException {
 
+        String sha256;
+        try (FileInputStream in = new FileInputStream(path)) {
+            sha256 = DigestUtils.sha256Hex(in);
+        }
+        if (deployKnownArtifact(new File(path).getName(), sha256)) {
+            return;
+        }
+        if (new File(path).length() >= RestUtils.CHUNKED_UPLOAD_THRESHOLD) {
+            try {
+                if (restUtils.sendChunkedUpload(managerURL + "/application/" + applicationName + "/uploads", path,
+                        sha256, getLog()) != null) {
+                    return;
+                }
+                getLog().debug("The manager does not receive archives in parts, the archive is sent in one request");
+            } catch (CheckException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
         restUtils.sendPostForUpload(managerURL + "/application/" + applicationName + "/deploy", path, getLog());
 
     }
 
+    /**
+     * Deploys the archive kept by the manager if it already knows its content.
+     *
+     * @return false if the archive must be uploaded
+     */
+    protected boolean deployKnownArtifact(String fileName, String sha256) throws MojoExecutionException {
+        try {
+            if (!restUtils.sendHeadCommand(managerURL + "/application/artifacts/" + sha256, getLog())) {
+                return false;
+            }
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("artifactHash", sha256);
+            parameters.put("fileName", fileName);
+            restUtils.sendPostCommand(managerURL + "/application/" + applicationName + "/deploy/artifact",
+                    parameters, getLog());
+            getLog().info("The archive is already known by the manager, it has not been uploaded");
+            return true;
+        } catch (CheckException e) {
+            if (!e.isNotFound()) {
+                throw new MojoExecutionException("Cannot deploy the archive : " + e.getMessage(), e);
+            }
+            // older manager or archive removed meanwhile
+            getLog().debug("Cannot deploy the archive by hash", e);
+            return false;
+        }
+    }
+
     protected void createSnapshot()
             throws MojoExecutionException {
         Map<String, String> parameters = new HashMap<String, String>();
@@ -128,16 +174,15 @@ public abstract class CloudunitMojo
     protected boolean isApplicationExists()
             throws MojoExecutionException {
 
-        Application application = null;
         try {
-            application =
-                    JsonConverter.getApplication(restUtils.sendGetCommand(managerURL + "/application/" + applicationName,
-                            getLog()).get("body"));
+            if (restUtils.sendHeadCommand(managerURL + "/application/" + applicationName + "/summary", getLog())) {
+                return true;
+            }
         } catch (CheckException e) {
-            getLog().warn("This app does not exists on the current CloudUnit platform");
+            getLog().warn("The existence of the application could not be checked : " + e.getMessage());
         }
-
-        return application != null;
+        getLog().warn("This app does not exists on the current CloudUnit platform");
+        return false;
     }
 
     protected void create()
@@ -18,25 +18,41 @@ package fr.treeptik.cloudunit.maven.plugin.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
@@ -48,16 +64,39 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import fr.treeptik.cloudunit.dto.UploadSession;
 import fr.treeptik.cloudunit.maven.plugin.exception.CheckException;
 import fr.treeptik.cloudunit.maven.plugin.handler.ResponseErrorHandler;
 
 public class RestUtils
 {
 
+    /**
+     * Archives from this size are uploaded in parts.
+     */
+    public static final long CHUNKED_UPLOAD_THRESHOLD = 16 * 1024 * 1024;
+
+    private static final int UPLOAD_THREADS = 4;
+
+    private static final int UPLOAD_ATTEMPTS = 3;
+
     public HttpClientContext localContext;
 
     public boolean isConnected = false;
 
+    /**
+     * Shared by the requests of the build, the connections to the manager are kept alive.
+     */
+    private final CloseableHttpClient httpclient;
+
+    public RestUtils()
+    {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal( UPLOAD_THREADS * 2 );
+        connectionManager.setDefaultMaxPerRoute( UPLOAD_THREADS * 2 );
+        httpclient = HttpClients.custom().setConnectionManager( connectionManager ).build();
+    }
+
     /**
      * @param url
      * @param parameters
@@ -70,7 +109,6 @@ public class RestUtils
     {
 
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
         List<NameValuePair> nvps = new ArrayList<>();
         nvps.add( new BasicNameValuePair( "j_username", (String) parameters.get( "login" ) ) );
         nvps.add( new BasicNameValuePair( "j_password", (String) parameters.get( "password" ) ) );
@@ -113,7 +151,6 @@ public class RestUtils
         throws CheckException
     {
         Map<String, String> response = new HashMap<String, String>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
         HttpGet httpget = new HttpGet( url );
         try
         {
@@ -145,8 +182,6 @@ public class RestUtils
         throws CheckException
     {
         Map<String, Object> response = new HashMap<String, Object>();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
         HttpPost httpPost = new HttpPost( url );
         httpPost.setHeader( "Accept", "application/json" );
         httpPost.setHeader( "Content-type", "application/json" );
@@ -172,6 +207,38 @@ public class RestUtils
         return response;
     }
 
+    /**
+     * @param url
+     * @param log
+     * @return true if the resource exists, false if not found
+     * @throws CheckException
+     */
+    public boolean sendHeadCommand( String url, Log log )
+        throws CheckException
+    {
+        HttpHead httpHead = new HttpHead( url );
+        int status;
+        try ( CloseableHttpResponse httpResponse = httpclient.execute( httpHead, localContext ) )
+        {
+            status = httpResponse.getStatusLine().getStatusCode();
+        }
+        catch ( Exception e )
+        {
+            log.warn( "HEAD request failed!" );
+
+            throw new CheckException( "Send HEAD to server failed!", e );
+        }
+        if ( status == HttpStatus.NOT_FOUND.value() )
+        {
+            return false;
+        }
+        if ( status < 200 || status >= 300 )
+        {
+            throw new CheckException( "Send HEAD to server failed with status " + status, null );
+        }
+        return true;
+    }
+
     public Map<String, Object> sendPostForUpload( String url, String path, Log log )
         throws IOException
     {
@@ -203,4 +270,152 @@ public class RestUtils
         return response;
     }
 
+    /**
+     * Sends the archive in parts, in parallel, then commits the upload which deploys it. A failed part is sent
+     * again, and when the upload stops the manager keeps the received parts for the next build.
+     *
+     * @param url the uploads of the application
+     * @return the response of the commit, null if the manager cannot open an upload in parts
+     * @throws CheckException
+     */
+    public String sendChunkedUpload( String url, String path, String sha256, final Log log )
+        throws CheckException
+    {
+        final File file = new File( path );
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put( "fileName", file.getName() );
+        request.put( "size", file.length() );
+        request.put( "sha256", sha256 );
+        final UploadSession session;
+        try
+        {
+            String body = sendJsonPost( url, new ObjectMapper().writeValueAsString( request ) );
+            session = new ObjectMapper().configure( DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false )
+                .readValue( body, UploadSession.class );
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Cannot open an upload in parts", e );
+            return null;
+        }
+
+        final String sessionUrl = url + "/" + session.getId();
+        long missing = 0;
+        for ( Integer index : session.getMissingParts() )
+        {
+            missing += Math.min( session.getPartSize(), session.getSize() - index * session.getPartSize() );
+        }
+        if ( missing < session.getSize() )
+        {
+            log.info( "Upload resumed, " + session.getMissingParts().size() + " of " + session.getPartCount()
+                + " parts to send" );
+        }
+        final AtomicLong sent = new AtomicLong( session.getSize() - missing );
+        final AtomicLong nextStep = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool( UPLOAD_THREADS );
+        try ( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            List<Future<?>> parts = new ArrayList<>();
+            for ( final Integer index : session.getMissingParts() )
+            {
+                parts.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws Exception
+                    {
+                        long total = sent.addAndGet( sendPart( sessionUrl, channel, session, index ) );
+                        synchronized ( nextStep )
+                        {
+                            if ( total >= nextStep.get() )
+                            {
+                                log.info( "Uploaded " + total * 100 / session.getSize() + "% (" + total / 1024
+                                    + " KB)" );
+                                nextStep.set( total + session.getSize() / 10 );
+                            }
+                        }
+                        return null;
+                    }
+                } ) );
+            }
+            for ( Future<?> part : parts )
+            {
+                part.get();
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            throw new CheckException( "Upload stopped, deploy again to send the missing parts : "
+                + e.getCause().getMessage(), e.getCause() );
+        }
+        catch ( IOException | InterruptedException e )
+        {
+            throw new CheckException( "Upload failed!", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        long duration = Math.max( 1, System.currentTimeMillis() - start );
+        log.info( String.format( "%d KB uploaded in %.1f s (%.2f MB/s)", missing / 1024, duration / 1000d,
+                                 ( missing / 1048576d ) / ( duration / 1000d ) ) );
+        return sendJsonPost( sessionUrl + "/commit", "{}" );
+    }
+
+    private long sendPart( String sessionUrl, FileChannel channel, UploadSession session, int index )
+        throws IOException, CheckException
+    {
+        long position = index * session.getPartSize();
+        byte[] content = new byte[(int) Math.min( session.getPartSize(), session.getSize() - position )];
+        ByteBuffer buffer = ByteBuffer.wrap( content );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                throw new IOException( "The archive has changed during its upload" );
+            }
+        }
+        HttpPut httpPut = new HttpPut( sessionUrl + "/parts/" + index + "?sha256=" + DigestUtils.sha256Hex( content ) );
+        httpPut.setHeader( "Accept", "application/json" );
+        httpPut.setEntity( new ByteArrayEntity( content, ContentType.APPLICATION_OCTET_STREAM ) );
+
+        Exception lastError = null;
+        for ( int attempt = 0; attempt < UPLOAD_ATTEMPTS; attempt++ )
+        {
+            try ( CloseableHttpResponse httpResponse = httpclient.execute( httpPut, localContext ) )
+            {
+                new ResponseErrorHandler().handleResponse( httpResponse );
+                return content.length;
+            }
+            catch ( IOException e )
+            {
+                lastError = e;
+            }
+        }
+        throw new CheckException( "Part " + index + " not sent : " + lastError.getMessage(), lastError );
+    }
+
+    private String sendJsonPost( String url, String json )
+        throws CheckException
+    {
+        HttpPost httpPost = new HttpPost( url );
+        httpPost.setHeader( "Accept", "application/json" );
+        httpPost.setHeader( "Content-type", "application/json" );
+        try
+        {
+            httpPost.setEntity( new StringEntity( json ) );
+            try ( CloseableHttpResponse httpResponse = httpclient.execute( httpPost, localContext ) )
+            {
+                return new ResponseErrorHandler().handleResponse( httpResponse );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new CheckException( "Send POST to server failed!", e );
+        }
+    }
+
 }